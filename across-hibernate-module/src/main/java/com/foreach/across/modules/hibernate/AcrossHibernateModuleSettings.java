@@ -40,11 +40,13 @@ public class AcrossHibernateModuleSettings extends JpaProperties
 	public static final String CREATE_UNITOFWORK_FACTORY = "across-hibernate.create-unit-of-work-factory";
 	public static final String REGISTER_REPOSITORY_INTERCEPTOR = "across-hibernate.register-repository-interceptor";
 	public static final String ADVANCED_DTO_CONVERSION = "across-hibernate.advanced-dto-conversion";
+	public static final String STATEMENT_STATISTICS = "across-hibernate.statement-statistics.enabled";
 
 	private TransactionProperties transactionProperties = new TransactionProperties();
 	private HibernateProperties hibernate = new HibernateProperties();
 	private ApplicationModule applicationModule = new ApplicationModule();
 	private PersistenceContextInViewProperties persistenceContextInView = new PersistenceContextInViewProperties();
+	private StatementStatisticsProperties statementStatistics = new StatementStatisticsProperties();
 
 	/**
 	 * Name of the dataSource bean that should be resolved and used for the entity manager.
@@ -126,4 +128,24 @@ public class AcrossHibernateModuleSettings extends JpaProperties
 		 */
 		private int order = Ordered.HIGHEST_PRECEDENCE + 1;
 	}
+
+	@Data
+	public static class StatementStatisticsProperties
+	{
+		/**
+		 * Should the SQL statements executed per request or unit of work be counted and timed.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Number of times the same statement has to be executed in a single request or unit of work
+		 * before it is reported as a likely N+1 select.
+		 */
+		private int repeatedStatementThreshold = 10;
+
+		/**
+		 * Maximum number of requests or units of work for which the statistics are kept.
+		 */
+		private int maxEntries = 100;
+	}
 }
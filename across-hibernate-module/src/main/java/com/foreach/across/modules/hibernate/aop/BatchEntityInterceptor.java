@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.aop;
+
+import java.util.Collection;
+
+/**
+ * Extension of {@link EntityInterceptor} that receives all entities of a single repository call at once,
+ * for example {@code saveAll} or {@code deleteInBatch} on a {@link org.springframework.data.jpa.repository.JpaRepository}.
+ * This allows expensive lookups to be done once per batch instead of once per entity.
+ * <p/>
+ * The default implementations call the corresponding single entity method for every entity.
+ * Regular {@link EntityInterceptor} implementations keep receiving a call per entity.
+ *
+ * @since 4.3.0
+ */
+public interface BatchEntityInterceptor<T> extends EntityInterceptor<T>
+{
+	/**
+	 * @param entities that will be created, all handled by this interceptor
+	 */
+	default void beforeCreateAll( Collection<T> entities ) {
+		entities.forEach( this::beforeCreate );
+	}
+
+	default void afterCreateAll( Collection<T> entities ) {
+		entities.forEach( this::afterCreate );
+	}
+
+	default void beforeUpdateAll( Collection<T> entities ) {
+		entities.forEach( this::beforeUpdate );
+	}
+
+	default void afterUpdateAll( Collection<T> entities ) {
+		entities.forEach( this::afterUpdate );
+	}
+
+	/**
+	 * Called before the given entities are deleted, unlike {@link #beforeDeleteAll(Class)} which is called
+	 * before all entities of a type are deleted.
+	 *
+	 * @param entities that will be deleted, all handled by this interceptor
+	 */
+	default void beforeDeleteAll( Collection<T> entities ) {
+		entities.forEach( this::beforeDelete );
+	}
+
+	default void afterDeleteAll( Collection<T> entities ) {
+		entities.forEach( this::afterDelete );
+	}
+}
@@ -26,6 +26,7 @@ import com.foreach.across.modules.hibernate.modules.config.ModuleBasicRepository
 import com.foreach.across.modules.hibernate.provider.HibernatePackage;
 import com.foreach.across.modules.hibernate.services.HibernateSessionHolder;
 import com.foreach.across.modules.hibernate.services.HibernateSessionHolderImpl;
+import com.foreach.across.modules.hibernate.statistics.StatementStatisticsRegistry;
 import com.foreach.across.modules.hibernate.strategy.TableAliasNamingStrategy;
 import com.foreach.across.modules.hibernate.unitofwork.UnitOfWorkFactory;
 import com.foreach.across.modules.hibernate.unitofwork.UnitOfWorkFactoryImpl;
@@ -97,6 +98,10 @@ public class HibernateConfiguration
 		Properties propertiesToSet = new Properties();
 		propertiesToSet.putAll( settings.getHibernateProperties( new HibernateSettings() ) );
 
+		if ( settings.getStatementStatistics().isEnabled() ) {
+			StatementStatisticsRegistry.registerHibernateProperties( propertiesToSet );
+		}
+
 		sessionFactory.setHibernateProperties( propertiesToSet );
 
 		return sessionFactory;
@@ -134,7 +139,19 @@ public class HibernateConfiguration
 	@Bean
 	@Exposed
 	public UnitOfWorkFactory unitOfWork( SessionFactory sessionFactory ) {
-		return new UnitOfWorkFactoryImpl( Collections.singleton( sessionFactory ) );
+		UnitOfWorkFactoryImpl unitOfWorkFactory = new UnitOfWorkFactoryImpl( Collections.singleton( sessionFactory ) );
+		if ( settings.getStatementStatistics().isEnabled() ) {
+			unitOfWorkFactory.setStatementStatisticsRegistry( statementStatisticsRegistry() );
+		}
+		return unitOfWorkFactory;
+	}
+
+	@Bean
+	@Exposed
+	@ConditionalOnExpression("@moduleSettings.statementStatistics.enabled")
+	public StatementStatisticsRegistry statementStatisticsRegistry() {
+		return new StatementStatisticsRegistry( settings.getStatementStatistics().getMaxEntries(),
+		                                        settings.getStatementStatistics().getRepeatedStatementThreshold() );
 	}
 
 	@EventListener
@@ -24,6 +24,7 @@ import com.foreach.across.core.context.info.AcrossModuleInfo;
 import com.foreach.across.modules.hibernate.AbstractHibernatePackageModule;
 import com.foreach.across.modules.hibernate.AcrossHibernateModuleSettings;
 import com.foreach.across.modules.hibernate.extensions.HibernatePersistenceContextInViewConfiguration;
+import com.foreach.across.modules.hibernate.extensions.StatementStatisticsFilterConfiguration;
 import com.foreach.across.modules.hibernate.jpa.AcrossHibernateJpaModule;
 import com.foreach.across.modules.hibernate.jpa.AcrossHibernateJpaModuleSettings;
 import lombok.RequiredArgsConstructor;
@@ -99,7 +100,8 @@ public class ModuleSettingsRegistrar implements ImportSelector, BeanFactoryAware
 	}
 
 	protected String[] settingsDependantImports() {
-		return new String[] { HibernatePersistenceContextInViewConfiguration.class.getName() };
+		return new String[] { HibernatePersistenceContextInViewConfiguration.class.getName(),
+		                      StatementStatisticsFilterConfiguration.class.getName() };
 	}
 
 	@RequiredArgsConstructor
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.extensions;
+
+import com.foreach.across.core.AcrossModule;
+import com.foreach.across.core.annotations.ConditionalOnAcrossModule;
+import com.foreach.across.core.annotations.Module;
+import com.foreach.across.modules.hibernate.statistics.StatementStatisticsFilter;
+import com.foreach.across.modules.hibernate.statistics.StatementStatisticsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.servlet.DispatcherType;
+import java.util.EnumSet;
+
+/**
+ * Registers the {@link StatementStatisticsFilter} if statement statistics are enabled.
+ *
+ * @since 4.3.0
+ */
+@ConditionalOnAcrossModule("AcrossWebModule")
+@ConditionalOnExpression("@moduleSettings.statementStatistics.enabled")
+@Configuration
+public class StatementStatisticsFilterConfiguration
+{
+	@Autowired
+	private StatementStatisticsRegistry statementStatisticsRegistry;
+
+	@Autowired
+	@Module(AcrossModule.CURRENT_MODULE)
+	private AcrossModule currentModule;
+
+	@Bean
+	public FilterRegistrationBean<StatementStatisticsFilter> statementStatisticsFilterRegistrationBean() {
+		FilterRegistrationBean<StatementStatisticsFilter> registrationBean = new FilterRegistrationBean<>();
+
+		registrationBean.setName( currentModule.getName() + ".StatementStatisticsFilter" );
+		registrationBean.setFilter( new StatementStatisticsFilter( statementStatisticsRegistry ) );
+		// right after the LoggingModule request logger (900) so the request id is available
+		registrationBean.setOrder( Ordered.HIGHEST_PRECEDENCE + 902 );
+		registrationBean.setDispatcherTypes( EnumSet.of( DispatcherType.REQUEST, DispatcherType.ERROR ) );
+		registrationBean.addUrlPatterns( "/*" );
+		return registrationBean;
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.foreach.across.modules.hibernate.jpa.aop;
 
+import com.foreach.across.modules.hibernate.aop.BatchEntityInterceptor;
 import com.foreach.across.modules.hibernate.aop.EntityInterceptor;
 import com.foreach.across.modules.hibernate.support.TransactionWrapper;
 import com.foreach.across.modules.hibernate.support.TransactionWrapper.InvocationCallback;
@@ -32,15 +33,27 @@ import org.springframework.util.ClassUtils;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Intercepts entity related methods on repository instances and executes before and after calls.
  * These calls are executed in the same transaction as the actual repository method.  If no outer transaction
  * is present, this interceptor should create one based on the transaction manager configured on the Spring Data
  * JPA repositories configuration ({@link com.foreach.across.modules.hibernate.jpa.repositories.config.EnableAcrossJpaRepositories}.
+ * <p/>
+ * The interceptors that apply to an entity class are resolved once and cached, as is the entity class of every
+ * repository type.  The interceptor cache must be discarded using {@link #resetResolvedInterceptors()}
+ * when interceptors have been registered.
+ * <p/>
+ * Calls that receive multiple entities pass them all at once to a {@link BatchEntityInterceptor}, other
+ * interceptors are called for every entity.
  *
  * @author Andy Somers
  * @see com.foreach.across.modules.hibernate.jpa.repositories.config.EnableAcrossJpaRepositories
@@ -54,11 +67,14 @@ public abstract class AbstractCrudRepositoryInterceptor implements MethodInterce
 	static final String DELETE_ALL = "deleteAll";
 
 	private final Collection<EntityInterceptor> interceptors;
+	private final Map<Class<?>, Class<?>> entityClassByRepositoryType = new ConcurrentHashMap<>();
+	private volatile ResolvedInterceptors resolvedInterceptors;
 	private BeanFactory beanFactory;
 	private TransactionWrapper transactionWrapper = null;
 
 	protected AbstractCrudRepositoryInterceptor( Collection<EntityInterceptor> interceptors ) {
 		this.interceptors = interceptors;
+		this.resolvedInterceptors = new ResolvedInterceptors( interceptors.toArray( new EntityInterceptor[0] ) );
 	}
 
 	@Override
@@ -113,7 +129,7 @@ public abstract class AbstractCrudRepositoryInterceptor implements MethodInterce
 				return () -> {
 					if ( arguments.length == 0 ) {
 						Collection<EntityInterceptor> interceptorsForDeleteAll
-								= findInterceptorsToApply( entityClass, getInterceptors() );
+								= findInterceptorsToApply( entityClass );
 						callBeforeDeleteAll( interceptorsForDeleteAll, entityClass );
 
 						Object returnValueForDeleteAll = invocation.proceed();
@@ -125,15 +141,12 @@ public abstract class AbstractCrudRepositoryInterceptor implements MethodInterce
 						Object entityObject = arguments[0];
 
 						Collection<EntityInterceptor> interceptorsForDelete
-								= findInterceptorsToApply( entityClass, getInterceptors() );
+								= findInterceptorsToApply( entityClass );
 
-						for ( Object o : (Iterable) entityObject ) {
-							callBeforeDelete( interceptorsForDelete, o );
-						}
+						List<Object> entities = toList( (Iterable) entityObject );
+						callBeforeDeleteAll( interceptorsForDelete, entities );
 						Object returnValueForDelete = invocation.proceed();
-						for ( Object o : (Iterable) entityObject ) {
-							callAfterDelete( interceptorsForDelete, o );
-						}
+						callAfterDeleteAll( interceptorsForDelete, entities );
 						return returnValueForDelete;
 					}
 				};
@@ -146,22 +159,19 @@ public abstract class AbstractCrudRepositoryInterceptor implements MethodInterce
 
 					if ( Iterable.class.isAssignableFrom( userClass ) ) {
 						Collection<EntityInterceptor> interceptorsForDelete
-								= findInterceptorsToApply( entityClass, getInterceptors() );
+								= findInterceptorsToApply( entityClass );
 
-						for ( Object o : (Iterable) entityObject ) {
-							callBeforeDelete( interceptorsForDelete, o );
-						}
+						List<Object> entities = toList( (Iterable) entityObject );
+						callBeforeDeleteAll( interceptorsForDelete, entities );
 						Object returnValueForDelete = invocation.proceed();
-						for ( Object o : (Iterable) entityObject ) {
-							callAfterDelete( interceptorsForDelete, o );
-						}
+						callAfterDeleteAll( interceptorsForDelete, entities );
 						return returnValueForDelete;
 					}
 					else {
 						Class<?> entityClassForDelete = ClassUtils.getUserClass( Hibernate.getClass( entityObject ) );
 
 						Collection<EntityInterceptor> interceptorsForDelete
-								= findInterceptorsToApply( entityClassForDelete, getInterceptors() );
+								= findInterceptorsToApply( entityClassForDelete );
 
 						callBeforeDelete( interceptorsForDelete, entityObject );
 
@@ -179,41 +189,34 @@ public abstract class AbstractCrudRepositoryInterceptor implements MethodInterce
 					Class<?> targetClassToSave = method.getParameterTypes()[0];
 					Class<?> userClassToSave = ClassUtils.getUserClass( targetClassToSave );
 					if ( Iterable.class.isAssignableFrom( userClassToSave ) ) {
-						IdentityHashMap<Persistable, Boolean> objects = new IdentityHashMap<>();
-						Collection<EntityInterceptor> interceptors1
-								= findInterceptorsToApply( entityClass, getInterceptors() );
+						Collection<EntityInterceptor> interceptorsForSave = findInterceptorsToApply( entityClass );
 
+						// an instance passed more than once is only intercepted once, in order of its first occurrence
+						Set<Object> distinct = Collections.newSetFromMap( new IdentityHashMap<>() );
+						List<Object> toCreate = new ArrayList<>();
+						List<Object> toUpdate = new ArrayList<>();
 						for ( Object o : (Iterable) objectToSave ) {
-							boolean isNew = ( (Persistable) o ).isNew();
-							objects.put( (Persistable) o, isNew );
-						}
-						for ( Map.Entry<Persistable, Boolean> persistableBooleanEntry : objects.entrySet() ) {
-							Boolean forCreate = persistableBooleanEntry.getValue();
-							if ( forCreate ) {
-								callBeforeCreate( interceptors1, persistableBooleanEntry.getKey() );
-							}
-							else {
-								callBeforeUpdate( interceptors1, persistableBooleanEntry.getKey() );
+							if ( distinct.add( o ) ) {
+								( ( (Persistable) o ).isNew() ? toCreate : toUpdate ).add( o );
 							}
 						}
+						List<Object> created = Collections.unmodifiableList( toCreate );
+						List<Object> updated = Collections.unmodifiableList( toUpdate );
+
+						callBeforeCreateAll( interceptorsForSave, created );
+						callBeforeUpdateAll( interceptorsForSave, updated );
 
 						Object returnValueForSave = invocation.proceed();
-						for ( Map.Entry<Persistable, Boolean> persistableBooleanEntry : objects.entrySet() ) {
-							Boolean forCreate = persistableBooleanEntry.getValue();
-							if ( forCreate ) {
-								callAfterCreate( interceptors1, persistableBooleanEntry.getKey() );
-							}
-							else {
-								callAfterUpdate( interceptors1, persistableBooleanEntry.getKey() );
-							}
-						}
+
+						callAfterCreateAll( interceptorsForSave, created );
+						callAfterUpdateAll( interceptorsForSave, updated );
+
 						return returnValueForSave;
 					}
 					else {
 						Class<?> entityClassForSave = ClassUtils.getUserClass( Hibernate.getClass( objectToSave ) );
 
-						Collection<EntityInterceptor> interceptorsForSave = findInterceptorsToApply( entityClassForSave,
-						                                                                             getInterceptors() );
+						Collection<EntityInterceptor> interceptorsForSave = findInterceptorsToApply( entityClassForSave );
 
 						boolean isNew = ( (Persistable) objectToSave ).isNew();
 						if ( isNew ) {
@@ -245,9 +248,45 @@ public abstract class AbstractCrudRepositoryInterceptor implements MethodInterce
 				? ( (ProxyMethodInvocation) invocation ).getProxy()
 				: invocation.getThis();
 
-		return TypeDescriptor.forObject( target )
-		                     .upcast( CrudRepository.class ).getResolvableType().getGeneric( 0 )
-		                     .resolve();
+		if ( target == null ) {
+			return null;
+		}
+
+		return entityClassByRepositoryType.computeIfAbsent(
+				target.getClass(),
+				repositoryType -> TypeDescriptor.valueOf( repositoryType )
+				                                .upcast( CrudRepository.class ).getResolvableType().getGeneric( 0 )
+				                                .resolve()
+		);
+	}
+
+	/**
+	 * Get the registered interceptors that should be applied to the entity class.
+	 * The result is cached until {@link #resetResolvedInterceptors()} is called.
+	 *
+	 * @param entityClass the interceptors should handle
+	 * @return interceptors to apply, never {@code null}
+	 */
+	protected Collection<EntityInterceptor> findInterceptorsToApply( Class<?> entityClass ) {
+		if ( entityClass == null ) {
+			return findInterceptorsToApply( null, getInterceptors() );
+		}
+
+		ResolvedInterceptors resolved = resolvedInterceptors;
+		return resolved.byEntityClass.computeIfAbsent(
+				entityClass,
+				c -> Collections.unmodifiableList(
+						new ArrayList<>( findInterceptorsToApply( c, Arrays.asList( resolved.registered ) ) )
+				)
+		);
+	}
+
+	/**
+	 * Discard the interceptors resolved per entity class, they will be resolved again against the interceptors
+	 * registered at this time.  Should be called whenever interceptors have been registered.
+	 */
+	public void resetResolvedInterceptors() {
+		resolvedInterceptors = new ResolvedInterceptors( interceptors.toArray( new EntityInterceptor[0] ) );
 	}
 
 	@SuppressWarnings("unchecked")
@@ -328,7 +367,117 @@ public abstract class AbstractCrudRepositoryInterceptor implements MethodInterce
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	public void callBeforeCreateAll( Collection<EntityInterceptor> interceptors, Collection<?> entities ) {
+		if ( !entities.isEmpty() ) {
+			for ( EntityInterceptor interceptor : interceptors ) {
+				if ( interceptor instanceof BatchEntityInterceptor ) {
+					( (BatchEntityInterceptor) interceptor ).beforeCreateAll( entities );
+				}
+				else {
+					entities.forEach( interceptor::beforeCreate );
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void callAfterCreateAll( Collection<EntityInterceptor> interceptors, Collection<?> entities ) {
+		if ( !entities.isEmpty() ) {
+			for ( EntityInterceptor interceptor : interceptors ) {
+				if ( interceptor instanceof BatchEntityInterceptor ) {
+					( (BatchEntityInterceptor) interceptor ).afterCreateAll( entities );
+				}
+				else {
+					entities.forEach( interceptor::afterCreate );
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void callBeforeUpdateAll( Collection<EntityInterceptor> interceptors, Collection<?> entities ) {
+		if ( !entities.isEmpty() ) {
+			for ( EntityInterceptor interceptor : interceptors ) {
+				if ( interceptor instanceof BatchEntityInterceptor ) {
+					( (BatchEntityInterceptor) interceptor ).beforeUpdateAll( entities );
+				}
+				else {
+					entities.forEach( interceptor::beforeUpdate );
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void callAfterUpdateAll( Collection<EntityInterceptor> interceptors, Collection<?> entities ) {
+		if ( !entities.isEmpty() ) {
+			for ( EntityInterceptor interceptor : interceptors ) {
+				if ( interceptor instanceof BatchEntityInterceptor ) {
+					( (BatchEntityInterceptor) interceptor ).afterUpdateAll( entities );
+				}
+				else {
+					entities.forEach( interceptor::afterUpdate );
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void callBeforeDeleteAll( Collection<EntityInterceptor> interceptors, Collection<?> entities ) {
+		if ( !entities.isEmpty() ) {
+			for ( EntityInterceptor interceptor : interceptors ) {
+				if ( interceptor instanceof BatchEntityInterceptor ) {
+					( (BatchEntityInterceptor) interceptor ).beforeDeleteAll( entities );
+				}
+				else {
+					entities.forEach( interceptor::beforeDelete );
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void callAfterDeleteAll( Collection<EntityInterceptor> interceptors, Collection<?> entities ) {
+		if ( !entities.isEmpty() ) {
+			for ( EntityInterceptor interceptor : interceptors ) {
+				if ( interceptor instanceof BatchEntityInterceptor ) {
+					( (BatchEntityInterceptor) interceptor ).afterDeleteAll( entities );
+				}
+				else {
+					entities.forEach( interceptor::afterDelete );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy the entities passed to a repository method, as they are iterated both before and after the call.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static List<Object> toList( Iterable<?> entities ) {
+		if ( entities instanceof Collection ) {
+			return Collections.unmodifiableList( new ArrayList<>( (Collection<Object>) entities ) );
+		}
+		List<Object> list = new ArrayList<>();
+		entities.forEach( list::add );
+		return Collections.unmodifiableList( list );
+	}
+
 	public Collection<EntityInterceptor> getInterceptors() {
 		return interceptors;
 	}
+
+	/**
+	 * Interceptors per entity class, resolved against a snapshot of the registered interceptors.
+	 */
+	private static final class ResolvedInterceptors
+	{
+		private final EntityInterceptor[] registered;
+		private final Map<Class<?>, Collection<EntityInterceptor>> byEntityClass = new ConcurrentHashMap<>();
+
+		ResolvedInterceptors( EntityInterceptor[] registered ) {
+			this.registered = registered;
+		}
+	}
 }
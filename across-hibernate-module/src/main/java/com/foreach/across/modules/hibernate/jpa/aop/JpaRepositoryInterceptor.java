@@ -24,6 +24,7 @@ import org.springframework.util.ClassUtils;
 
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Intercepts persistence calls on a {@link org.springframework.data.jpa.repository.JpaRepository}.
@@ -51,8 +52,7 @@ public class JpaRepositoryInterceptor extends AbstractCrudRepositoryInterceptor
 			if ( DELETE_ALL_IN_BATCH.equalsIgnoreCase( methodName ) ) {
 				handler = () -> {
 					Class<?> entityClass = getEntityClass( invocation );
-					Collection<EntityInterceptor> interceptors = findInterceptorsToApply( entityClass,
-					                                                                      getInterceptors() );
+					Collection<EntityInterceptor> interceptors = findInterceptorsToApply( entityClass );
 					callBeforeDeleteAll( interceptors, entityClass );
 
 					Object returnValue = invocation.proceed();
@@ -63,16 +63,12 @@ public class JpaRepositoryInterceptor extends AbstractCrudRepositoryInterceptor
 			else if ( DELETE_IN_BATCH.equalsIgnoreCase( methodName ) ) {
 				handler = () -> {
 					Class<?> entityClassForDelete = getEntityClass( invocation );
-					Collection<EntityInterceptor> interceptorsForDelete = findInterceptorsToApply( entityClassForDelete,
-					                                                                               getInterceptors() );
+					Collection<EntityInterceptor> interceptorsForDelete = findInterceptorsToApply( entityClassForDelete );
 
-					for ( Object o : (Iterable) arguments[0] ) {
-						callBeforeDelete( interceptorsForDelete, o );
-					}
+					List<Object> entities = toList( (Iterable) arguments[0] );
+					callBeforeDeleteAll( interceptorsForDelete, entities );
 					Object returnValueForDelete = invocation.proceed();
-					for ( Object o : (Iterable) arguments[0] ) {
-						callAfterDelete( interceptorsForDelete, o );
-					}
+					callAfterDeleteAll( interceptorsForDelete, entities );
 					return returnValueForDelete;
 				};
 			}
@@ -80,8 +76,7 @@ public class JpaRepositoryInterceptor extends AbstractCrudRepositoryInterceptor
 				handler = () -> {
 					Object objectToSave = arguments[0];
 					Class<?> entityClassForSave = ClassUtils.getUserClass( Hibernate.getClass( objectToSave ) );
-					Collection<EntityInterceptor> interceptorsForSave = findInterceptorsToApply( entityClassForSave,
-					                                                                             getInterceptors() );
+					Collection<EntityInterceptor> interceptorsForSave = findInterceptorsToApply( entityClassForSave );
 
 					boolean isNew = ( (Persistable) objectToSave ).isNew();
 					if ( isNew ) {
@@ -33,6 +33,7 @@ import com.foreach.across.modules.hibernate.modules.config.EnableTransactionMana
 import com.foreach.across.modules.hibernate.modules.config.ModuleBasicRepositoryInterceptorConfiguration;
 import com.foreach.across.modules.hibernate.provider.HibernatePackage;
 import com.foreach.across.modules.hibernate.services.HibernateSessionHolder;
+import com.foreach.across.modules.hibernate.statistics.StatementStatisticsRegistry;
 import com.foreach.across.modules.hibernate.strategy.AbstractTableAliasNamingStrategy;
 import com.foreach.across.modules.hibernate.unitofwork.UnitOfWorkFactory;
 import com.foreach.across.modules.hibernate.util.DozerConfiguration;
@@ -143,6 +144,10 @@ public class HibernateJpaConfiguration
 			                                 createTableAliasNamingStrategyClass( tableAliases ).getName() );
 		}
 
+		if ( settings.getStatementStatistics().isEnabled() ) {
+			StatementStatisticsRegistry.registerHibernateProperties( factory.getJpaPropertyMap() );
+		}
+
 		return factory;
 	}
 
@@ -195,7 +200,19 @@ public class HibernateJpaConfiguration
 	@Exposed
 	@ConditionalOnExpression("@moduleSettings.createUnitOfWorkFactory")
 	public UnitOfWorkFactory unitOfWork( EntityManagerFactory entityManagerFactory ) {
-		return new JpaUnitOfWorkFactoryImpl( Collections.singleton( entityManagerFactory ) );
+		JpaUnitOfWorkFactoryImpl unitOfWorkFactory = new JpaUnitOfWorkFactoryImpl( Collections.singleton( entityManagerFactory ) );
+		if ( settings.getStatementStatistics().isEnabled() ) {
+			unitOfWorkFactory.setStatementStatisticsRegistry( statementStatisticsRegistry() );
+		}
+		return unitOfWorkFactory;
+	}
+
+	@Bean
+	@Exposed
+	@ConditionalOnExpression("@moduleSettings.statementStatistics.enabled")
+	public StatementStatisticsRegistry statementStatisticsRegistry() {
+		return new StatementStatisticsRegistry( settings.getStatementStatistics().getMaxEntries(),
+		                                        settings.getStatementStatistics().getRepeatedStatementThreshold() );
 	}
 
 	@EventListener
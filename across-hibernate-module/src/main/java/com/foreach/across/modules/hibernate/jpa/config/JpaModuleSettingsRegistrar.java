@@ -18,6 +18,7 @@ package com.foreach.across.modules.hibernate.jpa.config;
 
 import com.foreach.across.modules.hibernate.config.ModuleSettingsRegistrar;
 import com.foreach.across.modules.hibernate.extensions.JpaPersistenceContextInViewConfiguration;
+import com.foreach.across.modules.hibernate.extensions.StatementStatisticsFilterConfiguration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 
@@ -30,6 +31,7 @@ public class JpaModuleSettingsRegistrar extends ModuleSettingsRegistrar
 {
 	@Override
 	protected String[] settingsDependantImports() {
-		return new String[] { JpaPersistenceContextInViewConfiguration.class.getName() };
+		return new String[] { JpaPersistenceContextInViewConfiguration.class.getName(),
+		                      StatementStatisticsFilterConfiguration.class.getName() };
 	}
 }
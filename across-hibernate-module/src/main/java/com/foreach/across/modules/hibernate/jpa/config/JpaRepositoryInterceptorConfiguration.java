@@ -16,6 +16,8 @@
 package com.foreach.across.modules.hibernate.jpa.config;
 
 import com.foreach.across.core.annotations.Exposed;
+import com.foreach.across.core.events.AcrossContextBootstrappedEvent;
+import com.foreach.across.core.events.AcrossModuleBootstrappedEvent;
 import com.foreach.across.core.registry.RefreshableRegistry;
 import com.foreach.across.modules.hibernate.aop.EntityInterceptor;
 import com.foreach.across.modules.hibernate.config.BasicRepositoryInterceptorConfiguration;
@@ -23,6 +25,12 @@ import com.foreach.across.modules.hibernate.jpa.aop.JpaRepositoryInterceptor;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.*;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Configures intercepting the {@link org.springframework.data.repository.CrudRepository} methods when an entity gets inserted/updated/deleted.
@@ -33,11 +41,26 @@ import org.springframework.context.annotation.*;
 @Import(BasicRepositoryInterceptorConfiguration.class)
 public class JpaRepositoryInterceptorConfiguration
 {
+	private final Collection<JpaRepositoryInterceptor> repositoryInterceptors = new CopyOnWriteArrayList<>();
+
 	@Bean
 	@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 	@Exposed
 	@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
 	public JpaRepositoryInterceptor jpaRepositoryInterceptor( RefreshableRegistry<EntityInterceptor> entityInterceptors ) {
-		return new JpaRepositoryInterceptor( entityInterceptors );
+		JpaRepositoryInterceptor repositoryInterceptor = new JpaRepositoryInterceptor( entityInterceptors );
+		repositoryInterceptors.add( repositoryInterceptor );
+		return repositoryInterceptor;
+	}
+
+	/**
+	 * Entity interceptors are registered when a module has bootstrapped, discard the interceptors
+	 * that were resolved per entity class before.
+	 */
+	@EventListener({ AcrossModuleBootstrappedEvent.class, AcrossContextBootstrappedEvent.class })
+	@Order(Ordered.LOWEST_PRECEDENCE)
+	@SuppressWarnings("unused")
+	public void resetResolvedEntityInterceptors() {
+		repositoryInterceptors.forEach( JpaRepositoryInterceptor::resetResolvedInterceptors );
 	}
 }
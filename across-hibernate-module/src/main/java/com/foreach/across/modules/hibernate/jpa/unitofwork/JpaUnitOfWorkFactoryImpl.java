@@ -15,6 +15,8 @@
  */
 package com.foreach.across.modules.hibernate.jpa.unitofwork;
 
+import com.foreach.across.modules.hibernate.statistics.StatementStatisticsRegistry;
+import com.foreach.across.modules.hibernate.statistics.UnitOfWorkStatementStatistics;
 import com.foreach.across.modules.hibernate.unitofwork.CallableUnitOfWork;
 import com.foreach.across.modules.hibernate.unitofwork.RunnableUnitOfWork;
 import com.foreach.across.modules.hibernate.unitofwork.UnitOfWork;
@@ -36,11 +38,23 @@ import java.util.concurrent.Callable;
 public class JpaUnitOfWorkFactoryImpl implements UnitOfWorkFactory
 {
 	private final Collection<EntityManagerFactory> entityManagerFactories;
+	private UnitOfWorkStatementStatistics statementStatistics;
 
 	public JpaUnitOfWorkFactoryImpl( @NonNull Collection<EntityManagerFactory> entityManagerFactories ) {
 		this.entityManagerFactories = entityManagerFactories;
 	}
 
+	/**
+	 * Collect the {@link com.foreach.across.modules.hibernate.statistics.StatementStatistics} for every unit of work
+	 * that is not part of a request or other unit of work already being measured.
+	 *
+	 * @param statementStatisticsRegistry to register the statistics in, {@code null} to disable
+	 */
+	public void setStatementStatisticsRegistry( StatementStatisticsRegistry statementStatisticsRegistry ) {
+		statementStatistics = statementStatisticsRegistry != null
+				? new UnitOfWorkStatementStatistics( statementStatisticsRegistry ) : null;
+	}
+
 	/**
 	 * Wraps a Runnable into a unit of work.
 	 *
@@ -74,6 +88,10 @@ public class JpaUnitOfWorkFactoryImpl implements UnitOfWorkFactory
 	 * Starts a new unit of work: opens all Sessions.
 	 */
 	public UnitOfWork start() {
+		UnitOfWork unitOfWork = new UnitOfWork( this );
+		if ( statementStatistics != null ) {
+			statementStatistics.started( unitOfWork );
+		}
 		for ( EntityManagerFactory emf : entityManagerFactories ) {
 			try {
 				if ( !TransactionSynchronizationManager.hasResource( emf ) ) {
@@ -90,7 +108,7 @@ public class JpaUnitOfWorkFactoryImpl implements UnitOfWorkFactory
 				LOG.error( "Exception starting unit of work for {}", emf, e );
 			}
 		}
-		return new UnitOfWork( this );
+		return unitOfWork;
 	}
 
 	/**
@@ -118,5 +136,9 @@ public class JpaUnitOfWorkFactoryImpl implements UnitOfWorkFactory
 				LOG.error( "Exception stopping unit of work for {}", emf, e );
 			}
 		}
+
+		if ( statementStatistics != null ) {
+			statementStatistics.stopped();
+		}
 	}
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.statistics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Hibernate session event listener that adds the time spent executing statements and batches
+ * to the {@link StatementStatistics} bound to the current thread.  A new instance is created for every session.
+ *
+ * @since 4.3.0
+ */
+public class JdbcTimingSessionEventListener extends BaseSessionEventListener
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final long NOT_STARTED = Long.MIN_VALUE;
+
+	private long executionStart = NOT_STARTED;
+	private long batchStart = NOT_STARTED;
+
+	@Override
+	public void jdbcExecuteStatementStart() {
+		executionStart = System.nanoTime();
+	}
+
+	@Override
+	public void jdbcExecuteStatementEnd() {
+		record( executionStart );
+		executionStart = NOT_STARTED;
+	}
+
+	@Override
+	public void jdbcExecuteBatchStart() {
+		batchStart = System.nanoTime();
+	}
+
+	@Override
+	public void jdbcExecuteBatchEnd() {
+		record( batchStart );
+		batchStart = NOT_STARTED;
+	}
+
+	private void record( long start ) {
+		if ( start != NOT_STARTED ) {
+			StatementStatistics statistics = StatementStatistics.current();
+			if ( statistics != null ) {
+				statistics.recordJdbcExecution( System.nanoTime() - start );
+			}
+		}
+	}
+}
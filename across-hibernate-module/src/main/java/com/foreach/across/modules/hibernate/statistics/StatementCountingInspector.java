@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.statistics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate {@link StatementInspector} that records every prepared statement in the
+ * {@link StatementStatistics} bound to the current thread.  The statement itself is never changed.
+ *
+ * @since 4.3.0
+ */
+public class StatementCountingInspector implements StatementInspector
+{
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String inspect( String sql ) {
+		StatementStatistics statistics = StatementStatistics.current();
+		if ( statistics != null ) {
+			statistics.recordStatement( sql );
+		}
+		return sql;
+	}
+}
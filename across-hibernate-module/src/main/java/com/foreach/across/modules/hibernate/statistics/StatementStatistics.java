@@ -0,0 +1,287 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL statements executed during a single request or unit of work.  Statements are grouped on their shape:
+ * the statement with literals replaced by {@code ?} and parameter lists collapsed, so repeated executions of
+ * the same query with different parameters are counted together.
+ * <p/>
+ * An instance is bound to the thread running the request or unit of work by the
+ * {@link StatementStatisticsRegistry} and is only modified by that thread.  Once finished it no longer changes.
+ *
+ * @since 4.3.0
+ */
+public class StatementStatistics
+{
+	/**
+	 * Maximum number of distinct statement shapes that are tracked, further shapes are only counted.
+	 */
+	static final int MAX_SHAPES = 256;
+
+	private static final ThreadLocal<StatementStatistics> CURRENT = new ThreadLocal<>();
+
+	private final Object owner;
+	private final String requestId;
+	private final String description;
+	private final long started;
+
+	private final Map<String, StatementShape> shapes = new HashMap<>();
+	private int statementCount;
+	private int jdbcExecutionCount;
+	private long jdbcNanos;
+
+	private long finished;
+	private List<StatementShape> repeatedStatements = Collections.emptyList();
+
+	StatementStatistics( Object owner, String requestId, String description ) {
+		this.owner = owner;
+		this.requestId = requestId;
+		this.description = description;
+		started = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return statistics bound to the current thread, {@code null} if none are being collected
+	 */
+	public static StatementStatistics current() {
+		return CURRENT.get();
+	}
+
+	static void bind( StatementStatistics statistics ) {
+		CURRENT.set( statistics );
+	}
+
+	static void unbind() {
+		CURRENT.remove();
+	}
+
+	Object getOwner() {
+		return owner;
+	}
+
+	void recordStatement( String sql ) {
+		statementCount++;
+
+		String shape = normalize( sql );
+		StatementShape statementShape = shapes.get( shape );
+		if ( statementShape != null ) {
+			statementShape.count++;
+		}
+		else if ( shapes.size() < MAX_SHAPES ) {
+			shapes.put( shape, new StatementShape( shape ) );
+		}
+	}
+
+	void recordJdbcExecution( long nanos ) {
+		jdbcExecutionCount++;
+		jdbcNanos += nanos;
+	}
+
+	void finish( int repeatedStatementThreshold ) {
+		finished = System.currentTimeMillis();
+
+		List<StatementShape> repeated = new ArrayList<>();
+		for ( StatementShape shape : shapes.values() ) {
+			if ( shape.count >= repeatedStatementThreshold ) {
+				repeated.add( shape );
+			}
+		}
+		repeated.sort( Comparator.comparingInt( StatementShape::getCount ).reversed() );
+		repeatedStatements = Collections.unmodifiableList( repeated );
+	}
+
+	/**
+	 * @return id of the request, {@code null} if not a request or no request id was available
+	 */
+	public String getRequestId() {
+		return requestId;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public long getStarted() {
+		return started;
+	}
+
+	/**
+	 * @return duration of the request or unit of work in milliseconds
+	 */
+	public long getDuration() {
+		return ( finished > 0 ? finished : System.currentTimeMillis() ) - started;
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	/**
+	 * @return number of statement and batch executions that were timed
+	 */
+	public int getJdbcExecutionCount() {
+		return jdbcExecutionCount;
+	}
+
+	/**
+	 * @return total time spent executing statements in milliseconds
+	 */
+	public long getJdbcTime() {
+		return TimeUnit.NANOSECONDS.toMillis( jdbcNanos );
+	}
+
+	/**
+	 * @return all statement shapes, the most executed first
+	 */
+	public List<StatementShape> getStatementShapes() {
+		List<StatementShape> sorted = new ArrayList<>( shapes.values() );
+		sorted.sort( Comparator.comparingInt( StatementShape::getCount ).reversed() );
+		return sorted;
+	}
+
+	/**
+	 * @return statement shapes executed at least the repeated statement threshold number of times, the most executed first
+	 */
+	public List<StatementShape> getRepeatedStatements() {
+		return repeatedStatements;
+	}
+
+	/**
+	 * @return true if at least one statement has been repeated often enough to be a likely N+1 select
+	 */
+	public boolean isSuspectedNPlusOne() {
+		return !repeatedStatements.isEmpty();
+	}
+
+	/**
+	 * Convert a statement to its shape: whitespace is collapsed, string and numeric literals are replaced
+	 * by {@code ?} and lists of parameters like {@code (?, ?, ?)} are collapsed into {@code (?)}.
+	 */
+	static String normalize( String sql ) {
+		StringBuilder shape = new StringBuilder( sql.length() );
+		int length = sql.length();
+		int i = 0;
+
+		while ( i < length ) {
+			char c = sql.charAt( i );
+
+			if ( Character.isWhitespace( c ) ) {
+				while ( i < length && Character.isWhitespace( sql.charAt( i ) ) ) {
+					i++;
+				}
+				if ( shape.length() > 0 && i < length ) {
+					shape.append( ' ' );
+				}
+				continue;
+			}
+
+			if ( c == '\'' ) {
+				i++;
+				while ( i < length ) {
+					if ( sql.charAt( i ) == '\'' ) {
+						if ( i + 1 < length && sql.charAt( i + 1 ) == '\'' ) {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				i++;
+				appendParameter( shape );
+				continue;
+			}
+
+			if ( Character.isDigit( c ) && !isIdentifierPart( shape ) ) {
+				while ( i < length && ( Character.isDigit( sql.charAt( i ) ) || sql.charAt( i ) == '.' ) ) {
+					i++;
+				}
+				appendParameter( shape );
+				continue;
+			}
+
+			if ( c == '?' ) {
+				i++;
+				appendParameter( shape );
+				continue;
+			}
+
+			shape.append( c );
+			i++;
+		}
+
+		return shape.toString();
+	}
+
+	/**
+	 * Append a parameter placeholder, unless it continues a list of placeholders.
+	 */
+	private static void appendParameter( StringBuilder shape ) {
+		int end = shape.length();
+		if ( end >= 2 && shape.charAt( end - 1 ) == ',' && shape.charAt( end - 2 ) == '?' ) {
+			shape.setLength( end - 1 );
+		}
+		else if ( end >= 3 && shape.charAt( end - 1 ) == ' ' && shape.charAt( end - 2 ) == ',' && shape.charAt( end - 3 ) == '?' ) {
+			shape.setLength( end - 2 );
+		}
+		else {
+			shape.append( '?' );
+		}
+	}
+
+	private static boolean isIdentifierPart( StringBuilder shape ) {
+		if ( shape.length() == 0 ) {
+			return false;
+		}
+		char previous = shape.charAt( shape.length() - 1 );
+		return Character.isLetterOrDigit( previous ) || previous == '_' || previous == '$';
+	}
+
+	@Override
+	public String toString() {
+		return "StatementStatistics{" + description + ", statements=" + statementCount + ", jdbcTime=" + getJdbcTime() + "ms}";
+	}
+
+	/**
+	 * Single statement shape and the number of times it was executed.
+	 */
+	public static final class StatementShape
+	{
+		private final String sql;
+		private int count = 1;
+
+		StatementShape( String sql ) {
+			this.sql = sql;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public int getCount() {
+			return count;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.statistics;
+
+import lombok.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the {@link StatementStatistics} for every request, including the statements executed while rendering
+ * the view with an open session or entity manager.  The statistics are correlated with the request id set by
+ * the request logger of the LoggingModule, and are added to the fields appended to its request log line.
+ *
+ * @since 4.3.0
+ */
+public class StatementStatisticsFilter extends OncePerRequestFilter
+{
+	/**
+	 * Request attribute holding the unique request id, same as {@code RequestLoggerFilter.ATTRIBUTE_UNIQUE_ID}.
+	 */
+	public static final String ATTRIBUTE_REQUEST_ID = "_log_uniqueRequestId";
+
+	/**
+	 * Request attribute holding the additional request log fields, same as {@code RequestLoggerFilter.ATTRIBUTE_LOG_FIELDS}.
+	 */
+	public static final String ATTRIBUTE_LOG_FIELDS = "_log_fields";
+
+	/**
+	 * Request attribute holding the finished {@link StatementStatistics}.
+	 */
+	public static final String ATTRIBUTE_STATISTICS = "_sql_statementStatistics";
+
+	private final StatementStatisticsRegistry registry;
+
+	public StatementStatisticsFilter( @NonNull StatementStatisticsRegistry registry ) {
+		this.registry = registry;
+	}
+
+	@Override
+	protected void doFilterInternal( HttpServletRequest request,
+	                                 HttpServletResponse response,
+	                                 FilterChain filterChain ) throws ServletException, IOException {
+		Object requestId = request.getAttribute( ATTRIBUTE_REQUEST_ID );
+
+		if ( !registry.begin( this, requestId != null ? requestId.toString() : null,
+		                      request.getMethod() + " " + request.getRequestURI() ) ) {
+			filterChain.doFilter( request, response );
+			return;
+		}
+
+		try {
+			filterChain.doFilter( request, response );
+		}
+		finally {
+			StatementStatistics statistics = registry.end( this );
+
+			if ( statistics != null ) {
+				request.setAttribute( ATTRIBUTE_STATISTICS, statistics );
+				addLogFields( request, statistics );
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addLogFields( HttpServletRequest request, StatementStatistics statistics ) {
+		Map<String, Object> fields = (Map<String, Object>) request.getAttribute( ATTRIBUTE_LOG_FIELDS );
+		if ( fields == null ) {
+			fields = new LinkedHashMap<>();
+			request.setAttribute( ATTRIBUTE_LOG_FIELDS, fields );
+		}
+
+		fields.put( "sqlStatements", statistics.getStatementCount() );
+		fields.put( "sqlTime", statistics.getJdbcTime() );
+		if ( statistics.isSuspectedNPlusOne() ) {
+			fields.put( "sqlRepeated", statistics.getRepeatedStatements().get( 0 ).getCount() );
+		}
+	}
+}
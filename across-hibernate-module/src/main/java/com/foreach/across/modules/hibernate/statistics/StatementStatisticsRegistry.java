@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.statistics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the {@link StatementStatistics} of requests and units of work.  Statistics are bound to the current
+ * thread by {@link #begin(Object, String, String)} and only one instance can be active per thread: nested calls
+ * (for example a unit of work started during a request) are added to the outer one.
+ * <p/>
+ * Finished statistics that executed at least one statement are kept, up to the maximum number of entries.
+ * If a statement was executed at least the repeated statement threshold number of times, a warning is logged
+ * as this is likely an N+1 select caused by lazy loading.
+ *
+ * @since 4.3.0
+ */
+public class StatementStatisticsRegistry
+{
+	private static final Logger LOG = LoggerFactory.getLogger( StatementStatisticsRegistry.class );
+
+	private final ConcurrentLinkedDeque<StatementStatistics> entries = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final int maxEntries;
+	private final int repeatedStatementThreshold;
+
+	public StatementStatisticsRegistry() {
+		this( 100, 10 );
+	}
+
+	/**
+	 * @param maxEntries                 maximum number of finished statistics to keep
+	 * @param repeatedStatementThreshold number of executions of the same statement that is reported as an N+1 select
+	 */
+	public StatementStatisticsRegistry( int maxEntries, int repeatedStatementThreshold ) {
+		this.maxEntries = Math.max( 1, maxEntries );
+		this.repeatedStatementThreshold = Math.max( 2, repeatedStatementThreshold );
+	}
+
+	/**
+	 * Register the {@link StatementCountingInspector} and {@link JdbcTimingSessionEventListener} in the Hibernate
+	 * properties.  Properties that have been configured explicitly are not replaced.
+	 *
+	 * @param hibernateProperties to add the properties to
+	 */
+	public static void registerHibernateProperties( Map<? super String, Object> hibernateProperties ) {
+		if ( hibernateProperties.containsKey( AvailableSettings.STATEMENT_INSPECTOR ) ) {
+			LOG.warn( "A statement inspector has already been configured, SQL statements will not be counted" );
+		}
+		else {
+			hibernateProperties.put( AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector() );
+		}
+
+		if ( hibernateProperties.containsKey( AvailableSettings.AUTO_SESSION_EVENTS_LISTENER ) ) {
+			LOG.warn( "A session events listener has already been configured, JDBC execution time will not be measured" );
+		}
+		else {
+			hibernateProperties.put( AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, JdbcTimingSessionEventListener.class.getName() );
+		}
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public int getRepeatedStatementThreshold() {
+		return repeatedStatementThreshold;
+	}
+
+	/**
+	 * Start collecting statistics on the current thread, unless statistics are already being collected.
+	 *
+	 * @param owner       that should end the statistics
+	 * @param requestId   id of the request, can be {@code null}
+	 * @param description of the request or unit of work
+	 * @return true if collecting was started, false if statistics were already being collected
+	 */
+	public boolean begin( Object owner, String requestId, String description ) {
+		if ( StatementStatistics.current() != null ) {
+			return false;
+		}
+		StatementStatistics.bind( new StatementStatistics( owner, requestId, description ) );
+		return true;
+	}
+
+	/**
+	 * Stop collecting the statistics on the current thread if they were started by the owner.
+	 *
+	 * @param owner that started the statistics
+	 * @return finished statistics or {@code null} if none were started by the owner
+	 */
+	public StatementStatistics end( Object owner ) {
+		StatementStatistics statistics = StatementStatistics.current();
+
+		if ( statistics == null || statistics.getOwner() != owner ) {
+			return null;
+		}
+
+		StatementStatistics.unbind();
+		statistics.finish( repeatedStatementThreshold );
+
+		if ( statistics.getStatementCount() > 0 ) {
+			entries.addFirst( statistics );
+			if ( size.incrementAndGet() > maxEntries && entries.pollLast() != null ) {
+				size.decrementAndGet();
+			}
+		}
+
+		if ( statistics.isSuspectedNPlusOne() && LOG.isWarnEnabled() ) {
+			StatementStatistics.StatementShape shape = statistics.getRepeatedStatements().get( 0 );
+			LOG.warn( "Possible N+1 select in {} (request {}): {} statements, executed {} times: {}",
+			          statistics.getDescription(), statistics.getRequestId(), statistics.getStatementCount(),
+			          shape.getCount(), shape.getSql() );
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * @return finished statistics, the most recent first
+	 */
+	public List<StatementStatistics> getStatistics() {
+		return new ArrayList<>( entries );
+	}
+
+	/**
+	 * @return finished statistics of the request or {@code null} if not found
+	 */
+	public StatementStatistics getStatistics( String requestId ) {
+		for ( StatementStatistics statistics : entries ) {
+			if ( requestId.equals( statistics.getRequestId() ) ) {
+				return statistics;
+			}
+		}
+		return null;
+	}
+
+	public void clear() {
+		while ( entries.pollLast() != null ) {
+			size.decrementAndGet();
+		}
+	}
+}
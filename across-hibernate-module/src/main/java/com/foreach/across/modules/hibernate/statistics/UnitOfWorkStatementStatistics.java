@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.statistics;
+
+import lombok.NonNull;
+
+/**
+ * Collects the {@link StatementStatistics} of the units of work started by a single unit of work factory.
+ * Only the outermost unit of work on a thread collects statistics, the unit of work that started collecting
+ * is the owner.  Nested units of work are counted so only stopping the outermost one ends the statistics.
+ * Units of work started during a request or other measured unit of work are part of that one.
+ *
+ * @since 4.3.0
+ */
+public class UnitOfWorkStatementStatistics
+{
+	private static final String DESCRIPTION = "unit of work";
+
+	private final StatementStatisticsRegistry registry;
+	private final ThreadLocal<Scope> scope = new ThreadLocal<>();
+
+	public UnitOfWorkStatementStatistics( @NonNull StatementStatisticsRegistry registry ) {
+		this.registry = registry;
+	}
+
+	/**
+	 * @param unitOfWork that has been started, becomes the owner of the statistics if none are being collected
+	 */
+	public void started( Object unitOfWork ) {
+		Scope current = scope.get();
+
+		if ( current != null ) {
+			current.depth++;
+		}
+		else if ( registry.begin( unitOfWork, null, DESCRIPTION ) ) {
+			scope.set( new Scope( unitOfWork ) );
+		}
+	}
+
+	/**
+	 * End the statistics if the outermost unit of work started by this factory has been stopped.
+	 */
+	public void stopped() {
+		Scope current = scope.get();
+
+		if ( current != null ) {
+			if ( current.depth > 0 ) {
+				current.depth--;
+			}
+			else {
+				scope.remove();
+				registry.end( current.owner );
+			}
+		}
+	}
+
+	private static final class Scope
+	{
+		private final Object owner;
+		private int depth;
+
+		Scope( Object owner ) {
+			this.owner = owner;
+		}
+	}
+}
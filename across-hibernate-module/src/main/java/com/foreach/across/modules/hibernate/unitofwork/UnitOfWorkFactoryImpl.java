@@ -15,6 +15,8 @@
  */
 package com.foreach.across.modules.hibernate.unitofwork;
 
+import com.foreach.across.modules.hibernate.statistics.StatementStatisticsRegistry;
+import com.foreach.across.modules.hibernate.statistics.UnitOfWorkStatementStatistics;
 import lombok.NonNull;
 import org.hibernate.CacheMode;
 import org.hibernate.Session;
@@ -32,11 +34,23 @@ import java.util.concurrent.Callable;
 public class UnitOfWorkFactoryImpl implements UnitOfWorkFactory
 {
 	private final Collection<SessionFactory> sessionFactories;
+	private UnitOfWorkStatementStatistics statementStatistics;
 
 	public UnitOfWorkFactoryImpl( @NonNull Collection<SessionFactory> sessionFactories ) {
 		this.sessionFactories = sessionFactories;
 	}
 
+	/**
+	 * Collect the {@link com.foreach.across.modules.hibernate.statistics.StatementStatistics} for every unit of work
+	 * that is not part of a request or other unit of work already being measured.
+	 *
+	 * @param statementStatisticsRegistry to register the statistics in, {@code null} to disable
+	 */
+	public void setStatementStatisticsRegistry( StatementStatisticsRegistry statementStatisticsRegistry ) {
+		statementStatistics = statementStatisticsRegistry != null
+				? new UnitOfWorkStatementStatistics( statementStatisticsRegistry ) : null;
+	}
+
 	/**
 	 * Wraps a Runnable into a unit of work.
 	 *
@@ -61,8 +75,12 @@ public class UnitOfWorkFactoryImpl implements UnitOfWorkFactory
 	 * Starts a new unit of work: opens all Sessions.
 	 */
 	public UnitOfWork start() {
+		UnitOfWork unitOfWork = new UnitOfWork( this );
+		if ( statementStatistics != null ) {
+			statementStatistics.started( unitOfWork );
+		}
 		start( false );
-		return new UnitOfWork( this );
+		return unitOfWork;
 	}
 
 	/**
@@ -123,5 +141,9 @@ public class UnitOfWorkFactoryImpl implements UnitOfWorkFactory
 				LOG.error( "Exception stopping unit of work for {}", sessionFactory, e );
 			}
 		}
+
+		if ( statementStatistics != null ) {
+			statementStatistics.stopped();
+		}
 	}
 }
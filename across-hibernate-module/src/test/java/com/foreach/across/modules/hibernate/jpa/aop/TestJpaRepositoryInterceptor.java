@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.jpa.aop;
+
+import com.foreach.across.modules.hibernate.aop.BatchEntityInterceptor;
+import com.foreach.across.modules.hibernate.aop.EntityInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class TestJpaRepositoryInterceptor
+{
+	@Test
+	@SuppressWarnings("unchecked")
+	public void interceptorsAreResolvedOncePerEntityClassUntilReset() {
+		EntityInterceptor<Object> all = mock( EntityInterceptor.class );
+		when( all.handles( any() ) ).thenReturn( true );
+		EntityInterceptor<Object> none = mock( EntityInterceptor.class );
+
+		List<EntityInterceptor> registered = new ArrayList<>();
+		registered.add( all );
+		registered.add( none );
+
+		JpaRepositoryInterceptor interceptor = new JpaRepositoryInterceptor( registered );
+		assertThat( interceptor.findInterceptorsToApply( String.class ) ).containsExactly( all );
+		assertThat( interceptor.findInterceptorsToApply( String.class ) ).containsExactly( all );
+		assertThat( interceptor.findInterceptorsToApply( Long.class ) ).containsExactly( all );
+		verify( all, times( 1 ) ).handles( String.class );
+		verify( none, times( 1 ) ).handles( String.class );
+
+		EntityInterceptor<Object> added = mock( EntityInterceptor.class );
+		when( added.handles( String.class ) ).thenReturn( true );
+		registered.add( 0, added );
+
+		assertThat( interceptor.findInterceptorsToApply( String.class ) ).containsExactly( all );
+		verify( all, times( 1 ) ).handles( String.class );
+
+		interceptor.resetResolvedInterceptors();
+		assertThat( interceptor.findInterceptorsToApply( String.class ) ).containsExactly( added, all );
+		verify( all, times( 2 ) ).handles( String.class );
+
+		registered.remove( all );
+		interceptor.resetResolvedInterceptors();
+		assertThat( interceptor.findInterceptorsToApply( String.class ) ).containsExactly( added );
+	}
+
+	@Test
+	public void entityClassIsResolvedFromRepository() {
+		MethodInvocation invocation = mock( MethodInvocation.class );
+		when( invocation.getThis() ).thenReturn( mock( StringRepository.class ) );
+
+		JpaRepositoryInterceptor interceptor = new JpaRepositoryInterceptor( new ArrayList<>() );
+		assertThat( interceptor.getEntityClass( invocation ) ).isEqualTo( String.class );
+		assertThat( interceptor.getEntityClass( invocation ) ).isEqualTo( String.class );
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void batchInterceptorsReceiveAllEntitiesAtOnce() throws Throwable {
+		EntityInterceptor<Object> single = mock( EntityInterceptor.class );
+		when( single.handles( Persistable.class ) ).thenReturn( true );
+		BatchEntityInterceptor<Object> batch = mock( BatchEntityInterceptor.class );
+		when( batch.handles( Persistable.class ) ).thenReturn( true );
+
+		Persistable first = persistable( true );
+		Persistable second = persistable( false );
+		Persistable third = persistable( true );
+		List<Persistable> entities = Arrays.asList( first, second, third );
+
+		MethodInvocation invocation = mock( MethodInvocation.class );
+		when( invocation.getThis() ).thenReturn( mock( PersistableRepository.class ) );
+		when( invocation.getMethod() ).thenReturn( JpaRepository.class.getMethod( "saveAll", Iterable.class ) );
+		when( invocation.getArguments() ).thenReturn( new Object[] { entities } );
+
+		new JpaRepositoryInterceptor( Arrays.asList( single, batch ) ).determineCallbackMethod( invocation ).invoke();
+
+		verify( batch ).beforeCreateAll( (Collection) Arrays.asList( first, third ) );
+		verify( batch ).afterCreateAll( (Collection) Arrays.asList( first, third ) );
+		verify( batch ).beforeUpdateAll( (Collection) Arrays.asList( second ) );
+		verify( batch ).afterUpdateAll( (Collection) Arrays.asList( second ) );
+		verify( batch, never() ).beforeCreate( any() );
+
+		verify( single ).beforeCreate( first );
+		verify( single ).beforeCreate( third );
+		verify( single ).beforeUpdate( second );
+		verify( single ).afterUpdate( second );
+		verify( invocation ).proceed();
+
+		when( invocation.getMethod() ).thenReturn( JpaRepository.class.getMethod( "deleteInBatch", Iterable.class ) );
+		new JpaRepositoryInterceptor( Arrays.asList( single, batch ) ).determineCallbackMethod( invocation ).invoke();
+
+		verify( batch ).beforeDeleteAll( (Collection) entities );
+		verify( batch ).afterDeleteAll( (Collection) entities );
+		verify( single ).afterDelete( second );
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void entitiesSavedMoreThanOnceAreOnlyInterceptedOnce() throws Throwable {
+		EntityInterceptor<Object> single = mock( EntityInterceptor.class );
+		when( single.handles( Persistable.class ) ).thenReturn( true );
+		BatchEntityInterceptor<Object> batch = mock( BatchEntityInterceptor.class );
+		when( batch.handles( Persistable.class ) ).thenReturn( true );
+
+		Persistable first = persistable( true );
+		Persistable second = persistable( true );
+		Persistable updated = persistable( false );
+
+		MethodInvocation invocation = mock( MethodInvocation.class );
+		when( invocation.getThis() ).thenReturn( mock( PersistableRepository.class ) );
+		when( invocation.getMethod() ).thenReturn( JpaRepository.class.getMethod( "saveAll", Iterable.class ) );
+		when( invocation.getArguments() ).thenReturn(
+				new Object[] { Arrays.asList( first, updated, second, first, updated ) } );
+
+		new JpaRepositoryInterceptor( Arrays.asList( single, batch ) ).determineCallbackMethod( invocation ).invoke();
+
+		verify( batch ).beforeCreateAll( (Collection) Arrays.asList( first, second ) );
+		verify( batch ).afterCreateAll( (Collection) Arrays.asList( first, second ) );
+		verify( batch ).beforeUpdateAll( (Collection) Arrays.asList( updated ) );
+		verify( batch ).afterUpdateAll( (Collection) Arrays.asList( updated ) );
+
+		verify( single, times( 1 ) ).beforeCreate( first );
+		verify( single, times( 1 ) ).afterCreate( first );
+		verify( single, times( 1 ) ).beforeUpdate( updated );
+		verify( single, times( 1 ) ).afterUpdate( updated );
+	}
+
+	private static Persistable persistable( boolean isNew ) {
+		Persistable persistable = mock( Persistable.class );
+		when( persistable.isNew() ).thenReturn( isNew );
+		return persistable;
+	}
+
+	interface PersistableRepository extends JpaRepository<Persistable, Long>
+	{
+	}
+
+	interface StringRepository extends JpaRepository<String, Long>
+	{
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.hibernate.statistics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestStatementStatistics
+{
+	private final StatementCountingInspector inspector = new StatementCountingInspector();
+
+	@Test
+	public void statementShapes() {
+		assertThat( StatementStatistics.normalize( "select u.id from user u\n  where u.name = 'it''s' and u.age > 18.5" ) )
+				.isEqualTo( "select u.id from user u where u.name = ? and u.age > ?" );
+		assertThat( StatementStatistics.normalize( "select * from t1_ where id in (?, ?,?) and x = ? limit 10" ) )
+				.isEqualTo( "select * from t1_ where id in (?) and x = ? limit ?" );
+	}
+
+	@Test
+	public void nestedStatisticsAreAddedToTheOuterOne() {
+		StatementStatisticsRegistry registry = new StatementStatisticsRegistry( 2, 3 );
+		Object request = new Object();
+		Object unitOfWork = new Object();
+
+		assertThat( registry.begin( request, "req-1", "GET /users" ) ).isTrue();
+		assertThat( registry.begin( unitOfWork, null, "unit of work" ) ).isFalse();
+		inspector.inspect( "select * from user" );
+		assertThat( registry.end( unitOfWork ) ).isNull();
+
+		for ( int i = 0; i < 3; i++ ) {
+			inspector.inspect( "select * from address where user_id = " + i );
+		}
+
+		StatementStatistics statistics = registry.end( request );
+		assertThat( StatementStatistics.current() ).isNull();
+		assertThat( statistics.getStatementCount() ).isEqualTo( 4 );
+		assertThat( statistics.isSuspectedNPlusOne() ).isTrue();
+		assertThat( statistics.getRepeatedStatements() ).hasSize( 1 );
+		assertThat( statistics.getRepeatedStatements().get( 0 ).getSql() ).isEqualTo( "select * from address where user_id = ?" );
+		assertThat( statistics.getRepeatedStatements().get( 0 ).getCount() ).isEqualTo( 3 );
+		assertThat( registry.getStatistics( "req-1" ) ).isSameAs( statistics );
+
+		for ( int i = 0; i < 3; i++ ) {
+			registry.begin( request, "req-" + i, "GET /" );
+			inspector.inspect( "select 1" );
+			registry.end( request );
+		}
+		assertThat( registry.getStatistics() ).extracting( StatementStatistics::getRequestId ).containsExactly( "req-2", "req-1" );
+	}
+
+	@Test
+	public void onlyStoppingTheOutermostUnitOfWorkEndsTheStatistics() {
+		StatementStatisticsRegistry registry = new StatementStatisticsRegistry();
+		UnitOfWorkStatementStatistics unitOfWorkStatistics = new UnitOfWorkStatementStatistics( registry );
+
+		unitOfWorkStatistics.started( new Object() );
+		unitOfWorkStatistics.started( new Object() );
+		inspector.inspect( "select * from user" );
+		unitOfWorkStatistics.stopped();
+
+		assertThat( StatementStatistics.current() ).isNotNull();
+		inspector.inspect( "select * from address" );
+		unitOfWorkStatistics.stopped();
+
+		assertThat( StatementStatistics.current() ).isNull();
+		assertThat( registry.getStatistics() ).singleElement()
+		                                      .extracting( StatementStatistics::getStatementCount ).isEqualTo( 2 );
+
+		unitOfWorkStatistics.stopped();
+		assertThat( registry.getStatistics() ).hasSize( 1 );
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void filterAddsLogFields() throws Exception {
+		StatementStatisticsRegistry registry = new StatementStatisticsRegistry();
+		StatementStatisticsFilter filter = new StatementStatisticsFilter( registry );
+
+		MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/users" );
+		request.setAttribute( StatementStatisticsFilter.ATTRIBUTE_REQUEST_ID, "abc" );
+		filter.doFilter( request, new MockHttpServletResponse(), ( req, res ) -> inspector.inspect( "select * from user" ) );
+
+		StatementStatistics statistics = registry.getStatistics( "abc" );
+		assertThat( statistics.getDescription() ).isEqualTo( "GET /users" );
+		assertThat( request.getAttribute( StatementStatisticsFilter.ATTRIBUTE_STATISTICS ) ).isSameAs( statistics );
+		assertThat( (Map<String, Object>) request.getAttribute( StatementStatisticsFilter.ATTRIBUTE_LOG_FIELDS ) )
+				.containsEntry( "sqlStatements", 1 )
+				.containsEntry( "sqlTime", 0L )
+				.doesNotContainKey( "sqlRepeated" );
+	}
+}
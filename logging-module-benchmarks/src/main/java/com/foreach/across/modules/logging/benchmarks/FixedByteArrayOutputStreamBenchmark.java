@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.benchmarks;
+
+import com.foreach.across.modules.logging.requestresponse.FixedByteArrayOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a payload in chunks to a {@link FixedByteArrayOutputStream}, compared to a regular
+ * {@link ByteArrayOutputStream}.  Payloads larger than {@link #MAX_SIZE} are truncated by the fixed stream.
+ *
+ * @since 4.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedByteArrayOutputStreamBenchmark
+{
+	private static final int MAX_SIZE = 100 * 1024;
+
+	@Param({ "1024", "65536", "1048576" })
+	private int payloadSize;
+
+	@Param({ "1", "512", "8192" })
+	private int chunkSize;
+
+	private byte[] payload;
+
+	@Setup
+	public void createPayload() {
+		payload = new byte[payloadSize];
+		Arrays.fill( payload, (byte) 'x' );
+	}
+
+	@Benchmark
+	public int byteArrayOutputStream() {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		write( bos );
+		return bos.size();
+	}
+
+	@Benchmark
+	public long fixedByteArrayOutputStream() {
+		FixedByteArrayOutputStream bos = new FixedByteArrayOutputStream( MAX_SIZE );
+		write( bos );
+		return bos.getRealSize();
+	}
+
+	@Benchmark
+	public int fixedByteArrayOutputStreamToByteArray() {
+		FixedByteArrayOutputStream bos = new FixedByteArrayOutputStream( MAX_SIZE );
+		write( bos );
+		return bos.toByteArray().length;
+	}
+
+	private void write( ByteArrayOutputStream bos ) {
+		if ( chunkSize == 1 ) {
+			for ( byte b : payload ) {
+				bos.write( b );
+			}
+		}
+		else {
+			for ( int offset = 0; offset < payloadSize; offset += chunkSize ) {
+				bos.write( payload, offset, Math.min( chunkSize, payloadSize - offset ) );
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.benchmarks;
+
+import com.foreach.across.modules.logging.requestresponse.LogRequestWrapper;
+import com.foreach.across.modules.logging.requestresponse.LogResponseWrapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading a request body through a {@link LogRequestWrapper} and writing a response body
+ * through a {@link LogResponseWrapper}, both in chunks of {@link #chunkSize} bytes.
+ * The plain methods do the same without a wrapper.
+ *
+ * @since 4.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogWrapperBenchmark
+{
+	@Param({ "1024", "65536", "262144" })
+	private int payloadSize;
+
+	@Param({ "1", "512", "8192" })
+	private int chunkSize;
+
+	private byte[] payload;
+	private String text;
+	private byte[] buffer;
+
+	@Setup
+	public void createPayload() {
+		payload = new byte[payloadSize];
+		Arrays.fill( payload, (byte) 'x' );
+		text = new String( payload );
+		buffer = new byte[chunkSize];
+	}
+
+	@Benchmark
+	public long readPlain() throws IOException {
+		return read( request().getInputStream() );
+	}
+
+	@Benchmark
+	public long readWrapped() throws IOException {
+		LogRequestWrapper wrapper = new LogRequestWrapper( request() );
+		read( wrapper.getInputStream() );
+		return wrapper.payloadSize();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse writeStreamPlain() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		write( response.getOutputStream() );
+		return response;
+	}
+
+	@Benchmark
+	public long writeStreamWrapped() throws IOException {
+		LogResponseWrapper wrapper = new LogResponseWrapper( new MockHttpServletResponse() );
+		write( wrapper.getOutputStream() );
+		return wrapper.payloadSize();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse writeWriterPlain() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		write( response.getWriter() );
+		return response;
+	}
+
+	@Benchmark
+	public long writeWriterWrapped() throws IOException {
+		LogResponseWrapper wrapper = new LogResponseWrapper( new MockHttpServletResponse() );
+		write( wrapper.getWriter() );
+		return wrapper.payloadSize();
+	}
+
+	private MockHttpServletRequest request() {
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", "/api/upload" );
+		request.setContent( payload );
+		return request;
+	}
+
+	private long read( ServletInputStream inputStream ) throws IOException {
+		long total = 0;
+		int read;
+
+		if ( chunkSize == 1 ) {
+			while ( inputStream.read() >= 0 ) {
+				total++;
+			}
+		}
+		else {
+			while ( ( read = inputStream.read( buffer ) ) >= 0 ) {
+				total += read;
+			}
+		}
+
+		return total;
+	}
+
+	private void write( ServletOutputStream outputStream ) throws IOException {
+		if ( chunkSize == 1 ) {
+			for ( byte b : payload ) {
+				outputStream.write( b );
+			}
+		}
+		else {
+			for ( int offset = 0; offset < payloadSize; offset += chunkSize ) {
+				outputStream.write( payload, offset, Math.min( chunkSize, payloadSize - offset ) );
+			}
+		}
+		outputStream.flush();
+	}
+
+	private void write( PrintWriter writer ) {
+		if ( chunkSize == 1 ) {
+			for ( int i = 0; i < payloadSize; i++ ) {
+				writer.write( text.charAt( i ) );
+			}
+		}
+		else {
+			for ( int offset = 0; offset < payloadSize; offset += chunkSize ) {
+				writer.write( text, offset, Math.min( chunkSize, payloadSize - offset ) );
+			}
+		}
+		writer.flush();
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.benchmarks;
+
+import ch.qos.logback.classic.Logger;
+import com.foreach.across.modules.logging.method.CallTree;
+import com.foreach.across.modules.logging.method.CallTreeRecorder;
+import com.foreach.across.modules.logging.method.MethodLogger;
+import com.foreach.across.modules.logging.method.MethodLoggerAdapter;
+import com.foreach.across.modules.logging.method.MethodTimingRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of a {@link MethodLoggerAdapter} around a method that does nothing.
+ * <ul>
+ * <li>{@code DISABLED}: the method logger is disabled</li>
+ * <li>{@code QUIET}: the method logger is enabled but its log level is above INFO</li>
+ * <li>{@code LOGGED}: every call is logged</li>
+ * <li>{@code AGGREGATED}: every call is aggregated in a {@link MethodTimingRegistry}, nothing is logged</li>
+ * <li>{@code CALL_TREE}: every call is added to the {@link CallTree} of the current request, nothing is logged</li>
+ * </ul>
+ *
+ * @since 4.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodLoggerAdapterBenchmark
+{
+	public enum Scenario
+	{
+		DISABLED,
+		QUIET,
+		LOGGED,
+		AGGREGATED,
+		CALL_TREE
+	}
+
+	@Param({ "DISABLED", "QUIET", "LOGGED", "AGGREGATED", "CALL_TREE" })
+	private Scenario scenario;
+
+	private final BenchmarkMethodLogger methodLogger = new BenchmarkMethodLogger();
+	private final StubJoinPoint joinPoint = new StubJoinPoint();
+
+	private CallTreeRecorder callTreeRecorder;
+	private CallTree callTree;
+
+	@Setup
+	public void configure() {
+		Logger logger = (Logger) LoggerFactory.getLogger( MethodLogger.class.getName() + "." + methodLogger.getName() );
+		logger.setLevel( scenario == Scenario.LOGGED ? ch.qos.logback.classic.Level.INFO : ch.qos.logback.classic.Level.WARN );
+
+		methodLogger.setMinimumDuration( 0 );
+		methodLogger.setEnabled( scenario != Scenario.DISABLED );
+		methodLogger.setMethodTimingRegistry( scenario == Scenario.AGGREGATED ? new MethodTimingRegistry() : null );
+
+		if ( scenario == Scenario.CALL_TREE ) {
+			callTreeRecorder = new CallTreeRecorder( 10 );
+			callTreeRecorder.setSamplingRate( 1 );
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void startCallTree() {
+		if ( callTreeRecorder != null ) {
+			callTree = callTreeRecorder.start( "benchmark", "GET", "/" );
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void stopCallTree() {
+		if ( callTree != null ) {
+			callTreeRecorder.stop( callTree, 0 );
+			callTree = null;
+		}
+	}
+
+	@Benchmark
+	public Object baseline() throws Throwable {
+		return joinPoint.proceed();
+	}
+
+	@Benchmark
+	public Object proceed() throws Throwable {
+		return methodLogger.proceed( joinPoint );
+	}
+
+	static final class BenchmarkMethodLogger extends MethodLoggerAdapter
+	{
+		BenchmarkMethodLogger() {
+			super( "benchmark" );
+		}
+
+		Object proceed( ProceedingJoinPoint point ) throws Throwable {
+			return proceedAndLogExecutionTime( point );
+		}
+	}
+
+	/**
+	 * Join point for {@link Target#execute()} that returns a constant, without reflective invocation.
+	 */
+	static final class StubJoinPoint implements ProceedingJoinPoint
+	{
+		private final Target target = new Target();
+		private final Signature signature = new StubMethodSignature();
+
+		@Override
+		public Object proceed() {
+			return target.execute();
+		}
+
+		@Override
+		public Object proceed( Object[] args ) {
+			return target.execute();
+		}
+
+		@Override
+		public void set$AroundClosure( AroundClosure arc ) {
+		}
+
+		@Override
+		public Object getThis() {
+			return target;
+		}
+
+		@Override
+		public Object getTarget() {
+			return target;
+		}
+
+		@Override
+		public Object[] getArgs() {
+			return new Object[0];
+		}
+
+		@Override
+		public Signature getSignature() {
+			return signature;
+		}
+
+		@Override
+		public SourceLocation getSourceLocation() {
+			return null;
+		}
+
+		@Override
+		public String getKind() {
+			return METHOD_EXECUTION;
+		}
+
+		@Override
+		public StaticPart getStaticPart() {
+			return null;
+		}
+
+		@Override
+		public String toShortString() {
+			return signature.toShortString();
+		}
+
+		@Override
+		public String toLongString() {
+			return signature.toLongString();
+		}
+	}
+
+	static final class StubMethodSignature implements MethodSignature
+	{
+		private static final Method METHOD;
+
+		static {
+			try {
+				METHOD = Target.class.getMethod( "execute" );
+			}
+			catch ( NoSuchMethodException nsme ) {
+				throw new IllegalStateException( nsme );
+			}
+		}
+
+		@Override
+		public Class<?> getReturnType() {
+			return METHOD.getReturnType();
+		}
+
+		@Override
+		public Method getMethod() {
+			return METHOD;
+		}
+
+		@Override
+		public Class<?>[] getParameterTypes() {
+			return METHOD.getParameterTypes();
+		}
+
+		@Override
+		public String[] getParameterNames() {
+			return new String[0];
+		}
+
+		@Override
+		public Class<?>[] getExceptionTypes() {
+			return METHOD.getExceptionTypes();
+		}
+
+		@Override
+		public String toShortString() {
+			return "Target.execute()";
+		}
+
+		@Override
+		public String toLongString() {
+			return METHOD.toString();
+		}
+
+		@Override
+		public String getName() {
+			return METHOD.getName();
+		}
+
+		@Override
+		public int getModifiers() {
+			return METHOD.getModifiers();
+		}
+
+		@Override
+		public Class<?> getDeclaringType() {
+			return Target.class;
+		}
+
+		@Override
+		public String getDeclaringTypeName() {
+			return Target.class.getName();
+		}
+	}
+
+	public static class Target
+	{
+		public Object execute() {
+			return Boolean.TRUE;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.foreach.across.modules.logging.request.EndpointLatencyRegistry;
+import com.foreach.across.modules.logging.request.RequestLogFormat;
+import com.foreach.across.modules.logging.request.RequestLogger;
+import com.foreach.across.modules.logging.request.RequestLoggerFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the {@link RequestLoggerFilter} on a request that does nothing, for every log format and
+ * with the request logger enabled or disabled.  The {@link #baseline()} creates the same mock request and
+ * response without the filter.
+ *
+ * @since 4.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestLoggerFilterBenchmark
+{
+	@Param({ "PATTERN", "TAB_SEPARATED", "JSON" })
+	private RequestLogFormat logFormat;
+
+	@Param({ "true", "false" })
+	private boolean logEnabled;
+
+	@Param({ "false", "true" })
+	private boolean endpointLatency;
+
+	private RequestLoggerFilter filter;
+
+	private final FilterChain chain = ( request, response ) ->
+			request.setAttribute( HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/users/{id}" );
+
+	@Setup
+	public void createFilter() {
+		( (Logger) RequestLogger.LOG ).setLevel( logEnabled ? Level.DEBUG : Level.INFO );
+
+		filter = new RequestLoggerFilter();
+		filter.setExcludedPathPatterns( Collections.singleton( "/static/**" ) );
+		filter.setLogFormat( logFormat );
+
+		if ( endpointLatency ) {
+			filter.setEndpointLatencyRegistry( new EndpointLatencyRegistry() );
+		}
+	}
+
+	@Benchmark
+	public MockHttpServletResponse baseline() throws Exception {
+		MockHttpServletRequest request = request();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		chain.doFilter( request, response );
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse doFilter() throws Exception {
+		MockHttpServletRequest request = request();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter( request, response, chain );
+		return response;
+	}
+
+	private MockHttpServletRequest request() {
+		MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/users/1" );
+		request.setRemoteAddr( "10.0.0.1" );
+		request.setQueryString( "page=1&size=20" );
+		return request;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.benchmarks;
+
+import com.foreach.across.modules.logging.requestresponse.AsyncRequestResponseLogAppender;
+import com.foreach.across.modules.logging.requestresponse.RequestResponseLogRegistry;
+import com.foreach.across.modules.logging.requestresponse.RequestResponseLoggingFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capturing a request and response with the {@link RequestResponseLoggingFilter}, for different payload sizes.
+ * The chain reads the complete request body and writes a response body of the same size.  The log entry
+ * is either built on the request thread, or handed to an {@link AsyncRequestResponseLogAppender}.
+ *
+ * @since 4.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestResponseLoggingFilterBenchmark
+{
+	@Param({ "0", "1024", "16384", "262144" })
+	private int payloadSize;
+
+	@Param({ "false", "true" })
+	private boolean asynchronous;
+
+	private RequestResponseLoggingFilter filter;
+	private AsyncRequestResponseLogAppender asyncAppender;
+	private byte[] payload;
+
+	private final FilterChain chain = ( request, response ) -> {
+		byte[] buffer = new byte[8192];
+		ServletInputStream inputStream = request.getInputStream();
+		while ( inputStream.read( buffer ) >= 0 ) {
+			// consume the request body
+		}
+		response.setContentType( "application/json" );
+		response.getOutputStream().write( payload );
+	};
+
+	@Setup
+	public void createFilter() {
+		payload = new byte[payloadSize];
+		Arrays.fill( payload, (byte) 'x' );
+
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		filter = new RequestResponseLoggingFilter( registry, false );
+
+		if ( asynchronous ) {
+			asyncAppender = new AsyncRequestResponseLogAppender( registry );
+			asyncAppender.afterPropertiesSet();
+			filter.setAsyncAppender( asyncAppender );
+		}
+	}
+
+	@TearDown
+	public void shutdown() throws Exception {
+		if ( asyncAppender != null ) {
+			asyncAppender.destroy();
+		}
+	}
+
+	@Benchmark
+	public MockHttpServletResponse baseline() throws Exception {
+		MockHttpServletRequest request = request();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		chain.doFilter( request, response );
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse doFilter() throws Exception {
+		MockHttpServletRequest request = request();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter( request, response, chain );
+		return response;
+	}
+
+	private MockHttpServletRequest request() {
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", "/api/users" );
+		request.setContentType( "application/json" );
+		request.setCharacterEncoding( StandardCharsets.UTF_8.name() );
+		request.setContent( payload );
+		request.addHeader( "Accept", "application/json" );
+		request.addParameter( "page", "1" );
+		return request;
+	}
+}
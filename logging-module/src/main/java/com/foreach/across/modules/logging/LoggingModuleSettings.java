@@ -29,4 +29,5 @@ public class LoggingModuleSettings
 
 	public static final String REQUEST_LOGGER = "logging.request.logger";
 	public static final String REQUEST_LOGGER_CONFIGURATION = "logging.request.configuration";
+	public static final String REQUEST_LOGGER_ENDPOINT_LATENCY_ENABLED = "logging.request.endpoint-latency.enabled";
 }
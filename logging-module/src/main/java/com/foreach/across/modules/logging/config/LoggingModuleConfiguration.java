@@ -16,8 +16,15 @@
 
 package com.foreach.across.modules.logging.config;
 
+import ch.qos.logback.classic.LoggerContext;
 import com.foreach.across.core.annotations.ConditionalOnAcrossModule;
+import com.foreach.across.core.annotations.Exposed;
 import com.foreach.across.modules.logging.controllers.LogController;
+import com.foreach.across.modules.logging.controllers.LogLevelOverridesController;
+import com.foreach.across.modules.logging.loggers.LogLevelOverrides;
+import com.foreach.across.modules.logging.loggers.LoggerIndex;
+import com.foreach.across.modules.logging.loggers.RequestDebugTurboFilter;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -34,4 +41,36 @@ public class LoggingModuleConfiguration
 	public LogController logController() {
 		return new LogController();
 	}
+
+	@Bean
+	@ConditionalOnAcrossModule("DebugWebModule")
+	public LogLevelOverridesController logLevelOverridesController() {
+		return new LogLevelOverridesController();
+	}
+
+	@Bean(destroyMethod = "close")
+	@ConditionalOnAcrossModule("DebugWebModule")
+	public LoggerIndex loggerIndex() {
+		return new LoggerIndex( loggerContext() );
+	}
+
+	@Bean(destroyMethod = "close")
+	@Exposed
+	@ConditionalOnAcrossModule("DebugWebModule")
+	public LogLevelOverrides logLevelOverrides() {
+		return new LogLevelOverrides( loggerContext() );
+	}
+
+	@Bean(destroyMethod = "close")
+	@Exposed
+	@ConditionalOnAcrossModule("DebugWebModule")
+	public RequestDebugTurboFilter requestDebugTurboFilter() {
+		RequestDebugTurboFilter filter = new RequestDebugTurboFilter();
+		filter.register( loggerContext() );
+		return filter;
+	}
+
+	private static LoggerContext loggerContext() {
+		return (LoggerContext) LoggerFactory.getILoggerFactory();
+	}
 }
@@ -16,12 +16,17 @@
 
 package com.foreach.across.modules.logging.config;
 
+import com.foreach.across.core.annotations.ConditionalOnAcrossModule;
 import com.foreach.across.core.annotations.Exposed;
 import com.foreach.across.core.events.AcrossModuleBeforeBootstrapEvent;
 import com.foreach.across.core.events.AcrossModuleBootstrappedEvent;
 import com.foreach.across.modules.logging.LoggingModuleSettings;
+import com.foreach.across.modules.logging.controllers.CallTreeController;
+import com.foreach.across.modules.logging.controllers.MethodTimingController;
+import com.foreach.across.modules.logging.method.CallTreeRecorder;
 import com.foreach.across.modules.logging.method.MethodLogConfiguration;
 import com.foreach.across.modules.logging.method.MethodLogger;
+import com.foreach.across.modules.logging.method.MethodTimingRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -53,9 +58,43 @@ public class MethodLoggingConfiguration implements EnvironmentAware
 	@Bean
 	@Exposed
 	public MethodLogConfiguration methodLogConfiguration() {
-		return environment.getProperty( LoggingModuleSettings.METHOD_LOG_CONFIGURATION,
-		                                MethodLogConfiguration.class,
-		                                MethodLogConfiguration.all( 75 ) );
+		MethodLogConfiguration configuration = environment.getProperty( LoggingModuleSettings.METHOD_LOG_CONFIGURATION,
+		                                                                MethodLogConfiguration.class,
+		                                                                MethodLogConfiguration.all( 75 ) );
+		configuration.setMethodTimingRegistry( new MethodTimingRegistry( configuration.getAggregationMaxMethods() ) );
+
+		return configuration;
+	}
+
+	@Bean
+	@Exposed
+	public MethodTimingRegistry methodTimingRegistry() {
+		return methodLogConfiguration().getMethodTimingRegistry();
+	}
+
+	@Bean
+	@ConditionalOnAcrossModule("DebugWebModule")
+	public MethodTimingController methodTimingController() {
+		return new MethodTimingController();
+	}
+
+	@Bean
+	@Exposed
+	public CallTreeRecorder callTreeRecorder() {
+		MethodLogConfiguration configuration = methodLogConfiguration();
+
+		CallTreeRecorder recorder = new CallTreeRecorder( configuration.getCallTreeMaxRequests() );
+		recorder.setSamplingRate( configuration.getCallTreeSamplingRate() );
+		recorder.setSlowRequestThreshold( configuration.getCallTreeSlowRequestThreshold() );
+		recorder.setMaxNodes( configuration.getCallTreeMaxNodes() );
+
+		return recorder;
+	}
+
+	@Bean
+	@ConditionalOnAcrossModule("DebugWebModule")
+	public CallTreeController callTreeController() {
+		return new CallTreeController();
 	}
 
 	@SuppressWarnings("unused")
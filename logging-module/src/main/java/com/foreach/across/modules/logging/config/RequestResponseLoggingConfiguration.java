@@ -20,9 +20,15 @@ import com.foreach.across.core.AcrossException;
 import com.foreach.across.core.annotations.ConditionalOnAcrossModule;
 import com.foreach.across.modules.logging.LoggingModuleSettings;
 import com.foreach.across.modules.logging.controllers.RequestResponseLogController;
+import com.foreach.across.modules.logging.requestresponse.AsyncRequestResponseLogAppender;
+import com.foreach.across.modules.logging.requestresponse.PersistentRequestResponseLogRegistry;
 import com.foreach.across.modules.logging.requestresponse.RequestResponseLogConfiguration;
 import com.foreach.across.modules.logging.requestresponse.RequestResponseLogRegistry;
 import com.foreach.across.modules.logging.requestresponse.RequestResponseLoggingFilter;
+import com.foreach.across.modules.logging.requestresponse.RequestResponseMasker;
+import com.foreach.across.modules.logging.requestresponse.RequestSampler;
+import com.foreach.across.modules.logging.requestresponse.SegmentedRequestResponseLogStore;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.EnvironmentAware;
@@ -32,6 +38,8 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.core.Ordered;
 import org.springframework.core.env.Environment;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Collection;
 
 /**
@@ -58,12 +66,46 @@ public class RequestResponseLoggingConfiguration implements EnvironmentAware
 
 	@Bean
 	public RequestResponseLogRegistry requestResponseLogRegistry() {
-		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
-		registry.setMaxEntries( requestResponseLogConfiguration().getMaxEntries() );
+		RequestResponseLogConfiguration configuration = requestResponseLogConfiguration();
+
+		RequestResponseLogRegistry registry = StringUtils.isBlank( configuration.getStorageDirectory() )
+				? new RequestResponseLogRegistry() : new PersistentRequestResponseLogRegistry( segmentedLogStore( configuration ) );
+		registry.setMaxEntries( configuration.getMaxEntries() );
+		registry.setMaxRetainedBytes( configuration.getMaxRetainedBytes() );
+		registry.setCompressPayloads( configuration.isCompressPayloads() );
+		registry.setMasker( new RequestResponseMasker( configuration.getMaskedKeyPatterns(),
+		                                               configuration.getMaskedHeaderPatterns(),
+		                                               configuration.getMaskedCookiePatterns() ) );
 
 		return registry;
 	}
 
+	private SegmentedRequestResponseLogStore segmentedLogStore( RequestResponseLogConfiguration configuration ) {
+		try {
+			return new SegmentedRequestResponseLogStore( Paths.get( configuration.getStorageDirectory() ),
+			                                             configuration.getStorageSegmentSize(),
+			                                             configuration.getStorageSegmentMaxAge(),
+			                                             configuration.getStorageMaxSegments() );
+		}
+		catch ( IOException ioe ) {
+			throw new AcrossException( "Unable to open request-response log storage directory "
+					                           + configuration.getStorageDirectory(), ioe );
+		}
+	}
+
+	@Bean
+	@Lazy
+	public AsyncRequestResponseLogAppender asyncRequestResponseLogAppender() {
+		RequestResponseLogConfiguration configuration = requestResponseLogConfiguration();
+
+		AsyncRequestResponseLogAppender appender = new AsyncRequestResponseLogAppender( requestResponseLogRegistry() );
+		appender.setQueueSize( configuration.getAsyncQueueSize() );
+		appender.setBatchSize( configuration.getAsyncBatchSize() );
+		appender.setDropPolicy( configuration.getAsyncDropPolicy() );
+
+		return appender;
+	}
+
 	@Bean
 	@ConditionalOnAcrossModule("DebugWebModule")
 	public RequestResponseLogController requestResponseLogController() {
@@ -85,6 +127,14 @@ public class RequestResponseLoggingConfiguration implements EnvironmentAware
 			filter.setExcludedPathPatterns( requestResponseLogConfiguration().getExcludedPathPatterns() );
 		}
 
+		filter.setRequestSampler( new RequestSampler( requestResponseLogConfiguration().getSamplingRate(),
+		                                              requestResponseLogConfiguration().getPathSamplingRates(),
+		                                              requestResponseLogConfiguration().getMaxCapturesPerSecond() ) );
+
+		if ( requestResponseLogConfiguration().isAsynchronous() ) {
+			filter.setAsyncAppender( asyncRequestResponseLogAppender() );
+		}
+
 		return filter;
 	}
 
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.config;
+
+import com.foreach.across.core.annotations.ConditionalOnAcrossModule;
+import com.foreach.across.modules.logging.controllers.StatementStatisticsController;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the debug page for the SQL statement statistics if the AcrossHibernateModule is on the classpath.
+ *
+ * @since 4.3.0
+ */
+@Configuration
+@ConditionalOnAcrossModule("DebugWebModule")
+@ConditionalOnClass(name = "com.foreach.across.modules.hibernate.statistics.StatementStatisticsRegistry")
+public class StatementStatisticsConfiguration
+{
+	@Bean
+	public StatementStatisticsController statementStatisticsController() {
+		return new StatementStatisticsController();
+	}
+}
@@ -20,7 +20,12 @@ import com.foreach.across.core.AcrossException;
 import com.foreach.across.core.annotations.ConditionalOnAcrossModule;
 import com.foreach.across.core.annotations.Exposed;
 import com.foreach.across.modules.logging.LoggingModuleSettings;
+import com.foreach.across.modules.logging.controllers.EndpointLatencyController;
+import com.foreach.across.modules.logging.loggers.RequestDebugTurboFilter;
+import com.foreach.across.modules.logging.method.CallTreeRecorder;
+import com.foreach.across.modules.logging.request.EndpointLatencyRegistry;
 import com.foreach.across.modules.logging.request.LogHandlerAndViewNameInterceptor;
+import com.foreach.across.modules.logging.request.RequestIdGenerator;
 import com.foreach.across.modules.logging.request.RequestLoggerConfiguration;
 import com.foreach.across.modules.logging.request.RequestLoggerFilter;
 import com.foreach.common.spring.context.ApplicationInfo;
@@ -71,9 +76,33 @@ public class RequestLoggerFilterConfiguration implements EnvironmentAware
 		if ( requestLoggerConfiguration().getLoggerLevelThreshold() != null ) {
 			filter.setLoggerLevelThreshold( requestLoggerConfiguration().getLoggerLevelThreshold() );
 		}
+
+		filter.setPathLoggerLevelThresholds( requestLoggerConfiguration().getPathLoggerLevelThresholds() );
+		filter.setHandlerLoggerLevelThresholds( requestLoggerConfiguration().getHandlerLoggerLevelThresholds() );
+
+		filter.setAcceptRequestIdHeader( requestLoggerConfiguration().isAcceptRequestIdHeader() );
+		filter.setLogFormat( requestLoggerConfiguration().getLogFormat() );
+
+		if ( requestLoggerConfiguration().isEndpointLatencyEnabled()
+				|| environment.getProperty( LoggingModuleSettings.REQUEST_LOGGER_ENDPOINT_LATENCY_ENABLED, Boolean.class, false ) ) {
+			filter.setEndpointLatencyRegistry( endpointLatencyRegistry() );
+		}
+
 		return filter;
 	}
 
+	@Bean
+	@Exposed
+	public EndpointLatencyRegistry endpointLatencyRegistry() {
+		return new EndpointLatencyRegistry( requestLoggerConfiguration().getEndpointLatencyMaxEndpoints() );
+	}
+
+	@Bean
+	@ConditionalOnAcrossModule("DebugWebModule")
+	public EndpointLatencyController endpointLatencyController() {
+		return new EndpointLatencyController();
+	}
+
 	@Bean
 	@Exposed
 	public MappedInterceptor logHandlerAndViewNameMappedInterceptor() {
@@ -116,4 +145,44 @@ public class RequestLoggerFilterConfiguration implements EnvironmentAware
 			requestLoggerFilter.setInstanceId( applicationInfo.getInstanceId() );
 		}
 	}
+
+	/**
+	 * Use a custom {@link RequestIdGenerator} if one is defined.
+	 */
+	@Configuration
+	@SuppressWarnings("all")
+	@ConditionalOnSingleCandidate(RequestIdGenerator.class)
+	public static class RequestIdGeneratorConfiguration
+	{
+		@Autowired
+		public void registerRequestIdGenerator( RequestLoggerFilter requestLoggerFilter, RequestIdGenerator requestIdGenerator ) {
+			requestLoggerFilter.setRequestIdGenerator( requestIdGenerator );
+		}
+	}
+
+	/**
+	 * Record call trees if method logging is enabled.
+	 */
+	@Configuration
+	@SuppressWarnings("all")
+	public static class CallTreeRecorderConfiguration
+	{
+		@Autowired(required = false)
+		public void registerCallTreeRecorder( RequestLoggerFilter requestLoggerFilter, CallTreeRecorder callTreeRecorder ) {
+			requestLoggerFilter.setCallTreeRecorder( callTreeRecorder );
+		}
+	}
+
+	/**
+	 * Support debug mode for single requests.
+	 */
+	@Configuration
+	@SuppressWarnings("all")
+	public static class RequestDebugConfiguration
+	{
+		@Autowired(required = false)
+		public void registerRequestDebugFilter( RequestLoggerFilter requestLoggerFilter, RequestDebugTurboFilter requestDebugTurboFilter ) {
+			requestLoggerFilter.setRequestDebugFilter( requestDebugTurboFilter );
+		}
+	}
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.controllers;
+
+import com.foreach.across.modules.debugweb.mvc.DebugMenuEvent;
+import com.foreach.across.modules.debugweb.mvc.DebugWebController;
+import com.foreach.across.modules.logging.method.CallTree;
+import com.foreach.across.modules.logging.method.CallTreeRecorder;
+import com.foreach.across.modules.web.resource.WebResourceUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Shows the call trees of the slow requests that were recorded by the {@link CallTreeRecorder}.
+ *
+ * @since 4.3.0
+ */
+@DebugWebController
+public class CallTreeController
+{
+	@Autowired
+	private CallTreeRecorder callTreeRecorder;
+
+	@EventListener
+	public void buildMenu( DebugMenuEvent event ) {
+		event.builder().group( "/logging", "Logging" ).and().item( "/logging/callTrees", "Slow request call trees" );
+	}
+
+	@RequestMapping(value = "/logging/callTrees", method = RequestMethod.GET)
+	public String listCallTrees( Model model ) {
+		model.addAttribute( "recorder", callTreeRecorder );
+		model.addAttribute( "callTrees", callTreeRecorder.getSlowRequests() );
+
+		return "th/logging/callTrees";
+	}
+
+	@RequestMapping(value = "/logging/callTrees/detail", method = RequestMethod.GET)
+	public String showCallTree( Model model, HttpServletRequest request, @RequestParam("id") String requestId ) {
+		CallTree callTree = callTreeRecorder.getSlowRequest( requestId );
+
+		if ( callTree == null ) {
+			return WebResourceUtils.getPathResolver( request ).redirect( "/logging/callTrees" );
+		}
+
+		model.addAttribute( "callTree", callTree );
+		model.addAttribute( "nodes", callTree.getNodes() );
+
+		return "th/logging/callTree";
+	}
+
+	@RequestMapping(value = "/logging/callTrees/settings", method = RequestMethod.POST)
+	public String updateSettings( HttpServletRequest request,
+	                              @RequestParam("samplingRate") double samplingRate,
+	                              @RequestParam("slowRequestThreshold") long slowRequestThreshold ) {
+		callTreeRecorder.setSamplingRate( Math.min( 1, Math.max( 0, samplingRate ) ) );
+		callTreeRecorder.setSlowRequestThreshold( Math.max( 0, slowRequestThreshold ) );
+
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/callTrees" );
+	}
+
+	@RequestMapping(value = "/logging/callTrees/reset", method = RequestMethod.POST)
+	public String reset( HttpServletRequest request ) {
+		callTreeRecorder.reset();
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/callTrees" );
+	}
+}
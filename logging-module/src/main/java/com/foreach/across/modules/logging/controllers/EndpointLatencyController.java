@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.controllers;
+
+import com.foreach.across.modules.debugweb.mvc.DebugMenuEvent;
+import com.foreach.across.modules.debugweb.mvc.DebugWebController;
+import com.foreach.across.modules.logging.request.EndpointLatencyRegistry;
+import com.foreach.across.modules.logging.request.LatencyHistogram;
+import com.foreach.across.modules.web.resource.WebResourceUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the request duration percentiles per request mapping.
+ *
+ * @since 4.3.0
+ */
+@DebugWebController
+public class EndpointLatencyController
+{
+	@Autowired
+	private EndpointLatencyRegistry endpointLatencyRegistry;
+
+	@EventListener
+	public void buildMenu( DebugMenuEvent event ) {
+		event.builder().group( "/logging", "Logging" ).and().item( "/logging/requestLatency", "Request latency" );
+	}
+
+	@RequestMapping(value = "/logging/requestLatency", method = RequestMethod.GET)
+	public String showLatencies( Model model, @RequestParam(value = "sort", defaultValue = "mapping") String sort ) {
+		List<LatencyHistogram.Snapshot> snapshots = endpointLatencyRegistry.getSnapshots();
+
+		Comparator<LatencyHistogram.Snapshot> comparator = sortOrder( sort );
+		if ( comparator != null ) {
+			snapshots.sort( comparator.reversed() );
+		}
+
+		model.addAttribute( "endpoints", snapshots );
+
+		return "th/logging/requestLatency";
+	}
+
+	@ResponseBody
+	@RequestMapping(value = "/logging/requestLatency.json", method = RequestMethod.GET)
+	public List<Map<String, Object>> latencies() {
+		return endpointLatencyRegistry.getSnapshots()
+		                              .stream()
+		                              .map( snapshot -> {
+			                              Map<String, Object> values = new LinkedHashMap<>();
+			                              values.put( "method", snapshot.getMethod() );
+			                              values.put( "mapping", snapshot.getMapping() );
+			                              values.put( "handler", snapshot.getHandlerName() );
+			                              values.put( "count", snapshot.getCount() );
+			                              values.put( "meanMicros", snapshot.getMean() );
+			                              values.put( "p50Micros", snapshot.getP50() );
+			                              values.put( "p95Micros", snapshot.getP95() );
+			                              values.put( "p99Micros", snapshot.getP99() );
+			                              values.put( "maxMicros", snapshot.getMax() );
+			                              return values;
+		                              } )
+		                              .collect( Collectors.toList() );
+	}
+
+	@RequestMapping(value = "/logging/requestLatency/reset", method = RequestMethod.POST)
+	public String reset( HttpServletRequest request ) {
+		endpointLatencyRegistry.reset();
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/requestLatency" );
+	}
+
+	private Comparator<LatencyHistogram.Snapshot> sortOrder( String sort ) {
+		switch ( sort ) {
+			case "count":
+				return Comparator.comparingLong( LatencyHistogram.Snapshot::getCount );
+			case "p50":
+				return Comparator.comparingLong( LatencyHistogram.Snapshot::getP50 );
+			case "p95":
+				return Comparator.comparingLong( LatencyHistogram.Snapshot::getP95 );
+			case "p99":
+				return Comparator.comparingLong( LatencyHistogram.Snapshot::getP99 );
+			case "max":
+				return Comparator.comparingLong( LatencyHistogram.Snapshot::getMax );
+			default:
+				return null;
+		}
+	}
+}
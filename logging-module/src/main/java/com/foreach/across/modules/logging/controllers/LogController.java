@@ -16,107 +16,128 @@
 package com.foreach.across.modules.logging.controllers;
 
 import ch.qos.logback.classic.Level;
-import ch.qos.logback.classic.Logger;
-import ch.qos.logback.classic.LoggerContext;
-import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.Appender;
-import ch.qos.logback.core.FileAppender;
 import com.foreach.across.modules.debugweb.mvc.DebugMenuEvent;
 import com.foreach.across.modules.debugweb.mvc.DebugWebController;
 import com.foreach.across.modules.debugweb.support.Table;
-import org.apache.commons.lang3.StringUtils;
-import org.slf4j.LoggerFactory;
+import com.foreach.across.modules.logging.loggers.LogLevelOverrides;
+import com.foreach.across.modules.logging.loggers.LoggerIndex;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.util.*;
 
 @DebugWebController
 public class LogController
 {
+	private static final int PAGE_SIZE = 100;
+	private static final String LEVEL_PARAMETER_PREFIX = "level.";
+	private static final List<Integer> TTL_MINUTES = Arrays.asList( 0, 5, 15, 60, 240 );
+
+	@Autowired
+	private LoggerIndex loggerIndex;
+
+	@Autowired
+	private LogLevelOverrides logLevelOverrides;
+
 	@EventListener
 	public void buildMenu( DebugMenuEvent event ) {
 		event.builder().group( "/logging", "Logging" ).and().item( "/logging/loggers", "Logger overview" );
 	}
 
 	@RequestMapping(value = "/logging/loggers", method = RequestMethod.GET)
-	public String showLoggers( Model model ) {
-		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
-		List<Logger> loggers = loggerContext.getLoggerList();
+	public String showLoggers( Model model,
+	                           @RequestParam(value = "prefix", required = false) String prefix,
+	                           @RequestParam(value = "page", defaultValue = "0") int page ) {
 		List<Level> levels = Arrays.asList( Level.OFF, Level.TRACE, Level.ERROR, Level.WARN, Level.INFO, Level.DEBUG );
 
-		Map<String, Level> loggerMap = new TreeMap<>();
-
-		Set<Appender> appenderSet = new HashSet<>();
-
-		for ( Logger logger : loggers ) {
-			loggerMap.put( logger.getName(), logger.getEffectiveLevel() );
-
-			Iterator<Appender<ILoggingEvent>> appenders = logger.iteratorForAppenders();
-			while ( appenders.hasNext() ) {
-				appenderSet.add( appenders.next() );
-			}
-		}
-
-		Map<String, String> appenderMap = new TreeMap<>();
-
-		int unnamedAppenders = 0;
-
-		for ( Appender appender : appenderSet ) {
-			String appenderName = appender.getName();
-
-			if ( appenderName == null ) {
-				appenderName = "<unnamed-" + ++unnamedAppenders + ">";
-			}
-
-			if ( appender instanceof FileAppender ) {
-				FileAppender fileAppender = (FileAppender) appender;
-				String filename = fileAppender.getFile();
-				appenderMap.put( appenderName, filename );
-			}
-			else {
-				appenderMap.put( appenderName, appender.toString() );
-			}
-		}
-
 		model.addAttribute( "levels", levels );
-		model.addAttribute( "loggers", loggerMap );
-		model.addAttribute( "appenders", Table.fromMap( "Appenders", appenderMap ) );
+		model.addAttribute( "ttlMinutes", TTL_MINUTES );
+		model.addAttribute( "prefix", prefix );
+		model.addAttribute( "page", Math.max( 0, page ) );
+		model.addAttribute( "loggers", loggerIndex.find( prefix, Math.max( 0, page ) * PAGE_SIZE, PAGE_SIZE ) );
+		model.addAttribute( "appenders", Table.fromMap( "Appenders", loggerIndex.getAppenders() ) );
 
 		return "th/logging/listLoggers";
 	}
 
 	@RequestMapping(value = "/logging/loggers", method = RequestMethod.POST)
-	public String updateLoggers( Model model, HttpServletRequest request ) {
-		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
-		List<Logger> loggers = loggerContext.getLoggerList();
-
-		int updated = 0;
-
-		for ( Logger logger : loggers ) {
-			String requestedLevel = request.getParameter( logger.getName() );
-
-			if ( !StringUtils.isBlank( requestedLevel ) ) {
-				Level newLevel = Level.valueOf( requestedLevel );
-
-				if ( newLevel != logger.getEffectiveLevel() ) {
-					logger.setLevel( newLevel );
-
-					updated++;
-				}
+	public String updateLoggers( Model model,
+	                             HttpServletRequest request,
+	                             @RequestParam(value = "prefix", required = false) String prefix,
+	                             @RequestParam(value = "page", defaultValue = "0") int page,
+	                             @RequestParam(value = "ttl", defaultValue = "60") int ttl ) {
+		Map<String, String> levels = new HashMap<>();
+		request.getParameterMap().forEach( ( name, values ) -> {
+			if ( values.length > 0 && name.startsWith( LEVEL_PARAMETER_PREFIX ) ) {
+				levels.put( name.substring( LEVEL_PARAMETER_PREFIX.length() ), values[0] );
 			}
-		}
+		} );
+
+		int updated = updateLevels( levels, ttl );
 
 		if ( updated > 0 ) {
-			model.addAttribute( "feedback", updated + " loggers have been updated." );
+			model.addAttribute( "feedback", updated + " loggers have been updated" + ( ttl > 0 ? " for " + ttl + " minutes." : "." ) );
 		}
 		else {
 			model.addAttribute( "feedback", "No loggers have been updated." );
 		}
 
-		return showLoggers( model );
+		return showLoggers( model, prefix, page );
+	}
+
+	/**
+	 * Paginated loggers starting with the prefix, ordered by name.
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/logging/loggers.json", method = RequestMethod.GET)
+	public Map<String, Object> loggers( @RequestParam(value = "prefix", required = false) String prefix,
+	                                    @RequestParam(value = "page", defaultValue = "0") int page,
+	                                    @RequestParam(value = "size", defaultValue = "" + PAGE_SIZE) int size ) {
+		int pageSize = Math.min( Math.max( 1, size ), 1000 );
+		LoggerIndex.Page result = loggerIndex.find( prefix, Math.max( 0, page ) * pageSize, pageSize );
+
+		List<Map<String, Object>> loggers = new ArrayList<>( result.getLoggers().size() );
+		for ( LoggerIndex.LoggerLevel logger : result.getLoggers() ) {
+			Map<String, Object> values = new LinkedHashMap<>();
+			values.put( "name", logger.getName() );
+			values.put( "level", logger.getLevel() != null ? logger.getLevel().toString() : null );
+			values.put( "effectiveLevel", logger.getEffectiveLevel().toString() );
+			loggers.add( values );
+		}
+
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put( "total", result.getTotal() );
+		response.put( "page", Math.max( 0, page ) );
+		response.put( "size", pageSize );
+		response.put( "loggers", loggers );
+		return response;
+	}
+
+	/**
+	 * Batch update of logger levels: a map of logger name to level name.
+	 * If a ttl in minutes is specified, the previous levels are restored once it expires.
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/logging/loggers.json", method = RequestMethod.POST)
+	public Map<String, Object> updateLoggers( @RequestBody Map<String, String> levels,
+	                                          @RequestParam(value = "ttl", defaultValue = "0") int ttl ) {
+		return Collections.singletonMap( "updated", updateLevels( levels, ttl ) );
+	}
+
+	private int updateLevels( Map<String, String> levels, int ttlMinutes ) {
+		if ( ttlMinutes > 0 ) {
+			return logLevelOverrides.override( levels, Duration.ofMinutes( ttlMinutes ) );
+		}
+
+		levels.keySet().forEach( logLevelOverrides::discard );
+		return loggerIndex.updateLevels( levels );
 	}
-}
\ No newline at end of file
+}
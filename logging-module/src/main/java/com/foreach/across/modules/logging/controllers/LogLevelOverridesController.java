@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.controllers;
+
+import com.foreach.across.modules.debugweb.mvc.DebugMenuEvent;
+import com.foreach.across.modules.debugweb.mvc.DebugWebController;
+import com.foreach.across.modules.logging.loggers.LogLevelOverrides;
+import com.foreach.across.modules.logging.loggers.RequestDebugTurboFilter;
+import com.foreach.across.modules.web.resource.WebResourceUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+
+/**
+ * Shows the temporary logger level overrides and manages the keys of requests that should be logged in debug mode.
+ *
+ * @since 4.3.0
+ */
+@DebugWebController
+public class LogLevelOverridesController
+{
+	@Autowired
+	private LogLevelOverrides logLevelOverrides;
+
+	@Autowired
+	private RequestDebugTurboFilter requestDebugTurboFilter;
+
+	@EventListener
+	public void buildMenu( DebugMenuEvent event ) {
+		event.builder().group( "/logging", "Logging" ).and().item( "/logging/overrides", "Temporary log levels" );
+	}
+
+	@RequestMapping(value = "/logging/overrides", method = RequestMethod.GET)
+	public String showOverrides( Model model ) {
+		model.addAttribute( "overrides", logLevelOverrides.getOverrides() );
+		model.addAttribute( "debugKeys", requestDebugTurboFilter.getKeys() );
+		model.addAttribute( "debugFilter", requestDebugTurboFilter );
+
+		return "th/logging/logLevelOverrides";
+	}
+
+	@RequestMapping(value = "/logging/overrides/revert", method = RequestMethod.POST)
+	public String revert( HttpServletRequest request, @RequestParam(value = "logger", required = false) String loggerName ) {
+		if ( loggerName != null ) {
+			logLevelOverrides.revert( loggerName );
+		}
+		else {
+			logLevelOverrides.revertAll();
+		}
+
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/overrides" );
+	}
+
+	@RequestMapping(value = "/logging/overrides/debugKeys", method = RequestMethod.POST)
+	public String enableDebugKey( HttpServletRequest request,
+	                              @RequestParam("key") String key,
+	                              @RequestParam(value = "ttl", defaultValue = "15") int ttl ) {
+		if ( StringUtils.isNotBlank( key ) && ttl > 0 ) {
+			requestDebugTurboFilter.enable( key.trim(), Duration.ofMinutes( ttl ) );
+		}
+
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/overrides" );
+	}
+
+	@RequestMapping(value = "/logging/overrides/debugKeys/remove", method = RequestMethod.POST)
+	public String disableDebugKey( HttpServletRequest request, @RequestParam("key") String key ) {
+		requestDebugTurboFilter.disable( key );
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/overrides" );
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.controllers;
+
+import com.foreach.across.modules.debugweb.mvc.DebugMenuEvent;
+import com.foreach.across.modules.debugweb.mvc.DebugWebController;
+import com.foreach.across.modules.logging.method.MethodLogConfiguration;
+import com.foreach.across.modules.logging.method.MethodTimingRegistry;
+import com.foreach.across.modules.logging.method.MethodTimings;
+import com.foreach.across.modules.web.resource.WebResourceUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Comparator;
+
+/**
+ * Shows the methods that consume the most time, based on the aggregated timings of the method loggers.
+ *
+ * @since 4.3.0
+ */
+@DebugWebController
+public class MethodTimingController
+{
+	@Autowired
+	private MethodLogConfiguration methodLogConfiguration;
+
+	@Autowired
+	private MethodTimingRegistry methodTimingRegistry;
+
+	@EventListener
+	public void buildMenu( DebugMenuEvent event ) {
+		event.builder().group( "/logging", "Logging" ).and().item( "/logging/methodTimings", "Method timings" );
+	}
+
+	@RequestMapping(value = "/logging/methodTimings", method = RequestMethod.GET)
+	public String showMethodTimings( Model model,
+	                                 @RequestParam(value = "sort", defaultValue = "total") String sort,
+	                                 @RequestParam(value = "top", defaultValue = "50") int top ) {
+		model.addAttribute( "aggregationEnabled", methodLogConfiguration.isAggregationEnabled() );
+		model.addAttribute( "sort", sort );
+		model.addAttribute( "top", top );
+		model.addAttribute( "methods", methodTimingRegistry.getSnapshots( sortOrder( sort ), Math.max( 1, top ) ) );
+
+		return "th/logging/methodTimings";
+	}
+
+	@RequestMapping(value = "/logging/methodTimings/aggregation", method = RequestMethod.POST)
+	public String updateAggregation( HttpServletRequest request, @RequestParam("enabled") boolean enabled ) {
+		methodLogConfiguration.setAggregationEnabled( enabled );
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/methodTimings" );
+	}
+
+	@RequestMapping(value = "/logging/methodTimings/reset", method = RequestMethod.POST)
+	public String reset( HttpServletRequest request ) {
+		methodTimingRegistry.reset();
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/methodTimings" );
+	}
+
+	private Comparator<MethodTimings.Snapshot> sortOrder( String sort ) {
+		switch ( sort ) {
+			case "count":
+				return Comparator.comparingLong( MethodTimings.Snapshot::getCount );
+			case "mean":
+				return Comparator.comparingLong( MethodTimings.Snapshot::getMeanNanos );
+			case "p99":
+				return Comparator.comparingLong( s -> s.getLatencies().getP99() );
+			case "max":
+				return Comparator.comparingLong( s -> s.getLatencies().getMax() );
+			default:
+				return Comparator.comparingLong( MethodTimings.Snapshot::getTotalNanos );
+		}
+	}
+}
@@ -17,20 +17,36 @@ package com.foreach.across.modules.logging.controllers;
 
 import com.foreach.across.modules.debugweb.mvc.DebugMenuEvent;
 import com.foreach.across.modules.debugweb.mvc.DebugWebController;
+import com.foreach.across.modules.logging.requestresponse.RequestResponseLogEntry;
+import com.foreach.across.modules.logging.requestresponse.RequestResponseLogExporter;
+import com.foreach.across.modules.logging.requestresponse.RequestResponseLogQuery;
 import com.foreach.across.modules.logging.requestresponse.RequestResponseLogRegistry;
 import com.foreach.across.modules.logging.requestresponse.RequestResponseLoggingFilter;
+import com.foreach.across.modules.logging.requestresponse.RequestSampler;
 import com.foreach.across.modules.web.resource.WebResourceUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @DebugWebController
 public class RequestResponseLogController
@@ -50,14 +66,80 @@ public class RequestResponseLogController
 	}
 
 	@RequestMapping("/logging/requestResponse/list")
-	public String listEntries( Model model ) {
+	public String listEntries( Model model,
+	                           @ModelAttribute("search") SearchCriteria search,
+	                           @RequestParam(value = "page", defaultValue = "0") int page,
+	                           @RequestParam(value = "size", defaultValue = "100") int size ) {
+		int pageSize = Math.max( 1, Math.min( size, 1000 ) );
+		int pageNumber = Math.max( 0, page );
+
 		model.addAttribute( "maxEntries", logRegistry.getMaxEntries() );
+		model.addAttribute( "retainedSize", FileUtils.byteCountToDisplaySize( logRegistry.getRetainedBytes() ) );
 		model.addAttribute( "paused", logFilter.isPaused() );
-		model.addAttribute( "logEntries", logRegistry.getEntries() );
+		model.addAttribute( "page", pageNumber );
+		model.addAttribute( "pageSize", pageSize );
+
+		List<RequestResponseLogEntry> entries;
+
+		try {
+			RequestResponseLogQuery query = search.toQuery();
+
+			if ( query == RequestResponseLogQuery.ALL ) {
+				int total = logRegistry.size();
+				entries = logRegistry.getEntries( (long) pageNumber * pageSize, pageSize );
+				model.addAttribute( "totalEntries", total );
+				model.addAttribute( "hasNextPage", (long) ( pageNumber + 1 ) * pageSize < total );
+			}
+			else {
+				// fetch a single extra entry to know if there is a next page
+				entries = logRegistry.findEntries( query, (long) pageNumber * pageSize, pageSize + 1 );
+				model.addAttribute( "hasNextPage", entries.size() > pageSize );
+				entries = entries.subList( 0, Math.min( entries.size(), pageSize ) );
+			}
+		}
+		catch ( IllegalArgumentException iae ) {
+			model.addAttribute( "searchError", iae.getMessage() );
+			model.addAttribute( "hasNextPage", false );
+			entries = new ArrayList<>();
+		}
+
+		model.addAttribute( "logEntries", entries );
 
 		return "th/logging/requestResponse/list";
 	}
 
+	/**
+	 * Streams the entries matching the search criteria as newline delimited JSON, optionally gzip compressed.
+	 */
+	@RequestMapping("/logging/requestResponse/export")
+	public void exportEntries( HttpServletResponse response,
+	                           @ModelAttribute("search") SearchCriteria search,
+	                           @RequestParam(value = "limit", defaultValue = "10000") int limit,
+	                           @RequestParam(value = "payloads", defaultValue = "true") boolean payloads,
+	                           @RequestParam(value = "gzip", defaultValue = "false") boolean gzip ) throws IOException {
+		RequestResponseLogQuery query;
+
+		try {
+			query = search.toQuery();
+		}
+		catch ( IllegalArgumentException iae ) {
+			response.sendError( HttpServletResponse.SC_BAD_REQUEST, iae.getMessage() );
+			return;
+		}
+
+		String fileName = "request-response-log.ndjson" + ( gzip ? ".gz" : "" );
+		response.setContentType( gzip ? "application/gzip" : "application/x-ndjson" );
+		response.setCharacterEncoding( "UTF-8" );
+		response.setHeader( "Content-Disposition", "attachment; filename=\"" + fileName + "\"" );
+
+		OutputStream outputStream = gzip ? new GZIPOutputStream( response.getOutputStream(), 8192 ) : response.getOutputStream();
+		new RequestResponseLogExporter( payloads ).export( logRegistry, query, Math.max( 0, limit ), outputStream );
+
+		if ( gzip ) {
+			( (GZIPOutputStream) outputStream ).finish();
+		}
+	}
+
 	@RequestMapping("/logging/requestResponse/detail")
 	public String detail( @RequestParam("id") UUID id, Model model ) {
 		model.addAttribute( "entry", logRegistry.getEntry( id ) );
@@ -69,7 +151,10 @@ public class RequestResponseLogController
 	public String settings( Model model,
 	                        @RequestParam(value = "excludedPathPatterns", required = false) String excludedPathPatterns,
 	                        @RequestParam(value = "includedPathPatterns",
-			                        required = false) String includedPathPatterns ) {
+			                        required = false) String includedPathPatterns,
+	                        @RequestParam(value = "samplingRate", required = false) String samplingRate,
+	                        @RequestParam(value = "pathSamplingRates", required = false) String pathSamplingRates,
+	                        @RequestParam(value = "maxCapturesPerSecond", required = false) Double maxCapturesPerSecond ) {
 		model.addAttribute( "logFilter", logFilter );
 		if ( excludedPathPatterns != null ) {
 			logFilter.setExcludedPathPatterns( fromTextArea( excludedPathPatterns ) );
@@ -77,6 +162,33 @@ public class RequestResponseLogController
 		if ( includedPathPatterns != null ) {
 			logFilter.setIncludedPathPatterns( fromTextArea( includedPathPatterns ) );
 		}
+		if ( samplingRate != null ) {
+			try {
+				Map<String, Double> pathRates = new LinkedHashMap<>();
+				for ( String rule : fromTextArea( StringUtils.defaultString( pathSamplingRates ) ) ) {
+					String[] patternAndRate = StringUtils.split( rule, "=", 2 );
+					if ( patternAndRate.length != 2 ) {
+						throw new IllegalArgumentException( "Path sampling rule should be pattern=rate: " + rule );
+					}
+					pathRates.put( patternAndRate[0].trim(), RequestSampler.parseRate( patternAndRate[1] ) );
+				}
+
+				logFilter.setRequestSampler(
+						new RequestSampler( RequestSampler.parseRate( samplingRate ), pathRates,
+						                    maxCapturesPerSecond != null ? maxCapturesPerSecond : 0 )
+				);
+			}
+			catch ( IllegalArgumentException iae ) {
+				model.addAttribute( "samplingError", iae.getMessage() );
+			}
+		}
+
+		RequestSampler sampler = logFilter.getRequestSampler();
+		List<String> pathRates = new ArrayList<>();
+		sampler.getPathSamplingRates().forEach( ( pattern, rate ) -> pathRates.add( pattern + "=" + rate ) );
+		model.addAttribute( "sampler", sampler );
+		model.addAttribute( "pathSamplingRates", StringUtils.join( pathRates, ", " ) );
+
 		return "th/logging/requestResponse/settings";
 	}
 
@@ -104,4 +216,105 @@ public class RequestResponseLogController
 		}
 		return cleanedItems;
 	}
+
+	/**
+	 * Search criteria for the log entries, all criteria are optional.
+	 */
+	public static class SearchCriteria
+	{
+		private String status, url, from, until;
+		private Long minDuration, maxDuration;
+
+		public String getStatus() {
+			return status;
+		}
+
+		/**
+		 * @param status status code, class (4xx) or range (400-499)
+		 */
+		public void setStatus( String status ) {
+			this.status = status;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		/**
+		 * @param url text the url should contain
+		 */
+		public void setUrl( String url ) {
+			this.url = url;
+		}
+
+		public String getFrom() {
+			return from;
+		}
+
+		/**
+		 * @param from local date and time (yyyy-MM-ddTHH:mm) the request should have started at or after
+		 */
+		public void setFrom( String from ) {
+			this.from = from;
+		}
+
+		public String getUntil() {
+			return until;
+		}
+
+		/**
+		 * @param until local date and time (yyyy-MM-ddTHH:mm) the request should have started before
+		 */
+		public void setUntil( String until ) {
+			this.until = until;
+		}
+
+		public Long getMinDuration() {
+			return minDuration;
+		}
+
+		public void setMinDuration( Long minDuration ) {
+			this.minDuration = minDuration;
+		}
+
+		public Long getMaxDuration() {
+			return maxDuration;
+		}
+
+		public void setMaxDuration( Long maxDuration ) {
+			this.maxDuration = maxDuration;
+		}
+
+		/**
+		 * @return query or {@link RequestResponseLogQuery#ALL} if no criteria have been set
+		 * @throws IllegalArgumentException if a criterion can not be parsed
+		 */
+		RequestResponseLogQuery toQuery() {
+			if ( StringUtils.isAllBlank( status, url, from, until ) && minDuration == null && maxDuration == null ) {
+				return RequestResponseLogQuery.ALL;
+			}
+
+			int[] statusRange = RequestResponseLogQuery.parseStatusRange( status );
+
+			return new RequestResponseLogQuery(
+					statusRange[0], statusRange[1],
+					minDuration != null ? minDuration : 0, maxDuration != null ? maxDuration : Long.MAX_VALUE,
+					StringUtils.trimToNull( url ),
+					parseTime( from, Long.MIN_VALUE ), parseTime( until, Long.MAX_VALUE )
+			);
+		}
+
+		private long parseTime( String value, long defaultValue ) {
+			if ( StringUtils.isBlank( value ) ) {
+				return defaultValue;
+			}
+
+			try {
+				return LocalDateTime.parse( value.trim() ).atZone( ZoneId.systemDefault() ).toInstant().toEpochMilli();
+			}
+			catch ( DateTimeParseException dtpe ) {
+				throw new IllegalArgumentException( "Time should be formatted as yyyy-MM-ddTHH:mm: " + value );
+			}
+		}
+	}
 }
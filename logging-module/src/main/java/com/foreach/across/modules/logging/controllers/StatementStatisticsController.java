@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.controllers;
+
+import com.foreach.across.modules.debugweb.mvc.DebugMenuEvent;
+import com.foreach.across.modules.debugweb.mvc.DebugWebController;
+import com.foreach.across.modules.hibernate.statistics.StatementStatistics;
+import com.foreach.across.modules.hibernate.statistics.StatementStatisticsRegistry;
+import com.foreach.across.modules.web.resource.WebResourceUtils;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the SQL statements executed per request or unit of work, as collected by the
+ * {@link StatementStatisticsRegistry} of every Hibernate module that has statement statistics enabled.
+ * Requests with a statement that has been repeated often enough to be a likely N+1 select are flagged.
+ *
+ * @since 4.3.0
+ */
+@DebugWebController
+public class StatementStatisticsController
+{
+	@Autowired
+	private ListableBeanFactory beanFactory;
+
+	@EventListener
+	public void buildMenu( DebugMenuEvent event ) {
+		event.builder().group( "/logging", "Logging" ).and().item( "/logging/sqlStatements", "SQL statements" );
+	}
+
+	@RequestMapping(value = "/logging/sqlStatements", method = RequestMethod.GET)
+	public String showStatistics( Model model,
+	                              @RequestParam(value = "suspected", defaultValue = "false") boolean suspectedOnly,
+	                              @RequestParam(value = "requestId", required = false) String requestId ) {
+		Collection<StatementStatisticsRegistry> registries = registries();
+
+		List<StatementStatistics> statistics
+				= registries.stream()
+				            .flatMap( registry -> registry.getStatistics().stream() )
+				            .filter( s -> !suspectedOnly || s.isSuspectedNPlusOne() )
+				            .filter( s -> requestId == null || requestId.equals( s.getRequestId() ) )
+				            .sorted( Comparator.comparingLong( StatementStatistics::getStarted ).reversed() )
+				            .collect( Collectors.toList() );
+
+		model.addAttribute( "enabled", !registries.isEmpty() );
+		model.addAttribute( "suspectedOnly", suspectedOnly );
+		model.addAttribute( "statistics", statistics );
+
+		return "th/logging/statementStatistics";
+	}
+
+	@RequestMapping(value = "/logging/sqlStatements/clear", method = RequestMethod.POST)
+	public String clear( HttpServletRequest request ) {
+		registries().forEach( StatementStatisticsRegistry::clear );
+		return WebResourceUtils.getPathResolver( request ).redirect( "/logging/sqlStatements" );
+	}
+
+	/**
+	 * Registries are exposed by the Hibernate modules, they are looked up on every request as the modules
+	 * might bootstrap after this one.
+	 */
+	private Collection<StatementStatisticsRegistry> registries() {
+		return BeanFactoryUtils.beansOfTypeIncludingAncestors( beanFactory, StatementStatisticsRegistry.class )
+		                       .values()
+		                       .stream()
+		                       .distinct()
+		                       .collect( Collectors.toList() );
+	}
+}
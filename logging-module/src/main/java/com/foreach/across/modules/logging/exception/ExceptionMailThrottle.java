@@ -0,0 +1,316 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.exception;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which exceptions result in a mail, used by the {@link ExceptionToMailResolver}.
+ * Exceptions are grouped on their fingerprint: the type of the exception and its root cause,
+ * along with the top stack frames of the root cause.
+ * <p/>
+ * For every fingerprint, a mail is sent at most once per dedup window and at most a fixed number of times
+ * per hour.  All other occurrences are counted and reported in the next digest.  Recording an occurrence
+ * that does not result in a mail does not acquire any lock.  Only a short summary of the last exception
+ * is kept for the digest, not the exception itself.
+ *
+ * @since 4.3.0
+ */
+final class ExceptionMailThrottle
+{
+	static final String OTHER = "<other>";
+
+	private static final int MAX_SUMMARY_MESSAGE_LENGTH = 200;
+
+	private static final long HOUR = Duration.ofHours( 1 ).toMillis();
+
+	private final ConcurrentMap<String, Occurrences> occurrences = new ConcurrentHashMap<>();
+	private final Occurrences other = new Occurrences( OTHER, System.currentTimeMillis() );
+
+	private final long dedupWindow;
+	private final int maxMailsPerHour;
+	private final int maxFingerprints;
+
+	ExceptionMailThrottle( Duration dedupWindow, int maxMailsPerHour, int maxFingerprints ) {
+		this.dedupWindow = dedupWindow.toMillis();
+		this.maxMailsPerHour = maxMailsPerHour;
+		this.maxFingerprints = maxFingerprints;
+	}
+
+	/**
+	 * Register an occurrence of an exception.
+	 *
+	 * @param fingerprint of the exception
+	 * @param summary     of the exception that occurred, see {@link #summary(Throwable)}
+	 * @param now         current time in milliseconds
+	 * @return occurrences of the fingerprint if a mail should be sent, {@code null} if it was suppressed
+	 */
+	Occurrences register( String fingerprint, String summary, long now ) {
+		Occurrences current = occurrences( fingerprint, now );
+		current.lastSummary = summary;
+
+		if ( now - current.lastMail >= dedupWindow && current.tryAcquireMail( now, dedupWindow, maxMailsPerHour ) ) {
+			return current;
+		}
+
+		if ( current.suppressed.incrementAndGet() < 0 ) {
+			// pruned while registering, register again so the suppressed occurrence is reported
+			return register( fingerprint, summary, now );
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the occurrences of a fingerprint and count the occurrence.  If the entry has been pruned by a digest
+	 * in the meantime, the occurrence is counted on a new entry instead.
+	 */
+	private Occurrences occurrences( String fingerprint, long now ) {
+		while ( true ) {
+			Occurrences current = occurrences.get( fingerprint );
+
+			if ( current == null ) {
+				current = occurrences.size() >= maxFingerprints
+						? other : occurrences.computeIfAbsent( fingerprint, f -> new Occurrences( f, now ) );
+			}
+
+			current.total.increment();
+
+			if ( !current.isPruned() ) {
+				current.lastSeen = now;
+				return current;
+			}
+		}
+	}
+
+	/**
+	 * Collect all fingerprints that had suppressed occurrences since the previous digest,
+	 * and remove the fingerprints that have not been seen for an hour.
+	 *
+	 * @param now current time in milliseconds
+	 * @return digest entries, most suppressed occurrences first
+	 */
+	List<DigestEntry> drainDigest( long now ) {
+		List<DigestEntry> digest = new ArrayList<>();
+
+		long pruneAfter = Math.max( HOUR, dedupWindow );
+
+		for ( Occurrences current : occurrences.values() ) {
+			DigestEntry entry = current.drain();
+
+			if ( entry != null ) {
+				digest.add( entry );
+			}
+			else if ( now - current.lastSeen > pruneAfter ) {
+				occurrences.computeIfPresent( current.fingerprint, ( fingerprint, o ) -> o == current && o.prune() ? null : o );
+			}
+
+			current.drainedTotal = current.total.sum();
+		}
+
+		DigestEntry otherEntry = other.drain();
+		if ( otherEntry != null ) {
+			digest.add( otherEntry );
+		}
+
+		digest.sort( Comparator.comparingLong( DigestEntry::getSuppressed ).reversed() );
+		return digest;
+	}
+
+	/**
+	 * Create the fingerprint of an exception.
+	 *
+	 * @param exception   to create the fingerprint for
+	 * @param stackFrames number of stack frames of the root cause to include
+	 * @return fingerprint
+	 */
+	static String fingerprint( Throwable exception, int stackFrames ) {
+		Throwable rootCause = exception;
+		for ( int i = 0; i < 32 && rootCause.getCause() != null && rootCause.getCause() != rootCause; i++ ) {
+			rootCause = rootCause.getCause();
+		}
+
+		StringBuilder fingerprint = new StringBuilder( 256 ).append( exception.getClass().getName() );
+
+		if ( rootCause != exception ) {
+			fingerprint.append( "|" ).append( rootCause.getClass().getName() );
+		}
+
+		StackTraceElement[] stackTrace = rootCause.getStackTrace();
+		for ( int i = 0; i < Math.min( stackFrames, stackTrace.length ); i++ ) {
+			StackTraceElement frame = stackTrace[i];
+			fingerprint.append( "|" ).append( frame.getClassName() ).append( '.' ).append( frame.getMethodName() )
+			           .append( ':' ).append( frame.getLineNumber() );
+		}
+
+		return fingerprint.toString();
+	}
+
+	/**
+	 * Create the summary of an exception that is reported in the digest: its type and abbreviated message.
+	 *
+	 * @param exception to summarize
+	 * @return summary
+	 */
+	static String summary( Throwable exception ) {
+		String message = exception.getMessage();
+
+		return message != null
+				? exception.getClass().getName() + ": " + StringUtils.abbreviate( message, MAX_SUMMARY_MESSAGE_LENGTH )
+				: exception.getClass().getName();
+	}
+
+	/**
+	 * Occurrences of a single fingerprint.
+	 */
+	static final class Occurrences
+	{
+		private static final long PRUNED = Long.MIN_VALUE;
+
+		private final String fingerprint;
+		private final LongAdder total = new LongAdder();
+		private final AtomicLong suppressed = new AtomicLong();
+		private final long firstSeen;
+
+		private volatile long lastSeen;
+		private volatile long lastMail = Long.MIN_VALUE / 2;
+		private volatile String lastSummary;
+		private volatile long drainedTotal;
+
+		private long hourStart;
+		private int mailsThisHour;
+
+		private Occurrences( String fingerprint, long firstSeen ) {
+			this.fingerprint = fingerprint;
+			this.firstSeen = firstSeen;
+			this.lastSeen = firstSeen;
+		}
+
+		String getFingerprint() {
+			return fingerprint;
+		}
+
+		long getTotal() {
+			return total.sum();
+		}
+
+		/**
+		 * Count an occurrence for which the mail could not be sent, it will be reported in the next digest.
+		 */
+		void suppress() {
+			suppressed.incrementAndGet();
+		}
+
+		/**
+		 * @return number of occurrences that were suppressed since the previous digest
+		 */
+		long getSuppressed() {
+			return Math.max( 0, suppressed.get() );
+		}
+
+		private boolean isPruned() {
+			return suppressed.get() < 0;
+		}
+
+		private synchronized boolean tryAcquireMail( long now, long dedupWindow, int maxMailsPerHour ) {
+			if ( now - lastMail < dedupWindow ) {
+				return false;
+			}
+
+			if ( now - hourStart >= HOUR ) {
+				hourStart = now;
+				mailsThisHour = 0;
+			}
+
+			if ( mailsThisHour >= maxMailsPerHour ) {
+				return false;
+			}
+
+			mailsThisHour++;
+			lastMail = now;
+			return true;
+		}
+
+		/**
+		 * Mark as pruned if nothing occurred since the previous digest.  The mark is stored in the suppressed
+		 * count, so a suppressed occurrence is either counted before pruning, which prevents it, or sees the mark.
+		 */
+		private boolean prune() {
+			return total.sum() == drainedTotal && suppressed.compareAndSet( 0, PRUNED );
+		}
+
+		private DigestEntry drain() {
+			long count = suppressed.getAndUpdate( value -> value < 0 ? value : 0 );
+			String summary = lastSummary;
+
+			return count > 0 && summary != null
+					? new DigestEntry( fingerprint, summary, count, total.sum(), firstSeen, lastSeen )
+					: null;
+		}
+	}
+
+	/**
+	 * Suppressed occurrences of a single fingerprint, reported in a digest mail.
+	 */
+	static final class DigestEntry
+	{
+		private final String fingerprint;
+		private final String lastSummary;
+		private final long suppressed, total, firstSeen, lastSeen;
+
+		DigestEntry( String fingerprint, String lastSummary, long suppressed, long total, long firstSeen, long lastSeen ) {
+			this.fingerprint = fingerprint;
+			this.lastSummary = lastSummary;
+			this.suppressed = suppressed;
+			this.total = total;
+			this.firstSeen = firstSeen;
+			this.lastSeen = lastSeen;
+		}
+
+		String getFingerprint() {
+			return fingerprint;
+		}
+
+		String getLastSummary() {
+			return lastSummary;
+		}
+
+		long getSuppressed() {
+			return suppressed;
+		}
+
+		long getTotal() {
+			return total;
+		}
+
+		long getFirstSeen() {
+			return firstSeen;
+		}
+
+		long getLastSeen() {
+			return lastSeen;
+		}
+	}
+}
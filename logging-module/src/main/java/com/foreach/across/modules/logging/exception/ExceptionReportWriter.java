@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.exception;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the html report of an exception mail into a single buffer, limiting both the total size and
+ * the size of every section.  Once a limit is reached, values are no longer rendered: the remaining
+ * entries of a section are only counted.
+ * <p/>
+ * Only values that are an instance of one of the allowed types are rendered using {@link Object#toString()},
+ * for other values only the type is written.  Markup is always written, so the report might exceed the
+ * maximum size by the length of the closing tags.
+ *
+ * @since 4.3.0
+ */
+final class ExceptionReportWriter
+{
+	private static final String TRUNCATED = "... [truncated]";
+	private static final int MAX_CAUSES = 10;
+
+	private final StringBuilder html;
+	private final int maxSize;
+	private final int maxSectionSize;
+	private final int maxValueLength;
+	private final Class<?>[] allowedTypes;
+
+	private int sectionStart;
+	private int omittedEntries;
+	private boolean sectionTruncated;
+
+	ExceptionReportWriter( int maxSize, int maxSectionSize, int maxValueLength, Class<?>[] allowedTypes ) {
+		this.maxSize = maxSize;
+		this.maxSectionSize = maxSectionSize;
+		this.maxValueLength = maxValueLength;
+		this.allowedTypes = allowedTypes;
+
+		html = new StringBuilder( Math.min( maxSize, 16 * 1024 ) );
+	}
+
+	/**
+	 * Append markup, regardless of the limits.
+	 */
+	ExceptionReportWriter markup( String markup ) {
+		html.append( markup );
+		return this;
+	}
+
+	/**
+	 * Start a new section, the section limit applies to everything written until the next section.
+	 */
+	ExceptionReportWriter startSection( String title ) {
+		if ( title != null ) {
+			html.append( "<h5>" ).append( title ).append( "</h5>" );
+		}
+		sectionStart = html.length();
+		omittedEntries = 0;
+		sectionTruncated = false;
+		return this;
+	}
+
+	/**
+	 * End the current section, writing the number of omitted table rows if there are any.
+	 */
+	ExceptionReportWriter endSection() {
+		if ( omittedEntries > 0 ) {
+			html.append( "<tr><td colspan='2'><em>" ).append( omittedEntries ).append( " more entries omitted</em></td></tr>" );
+			omittedEntries = 0;
+		}
+		return this;
+	}
+
+	/**
+	 * Write a table row for a named value.  The value is only rendered if there is room left.
+	 */
+	ExceptionReportWriter param( String name, Object value ) {
+		if ( remaining() <= 0 ) {
+			omittedEntries++;
+			return this;
+		}
+
+		html.append( "<tr><td><strong>" );
+		text( name );
+		html.append( "</strong></td><td>" );
+		text( render( value ) );
+		html.append( "</td></tr>" );
+		return this;
+	}
+
+	/**
+	 * Append text, truncated to the remaining space of the section.
+	 */
+	ExceptionReportWriter text( CharSequence text ) {
+		if ( sectionTruncated ) {
+			return this;
+		}
+
+		int remaining = remaining();
+		if ( text.length() <= remaining ) {
+			html.append( text );
+		}
+		else {
+			html.append( text, 0, Math.max( 0, remaining ) ).append( TRUNCATED );
+			sectionTruncated = true;
+		}
+		return this;
+	}
+
+	/**
+	 * Write the stack trace of an exception and its causes, only the top frames of every exception are written.
+	 */
+	ExceptionReportWriter stackTrace( Throwable exception, int maxFrames ) {
+		Set<Throwable> written = Collections.newSetFromMap( new IdentityHashMap<>() );
+		Throwable current = exception;
+		String prefix = "";
+
+		for ( int depth = 0; current != null && depth < MAX_CAUSES && written.add( current ); depth++ ) {
+			text( prefix ).text( String.valueOf( current ) ).text( "\n" );
+
+			StackTraceElement[] frames = current.getStackTrace();
+			int count = Math.min( maxFrames, frames.length );
+			for ( int i = 0; i < count && !sectionTruncated; i++ ) {
+				text( "\tat " ).text( frames[i].toString() ).text( "\n" );
+			}
+			if ( frames.length > count ) {
+				text( "\t... " ).text( String.valueOf( frames.length - count ) ).text( " more\n" );
+			}
+
+			current = current.getCause();
+			prefix = "Caused by: ";
+		}
+
+		return this;
+	}
+
+	/**
+	 * Render a value: types that are not allowed are described, others are truncated to the maximum value length.
+	 */
+	String render( Object value ) {
+		if ( value == null ) {
+			return "null";
+		}
+
+		if ( isAllowed( value ) ) {
+			String rendered = String.valueOf( value );
+			return rendered.length() > maxValueLength ? rendered.substring( 0, maxValueLength ) + TRUNCATED : rendered;
+		}
+
+		String typeName = value.getClass().getName();
+		if ( value instanceof Collection ) {
+			return "[" + typeName + ", size " + ( (Collection) value ).size() + "]";
+		}
+		if ( value instanceof Map ) {
+			return "[" + typeName + ", size " + ( (Map) value ).size() + "]";
+		}
+		if ( value.getClass().isArray() ) {
+			return "[" + value.getClass().getComponentType().getName() + "[" + Array.getLength( value ) + "]]";
+		}
+		return "[" + typeName + "]";
+	}
+
+	@Override
+	public String toString() {
+		return html.toString();
+	}
+
+	private boolean isAllowed( Object value ) {
+		for ( Class<?> allowedType : allowedTypes ) {
+			if ( allowedType.isInstance( value ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int remaining() {
+		return Math.min( maxSize - html.length(), maxSectionSize - ( html.length() - sectionStart ) );
+	}
+}
@@ -25,6 +25,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.handler.SimpleMappingExceptionResolver;
 
@@ -32,12 +33,23 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ExceptionToMailResolver sends a mail for every java exception
@@ -73,14 +85,32 @@ import java.util.Enumeration;
  * <li>mailService: the name of a MailService bean</li>
  * <li>applicationContextInfo: the name of the ApplicationContextInfo bean</li>
  * </ul>
+ * <p/>
+ * Mails are never sent on the request thread, they are queued and sent by a single background thread.
+ * Exceptions are grouped on their fingerprint (see {@link #setFingerprintStackFrames(int)}): for the same
+ * fingerprint a mail is sent at most once per {@link #setDedupWindow(Duration) dedup window} and at most
+ * {@link #setMaxMailsPerHour(int)} times per hour.  Occurrences that did not result in a mail are reported
+ * with their counts in a periodic digest mail.  The throttling settings must be set before the first exception
+ * is resolved.
+ * <p/>
+ * The size of a mail is limited, both in total and per section.  Stack traces are cut off after a number of frames,
+ * and only attribute values of the {@link #setRenderedTypes(Collection) rendered types} are converted to a string.
  */
-public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
+public class ExceptionToMailResolver extends SimpleMappingExceptionResolver implements DisposableBean
 {
 	private static final String TABLE_START_TAG =
 			"<table border='1' cellpadding='3' style='font-family: tahoma;font-size: 12px;'>";
 
 	private static final String TABLE_END_TAG = "</table>";
 
+	private static final DateTimeFormatter DATE_FORMATTER
+			= DateTimeFormatter.ofPattern( "dd-MMM-yyyy HH:mm:ss", Locale.getDefault() ).withZone( ZoneId.systemDefault() );
+
+	private static final Class<?>[] DEFAULT_RENDERED_TYPES = new Class<?>[] {
+			CharSequence.class, Number.class, Boolean.class, Character.class, Enum.class, Date.class,
+			TemporalAccessor.class, UUID.class, Locale.class, Class.class
+	};
+
 	private Logger logger = LoggerFactory.getLogger( getClass() );
 
 	private String fromAddress, toAddress;
@@ -89,6 +119,25 @@ public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
 
 	private ApplicationContextInfo applicationContextInfo;
 
+	private Duration dedupWindow = Duration.ofMinutes( 5 );
+	private int maxMailsPerHour = 10;
+	private int maxFingerprints = 500;
+	private int fingerprintStackFrames = 5;
+	private Duration digestInterval = Duration.ofMinutes( 15 );
+	private int maxQueuedMails = 50;
+	private Executor mailExecutor;
+
+	private int maxReportSize = 256 * 1024;
+	private int maxSectionSize = 32 * 1024;
+	private int maxValueLength = 2000;
+	private int maxStackFrames = 50;
+	private Class<?>[] renderedTypes = DEFAULT_RENDERED_TYPES;
+
+	private volatile ExceptionMailThrottle throttle;
+	private volatile ScheduledExecutorService scheduler;
+	private final AtomicInteger queuedMails = new AtomicInteger();
+	private final AtomicLong droppedMails = new AtomicLong();
+
 	/**
 	 * Specify your own custom logger
 	 *
@@ -143,6 +192,121 @@ public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
 		this.applicationContextInfo = context;
 	}
 
+	/**
+	 * Minimum time between two mails for exceptions with the same fingerprint, defaults to 5 minutes.
+	 *
+	 * @param dedupWindow duration
+	 */
+	public final void setDedupWindow( Duration dedupWindow ) {
+		this.dedupWindow = dedupWindow;
+	}
+
+	/**
+	 * Maximum number of mails per hour for exceptions with the same fingerprint, defaults to 10.
+	 *
+	 * @param maxMailsPerHour number of mails
+	 */
+	public final void setMaxMailsPerHour( int maxMailsPerHour ) {
+		this.maxMailsPerHour = maxMailsPerHour;
+	}
+
+	/**
+	 * Maximum number of fingerprints that are tracked, defaults to 500.  Once reached, all new
+	 * exceptions share a single fingerprint.
+	 *
+	 * @param maxFingerprints number of fingerprints
+	 */
+	public final void setMaxFingerprints( int maxFingerprints ) {
+		this.maxFingerprints = maxFingerprints;
+	}
+
+	/**
+	 * Number of stack frames of the root cause that are part of the fingerprint of an exception,
+	 * along with the exception type and root cause type.  Defaults to 5.
+	 *
+	 * @param fingerprintStackFrames number of frames
+	 */
+	public final void setFingerprintStackFrames( int fingerprintStackFrames ) {
+		this.fingerprintStackFrames = fingerprintStackFrames;
+	}
+
+	/**
+	 * Interval for sending the digest of suppressed exceptions, defaults to 15 minutes.
+	 * Zero or {@code null} disables the periodic digest.
+	 *
+	 * @param digestInterval duration
+	 */
+	public final void setDigestInterval( Duration digestInterval ) {
+		this.digestInterval = digestInterval;
+	}
+
+	/**
+	 * Maximum number of mails waiting to be sent, defaults to 50.  Mails for exceptions occurring while the
+	 * queue is full are dropped and the exceptions are reported in the next digest.
+	 *
+	 * @param maxQueuedMails number of mails
+	 */
+	public final void setMaxQueuedMails( int maxQueuedMails ) {
+		this.maxQueuedMails = maxQueuedMails;
+	}
+
+	/**
+	 * Set the executor that should send the mails, by default a single background thread is used.
+	 *
+	 * @param mailExecutor executor
+	 */
+	public final void setMailExecutor( Executor mailExecutor ) {
+		this.mailExecutor = mailExecutor;
+	}
+
+	/**
+	 * Maximum number of characters of a mail body, defaults to 256K.
+	 *
+	 * @param maxReportSize number of characters
+	 */
+	public final void setMaxReportSize( int maxReportSize ) {
+		this.maxReportSize = maxReportSize;
+	}
+
+	/**
+	 * Maximum number of characters of a single section of the mail body (eg. the session attributes),
+	 * defaults to 32K.  Entries that do not fit are omitted.
+	 *
+	 * @param maxSectionSize number of characters
+	 */
+	public final void setMaxSectionSize( int maxSectionSize ) {
+		this.maxSectionSize = maxSectionSize;
+	}
+
+	/**
+	 * Maximum number of characters of a single rendered value, defaults to 2000.
+	 *
+	 * @param maxValueLength number of characters
+	 */
+	public final void setMaxValueLength( int maxValueLength ) {
+		this.maxValueLength = maxValueLength;
+	}
+
+	/**
+	 * Maximum number of stack frames written for the exception and every cause, defaults to 50.
+	 *
+	 * @param maxStackFrames number of frames
+	 */
+	public final void setMaxStackFrames( int maxStackFrames ) {
+		this.maxStackFrames = maxStackFrames;
+	}
+
+	/**
+	 * Types of request attributes, session attributes and other values that should be written using
+	 * {@link Object#toString()}.  For values of any other type only the type is written.  Defaults to
+	 * strings, numbers, booleans, characters, enums, dates, temporals, uuids, locales and classes.
+	 *
+	 * @param renderedTypes types that can be rendered
+	 */
+	public final void setRenderedTypes( Collection<Class<?>> renderedTypes ) {
+		this.renderedTypes = renderedTypes.toArray( new Class<?>[0] );
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -155,10 +319,17 @@ public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
 
 		try {
 			if ( ex != null ) {
-				String mailBody = createExceptionMailBody( request, handler, ex );
-				String mailSubject = createExceptionMailSubject( ex );
+				ExceptionMailThrottle.Occurrences occurrences = getThrottle().register(
+						ExceptionMailThrottle.fingerprint( ex, fingerprintStackFrames ), ExceptionMailThrottle.summary( ex ),
+						System.currentTimeMillis()
+				);
 
-				mailService.sendMimeMail( fromAddress, toAddress, null, mailSubject, mailBody, null );
+				if ( occurrences != null ) {
+					String mailBody = createExceptionMailBody( request, handler, ex, occurrences );
+					String mailSubject = createExceptionMailSubject( ex );
+
+					queueMail( mailSubject, mailBody, occurrences );
+				}
 			}
 		}
 		catch ( RuntimeException rex ) {
@@ -168,69 +339,186 @@ public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
 		return super.doResolveException( request, response, handler, ex );
 	}
 
+	/**
+	 * Send a digest mail of all exceptions that did not result in a mail since the previous digest.
+	 * No mail is sent if there are none.
+	 */
+	public void sendDigest() {
+		try {
+			List<ExceptionMailThrottle.DigestEntry> digest = getThrottle().drainDigest( System.currentTimeMillis() );
+			long dropped = droppedMails.getAndSet( 0 );
+
+			if ( !digest.isEmpty() ) {
+				long suppressed = digest.stream().mapToLong( ExceptionMailThrottle.DigestEntry::getSuppressed ).sum();
+				String subject = "[" + applicationContextInfo.getLabel() + "-" + applicationContextInfo.getApplicationName()
+						+ " v" + applicationContextInfo.getBuildNumber() + "] Exception digest: " + suppressed
+						+ " occurrences of " + digest.size() + " exceptions";
+
+				sendMail( subject, createDigestMailBody( digest, dropped ) );
+			}
+		}
+		catch ( RuntimeException rex ) {
+			logger.error( "Exception when sending exception digest ", rex );
+		}
+	}
+
+	/**
+	 * Sends the last digest and stops the background thread.
+	 */
+	@Override
+	public void destroy() {
+		ScheduledExecutorService current;
+
+		synchronized ( this ) {
+			current = scheduler;
+			scheduler = null;
+		}
+
+		if ( current != null ) {
+			current.shutdown();
+			try {
+				current.awaitTermination( 10, TimeUnit.SECONDS );
+			}
+			catch ( InterruptedException ie ) {
+				Thread.currentThread().interrupt();
+			}
+			sendDigest();
+		}
+	}
+
+	private ExceptionMailThrottle getThrottle() {
+		ExceptionMailThrottle current = throttle;
+
+		if ( current == null ) {
+			synchronized ( this ) {
+				if ( throttle == null ) {
+					scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+						Thread thread = new Thread( runnable, "exception-mail" );
+						thread.setDaemon( true );
+						return thread;
+					} );
+
+					if ( digestInterval != null && !digestInterval.isZero() && !digestInterval.isNegative() ) {
+						long interval = digestInterval.toMillis();
+						scheduler.scheduleWithFixedDelay( this::sendDigest, interval, interval, TimeUnit.MILLISECONDS );
+					}
+
+					throttle = new ExceptionMailThrottle( dedupWindow, maxMailsPerHour, maxFingerprints );
+				}
+				current = throttle;
+			}
+		}
+
+		return current;
+	}
+
+	private void queueMail( String subject, String body, ExceptionMailThrottle.Occurrences occurrences ) {
+		if ( queuedMails.incrementAndGet() > maxQueuedMails ) {
+			queuedMails.decrementAndGet();
+			dropMail( occurrences );
+			return;
+		}
+
+		try {
+			Executor executor = mailExecutor != null ? mailExecutor : scheduler;
+
+			if ( executor == null ) {
+				throw new RejectedExecutionException( "Exception mail resolver has been destroyed" );
+			}
+
+			executor.execute( () -> {
+				try {
+					sendMail( subject, body );
+				}
+				finally {
+					queuedMails.decrementAndGet();
+				}
+			} );
+		}
+		catch ( RejectedExecutionException ree ) {
+			queuedMails.decrementAndGet();
+			dropMail( occurrences );
+		}
+	}
+
+	private void dropMail( ExceptionMailThrottle.Occurrences occurrences ) {
+		droppedMails.incrementAndGet();
+		occurrences.suppress();
+	}
+
+	private void sendMail( String subject, String body ) {
+		try {
+			mailService.sendMimeMail( fromAddress, toAddress, null, subject, body, null );
+		}
+		catch ( RuntimeException rex ) {
+			logger.error( "New exception when handling exception ", rex );
+		}
+	}
+
 	private String createExceptionMailSubject( Exception ex ) {
 		return new StringBuffer( "[" ).append( applicationContextInfo.getLabel() ).append( "-" ).append(
 				applicationContextInfo.getApplicationName() ).append( " v" ).append(
 				applicationContextInfo.getBuildNumber() ).append( "] " ).append( ex.getClass().toString() ).toString();
 	}
 
-	private String createExceptionMailBody( HttpServletRequest request, Object handler, Exception ex ) {
-		DateFormat readableDate = new SimpleDateFormat( "dd-MMM-yyyy HH:mm:ss" );
-
+	private String createExceptionMailBody( HttpServletRequest request,
+	                                        Object handler,
+	                                        Exception ex,
+	                                        ExceptionMailThrottle.Occurrences occurrences ) {
 		Date now = new Date();
 
-		StringWriter message = new StringWriter();
-		PrintWriter html = new PrintWriter( message );
+		ExceptionReportWriter html = createReportWriter();
 
 		// Write general params
-		html.print( "<html><head></head><body style='font-family: tahoma;font-size: 12px;'>" );
-		html.print( TABLE_START_TAG );
+		html.markup( "<html><head></head><body style='font-family: tahoma;font-size: 12px;'>" );
+		html.startSection( null ).markup( TABLE_START_TAG );
 
 		String uniqueId =
 				StringUtils.defaultIfBlank( (String) request.getAttribute( RequestLoggerFilter.ATTRIBUTE_UNIQUE_ID ),
 				                            "unavailable" );
 
-		writeParam( html, "request id", uniqueId + " (duration: " + getRequestDuration( request ) + ")" );
+		html.param( "request id", uniqueId + " (duration: " + getRequestDuration( request ) + ")" );
+		html.param( "occurrences", occurrences.getTotal() );
 
-		writeParam( html, "date", readableDate.format( now ) );
-		writeParam( html, "site",
+		html.param( "date", formatDate( now ) );
+		html.param( "site",
 		            applicationContextInfo.getLabel() + "-" + applicationContextInfo
 				            .getApplicationName() + " (" + ApplicationEnvironment.valueOf( applicationContextInfo.getEnvironmentId() ) + ")" );
-		writeParam( html, "build",
-		            "v" + applicationContextInfo.getBuildNumber() + " (build date: " + readableDate.format(
+		html.param( "build",
+		            "v" + applicationContextInfo.getBuildNumber() + " (build date: " + formatDate(
 				            applicationContextInfo.getBuildDate() ) + ")" );
-		writeParam( html, "uptime", DurationFormatUtils.formatDuration(
+		html.param( "uptime", DurationFormatUtils.formatDuration(
 				now.getTime() - applicationContextInfo.getStartupDate().getTime(),
-				"d'd' H'h' m'm'" ) + " (started: " + readableDate.format(
+				"d'd' H'h' m'm'" ) + " (started: " + formatDate(
 				applicationContextInfo.getStartupDate() ) + ")" );
-		writeParam( html, "server", request.getServerName() );
-		writeParam( html, "URL", request.getMethod() + " " + createUrlFromRequest( request ) );
-		writeParam( html, "User-Agent", StringUtils.defaultIfBlank( request.getHeader( "User-Agent" ), "-" ) );
-		writeParam( html, "Remote IP", StringUtils.defaultIfBlank( WebUtils.getRemoteAddress( request ), "-" ) );
-		writeParam( html, "Referer", StringUtils.defaultIfBlank( request.getHeader( "Referrer" ), "-" ) );
-		writeParam( html, "controller", handler != null ? handler.getClass() : "-" );
+		html.param( "server", request.getServerName() );
+		html.param( "URL", request.getMethod() + " " + createUrlFromRequest( request ) );
+		html.param( "User-Agent", StringUtils.defaultIfBlank( request.getHeader( "User-Agent" ), "-" ) );
+		html.param( "Remote IP", StringUtils.defaultIfBlank( WebUtils.getRemoteAddress( request ), "-" ) );
+		html.param( "Referer", StringUtils.defaultIfBlank( request.getHeader( "Referrer" ), "-" ) );
+		html.param( "controller", handler != null ? handler.getClass() : "-" );
 
 		String viewName =
 				StringUtils.defaultIfBlank( (String) request.getAttribute(
 						LogHandlerAndViewNameInterceptor.ATTRIBUTE_VIEW_NAME ),
 											"-" );
 
-		writeParam( html, "view", viewName );
+		html.param( "view", viewName );
 
-		writeParam( html, "user", request.getUserPrincipal() != null ? StringUtils.defaultIfBlank(
+		html.param( "user", request.getUserPrincipal() != null ? StringUtils.defaultIfBlank(
 				request.getUserPrincipal().getName(), "-" ) : "-" );
-		html.append( TABLE_END_TAG );
+		html.endSection().markup( TABLE_END_TAG );
 
 		// Write message
-		html.append( "<h5>Message</h5>" );
-		html.append( "<p><pre style='font-family: tahoma;font-size: 12px;'>" ).append( ex.getMessage() ).append(
-				"</pre></p>" );
+		html.startSection( "Message" );
+		html.markup( "<p><pre style='font-family: tahoma;font-size: 12px;'>" ).text( String.valueOf( ex.getMessage() ) )
+		    .markup( "</pre></p>" );
 
 		// Write stack trace
-		html.append( "<h5>Stack trace</h5>" );
-		html.append( "<p><pre style='font-family: tahoma;font-size: 12px;'>" );
-		ex.printStackTrace( html );
-		html.append( "</pre></p>" );
+		html.startSection( "Stack trace" );
+		html.markup( "<p><pre style='font-family: tahoma;font-size: 12px;'>" );
+		html.stackTrace( ex, maxStackFrames );
+		html.markup( "</pre></p>" );
 
 		writeRequestParameters( html, request );
 
@@ -242,19 +530,56 @@ public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
 
 		writeSessionAttributes( html, request );
 
-		html.print( "</html>" );
-		html.close();
+		html.markup( "</html>" );
 
-		return message.toString();
+		return html.toString();
 	}
 
-	private void writeCookies( PrintWriter html, HttpServletRequest request ) {
+	private String createDigestMailBody( List<ExceptionMailThrottle.DigestEntry> digest, long droppedMails ) {
+		ExceptionReportWriter html = createReportWriter();
+
+		html.markup( "<html><head></head><body style='font-family: tahoma;font-size: 12px;'>" );
+		html.markup( "<p>The following exceptions occurred without a separate mail being sent.</p>" );
+
+		if ( droppedMails > 0 ) {
+			html.markup( "<p>" ).text( String.valueOf( droppedMails ) ).markup( " mails could not be queued and were dropped.</p>" );
+		}
+
+		html.startSection( null ).markup( TABLE_START_TAG );
+		html.markup( "<tr><th>Exception</th><th>Occurrences</th><th>Total</th><th>First seen</th><th>Last seen</th></tr>" );
+
+		for ( ExceptionMailThrottle.DigestEntry entry : digest ) {
+			html.markup( "<tr><td><strong>" ).text( entry.getLastSummary() ).markup( "</strong>" );
+			if ( ExceptionMailThrottle.OTHER.equals( entry.getFingerprint() ) ) {
+				html.markup( "<br/>(and other exceptions, too many distinct exceptions occurred)" );
+			}
+			html.markup( "</td><td>" ).text( String.valueOf( entry.getSuppressed() ) )
+			    .markup( "</td><td>" ).text( String.valueOf( entry.getTotal() ) )
+			    .markup( "</td><td>" ).text( formatDate( new Date( entry.getFirstSeen() ) ) )
+			    .markup( "</td><td>" ).text( formatDate( new Date( entry.getLastSeen() ) ) )
+			    .markup( "</td></tr>" );
+		}
+
+		html.markup( TABLE_END_TAG );
+		html.markup( "</body></html>" );
+
+		return html.toString();
+	}
+
+	private ExceptionReportWriter createReportWriter() {
+		return new ExceptionReportWriter( maxReportSize, maxSectionSize, maxValueLength, renderedTypes );
+	}
+
+	private String formatDate( Date date ) {
+		return date != null ? DATE_FORMATTER.format( date.toInstant() ) : "-";
+	}
+
+	private void writeCookies( ExceptionReportWriter html, HttpServletRequest request ) {
 		if ( request.getCookies() != null ) {
 			// Write cookies
-			html.append( "<h5>Cookies</h5>" );
-			html.print( TABLE_START_TAG );
+			html.startSection( "Cookies" ).markup( TABLE_START_TAG );
 			for ( Cookie cookie : request.getCookies() ) {
-				StringBuffer sbuf = new StringBuffer();
+				StringBuilder sbuf = new StringBuilder();
 				if ( cookie.getDomain() != null ) {
 					sbuf.append( cookie.getDomain() ).append( " " );
 				}
@@ -263,71 +588,67 @@ public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
 				}
 				sbuf.append( cookie.getMaxAge() ).append( "<br/>" ).append( cookie.getValue() );
 
-				writeParam( html, cookie.getName(), sbuf.toString() );
+				html.param( cookie.getName(), sbuf );
 			}
-			html.append( TABLE_END_TAG );
+			html.endSection().markup( TABLE_END_TAG );
 		}
 	}
 
-	private void writeRequestAttributes( PrintWriter html, HttpServletRequest request ) {
-		html.append( "<h5>Request attributes</h5>" );
-		html.print( TABLE_START_TAG );
+	private void writeRequestAttributes( ExceptionReportWriter html, HttpServletRequest request ) {
+		html.startSection( "Request attributes" ).markup( TABLE_START_TAG );
 		Enumeration enumeration = request.getAttributeNames();
 		while ( enumeration.hasMoreElements() ) {
 			String attributeName = (String) enumeration.nextElement();
 
-			writeParam( html, attributeName, request.getAttribute( attributeName ) );
+			html.param( attributeName, request.getAttribute( attributeName ) );
 		}
-		html.append( TABLE_END_TAG );
+		html.endSection().markup( TABLE_END_TAG );
 	}
 
-	private void writeSessionAttributes( PrintWriter html, HttpServletRequest request ) {
-		html.append( "<h5>Session attributes</h5>" );
-		html.print( TABLE_START_TAG );
+	private void writeSessionAttributes( ExceptionReportWriter html, HttpServletRequest request ) {
+		html.startSection( "Session attributes" ).markup( TABLE_START_TAG );
 		HttpSession session = request.getSession( false );
 		if ( session != null ) {
-			writeParam( html, "Session Id: ", session.getId() );
-			writeParam( html, "Creation Time: ", session.getCreationTime() );
-			writeParam( html, "Last Accessed Time: ", session.getLastAccessedTime() );
-			writeParam( html, "Maximmum Inactive Interval: ", session.getMaxInactiveInterval() );
-			writeParam( html, "New Session? ", session.isNew() );
+			html.param( "Session Id: ", session.getId() );
+			html.param( "Creation Time: ", session.getCreationTime() );
+			html.param( "Last Accessed Time: ", session.getLastAccessedTime() );
+			html.param( "Maximmum Inactive Interval: ", session.getMaxInactiveInterval() );
+			html.param( "New Session? ", session.isNew() );
 			Enumeration enumeration = session.getAttributeNames();
 			while ( enumeration.hasMoreElements() ) {
 				String attributeName = (String) enumeration.nextElement();
 
-				writeParam( html, attributeName, session.getAttribute( attributeName ) );
+				html.param( attributeName, session.getAttribute( attributeName ) );
 			}
 		}
 		else {
-			writeParam( html, "No session", "" );
+			html.param( "No session", "" );
 		}
-		html.append( TABLE_END_TAG );
+		html.endSection().markup( TABLE_END_TAG );
 	}
 
-	private void writeRequestHeaders( PrintWriter html, HttpServletRequest request ) {
-		html.append( "<h5>Request headers</h5>" );
-		html.print( TABLE_START_TAG );
+	private void writeRequestHeaders( ExceptionReportWriter html, HttpServletRequest request ) {
+		html.startSection( "Request headers" ).markup( TABLE_START_TAG );
 		Enumeration enumeration = request.getHeaderNames();
 		while ( enumeration.hasMoreElements() ) {
 			String headerName = (String) enumeration.nextElement();
 
 			if ( !StringUtils.equalsIgnoreCase( "cookie", headerName ) ) {
-				writeParam( html, headerName, request.getHeader( headerName ) );
+				html.param( headerName, request.getHeader( headerName ) );
 			}
 		}
-		html.append( TABLE_END_TAG );
+		html.endSection().markup( TABLE_END_TAG );
 	}
 
-	private void writeRequestParameters( PrintWriter html, HttpServletRequest request ) {
-		html.append( "<h5>Request parameters</h5>" );
-		html.print( TABLE_START_TAG );
+	private void writeRequestParameters( ExceptionReportWriter html, HttpServletRequest request ) {
+		html.startSection( "Request parameters" ).markup( TABLE_START_TAG );
 		Enumeration enumeration = request.getParameterNames();
 		while ( enumeration.hasMoreElements() ) {
 			String parameterName = (String) enumeration.nextElement();
 
-			writeParam( html, parameterName, request.getParameter( parameterName ) );
+			html.param( parameterName, request.getParameter( parameterName ) );
 		}
-		html.append( TABLE_END_TAG );
+		html.endSection().markup( TABLE_END_TAG );
 	}
 
 	private String getRequestDuration( HttpServletRequest request ) {
@@ -344,11 +665,6 @@ public class ExceptionToMailResolver extends SimpleMappingExceptionResolver
 		}
 	}
 
-	private void writeParam( PrintWriter html, String paramName, Object paramValue ) {
-		html.append( "<tr><td><strong>" ).append( paramName ).append( "</strong></td><td>" ).print( paramValue );
-		html.append( "</td></tr>" );
-	}
-
 	private String createUrlFromRequest( HttpServletRequest request ) {
 		StringBuffer buf = request.getRequestURL();
 		String qs = request.getQueryString();
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.loggers;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggerContextListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes logger levels for a limited time.  When an override expires, the level the logger had before
+ * the first override is restored by a background thread, which is only started on the first override.
+ * If the level of the logger has been changed in the meantime by anything else, it is left untouched.
+ * <p/>
+ * Overrides are discarded when the logger context is reset, as the configuration is reloaded.
+ *
+ * @since 4.3.0
+ */
+public class LogLevelOverrides implements LoggerContextListener
+{
+	private final LoggerContext loggerContext;
+	private final ConcurrentMap<String, LevelOverride> overrides = new ConcurrentHashMap<>();
+	private ScheduledExecutorService scheduler;
+
+	public LogLevelOverrides( LoggerContext loggerContext ) {
+		this.loggerContext = loggerContext;
+
+		loggerContext.addListener( this );
+	}
+
+	/**
+	 * Set the level of the loggers for a limited time, only the loggers present in the map are touched.
+	 * Loggers that do not exist, or values that are not a valid level, are ignored.
+	 *
+	 * @param levels level name for every logger name
+	 * @param ttl    time after which the previous level should be restored
+	 * @return number of loggers that have been updated
+	 */
+	public int override( Map<String, String> levels, Duration ttl ) {
+		return LoggerIndex.applyLevels( loggerContext, levels, ( logger, level ) -> override( logger, level, ttl ) );
+	}
+
+	/**
+	 * Set the level of a logger for a limited time.  If the logger already has an override,
+	 * the new level and expiry time replace it, the original level is kept.
+	 *
+	 * @param logger to change
+	 * @param level  new level
+	 * @param ttl    time after which the original level should be restored
+	 */
+	public void override( Logger logger, Level level, Duration ttl ) {
+		long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+
+		overrides.compute( logger.getName(), ( name, existing ) -> {
+			Level originalLevel = existing != null ? existing.originalLevel : logger.getLevel();
+			if ( existing != null ) {
+				existing.revertTask.cancel( false );
+			}
+
+			logger.setLevel( level );
+
+			ScheduledFuture<?> revertTask = scheduler().schedule( () -> expire( name, expiresAt ), ttl.toMillis(), TimeUnit.MILLISECONDS );
+			return new LevelOverride( name, level, originalLevel, expiresAt, revertTask );
+		} );
+	}
+
+	private synchronized ScheduledExecutorService scheduler() {
+		if ( scheduler == null ) {
+			scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+				Thread thread = new Thread( runnable, "log-level-overrides" );
+				thread.setDaemon( true );
+				return thread;
+			} );
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Restore the original level of a logger, if it has an active override.
+	 *
+	 * @param loggerName name of the logger
+	 * @return true if an override has been removed
+	 */
+	public boolean revert( String loggerName ) {
+		LevelOverride override = overrides.remove( loggerName );
+
+		if ( override != null ) {
+			override.revertTask.cancel( false );
+
+			Logger logger = loggerContext.exists( loggerName );
+			if ( logger != null && logger.getLevel() == override.level ) {
+				logger.setLevel( override.originalLevel );
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	private void expire( String loggerName, long expiresAt ) {
+		LevelOverride override = overrides.get( loggerName );
+
+		// the override might have been replaced after this task started
+		if ( override != null && override.expiresAt == expiresAt ) {
+			revert( loggerName );
+		}
+	}
+
+	/**
+	 * Remove the override of a logger but keep its current level, used when the level is changed permanently.
+	 *
+	 * @param loggerName name of the logger
+	 * @return true if an override has been removed
+	 */
+	public boolean discard( String loggerName ) {
+		LevelOverride override = overrides.remove( loggerName );
+
+		if ( override != null ) {
+			override.revertTask.cancel( false );
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Restore the original level of all loggers with an active override.
+	 */
+	public void revertAll() {
+		new ArrayList<>( overrides.keySet() ).forEach( this::revert );
+	}
+
+	/**
+	 * @return active overrides, ordered by expiry time
+	 */
+	public List<LevelOverride> getOverrides() {
+		List<LevelOverride> active = new ArrayList<>( overrides.values() );
+		active.sort( Comparator.comparingLong( LevelOverride::getExpiresAt ) );
+		return active;
+	}
+
+	/**
+	 * Restore all overrides and stop the background thread.
+	 */
+	public void close() {
+		loggerContext.removeListener( this );
+		revertAll();
+
+		synchronized ( this ) {
+			if ( scheduler != null ) {
+				scheduler.shutdownNow();
+			}
+		}
+	}
+
+	@Override
+	public boolean isResetResistant() {
+		return true;
+	}
+
+	@Override
+	public void onStart( LoggerContext context ) {
+	}
+
+	@Override
+	public void onReset( LoggerContext context ) {
+		overrides.values().forEach( override -> override.revertTask.cancel( false ) );
+		overrides.clear();
+	}
+
+	@Override
+	public void onStop( LoggerContext context ) {
+	}
+
+	@Override
+	public void onLevelChange( Logger logger, Level level ) {
+	}
+
+	/**
+	 * Active level override of a single logger.
+	 */
+	public static final class LevelOverride
+	{
+		private final String loggerName;
+		private final Level level;
+		private final Level originalLevel;
+		private final long expiresAt;
+		private final ScheduledFuture<?> revertTask;
+
+		LevelOverride( String loggerName, Level level, Level originalLevel, long expiresAt, ScheduledFuture<?> revertTask ) {
+			this.loggerName = loggerName;
+			this.level = level;
+			this.originalLevel = originalLevel;
+			this.expiresAt = expiresAt;
+			this.revertTask = revertTask;
+		}
+
+		public String getLoggerName() {
+			return loggerName;
+		}
+
+		public Level getLevel() {
+			return level;
+		}
+
+		/**
+		 * @return level that will be restored, {@code null} if the logger inherited its level
+		 */
+		public Level getOriginalLevel() {
+			return originalLevel;
+		}
+
+		/**
+		 * @return time the override expires, in milliseconds since the epoch
+		 */
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.loggers;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggerContextListener;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Sorted index of the loggers of a Logback {@link LoggerContext}, supporting prefix search and pagination
+ * without walking all loggers.  The index is rebuilt when the context is started, stopped or reset.
+ * Logback does not report newly created loggers, so the index is also rebuilt once it is older than the maximum age.
+ * <p/>
+ * The appenders attached to the loggers are collected when the index is built.
+ *
+ * @since 4.3.0
+ */
+public class LoggerIndex implements LoggerContextListener
+{
+	private final LoggerContext loggerContext;
+	private final long maxAge;
+
+	private volatile Snapshot snapshot;
+
+	public LoggerIndex( LoggerContext loggerContext ) {
+		this( loggerContext, Duration.ofSeconds( 30 ) );
+	}
+
+	public LoggerIndex( LoggerContext loggerContext, Duration maxAge ) {
+		this.loggerContext = loggerContext;
+		this.maxAge = maxAge.toMillis();
+
+		loggerContext.addListener( this );
+	}
+
+	/**
+	 * Find the loggers with a name starting with the prefix.
+	 *
+	 * @param prefix   logger name prefix, {@code null} or empty for all loggers
+	 * @param offset   index of the first logger to return
+	 * @param limit    maximum number of loggers to return
+	 * @return matching loggers, ordered by name
+	 */
+	public Page find( String prefix, int offset, int limit ) {
+		Snapshot current = getSnapshot();
+
+		int from = 0;
+		int to = current.names.length;
+
+		if ( prefix != null && !prefix.isEmpty() ) {
+			from = lowerBound( current.names, prefix );
+			to = lowerBound( current.names, prefix + Character.MAX_VALUE );
+		}
+
+		int start = Math.min( to, from + Math.max( 0, offset ) );
+		int end = Math.min( to, start + Math.max( 0, limit ) );
+
+		List<LoggerLevel> loggers = new ArrayList<>( end - start );
+		for ( int i = start; i < end; i++ ) {
+			Logger logger = current.loggers[i];
+			loggers.add( new LoggerLevel( logger.getName(), logger.getLevel(), logger.getEffectiveLevel() ) );
+		}
+
+		return new Page( loggers, to - from, offset, limit );
+	}
+
+	/**
+	 * @return appender name with the file or description of the appender, collected when the index was built
+	 */
+	public Map<String, String> getAppenders() {
+		return getSnapshot().appenders;
+	}
+
+	/**
+	 * Update the level of the loggers, only the loggers present in the map are touched.
+	 * Loggers that do not exist, or values that are not a valid level, are ignored.
+	 *
+	 * @param levels level name for every logger name
+	 * @return number of loggers that have been updated
+	 */
+	public int updateLevels( Map<String, String> levels ) {
+		return applyLevels( loggerContext, levels, Logger::setLevel );
+	}
+
+	static int applyLevels( LoggerContext loggerContext, Map<String, String> levels, BiConsumer<Logger, Level> action ) {
+		int updated = 0;
+
+		for ( Map.Entry<String, String> entry : levels.entrySet() ) {
+			Logger logger = loggerContext.exists( entry.getKey() );
+			Level newLevel = entry.getValue() != null ? Level.toLevel( entry.getValue().trim(), null ) : null;
+
+			if ( logger != null && newLevel != null && newLevel != logger.getEffectiveLevel() ) {
+				action.accept( logger, newLevel );
+				updated++;
+			}
+		}
+
+		return updated;
+	}
+
+	/**
+	 * Force the index to be rebuilt on next access.
+	 */
+	public void invalidate() {
+		snapshot = null;
+	}
+
+	/**
+	 * Stop listening to changes of the logger context.
+	 */
+	public void close() {
+		loggerContext.removeListener( this );
+	}
+
+	@Override
+	public boolean isResetResistant() {
+		return true;
+	}
+
+	@Override
+	public void onStart( LoggerContext context ) {
+		invalidate();
+	}
+
+	@Override
+	public void onReset( LoggerContext context ) {
+		invalidate();
+	}
+
+	@Override
+	public void onStop( LoggerContext context ) {
+		invalidate();
+	}
+
+	@Override
+	public void onLevelChange( Logger logger, Level level ) {
+		// levels are always read from the loggers themselves
+	}
+
+	private Snapshot getSnapshot() {
+		Snapshot current = snapshot;
+
+		if ( current == null || System.currentTimeMillis() - current.created > maxAge ) {
+			current = new Snapshot( loggerContext.getLoggerList() );
+			snapshot = current;
+		}
+
+		return current;
+	}
+
+	private static int lowerBound( String[] names, String key ) {
+		int index = Arrays.binarySearch( names, key );
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private static final class Snapshot
+	{
+		private final long created = System.currentTimeMillis();
+		private final String[] names;
+		private final Logger[] loggers;
+		private final Map<String, String> appenders;
+
+		Snapshot( List<Logger> loggerList ) {
+			// Logback puts the root logger first, searching requires strict name order
+			loggers = loggerList.toArray( new Logger[0] );
+			Arrays.sort( loggers, ( left, right ) -> left.getName().compareTo( right.getName() ) );
+
+			names = new String[loggers.length];
+			Set<Appender<ILoggingEvent>> appenderSet = new HashSet<>();
+
+			for ( int i = 0; i < loggers.length; i++ ) {
+				names[i] = loggers[i].getName();
+
+				Iterator<Appender<ILoggingEvent>> iterator = loggers[i].iteratorForAppenders();
+				while ( iterator.hasNext() ) {
+					appenderSet.add( iterator.next() );
+				}
+			}
+
+			Map<String, String> appenderMap = new TreeMap<>();
+			int unnamedAppenders = 0;
+
+			for ( Appender<ILoggingEvent> appender : appenderSet ) {
+				String appenderName = appender.getName();
+
+				if ( appenderName == null ) {
+					appenderName = "<unnamed-" + ++unnamedAppenders + ">";
+				}
+
+				if ( appender instanceof FileAppender ) {
+					appenderMap.put( appenderName, ( (FileAppender) appender ).getFile() );
+				}
+				else {
+					appenderMap.put( appenderName, appender.toString() );
+				}
+			}
+
+			appenders = Collections.unmodifiableMap( appenderMap );
+		}
+	}
+
+	/**
+	 * Configured and effective level of a single logger.
+	 */
+	public static final class LoggerLevel
+	{
+		private final String name;
+		private final Level level;
+		private final Level effectiveLevel;
+
+		LoggerLevel( String name, Level level, Level effectiveLevel ) {
+			this.name = name;
+			this.level = level;
+			this.effectiveLevel = effectiveLevel;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return level explicitly set on the logger, {@code null} if inherited
+		 */
+		public Level getLevel() {
+			return level;
+		}
+
+		public Level getEffectiveLevel() {
+			return effectiveLevel;
+		}
+	}
+
+	/**
+	 * Single page of loggers matching a search.
+	 */
+	public static final class Page
+	{
+		private final List<LoggerLevel> loggers;
+		private final int total;
+		private final int offset;
+		private final int limit;
+
+		Page( List<LoggerLevel> loggers, int total, int offset, int limit ) {
+			this.loggers = loggers;
+			this.total = total;
+			this.offset = offset;
+			this.limit = limit;
+		}
+
+		public List<LoggerLevel> getLoggers() {
+			return loggers;
+		}
+
+		/**
+		 * @return total number of matching loggers
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		public int getOffset() {
+			return offset;
+		}
+
+		public int getLimit() {
+			return limit;
+		}
+
+		public boolean hasPrevious() {
+			return offset > 0;
+		}
+
+		public boolean hasNext() {
+			return offset + limit < total;
+		}
+	}
+}
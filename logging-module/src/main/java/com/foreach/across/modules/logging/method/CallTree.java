@@ -0,0 +1,329 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.method;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tree of the method calls made during a single request, built by the {@link MethodLoggerAdapter} instances
+ * while the request is being recorded by a {@link CallTreeRecorder}.  Repeated calls to the same method
+ * from the same parent node are merged into a single node with a call count.
+ * <p/>
+ * Nodes are kept in parallel arrays, the root node represents the request itself.  A tree is only modified
+ * by the thread handling the request, once the request has finished it is no longer modified.
+ *
+ * @since 4.3.0
+ */
+public final class CallTree
+{
+	static final ThreadLocal<CallTree> CURRENT = new ThreadLocal<>();
+
+	private static final int ROOT = 0;
+
+	private final String requestId;
+	private final String description;
+	private final long startTime;
+	private final int maxNodes;
+
+	private Object[] keys;
+	private String[] names;
+	private int[] parents;
+	private int[] firstChildren;
+	private int[] lastChildren;
+	private int[] nextSiblings;
+	private long[] callCounts;
+	private long[] totalNanos;
+
+	private int size;
+	private int current = ROOT;
+	private int overflowDepth;
+	private long droppedCalls;
+	private long duration;
+	private boolean finished;
+
+	CallTree( String requestId, String description, long startTime, int maxNodes ) {
+		this.requestId = requestId;
+		this.description = description;
+		this.startTime = startTime;
+		this.maxNodes = Math.max( 2, maxNodes );
+
+		allocate( Math.min( 32, this.maxNodes ) );
+		keys[ROOT] = this;
+		names[ROOT] = description;
+		firstChildren[ROOT] = -1;
+		lastChildren[ROOT] = -1;
+		nextSiblings[ROOT] = -1;
+		parents[ROOT] = -1;
+		size = 1;
+	}
+
+	public String getRequestId() {
+		return requestId;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return time the request started, in milliseconds since the epoch
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return duration of the request in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return number of distinct nodes, including the root
+	 */
+	public int getNodeCount() {
+		return size;
+	}
+
+	/**
+	 * @return number of calls that were not recorded because the maximum number of nodes was reached
+	 */
+	public long getDroppedCalls() {
+		return droppedCalls;
+	}
+
+	/**
+	 * Enter a call to the method with the given key, as a child of the current node.
+	 *
+	 * @param key unique key of the method
+	 * @return node index, {@code -1} if the call is not recorded
+	 */
+	int enter( Object key ) {
+		if ( overflowDepth > 0 ) {
+			overflowDepth++;
+			return -1;
+		}
+
+		int node = firstChildren[current];
+		while ( node >= 0 && !key.equals( keys[node] ) ) {
+			node = nextSiblings[node];
+		}
+
+		if ( node < 0 ) {
+			if ( size == maxNodes ) {
+				overflowDepth = 1;
+				return -1;
+			}
+
+			node = addNode( key );
+		}
+
+		current = node;
+		return node;
+	}
+
+	/**
+	 * Exit the call that was entered as node.
+	 *
+	 * @param node          index returned by {@link #enter(Object)}
+	 * @param durationNanos duration of the call
+	 */
+	void exit( int node, long durationNanos ) {
+		if ( node < 0 ) {
+			overflowDepth--;
+			droppedCalls++;
+		}
+		else {
+			callCounts[node]++;
+			totalNanos[node] += durationNanos;
+			current = parents[node];
+		}
+	}
+
+	String getName( int node ) {
+		return names[node];
+	}
+
+	void setName( int node, String name ) {
+		names[node] = name;
+	}
+
+	/**
+	 * Mark the tree as finished, releases the method keys and trims the node arrays.
+	 *
+	 * @param durationNanos duration of the request
+	 */
+	void finish( long durationNanos ) {
+		callCounts[ROOT] = 1;
+		totalNanos[ROOT] = durationNanos;
+		duration = durationNanos / 1_000_000;
+		finished = true;
+		keys = null;
+
+		names = Arrays.copyOf( names, size );
+		parents = Arrays.copyOf( parents, size );
+		firstChildren = Arrays.copyOf( firstChildren, size );
+		lastChildren = Arrays.copyOf( lastChildren, size );
+		nextSiblings = Arrays.copyOf( nextSiblings, size );
+		callCounts = Arrays.copyOf( callCounts, size );
+		totalNanos = Arrays.copyOf( totalNanos, size );
+	}
+
+	/**
+	 * @return all nodes in depth-first order, children in the order they were first called
+	 */
+	public List<Node> getNodes() {
+		if ( !finished ) {
+			return Collections.emptyList();
+		}
+
+		List<Node> nodes = new ArrayList<>( size );
+		int[] stack = new int[size];
+		int[] depths = new int[size];
+		int top = 0;
+		stack[0] = ROOT;
+
+		while ( top >= 0 ) {
+			int node = stack[top];
+			int depth = depths[top--];
+
+			long childNanos = 0;
+			int childCount = 0;
+			for ( int child = firstChildren[node]; child >= 0; child = nextSiblings[child] ) {
+				childNanos += totalNanos[child];
+				childCount++;
+			}
+
+			nodes.add( new Node( names[node], depth, callCounts[node], totalNanos[node],
+			                     Math.max( 0, totalNanos[node] - childNanos ), totalNanos[ROOT] ) );
+
+			// push children in reverse so the first child is visited first
+			int position = top + childCount;
+			for ( int child = firstChildren[node]; child >= 0; child = nextSiblings[child] ) {
+				stack[position] = child;
+				depths[position--] = depth + 1;
+			}
+			top += childCount;
+		}
+
+		return nodes;
+	}
+
+	private int addNode( Object key ) {
+		if ( size == keys.length ) {
+			allocate( Math.min( maxNodes, size * 2 ) );
+		}
+
+		int node = size++;
+		keys[node] = key;
+		parents[node] = current;
+		firstChildren[node] = -1;
+		lastChildren[node] = -1;
+		nextSiblings[node] = -1;
+
+		if ( lastChildren[current] < 0 ) {
+			firstChildren[current] = node;
+		}
+		else {
+			nextSiblings[lastChildren[current]] = node;
+		}
+		lastChildren[current] = node;
+
+		return node;
+	}
+
+	private void allocate( int capacity ) {
+		if ( keys == null ) {
+			keys = new Object[capacity];
+			names = new String[capacity];
+			parents = new int[capacity];
+			firstChildren = new int[capacity];
+			lastChildren = new int[capacity];
+			nextSiblings = new int[capacity];
+			callCounts = new long[capacity];
+			totalNanos = new long[capacity];
+		}
+		else {
+			keys = Arrays.copyOf( keys, capacity );
+			names = Arrays.copyOf( names, capacity );
+			parents = Arrays.copyOf( parents, capacity );
+			firstChildren = Arrays.copyOf( firstChildren, capacity );
+			lastChildren = Arrays.copyOf( lastChildren, capacity );
+			nextSiblings = Arrays.copyOf( nextSiblings, capacity );
+			callCounts = Arrays.copyOf( callCounts, capacity );
+			totalNanos = Arrays.copyOf( totalNanos, capacity );
+		}
+	}
+
+	/**
+	 * Single node of a finished {@link CallTree}, all durations are in nanoseconds.
+	 */
+	public static final class Node
+	{
+		private final String name;
+		private final int depth;
+		private final long calls;
+		private final long totalNanos;
+		private final long selfNanos;
+		private final long requestNanos;
+
+		Node( String name, int depth, long calls, long totalNanos, long selfNanos, long requestNanos ) {
+			this.name = name;
+			this.depth = depth;
+			this.calls = calls;
+			this.totalNanos = totalNanos;
+			this.selfNanos = selfNanos;
+			this.requestNanos = requestNanos;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return nesting depth, 0 for the request itself
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * @return time spent in the node itself, not in any of its recorded children
+		 */
+		public long getSelfNanos() {
+			return selfNanos;
+		}
+
+		/**
+		 * @return share of the request duration spent in this node, between 0 and 100
+		 */
+		public double getPercentage() {
+			return requestNanos > 0 ? Math.min( 100.0, totalNanos * 100.0 / requestNanos ) : 0;
+		}
+	}
+}
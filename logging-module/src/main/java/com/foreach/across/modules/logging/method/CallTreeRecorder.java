@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.method;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records the {@link CallTree} of a sample of requests and keeps the most recent slow ones in a
+ * fixed-capacity ring buffer.  Requests are sampled when they start, only for sampled requests do the
+ * method loggers build a call tree.  The tree is kept if the request took at least the slow request threshold.
+ * <p/>
+ * Usually driven by the {@link com.foreach.across.modules.logging.request.RequestLoggerFilter}, using the
+ * request id it generated.  Only calls through an enabled {@link MethodLoggerAdapter} are recorded.
+ *
+ * @since 4.3.0
+ */
+public class CallTreeRecorder
+{
+	private final AtomicReferenceArray<CallTree> slowRequests;
+	private final AtomicLong sequence = new AtomicLong();
+
+	private volatile double samplingRate;
+	private volatile long slowRequestThreshold;
+	private volatile int maxNodes;
+
+	/**
+	 * @param maxRequests number of slow requests to keep
+	 */
+	public CallTreeRecorder( int maxRequests ) {
+		slowRequests = new AtomicReferenceArray<>( Math.max( 1, maxRequests ) );
+		slowRequestThreshold = 1000;
+		maxNodes = 2000;
+	}
+
+	/**
+	 * @param samplingRate fraction of the requests for which a call tree should be built, 0 disables recording
+	 */
+	public void setSamplingRate( double samplingRate ) {
+		this.samplingRate = samplingRate;
+	}
+
+	public double getSamplingRate() {
+		return samplingRate;
+	}
+
+	/**
+	 * @param slowRequestThreshold minimum duration in milliseconds for the call tree of a request to be kept
+	 */
+	public void setSlowRequestThreshold( long slowRequestThreshold ) {
+		this.slowRequestThreshold = slowRequestThreshold;
+	}
+
+	public long getSlowRequestThreshold() {
+		return slowRequestThreshold;
+	}
+
+	/**
+	 * @param maxNodes maximum number of distinct nodes in a single call tree, further calls are dropped
+	 */
+	public void setMaxNodes( int maxNodes ) {
+		this.maxNodes = maxNodes;
+	}
+
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Start recording the call tree for the current thread, if the request is sampled.
+	 *
+	 * @param requestId unique id of the request
+	 * @param method    HTTP method of the request
+	 * @param uri       uri of the request
+	 * @return call tree that is being recorded, {@code null} if the request is not sampled
+	 */
+	public CallTree start( String requestId, String method, String uri ) {
+		double rate = samplingRate;
+
+		if ( rate <= 0 || ( rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate ) ) {
+			return null;
+		}
+
+		CallTree callTree = new CallTree( requestId, method + " " + uri, System.currentTimeMillis(), maxNodes );
+		CallTree.CURRENT.set( callTree );
+
+		return callTree;
+	}
+
+	/**
+	 * Stop recording the call tree, keeping it if the request was slow.
+	 *
+	 * @param callTree      returned by {@link #start(String, String, String)}
+	 * @param durationNanos duration of the request
+	 */
+	public void stop( CallTree callTree, long durationNanos ) {
+		if ( callTree != null ) {
+			CallTree.CURRENT.remove();
+
+			if ( durationNanos >= TimeUnit.MILLISECONDS.toNanos( slowRequestThreshold ) ) {
+				callTree.finish( durationNanos );
+				slowRequests.set( (int) ( sequence.getAndIncrement() % slowRequests.length() ), callTree );
+			}
+		}
+	}
+
+	/**
+	 * @return the slow requests that are kept, most recent first
+	 */
+	public List<CallTree> getSlowRequests() {
+		int capacity = slowRequests.length();
+		long last = sequence.get();
+		List<CallTree> callTrees = new ArrayList<>( capacity );
+
+		for ( long i = last - 1; i >= 0 && i >= last - capacity; i-- ) {
+			CallTree callTree = slowRequests.get( (int) ( i % capacity ) );
+			if ( callTree != null ) {
+				callTrees.add( callTree );
+			}
+		}
+
+		return callTrees;
+	}
+
+	/**
+	 * @param requestId unique id of the request
+	 * @return call tree of the slow request, {@code null} if it is not kept
+	 */
+	public CallTree getSlowRequest( String requestId ) {
+		for ( int i = 0; i < slowRequests.length(); i++ ) {
+			CallTree callTree = slowRequests.get( i );
+			if ( callTree != null && callTree.getRequestId().equals( requestId ) ) {
+				return callTree;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remove all slow requests.
+	 */
+	public void reset() {
+		for ( int i = 0; i < slowRequests.length(); i++ ) {
+			slowRequests.set( i, null );
+		}
+	}
+}
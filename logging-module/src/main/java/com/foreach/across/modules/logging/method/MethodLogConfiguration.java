@@ -56,6 +56,39 @@ public class MethodLogConfiguration
 	 */
 	private final Map<String, Integer> durationForLogger = new HashMap<>();
 
+	/**
+	 * Should the duration of every call be aggregated in the {@link MethodTimingRegistry},
+	 * including the calls that are faster than the minimum duration.
+	 */
+	private boolean aggregationEnabled;
+
+	/**
+	 * Maximum number of methods for which timings are aggregated.
+	 */
+	private int aggregationMaxMethods = 1000;
+
+	/**
+	 * Fraction of the requests for which a call tree should be recorded, 0 disables call trees.
+	 */
+	private double callTreeSamplingRate;
+
+	/**
+	 * Minimum duration in milliseconds of a request before its call tree is kept.
+	 */
+	private long callTreeSlowRequestThreshold = 1000;
+
+	/**
+	 * Number of slow request call trees to keep.
+	 */
+	private int callTreeMaxRequests = 50;
+
+	/**
+	 * Maximum number of distinct methods in a single call tree.
+	 */
+	private int callTreeMaxNodes = 2000;
+
+	private MethodTimingRegistry methodTimingRegistry;
+
 	private Set<MethodLogger> loggers = new HashSet<>();
 
 	/**
@@ -79,7 +112,68 @@ public class MethodLogConfiguration
 		updateAllConfigurations();
 	}
 
+	public boolean isAggregationEnabled() {
+		return aggregationEnabled;
+	}
+
+	public void setAggregationEnabled( boolean aggregationEnabled ) {
+		this.aggregationEnabled = aggregationEnabled;
+		updateAllConfigurations();
+	}
+
+	public int getAggregationMaxMethods() {
+		return aggregationMaxMethods;
+	}
+
+	public void setAggregationMaxMethods( int aggregationMaxMethods ) {
+		this.aggregationMaxMethods = aggregationMaxMethods;
+	}
+
+	public double getCallTreeSamplingRate() {
+		return callTreeSamplingRate;
+	}
 
+	public void setCallTreeSamplingRate( double callTreeSamplingRate ) {
+		this.callTreeSamplingRate = callTreeSamplingRate;
+	}
+
+	public long getCallTreeSlowRequestThreshold() {
+		return callTreeSlowRequestThreshold;
+	}
+
+	public void setCallTreeSlowRequestThreshold( long callTreeSlowRequestThreshold ) {
+		this.callTreeSlowRequestThreshold = callTreeSlowRequestThreshold;
+	}
+
+	public int getCallTreeMaxRequests() {
+		return callTreeMaxRequests;
+	}
+
+	public void setCallTreeMaxRequests( int callTreeMaxRequests ) {
+		this.callTreeMaxRequests = callTreeMaxRequests;
+	}
+
+	public int getCallTreeMaxNodes() {
+		return callTreeMaxNodes;
+	}
+
+	public void setCallTreeMaxNodes( int callTreeMaxNodes ) {
+		this.callTreeMaxNodes = callTreeMaxNodes;
+	}
+
+	public MethodTimingRegistry getMethodTimingRegistry() {
+		return methodTimingRegistry;
+	}
+
+	/**
+	 * Set the registry that loggers should use if aggregation is enabled.
+	 *
+	 * @param methodTimingRegistry registry
+	 */
+	public void setMethodTimingRegistry( MethodTimingRegistry methodTimingRegistry ) {
+		this.methodTimingRegistry = methodTimingRegistry;
+		updateAllConfigurations();
+	}
 
 	/**
 	 * Set enabled status for a specific logger.  Only if the global {@link #isEnabled()} is {@code true} can
@@ -127,9 +221,11 @@ public class MethodLogConfiguration
 		if ( methodLogger != null ) {
 			methodLogger.setEnabled( isEnabled( name ) );
 			methodLogger.setMinimumDuration( getMinimumDuration( name ) );
+			methodLogger.setMethodTimingRegistry( aggregationEnabled ? methodTimingRegistry : null );
 
-			LOG.info( "Updated configuration for method logger {}: enabled {}, minimum duration {}",
-			          name, methodLogger.isEnabled(), methodLogger.getMinimumDuration() );
+			LOG.info( "Updated configuration for method logger {}: enabled {}, minimum duration {}, aggregation {}",
+			          name, methodLogger.isEnabled(), methodLogger.getMinimumDuration(),
+			          aggregationEnabled && methodTimingRegistry != null );
 		}
 	}
 
@@ -29,4 +29,13 @@ public interface MethodLogger
 	void setMinimumDuration( int minimumDuration );
 
 	int getMinimumDuration();
+
+	/**
+	 * Set the registry in which the duration of every call should be aggregated,
+	 * regardless of the minimum duration.  Aggregation is disabled if {@code null}.
+	 *
+	 * @param methodTimingRegistry registry or {@code null}
+	 */
+	default void setMethodTimingRegistry( MethodTimingRegistry methodTimingRegistry ) {
+	}
 }
@@ -16,30 +16,45 @@
 package com.foreach.across.modules.logging.method;
 
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class to be implemented for a {@link MethodLogger}.
  * Usually extended into an {@link org.aspectj.lang.annotation.Aspect} with the
  * {@link org.aspectj.lang.annotation.Around} advice on {@link #proceedAndLogExecutionTime(ProceedingJoinPoint)}.
  * The name of a logger must be unique.
+ * <p/>
+ * Durations are measured using {@link System#nanoTime()}.  Nesting of logged methods is tracked in a
+ * per-thread frame stack that is reused, no objects are created per invocation.  If the logger is disabled,
+ * or the method is annotated with {@link SkipMethodLogging}, the invocation proceeds without any bookkeeping.
+ * If a {@link MethodTimingRegistry} is set, the duration of every call is aggregated in it as well.
+ * Calls made while a {@link CallTreeRecorder} is recording the current request are added to its {@link CallTree}.
  *
  * @author Arne Vandamme
  */
 public abstract class MethodLoggerAdapter implements MethodLogger, Ordered
 {
-	private static final ThreadLocal<AtomicInteger> methodLevelId = new ThreadLocal<>();
+	private static final ThreadLocal<MethodFrameStack> methodFrames = ThreadLocal.withInitial( MethodFrameStack::new );
+	private static final Map<Method, Boolean> skippedMethods = new ConcurrentHashMap<>();
 
 	private final String name;
 	private final Logger LOG;
 
 	private boolean enabled;
 	private int minimumDuration;
+	private long minimumDurationNanos;
+	private volatile MethodTimingRegistry methodTimingRegistry;
 
 	private int order = Ordered.HIGHEST_PRECEDENCE;
 
@@ -84,59 +99,131 @@ public abstract class MethodLoggerAdapter implements MethodLogger, Ordered
 	@Override
 	public final void setMinimumDuration( int minimumDuration ) {
 		this.minimumDuration = minimumDuration;
+		this.minimumDurationNanos = TimeUnit.MILLISECONDS.toNanos( minimumDuration );
 
 		if ( minimumDuration < 0 ) {
 			enabled = false;
 		}
 	}
 
+	@Override
+	public final void setMethodTimingRegistry( MethodTimingRegistry methodTimingRegistry ) {
+		this.methodTimingRegistry = methodTimingRegistry;
+	}
+
+	/**
+	 * @return registry in which all calls are aggregated, {@code null} if aggregation is disabled
+	 */
+	public final MethodTimingRegistry getMethodTimingRegistry() {
+		return methodTimingRegistry;
+	}
+
 	protected Object proceedAndLogExecutionTime( ProceedingJoinPoint point ) throws Throwable {
-		if ( enabled ) {
-			boolean removeAfter = false;
+		if ( !enabled || isSkipped( point ) ) {
+			return point.proceed();
+		}
+
+		MethodTimingRegistry registry = methodTimingRegistry;
+		MethodFrameStack frames = LOG.isInfoEnabled() ? methodFrames.get() : null;
+		CallTree callTree = CallTree.CURRENT.get();
+
+		if ( frames == null && registry == null && callTree == null ) {
+			return point.proceed();
+		}
+
+		if ( frames != null ) {
+			frames.push();
+		}
+
+		int callTreeNode = callTree != null ? enterCallTree( callTree, point ) : -1;
+
+		long startTime = System.nanoTime();
 
-			AtomicInteger previousId = methodLevelId.get();
-			AtomicInteger newId = new AtomicInteger( 0 );
+		try {
+			return point.proceed();
+		}
+		finally {
+			long duration = System.nanoTime() - startTime;
 
-			if ( previousId == null ) {
-				removeAfter = true;
-				previousId = new AtomicInteger( 0 );
+			if ( callTree != null ) {
+				callTree.exit( callTreeNode, duration );
 			}
 
-			long startTime = System.currentTimeMillis();
+			if ( frames != null ) {
+				logExecutionTime( frames, point, duration );
+			}
 
-			try {
-				methodLevelId.set( newId );
+			if ( registry != null ) {
+				aggregate( registry, point, duration );
+			}
+		}
+	}
+
+	private int enterCallTree( CallTree callTree, ProceedingJoinPoint point ) {
+		Signature signature = point.getSignature();
+		int node = callTree.enter( methodKey( signature ) );
 
-				return point.proceed();
+		if ( node >= 0 && callTree.getName( node ) == null ) {
+			callTree.setName( node, retrieveTypeName( point ) + "." + signature.getName() );
+		}
+
+		return node;
+	}
+
+	private void logExecutionTime( MethodFrameStack frames, ProceedingJoinPoint point, long duration ) {
+		int children = frames.pop();
+
+		if ( duration >= minimumDurationNanos ) {
+			int sequence = children + frames.nextPosition();
+			long durationMillis = TimeUnit.NANOSECONDS.toMillis( duration );
+			try {
+				LOG.info(
+						"{}\t{}.{}\t{}",
+						sequence,
+						retrieveTypeName( point ),
+						point.getSignature().getName(),
+						durationMillis
+				);
 			}
-			finally {
-				long duration = System.currentTimeMillis() - startTime;
-
-				if ( duration >= minimumDuration ) {
-					try {
-						LOG.info(
-								"{}\t{}.{}\t{}",
-								newId.intValue() + previousId.incrementAndGet(),
-								retrieveTypeName( point ),
-								point.getSignature().getName(),
-								duration
-						);
-					}
-					catch ( Exception e ) {
-						LOG.warn( "Exception during method time logging\t{}", duration, e );
-					}
-				}
-
-				if ( removeAfter ) {
-					methodLevelId.remove();
-				}
-				else {
-					methodLevelId.set( previousId );
-				}
+			catch ( Exception e ) {
+				LOG.warn( "Exception during method time logging\t{}", durationMillis, e );
 			}
 		}
+	}
+
+	private void aggregate( MethodTimingRegistry registry, ProceedingJoinPoint point, long duration ) {
+		Signature signature = point.getSignature();
+		Object key = methodKey( signature );
+
+		MethodTimings timings = registry.getTimings( key );
+		if ( timings == null ) {
+			timings = registry.register( key, name, retrieveTypeName( point ) + "." + signature.getName() );
+		}
+
+		timings.record( duration );
+	}
+
+	private Object methodKey( Signature signature ) {
+		return signature instanceof MethodSignature ? ( (MethodSignature) signature ).getMethod() : signature;
+	}
+
+	private boolean isSkipped( ProceedingJoinPoint point ) {
+		Signature signature = point.getSignature();
+
+		if ( signature instanceof MethodSignature ) {
+			Method method = ( (MethodSignature) signature ).getMethod();
+			Boolean skipped = skippedMethods.get( method );
+
+			if ( skipped == null ) {
+				skipped = method.isAnnotationPresent( SkipMethodLogging.class )
+						|| method.getDeclaringClass().isAnnotationPresent( SkipMethodLogging.class );
+				skippedMethods.put( method, skipped );
+			}
+
+			return skipped;
+		}
 
-		return point.proceed();
+		return false;
 	}
 
 	protected String retrieveTypeName( ProceedingJoinPoint point ) {
@@ -166,4 +253,45 @@ public abstract class MethodLoggerAdapter implements MethodLogger, Ordered
 	public int hashCode() {
 		return Objects.hash( name );
 	}
+
+	/**
+	 * Keeps the number of logged child invocations for every nesting level of the current thread.
+	 * The logged sequence of an invocation is the number of its logged children plus its position among
+	 * its logged siblings, top-level invocations always have position 1.
+	 */
+	static final class MethodFrameStack
+	{
+		private int[] childCounts = new int[16];
+		private int depth;
+
+		void push() {
+			depth++;
+			if ( depth == childCounts.length ) {
+				childCounts = Arrays.copyOf( childCounts, depth * 2 );
+			}
+			childCounts[depth] = 0;
+		}
+
+		/**
+		 * @return number of logged children of the frame that was removed
+		 */
+		int pop() {
+			return childCounts[depth--];
+		}
+
+		/**
+		 * Registers the last removed frame as logged.
+		 *
+		 * @return position of that frame among its logged siblings
+		 */
+		int nextPosition() {
+			int position = ++childCounts[depth];
+
+			if ( depth == 0 ) {
+				childCounts[0] = 0;
+			}
+
+			return position;
+		}
+	}
 }
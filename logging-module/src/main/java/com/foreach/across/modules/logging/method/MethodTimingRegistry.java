@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.method;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the {@link MethodTimings} of every method called through a {@link MethodLoggerAdapter} that has
+ * aggregation enabled.  Once the maximum number of methods has been reached, durations of new methods
+ * are recorded under the {@link #OTHER} method.
+ *
+ * @since 4.3.0
+ */
+public class MethodTimingRegistry
+{
+	/**
+	 * Method name used for all calls once the maximum number of methods has been reached.
+	 */
+	public static final String OTHER = "<other>";
+
+	private final ConcurrentMap<Object, MethodTimings> timings = new ConcurrentHashMap<>();
+	// methods that were recorded as OTHER, so their name is not built again on every call
+	private final ConcurrentMap<Object, MethodTimings> otherMethods = new ConcurrentHashMap<>();
+	private final MethodTimings other = new MethodTimings( "*", OTHER );
+
+	private final int maxMethods;
+
+	public MethodTimingRegistry() {
+		this( 1000 );
+	}
+
+	public MethodTimingRegistry( int maxMethods ) {
+		this.maxMethods = maxMethods;
+	}
+
+	/**
+	 * @param key unique key of the method, usually the {@link java.lang.reflect.Method}
+	 * @return timings, the {@link #OTHER} timings if the method was recorded as such,
+	 * or {@code null} if the method has not been registered
+	 */
+	public MethodTimings getTimings( Object key ) {
+		MethodTimings methodTimings = timings.get( key );
+		return methodTimings != null ? methodTimings : otherMethods.get( key );
+	}
+
+	/**
+	 * Register the timings for a method if they do not yet exist.
+	 *
+	 * @param key        unique key of the method, usually the {@link java.lang.reflect.Method}
+	 * @param loggerName name of the method logger
+	 * @param methodName display name of the method
+	 * @return timings, the {@link #OTHER} timings if the maximum number of methods has been reached
+	 */
+	public MethodTimings register( Object key, String loggerName, String methodName ) {
+		MethodTimings methodTimings = timings.get( key );
+
+		if ( methodTimings == null ) {
+			if ( timings.size() >= maxMethods ) {
+				if ( otherMethods.size() < maxMethods ) {
+					otherMethods.put( key, other );
+				}
+				return other;
+			}
+
+			methodTimings = timings.computeIfAbsent( key, k -> new MethodTimings( loggerName, methodName ) );
+		}
+
+		return methodTimings;
+	}
+
+	/**
+	 * @param comparator order of the snapshots, highest first
+	 * @param limit      maximum number of snapshots to return
+	 * @return snapshots of all methods that have been called
+	 */
+	public List<MethodTimings.Snapshot> getSnapshots( Comparator<MethodTimings.Snapshot> comparator, int limit ) {
+		List<MethodTimings.Snapshot> snapshots = new ArrayList<>( timings.size() + 1 );
+		timings.values().forEach( t -> snapshots.add( t.snapshot() ) );
+
+		MethodTimings.Snapshot otherSnapshot = other.snapshot();
+		if ( otherSnapshot.getCount() > 0 ) {
+			snapshots.add( otherSnapshot );
+		}
+
+		snapshots.sort( comparator.reversed() );
+		return snapshots.size() > limit ? new ArrayList<>( snapshots.subList( 0, limit ) ) : snapshots;
+	}
+
+	/**
+	 * Remove all recorded durations and methods.
+	 */
+	public void reset() {
+		timings.clear();
+		otherMethods.clear();
+		other.reset();
+	}
+}
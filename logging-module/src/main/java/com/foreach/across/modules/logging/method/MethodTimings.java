@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.method;
+
+import com.foreach.across.modules.logging.request.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated durations of all calls to a single method, regardless of the minimum duration of the logger.
+ * Keeps the exact total time in nanoseconds and a {@link LatencyHistogram} in microseconds.
+ *
+ * @since 4.3.0
+ */
+public final class MethodTimings
+{
+	private final String loggerName;
+	private final String methodName;
+
+	private final LongAdder totalNanos = new LongAdder();
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	public MethodTimings( String loggerName, String methodName ) {
+		this.loggerName = loggerName;
+		this.methodName = methodName;
+	}
+
+	public String getLoggerName() {
+		return loggerName;
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	/**
+	 * @param durationNanos duration of a single call in nanoseconds
+	 */
+	public void record( long durationNanos ) {
+		totalNanos.add( durationNanos );
+		histogram.record( durationNanos / 1000 );
+	}
+
+	public Snapshot snapshot() {
+		return new Snapshot( this, totalNanos.sum(), histogram.snapshot() );
+	}
+
+	public void reset() {
+		totalNanos.reset();
+		histogram.reset();
+	}
+
+	/**
+	 * Point-in-time view of {@link MethodTimings}.
+	 */
+	public static final class Snapshot
+	{
+		private final MethodTimings timings;
+		private final long totalNanos;
+		private final LatencyHistogram.Snapshot latencies;
+
+		private Snapshot( MethodTimings timings, long totalNanos, LatencyHistogram.Snapshot latencies ) {
+			this.timings = timings;
+			this.totalNanos = totalNanos;
+			this.latencies = latencies;
+		}
+
+		public String getLoggerName() {
+			return timings.loggerName;
+		}
+
+		public String getMethodName() {
+			return timings.methodName;
+		}
+
+		public long getCount() {
+			return latencies.getCount();
+		}
+
+		/**
+		 * @return total time spent in the method, in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * @return mean duration in nanoseconds
+		 */
+		public long getMeanNanos() {
+			long count = latencies.getCount();
+			return count > 0 ? totalNanos / count : 0;
+		}
+
+		/**
+		 * @return percentiles and maximum in microseconds
+		 */
+		public LatencyHistogram.Snapshot getLatencies() {
+			return latencies;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.request;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a {@link LatencyHistogram} of request durations for every request mapping and HTTP method.
+ * Filled by the {@link RequestLoggerFilter}.  Once the maximum number of endpoints has been reached,
+ * durations of new endpoints are recorded under the {@link #OTHER} mapping.
+ *
+ * @since 4.3.0
+ */
+public class EndpointLatencyRegistry
+{
+	/**
+	 * Mapping used for requests that have no matching request mapping.
+	 */
+	public static final String UNMAPPED = "-";
+
+	/**
+	 * Mapping used for all requests once the maximum number of endpoints has been reached.
+	 */
+	public static final String OTHER = "<other>";
+
+	private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+	private final AtomicInteger endpointCount = new AtomicInteger();
+	private final LatencyHistogram other = new LatencyHistogram( "*", OTHER, "-" );
+
+	private final int maxEndpoints;
+
+	public EndpointLatencyRegistry() {
+		this( 500 );
+	}
+
+	public EndpointLatencyRegistry( int maxEndpoints ) {
+		this.maxEndpoints = maxEndpoints;
+	}
+
+	/**
+	 * @param method         HTTP method of the request
+	 * @param mapping        best matching request mapping, {@code null} if none
+	 * @param handlerName    name of the handler, only used when the endpoint is first registered
+	 * @param durationMicros duration in microseconds
+	 */
+	public void record( String method, String mapping, String handlerName, long durationMicros ) {
+		getOrCreateHistogram( method, mapping != null ? mapping : UNMAPPED, handlerName ).record( durationMicros );
+	}
+
+	/**
+	 * @return histogram for the endpoint or {@code null} if no duration has been recorded for it
+	 */
+	public LatencyHistogram getHistogram( String method, String mapping ) {
+		ConcurrentMap<String, LatencyHistogram> byMethod = histograms.get( mapping );
+		return byMethod != null ? byMethod.get( method ) : null;
+	}
+
+	/**
+	 * @return snapshots of all endpoints, ordered by mapping and method
+	 */
+	public List<LatencyHistogram.Snapshot> getSnapshots() {
+		List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+		histograms.values().forEach( byMethod -> byMethod.values().forEach( h -> snapshots.add( h.snapshot() ) ) );
+
+		LatencyHistogram.Snapshot otherSnapshot = other.snapshot();
+		if ( otherSnapshot.getCount() > 0 ) {
+			snapshots.add( otherSnapshot );
+		}
+
+		snapshots.sort( Comparator.comparing( LatencyHistogram.Snapshot::getMapping )
+		                          .thenComparing( LatencyHistogram.Snapshot::getMethod ) );
+		return snapshots;
+	}
+
+	/**
+	 * Remove all recorded durations and endpoints.
+	 */
+	public void reset() {
+		histograms.clear();
+		endpointCount.set( 0 );
+		other.reset();
+	}
+
+	private LatencyHistogram getOrCreateHistogram( String method, String mapping, String handlerName ) {
+		ConcurrentMap<String, LatencyHistogram> byMethod = histograms.get( mapping );
+		LatencyHistogram histogram = byMethod != null ? byMethod.get( method ) : null;
+
+		if ( histogram == null ) {
+			if ( endpointCount.get() >= maxEndpoints ) {
+				return other;
+			}
+
+			histogram = histograms.computeIfAbsent( mapping, m -> new ConcurrentHashMap<>() )
+			                      .computeIfAbsent( method, m -> {
+				                      endpointCount.incrementAndGet();
+				                      return new LatencyHistogram( method, mapping, handlerName );
+			                      } );
+		}
+
+		return histogram;
+	}
+}
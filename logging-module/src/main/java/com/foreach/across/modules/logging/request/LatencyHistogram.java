@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.request;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in microseconds.  Every power of two is split in 8 linear buckets,
+ * so percentiles are accurate to within 12.5%.  Each bucket is a {@link LongAdder}, recording a value
+ * does not contend between threads.
+ *
+ * @since 4.3.0
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// values are capped at 2^36 microseconds, about 19 hours
+	private static final long MAX_VALUE = ( 1L << 36 ) - 1;
+	private static final int BUCKET_COUNT = bucketIndex( MAX_VALUE ) + 1;
+
+	private final String method;
+	private final String mapping;
+	private final String handlerName;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator( Long::max, 0 );
+
+	/**
+	 * Create a histogram that is not bound to a request mapping.
+	 */
+	public LatencyHistogram() {
+		this( null, null, null );
+	}
+
+	public LatencyHistogram( String method, String mapping, String handlerName ) {
+		this.method = method;
+		this.mapping = mapping;
+		this.handlerName = handlerName;
+
+		for ( int i = 0; i < buckets.length; i++ ) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getMapping() {
+		return mapping;
+	}
+
+	public String getHandlerName() {
+		return handlerName;
+	}
+
+	/**
+	 * @param durationMicros duration in microseconds
+	 */
+	public void record( long durationMicros ) {
+		long value = Math.min( Math.max( 0, durationMicros ), MAX_VALUE );
+
+		buckets[bucketIndex( value )].increment();
+		total.add( value );
+		max.accumulate( value );
+	}
+
+	public Snapshot snapshot() {
+		long[] counts = new long[buckets.length];
+		long count = 0;
+		for ( int i = 0; i < counts.length; i++ ) {
+			counts[i] = buckets[i].sum();
+			count += counts[i];
+		}
+		return new Snapshot( this, counts, count, total.sum(), max.get() );
+	}
+
+	public void reset() {
+		for ( LongAdder bucket : buckets ) {
+			bucket.reset();
+		}
+		total.reset();
+		max.reset();
+	}
+
+	static int bucketIndex( long value ) {
+		if ( value < SUB_BUCKETS * 2 ) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+		return ( shift + 1 ) * SUB_BUCKETS + (int) ( ( value >>> shift ) - SUB_BUCKETS );
+	}
+
+	static long bucketUpperBound( int index ) {
+		if ( index < SUB_BUCKETS * 2 ) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long top = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ( ( top + 1 ) << shift ) - 1;
+	}
+
+	/**
+	 * Point-in-time view of a {@link LatencyHistogram}, all durations are in microseconds.
+	 * Because recording is not atomic over the buckets, a snapshot can be slightly inconsistent.
+	 */
+	public static final class Snapshot
+	{
+		private final LatencyHistogram histogram;
+		private final long[] counts;
+		private final long count, total, max;
+
+		private Snapshot( LatencyHistogram histogram, long[] counts, long count, long total, long max ) {
+			this.histogram = histogram;
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+
+		public String getMethod() {
+			return histogram.method;
+		}
+
+		public String getMapping() {
+			return histogram.mapping;
+		}
+
+		public String getHandlerName() {
+			return histogram.handlerName;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public long getMean() {
+			return count > 0 ? total / count : 0;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getP50() {
+			return getPercentile( 50 );
+		}
+
+		public long getP95() {
+			return getPercentile( 95 );
+		}
+
+		public long getP99() {
+			return getPercentile( 99 );
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return upper bound of the bucket holding the percentile, never more than the maximum recorded
+		 */
+		public long getPercentile( double percentile ) {
+			if ( count == 0 ) {
+				return 0;
+			}
+
+			long rank = Math.max( 1, (long) Math.ceil( count * percentile / 100 ) );
+			long seen = 0;
+			for ( int i = 0; i < counts.length; i++ ) {
+				seen += counts[i];
+				if ( seen >= rank ) {
+					return Math.min( bucketUpperBound( i ), max );
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -16,22 +16,27 @@
 
 package com.foreach.across.modules.logging.request;
 
+import java.util.Arrays;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.TreeMap;
 
+/**
+ * Immutable table of duration thresholds, each starting a {@link LoggerLevel}.  The level for a duration
+ * is the level of the highest threshold that is less than or equal to the duration, {@link LoggerLevel#DEBUG}
+ * if there is none.  Thresholds are kept in a sorted array and looked up using binary search.
+ */
 public class LoggerLevelThreshold
 {
-	private NavigableMap<Integer, LoggerLevel> loggerLevelThreshold = new TreeMap<>();
+	private final long[] thresholds;
+	private final LoggerLevel[] levels;
 
 	public LoggerLevel getLogLevelForDuration( long duration ) {
-		LoggerLevel loggerLevel = LoggerLevel.DEBUG;
-		for( Map.Entry<Integer,LoggerLevel> entry : loggerLevelThreshold.entrySet() ) {
-			if( duration >= entry.getKey() ) {
-				return entry.getValue();
-			}
+		int index = Arrays.binarySearch( thresholds, duration );
+		if ( index < 0 ) {
+			// insertion point minus one is the highest threshold below the duration
+			index = -index - 2;
 		}
-		return loggerLevel;
+		return index >= 0 ? levels[index] : LoggerLevel.DEBUG;
 	}
 
 	public static class Builder {
@@ -59,8 +64,14 @@ public class LoggerLevelThreshold
 	}
 
 	private LoggerLevelThreshold( Builder b ) {
-		loggerLevelThreshold.putAll( b.loggerLevelThreshold );
-		loggerLevelThreshold = loggerLevelThreshold.descendingMap();
+		thresholds = new long[b.loggerLevelThreshold.size()];
+		levels = new LoggerLevel[thresholds.length];
+
+		int index = 0;
+		for ( Map.Entry<Integer, LoggerLevel> entry : b.loggerLevelThreshold.entrySet() ) {
+			thresholds[index] = entry.getKey();
+			levels[index++] = entry.getValue();
+		}
 	}
 
 	public enum LoggerLevel {
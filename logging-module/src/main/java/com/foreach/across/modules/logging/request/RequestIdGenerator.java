@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.request;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Strategy for generating the unique id of a request, used by the {@link RequestLoggerFilter}.
+ * A single instance is shared by all request threads and must be thread-safe.
+ *
+ * @since 4.3.0
+ */
+@FunctionalInterface
+public interface RequestIdGenerator
+{
+	String generateRequestId();
+
+	/**
+	 * Generates a version 4 {@link UUID} using {@link ThreadLocalRandom}.  Ids have the same format
+	 * as {@link UUID#randomUUID()} but generating them never blocks on the secure random source.
+	 * This is the default generator.
+	 *
+	 * @return generator instance
+	 */
+	static RequestIdGenerator randomUuid() {
+		return () -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long mostSigBits = ( random.nextLong() & 0xffffffffffff0fffL ) | 0x0000000000004000L;
+			long leastSigBits = ( random.nextLong() & 0x3fffffffffffffffL ) | 0x8000000000000000L;
+			return new UUID( mostSigBits, leastSigBits ).toString();
+		};
+	}
+
+	/**
+	 * Generates ids using {@link UUID#randomUUID()}, which uses a secure random source.
+	 *
+	 * @return generator instance
+	 */
+	static RequestIdGenerator secureRandomUuid() {
+		return () -> UUID.randomUUID().toString();
+	}
+
+	/**
+	 * Generates short ids consisting of a random prefix unique to the generator instance,
+	 * followed by a sequence number.  The sequence is striped over a number of counters
+	 * to avoid contention between request threads.
+	 *
+	 * @return generator instance
+	 */
+	static RequestIdGenerator sequential() {
+		return new SequentialRequestIdGenerator();
+	}
+
+	/**
+	 * Implementation for {@link #sequential()}.
+	 */
+	final class SequentialRequestIdGenerator implements RequestIdGenerator
+	{
+		private static final int STRIPES = 16;
+
+		// counters are spread over the array to avoid false sharing
+		private static final int PADDING = 8;
+
+		private final String prefix;
+		private final AtomicLongArray counters = new AtomicLongArray( STRIPES * PADDING );
+
+		private SequentialRequestIdGenerator() {
+			prefix = Long.toString( ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36 ) + "-";
+		}
+
+		@Override
+		public String generateRequestId() {
+			int stripe = (int) ( Thread.currentThread().getId() % STRIPES );
+			long sequence = counters.getAndIncrement( stripe * PADDING ) * STRIPES + stripe;
+
+			return prefix + Long.toString( sequence, 36 );
+		}
+	}
+}
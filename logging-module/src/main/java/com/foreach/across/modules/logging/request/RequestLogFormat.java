@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.request;
+
+/**
+ * Layout of the request log line written by the {@link RequestLoggerFilter}.
+ * All formats contain the same fields in the same order: remote address, HTTP method, URL, servlet path,
+ * request mapping, handler name, view name, HTTP status and duration in milliseconds.
+ *
+ * @since 4.3.0
+ */
+public enum RequestLogFormat
+{
+	/**
+	 * Tab separated fields, formatted by SLF4J.
+	 */
+	PATTERN,
+
+	/**
+	 * Tab separated fields, written directly into a reusable buffer.  Output is identical to {@link #PATTERN}.
+	 */
+	TAB_SEPARATED,
+
+	/**
+	 * Single line JSON object, written directly into a reusable buffer.
+	 */
+	JSON
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.request;
+
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+
+/**
+ * Writes the request log line for the {@link RequestLogFormat#TAB_SEPARATED} and {@link RequestLogFormat#JSON}
+ * formats.  All fields are appended directly to a buffer that is reused by the thread, the only object
+ * created is the resulting line.
+ *
+ * @since 4.3.0
+ */
+final class RequestLogLineWriter
+{
+	private static final int INITIAL_CAPACITY = 512;
+	private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(
+			() -> new StringBuilder( INITIAL_CAPACITY )
+	);
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private RequestLogLineWriter() {
+	}
+
+	static String write( RequestLogFormat format, HttpServletRequest request, int status, long duration ) {
+		StringBuilder line = BUFFER.get();
+		line.setLength( 0 );
+
+		String requestMapping = (String) request.getAttribute( HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE );
+		String handlerName = (String) request.getAttribute( LogHandlerAndViewNameInterceptor.ATTRIBUTE_HANDLER );
+		String viewName = (String) request.getAttribute( LogHandlerAndViewNameInterceptor.ATTRIBUTE_VIEW_NAME );
+		Map<?, ?> logFields = (Map<?, ?>) request.getAttribute( RequestLoggerFilter.ATTRIBUTE_LOG_FIELDS );
+
+		if ( format == RequestLogFormat.JSON ) {
+			line.append( "{\"remoteAddress\":" );
+			appendJsonString( line, request.getRemoteAddr() );
+			line.append( ",\"method\":" );
+			appendJsonString( line, request.getMethod() );
+			line.append( ",\"url\":\"" );
+			int start = line.length();
+			appendUrl( line, request );
+			escapeJson( line, start );
+			line.append( "\",\"servletPath\":" );
+			appendJsonString( line, request.getServletPath() );
+			line.append( ",\"requestMapping\":" );
+			appendJsonString( line, requestMapping );
+			line.append( ",\"handler\":" );
+			appendJsonString( line, handlerName );
+			line.append( ",\"view\":" );
+			appendJsonString( line, viewName );
+			line.append( ",\"status\":" ).append( status );
+			line.append( ",\"duration\":" ).append( duration );
+			if ( logFields != null ) {
+				for ( Map.Entry<?, ?> field : logFields.entrySet() ) {
+					line.append( ',' );
+					appendJsonString( line, String.valueOf( field.getKey() ) );
+					line.append( ':' );
+					appendJsonValue( line, field.getValue() );
+				}
+			}
+			line.append( '}' );
+		}
+		else {
+			line.append( request.getRemoteAddr() ).append( '\t' )
+			    .append( request.getMethod() ).append( '\t' );
+			appendUrl( line, request );
+			line.append( '\t' ).append( request.getServletPath() )
+			    .append( '\t' ).append( requestMapping != null ? requestMapping : "-" )
+			    .append( '\t' ).append( handlerName != null ? handlerName : "-" )
+			    .append( '\t' ).append( viewName != null ? viewName : "-" )
+			    .append( '\t' ).append( status )
+			    .append( '\t' ).append( duration );
+			if ( logFields != null ) {
+				for ( Map.Entry<?, ?> field : logFields.entrySet() ) {
+					line.append( '\t' ).append( field.getKey() ).append( '=' ).append( field.getValue() );
+				}
+			}
+		}
+
+		String result = line.toString();
+
+		if ( line.capacity() > MAX_RETAINED_CAPACITY ) {
+			BUFFER.set( new StringBuilder( INITIAL_CAPACITY ) );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Appends the same value as {@link HttpServletRequest#getRequestURL()} followed by the query string,
+	 * without the intermediate {@link StringBuffer}.
+	 */
+	static void appendUrl( StringBuilder line, HttpServletRequest request ) {
+		String scheme = request.getScheme();
+		int port = request.getServerPort();
+
+		line.append( scheme ).append( "://" ).append( request.getServerName() );
+		if ( port > 0 && ( ( "http".equals( scheme ) && port != 80 ) || ( "https".equals( scheme ) && port != 443 ) ) ) {
+			line.append( ':' ).append( port );
+		}
+		line.append( request.getRequestURI() );
+
+		String queryString = request.getQueryString();
+		if ( queryString != null ) {
+			line.append( '?' ).append( queryString );
+		}
+	}
+
+	private static void appendJsonString( StringBuilder line, String value ) {
+		if ( value == null ) {
+			line.append( "null" );
+		}
+		else {
+			line.append( '"' );
+			appendEscapedJson( line, value );
+			line.append( '"' );
+		}
+	}
+
+	private static void appendJsonValue( StringBuilder line, Object value ) {
+		if ( value instanceof Number || value instanceof Boolean ) {
+			line.append( value );
+		}
+		else {
+			appendJsonString( line, value != null ? value.toString() : null );
+		}
+	}
+
+	/**
+	 * Escapes all characters from the start position up until the end of the buffer.
+	 * The buffer is only rewritten from the first character that should be escaped.
+	 */
+	private static void escapeJson( StringBuilder line, int start ) {
+		int length = line.length();
+		int first = start;
+
+		while ( first < length && !requiresEscaping( line.charAt( first ) ) ) {
+			first++;
+		}
+
+		if ( first < length ) {
+			String unescaped = line.substring( first );
+			line.setLength( first );
+			appendEscapedJson( line, unescaped );
+		}
+	}
+
+	/**
+	 * Appends the value in a single pass, copying the runs of characters that do not have to be escaped at once.
+	 */
+	private static void appendEscapedJson( StringBuilder line, String value ) {
+		int runStart = 0;
+
+		for ( int i = 0; i < value.length(); i++ ) {
+			char c = value.charAt( i );
+
+			if ( requiresEscaping( c ) ) {
+				line.append( value, runStart, i );
+				if ( c < 0x20 ) {
+					line.append( "\\u00" ).append( HEX[c >> 4] ).append( HEX[c & 0xF] );
+				}
+				else {
+					line.append( '\\' ).append( c );
+				}
+				runStart = i + 1;
+			}
+		}
+
+		line.append( value, runStart, value.length() );
+	}
+
+	private static boolean requiresEscaping( char c ) {
+		return c == '"' || c == '\\' || c < 0x20;
+	}
+}
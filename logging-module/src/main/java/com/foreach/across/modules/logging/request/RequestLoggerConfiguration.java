@@ -21,6 +21,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * @author Arne Vandamme
@@ -53,6 +55,38 @@ public class RequestLoggerConfiguration
 	 */
 	private LoggerLevelThreshold loggerLevelThreshold;
 
+	/**
+	 * Log levels to be used for request duration of requests matching a path pattern, the first matching pattern applies.
+	 */
+	private Map<String, LoggerLevelThreshold> pathLoggerLevelThresholds = new LinkedHashMap<>();
+
+	/**
+	 * Log levels to be used for request duration of requests handled by a specific handler,
+	 * takes precedence over the path patterns.
+	 */
+	private Map<String, LoggerLevelThreshold> handlerLoggerLevelThresholds = new LinkedHashMap<>();
+
+	/**
+	 * Layout of the request log line.
+	 */
+	private RequestLogFormat logFormat = RequestLogFormat.PATTERN;
+
+	/**
+	 * Should a request id passed in the Request-Reference header be used instead of generating a new one.
+	 */
+	private boolean acceptRequestIdHeader = false;
+
+	/**
+	 * Should request durations be aggregated in a latency histogram per request mapping.
+	 * Disabled by default, can also be enabled with the {@code logging.request.endpoint-latency.enabled} property.
+	 */
+	private boolean endpointLatencyEnabled = false;
+
+	/**
+	 * Maximum number of request mappings to keep a latency histogram for.
+	 */
+	private int endpointLatencyMaxEndpoints = 500;
+
 	public Collection<String> getIncludedPathPatterns() {
 		return includedPathPatterns;
 	}
@@ -93,6 +127,54 @@ public class RequestLoggerConfiguration
 		return loggerLevelThreshold;
 	}
 
+	public RequestLogFormat getLogFormat() {
+		return logFormat;
+	}
+
+	public void setLogFormat( @NonNull RequestLogFormat logFormat ) {
+		this.logFormat = logFormat;
+	}
+
+	public Map<String, LoggerLevelThreshold> getPathLoggerLevelThresholds() {
+		return pathLoggerLevelThresholds;
+	}
+
+	public void setPathLoggerLevelThresholds( @NonNull Map<String, LoggerLevelThreshold> pathLoggerLevelThresholds ) {
+		this.pathLoggerLevelThresholds = pathLoggerLevelThresholds;
+	}
+
+	public Map<String, LoggerLevelThreshold> getHandlerLoggerLevelThresholds() {
+		return handlerLoggerLevelThresholds;
+	}
+
+	public void setHandlerLoggerLevelThresholds( @NonNull Map<String, LoggerLevelThreshold> handlerLoggerLevelThresholds ) {
+		this.handlerLoggerLevelThresholds = handlerLoggerLevelThresholds;
+	}
+
+	public boolean isAcceptRequestIdHeader() {
+		return acceptRequestIdHeader;
+	}
+
+	public void setAcceptRequestIdHeader( boolean acceptRequestIdHeader ) {
+		this.acceptRequestIdHeader = acceptRequestIdHeader;
+	}
+
+	public boolean isEndpointLatencyEnabled() {
+		return endpointLatencyEnabled;
+	}
+
+	public void setEndpointLatencyEnabled( boolean endpointLatencyEnabled ) {
+		this.endpointLatencyEnabled = endpointLatencyEnabled;
+	}
+
+	public int getEndpointLatencyMaxEndpoints() {
+		return endpointLatencyMaxEndpoints;
+	}
+
+	public void setEndpointLatencyMaxEndpoints( int endpointLatencyMaxEndpoints ) {
+		this.endpointLatencyMaxEndpoints = endpointLatencyMaxEndpoints;
+	}
+
 	public static RequestLoggerConfiguration allRequests() {
 		return new RequestLoggerConfiguration();
 	}
@@ -16,11 +16,13 @@
 
 package com.foreach.across.modules.logging.request;
 
+import com.foreach.across.modules.logging.loggers.RequestDebugTurboFilter;
+import com.foreach.across.modules.logging.method.CallTree;
+import com.foreach.across.modules.logging.method.CallTreeRecorder;
 import lombok.NonNull;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.MDC;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.UrlPathHelper;
@@ -30,10 +32,14 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.UUID;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>RequestLoggerFilter times http requests and logs the result in a tab separated fashion.
@@ -48,12 +54,19 @@ import java.util.UUID;
  * <li>View name</li>
  * <li>HTTP status code</li>
  * <li>Duration (ms)</li>
+ * <li>Additional fields added by other filters in the {@link #ATTRIBUTE_LOG_FIELDS} request attribute, as key=value</li>
  * </ul>
  * </p>
  * <p>
  * RequestLoggerFilter uses {@link org.slf4j.MDC org.slf4j.MDC} for storing a unique request id which can be referred to in logfiles.
  * The unique id can be added to any logfile by adding the %X{requestId} parameter.
- * The same id can found in the request header attribute "Request-Reference".</p>
+ * The same id can found in the request header attribute "Request-Reference".
+ * The previous MDC values are restored once the request has been handled.</p>
+ * <p>
+ * The request id is generated by the configured {@link RequestIdGenerator}.  If {@link #setAcceptRequestIdHeader(boolean)}
+ * is enabled, a valid id passed in the "Request-Reference" request header will be used instead.</p>
+ * <p>
+ * The layout of the log line can be changed using {@link #setLogFormat(RequestLogFormat)}.</p>
  *
  * @version 1.0
  */
@@ -65,90 +78,264 @@ public class RequestLoggerFilter extends OncePerRequestFilter
 	public static final String ATTRIBUTE_UNIQUE_ID = "_log_uniqueRequestId";
 	public static final String ATTRIBUTE_START_TIME = "_log_requestStartTime";
 
+	/**
+	 * Request attribute holding a {@code Map<String, Object>} of additional fields that should be appended
+	 * to the request log line.  Other modules can add fields without depending on the LoggingModule.
+	 */
+	public static final String ATTRIBUTE_LOG_FIELDS = "_log_fields";
+
 	private static final Logger REQUEST_LOG = RequestLogger.LOG;
 
 	private static final String LOG_FORMAT = "{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}";
 
+	private static final int MAX_INCOMING_REQUEST_ID_LENGTH = 64;
+
 	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
-	private final AntPathMatcher antPathMatcher = new AntPathMatcher();
 
 	private String instanceId = "instance-not-set";
+	private RequestIdGenerator requestIdGenerator = RequestIdGenerator.randomUuid();
+	private boolean acceptRequestIdHeader;
 
 	private Collection<String> includedPathPatterns = Collections.emptyList();
 	private Collection<String> excludedPathPatterns = Collections.emptyList();
+	private volatile RequestPathMatcher requestPathMatcher = RequestPathMatcher.all();
 	private LoggerLevelThreshold loggerLevelThreshold;
+	private Map<String, LoggerLevelThreshold> handlerLoggerLevelThresholds = Collections.emptyMap();
+	private List<PathLoggerLevelThreshold> pathLoggerLevelThresholds = Collections.emptyList();
+	private RequestLogFormat logFormat = RequestLogFormat.PATTERN;
+	private EndpointLatencyRegistry endpointLatencyRegistry;
+	private CallTreeRecorder callTreeRecorder;
+	private RequestDebugTurboFilter requestDebugFilter;
 
 	public void setInstanceId( String instanceId ) {
 		this.instanceId = instanceId;
 	}
 
+	public void setRequestIdGenerator( @NonNull RequestIdGenerator requestIdGenerator ) {
+		this.requestIdGenerator = requestIdGenerator;
+	}
+
+	public RequestIdGenerator getRequestIdGenerator() {
+		return requestIdGenerator;
+	}
+
+	/**
+	 * Should an id passed in the {@link #HEADER_REQUEST_ID} request header be used as the request id.
+	 * Only ids of at most 64 characters consisting of letters, digits and {@code -_.:} are accepted,
+	 * in all other cases a new id will be generated.
+	 *
+	 * @param acceptRequestIdHeader true if an incoming request id should be used
+	 */
+	public void setAcceptRequestIdHeader( boolean acceptRequestIdHeader ) {
+		this.acceptRequestIdHeader = acceptRequestIdHeader;
+	}
+
+	public boolean isAcceptRequestIdHeader() {
+		return acceptRequestIdHeader;
+	}
+
 	@Override
 	protected void doFilterInternal( HttpServletRequest request,
 	                                 HttpServletResponse response,
 	                                 FilterChain chain ) throws ServletException, IOException {
-		if ( shouldLog( request ) ) {
+		String lookupPath = urlPathHelper.getLookupPathForRequest( request );
+
+		if ( requestPathMatcher.matches( lookupPath ) ) {
 			// Create a unique id for this request
-			String requestId = UUID.randomUUID().toString();
+			String requestId = resolveRequestId( request );
 
 			// Put id as MDC in your logging: this can be used to identify this request in the log files
+			String previousInstanceId = MDC.get( LOG_INSTANCEID );
+			String previousRequestId = MDC.get( LOG_REQUESTID );
 			MDC.put( LOG_INSTANCEID, instanceId );
 			MDC.put( LOG_REQUESTID, requestId );
 
-			response.setHeader( HEADER_REQUEST_ID, requestId );
-			request.setAttribute( ATTRIBUTE_UNIQUE_ID, requestId );
-
 			long startTime = System.currentTimeMillis();
-			request.setAttribute( ATTRIBUTE_START_TIME, startTime );
+			long startNanos = System.nanoTime();
 
+			boolean debug = false;
 			boolean finished = false;
+			CallTree callTree = null;
 
 			try {
+				response.setHeader( HEADER_REQUEST_ID, requestId );
+				request.setAttribute( ATTRIBUTE_UNIQUE_ID, requestId );
+				request.setAttribute( ATTRIBUTE_START_TIME, startTime );
+
+				debug = requestDebugFilter != null
+						&& requestDebugFilter.begin( request.getHeader( requestDebugFilter.getHeaderName() ), requestId );
+				callTree = callTreeRecorder != null
+						? callTreeRecorder.start( requestId, request.getMethod(), request.getRequestURI() ) : null;
+
 				chain.doFilter( request, response );
 
 				finished = true;
 			}
 			finally {
-				if( loggerLevelThreshold != null ) {
+				try {
+					if ( callTree != null ) {
+						callTreeRecorder.stop( callTree, System.nanoTime() - startNanos );
+					}
+
+					if ( endpointLatencyRegistry != null ) {
+						endpointLatencyRegistry.record(
+								request.getMethod(),
+								(String) request.getAttribute( HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE ),
+								(String) request.getAttribute( LogHandlerAndViewNameInterceptor.ATTRIBUTE_HANDLER ),
+								TimeUnit.NANOSECONDS.toMicros( System.nanoTime() - startNanos )
+						);
+					}
+
 					long duration = System.currentTimeMillis() - startTime;
-					LoggerLevelThreshold.LoggerLevel loggerLevel = loggerLevelThreshold.getLogLevelForDuration( duration );
-					switch ( loggerLevel ) {
-						case DEBUG:
-							if( REQUEST_LOG.isDebugEnabled() ) {
-								REQUEST_LOG.debug( LOG_FORMAT, loggingArguments( request, response, startTime, finished ) );
-							}
-							break;
-						case INFO:
-							if( REQUEST_LOG.isInfoEnabled() ) {
-								REQUEST_LOG.info( LOG_FORMAT, loggingArguments( request, response, startTime,
-								                                                finished ) );
-							}
-							break;
-						case WARN:
-							if( REQUEST_LOG.isWarnEnabled() ) {
-								REQUEST_LOG.warn( LOG_FORMAT, loggingArguments( request, response, startTime, finished ) );
+					LoggerLevelThreshold threshold = resolveLoggerLevelThreshold( request, lookupPath );
+					LoggerLevelThreshold.LoggerLevel loggerLevel = threshold != null
+							? threshold.getLogLevelForDuration( duration ) : LoggerLevelThreshold.LoggerLevel.DEBUG;
+
+					if ( isLogEnabled( loggerLevel ) ) {
+						if ( logFormat == RequestLogFormat.PATTERN ) {
+							Object[] arguments = loggingArguments( request, response, startTime, finished );
+							Map<?, ?> logFields = (Map<?, ?>) request.getAttribute( ATTRIBUTE_LOG_FIELDS );
+
+							if ( logFields == null || logFields.isEmpty() ) {
+								log( loggerLevel, LOG_FORMAT, arguments );
 							}
-							break;
-						case ERROR:
-							if( REQUEST_LOG.isErrorEnabled() ) {
-								REQUEST_LOG.error( LOG_FORMAT, loggingArguments( request, response, startTime, finished ) );
+							else {
+								log( loggerLevel, LOG_FORMAT + StringUtils.repeat( "\t{}={}", logFields.size() ),
+								     withLogFields( arguments, logFields ) );
 							}
-							break;
+						}
+						else {
+							log( loggerLevel,
+							     RequestLogLineWriter.write( logFormat, request, finished ? response.getStatus() : -1, duration ),
+							     null );
+						}
 					}
-				} else {
-					if ( REQUEST_LOG.isDebugEnabled() ) {
-						REQUEST_LOG.debug( LOG_FORMAT, loggingArguments( request, response, startTime, finished ) );
+				}
+				finally {
+					// Always release the debug logging and restore the MDC, the thread is returned to the pool
+					if ( debug ) {
+						requestDebugFilter.end();
 					}
+
+					restoreMdc( LOG_INSTANCEID, previousInstanceId );
+					restoreMdc( LOG_REQUESTID, previousRequestId );
 				}
 			}
-
-			// Remove the MDC
-			MDC.clear();
 		}
 		else {
 			chain.doFilter( request, response );
 		}
 	}
 
+	private String resolveRequestId( HttpServletRequest request ) {
+		if ( acceptRequestIdHeader ) {
+			String incomingRequestId = request.getHeader( HEADER_REQUEST_ID );
+
+			if ( isValidRequestId( incomingRequestId ) ) {
+				return incomingRequestId;
+			}
+		}
+
+		return requestIdGenerator.generateRequestId();
+	}
+
+	private boolean isValidRequestId( String requestId ) {
+		if ( requestId == null || requestId.isEmpty() || requestId.length() > MAX_INCOMING_REQUEST_ID_LENGTH ) {
+			return false;
+		}
+
+		for ( int i = 0; i < requestId.length(); i++ ) {
+			char c = requestId.charAt( i );
+			if ( !( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) || ( c >= '0' && c <= '9' )
+					|| c == '-' || c == '_' || c == '.' || c == ':' ) ) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Threshold for the handler takes precedence over the first threshold matching the path,
+	 * the default threshold applies if there is none.
+	 */
+	private LoggerLevelThreshold resolveLoggerLevelThreshold( HttpServletRequest request, String lookupPath ) {
+		if ( !handlerLoggerLevelThresholds.isEmpty() ) {
+			Object handlerName = request.getAttribute( LogHandlerAndViewNameInterceptor.ATTRIBUTE_HANDLER );
+			LoggerLevelThreshold threshold = handlerName != null ? handlerLoggerLevelThresholds.get( handlerName ) : null;
+			if ( threshold != null ) {
+				return threshold;
+			}
+		}
+
+		for ( PathLoggerLevelThreshold pathThreshold : pathLoggerLevelThresholds ) {
+			if ( pathThreshold.matcher.matches( lookupPath ) ) {
+				return pathThreshold.threshold;
+			}
+		}
+
+		return loggerLevelThreshold;
+	}
+
+	private boolean isLogEnabled( LoggerLevelThreshold.LoggerLevel loggerLevel ) {
+		switch ( loggerLevel ) {
+			case INFO:
+				return REQUEST_LOG.isInfoEnabled();
+			case WARN:
+				return REQUEST_LOG.isWarnEnabled();
+			case ERROR:
+				return REQUEST_LOG.isErrorEnabled();
+			default:
+				return REQUEST_LOG.isDebugEnabled();
+		}
+	}
+
+	private void log( LoggerLevelThreshold.LoggerLevel loggerLevel, String message, Object[] arguments ) {
+		switch ( loggerLevel ) {
+			case INFO:
+				if ( arguments != null ) {
+					REQUEST_LOG.info( message, arguments );
+				}
+				else {
+					REQUEST_LOG.info( message );
+				}
+				break;
+			case WARN:
+				if ( arguments != null ) {
+					REQUEST_LOG.warn( message, arguments );
+				}
+				else {
+					REQUEST_LOG.warn( message );
+				}
+				break;
+			case ERROR:
+				if ( arguments != null ) {
+					REQUEST_LOG.error( message, arguments );
+				}
+				else {
+					REQUEST_LOG.error( message );
+				}
+				break;
+			default:
+				if ( arguments != null ) {
+					REQUEST_LOG.debug( message, arguments );
+				}
+				else {
+					REQUEST_LOG.debug( message );
+				}
+				break;
+		}
+	}
+
+	private void restoreMdc( String key, String previousValue ) {
+		if ( previousValue != null ) {
+			MDC.put( key, previousValue );
+		}
+		else {
+			MDC.remove( key );
+		}
+	}
+
 	private Object[] loggingArguments( HttpServletRequest request,
 	                               HttpServletResponse response,
 	                               long startTime,
@@ -174,12 +361,25 @@ public class RequestLoggerFilter extends OncePerRequestFilter
 				duration };
 	}
 
+	private Object[] withLogFields( Object[] arguments, Map<?, ?> logFields ) {
+		Object[] all = new Object[arguments.length + logFields.size() * 2];
+		System.arraycopy( arguments, 0, all, 0, arguments.length );
+
+		int index = arguments.length;
+		for ( Map.Entry<?, ?> field : logFields.entrySet() ) {
+			all[index++] = field.getKey();
+			all[index++] = field.getValue();
+		}
+		return all;
+	}
+
 	public Collection<String> getIncludedPathPatterns() {
 		return includedPathPatterns;
 	}
 
 	public void setIncludedPathPatterns( @NonNull Collection<String> includedPathPatterns ) {
 		this.includedPathPatterns = new HashSet<>( includedPathPatterns );
+		requestPathMatcher = new RequestPathMatcher( this.includedPathPatterns, excludedPathPatterns );
 	}
 
 	public Collection<String> getExcludedPathPatterns() {
@@ -188,28 +388,7 @@ public class RequestLoggerFilter extends OncePerRequestFilter
 
 	public void setExcludedPathPatterns( @NonNull Collection<String> excludedPathPatterns ) {
 		this.excludedPathPatterns = new HashSet<>( excludedPathPatterns );
-	}
-
-	private boolean shouldLog( HttpServletRequest request ) {
-		String path = urlPathHelper.getLookupPathForRequest( request );
-
-		if ( !excludedPathPatterns.isEmpty() ) {
-			for ( String pattern : excludedPathPatterns ) {
-				if ( antPathMatcher.match( pattern, path ) ) {
-					return false;
-				}
-			}
-		}
-
-		if ( !includedPathPatterns.isEmpty() ) {
-			for ( String pattern : includedPathPatterns ) {
-				if ( antPathMatcher.match( pattern, path ) ) {
-					return true;
-				}
-			}
-		}
-
-		return includedPathPatterns.isEmpty();
+		requestPathMatcher = new RequestPathMatcher( includedPathPatterns, this.excludedPathPatterns );
 	}
 
 	private String createUrlFromRequest( HttpServletRequest request ) {
@@ -226,4 +405,95 @@ public class RequestLoggerFilter extends OncePerRequestFilter
 	public void setLoggerLevelThreshold( LoggerLevelThreshold loggerLevelThreshold ) {
 		this.loggerLevelThreshold = loggerLevelThreshold;
 	}
+
+	/**
+	 * Set the thresholds to use for requests handled by a specific handler, instead of the default threshold.
+	 * The key is the handler name as registered by the {@link LogHandlerAndViewNameInterceptor},
+	 * eg. {@code ExportController.export(String)}.
+	 *
+	 * @param handlerLoggerLevelThresholds threshold per handler name
+	 */
+	public void setHandlerLoggerLevelThresholds( @NonNull Map<String, LoggerLevelThreshold> handlerLoggerLevelThresholds ) {
+		this.handlerLoggerLevelThresholds = new HashMap<>( handlerLoggerLevelThresholds );
+	}
+
+	/**
+	 * Set the thresholds to use for requests matching a path pattern, instead of the default threshold.
+	 * The first matching pattern applies, a threshold for the handler takes precedence.
+	 *
+	 * @param pathLoggerLevelThresholds threshold per path pattern
+	 */
+	public void setPathLoggerLevelThresholds( @NonNull Map<String, LoggerLevelThreshold> pathLoggerLevelThresholds ) {
+		List<PathLoggerLevelThreshold> thresholds = new ArrayList<>( pathLoggerLevelThresholds.size() );
+		pathLoggerLevelThresholds.forEach(
+				( pattern, threshold ) -> thresholds.add( new PathLoggerLevelThreshold( pattern, threshold ) )
+		);
+		this.pathLoggerLevelThresholds = thresholds;
+	}
+
+	private static final class PathLoggerLevelThreshold
+	{
+		private final RequestPathMatcher matcher;
+		private final LoggerLevelThreshold threshold;
+
+		PathLoggerLevelThreshold( String pattern, LoggerLevelThreshold threshold ) {
+			this.matcher = new RequestPathMatcher( Collections.singleton( pattern ), Collections.emptyList() );
+			this.threshold = threshold;
+		}
+	}
+
+	/**
+	 * Set the layout of the request log line.  The structured formats write the line directly into a
+	 * reusable buffer, instead of passing the fields to SLF4J for formatting.
+	 *
+	 * @param logFormat to use
+	 */
+	public void setLogFormat( @NonNull RequestLogFormat logFormat ) {
+		this.logFormat = logFormat;
+	}
+
+	public RequestLogFormat getLogFormat() {
+		return logFormat;
+	}
+
+	/**
+	 * Set the registry that should aggregate the request durations per request mapping.
+	 * If {@code null}, no durations are aggregated.
+	 *
+	 * @param endpointLatencyRegistry to record durations in
+	 */
+	public void setEndpointLatencyRegistry( EndpointLatencyRegistry endpointLatencyRegistry ) {
+		this.endpointLatencyRegistry = endpointLatencyRegistry;
+	}
+
+	public EndpointLatencyRegistry getEndpointLatencyRegistry() {
+		return endpointLatencyRegistry;
+	}
+
+	/**
+	 * Set the recorder that should build the call tree of (a sample of) the requests,
+	 * using the request id as identifier.
+	 *
+	 * @param callTreeRecorder recorder or {@code null} if no call trees should be built
+	 */
+	public void setCallTreeRecorder( CallTreeRecorder callTreeRecorder ) {
+		this.callTreeRecorder = callTreeRecorder;
+	}
+
+	public CallTreeRecorder getCallTreeRecorder() {
+		return callTreeRecorder;
+	}
+
+	/**
+	 * Set the filter that decides which requests should be logged in debug mode.
+	 *
+	 * @param requestDebugFilter filter or {@code null} if debug mode should not be supported
+	 */
+	public void setRequestDebugFilter( RequestDebugTurboFilter requestDebugFilter ) {
+		this.requestDebugFilter = requestDebugFilter;
+	}
+
+	public RequestDebugTurboFilter getRequestDebugFilter() {
+		return requestDebugFilter;
+	}
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.foreach.across.modules.logging.request;
+
+import lombok.NonNull;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable matcher deciding if a lookup path should be handled, based on a set of included and excluded
+ * Ant-style path patterns.  The patterns are compiled once on creation:
+ * <ul>
+ * <li>literal patterns (eg. {@code /health}) are matched using a hash lookup</li>
+ * <li>prefix patterns (eg. {@code /static/**}) are matched using {@link String#startsWith(String)}</li>
+ * <li>extension patterns (eg. {@code /**}{@code /*.css}) are matched using {@link String#endsWith(String)}</li>
+ * <li>all other patterns are delegated to an {@link AntPathMatcher}</li>
+ * </ul>
+ * Decisions that required the {@link AntPathMatcher} are kept in a bounded per-path cache.
+ * <p/>
+ * The result is identical to matching every pattern using {@link AntPathMatcher#match(String, String)}:
+ * a path is included if it does not match any excluded pattern, and it either matches one of the included
+ * patterns or there are no included patterns.
+ *
+ * @since 4.3.0
+ */
+public final class RequestPathMatcher
+{
+	/**
+	 * Maximum number of path decisions that will be cached, the cache is cleared when it is exceeded.
+	 */
+	static final int MAX_CACHED_DECISIONS = 2048;
+
+	private static final RequestPathMatcher ALL = new RequestPathMatcher( Collections.emptyList(), Collections.emptyList() );
+
+	private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+	private final Map<String, Boolean> decisionCache = new ConcurrentHashMap<>();
+
+	private final CompiledPatterns included;
+	private final CompiledPatterns excluded;
+
+	public RequestPathMatcher( @NonNull Collection<String> includedPathPatterns,
+	                           @NonNull Collection<String> excludedPathPatterns ) {
+		included = new CompiledPatterns( includedPathPatterns );
+		excluded = new CompiledPatterns( excludedPathPatterns );
+	}
+
+	/**
+	 * @param path lookup path
+	 * @return true if the path is not excluded and is included
+	 */
+	public boolean matches( String path ) {
+		if ( path == null ) {
+			return false;
+		}
+
+		Boolean cached = decisionCache.get( path );
+		if ( cached != null ) {
+			return cached;
+		}
+
+		// double slashes are collapsed by the AntPathMatcher, the fast paths do not support that
+		boolean fastPathSupported = !path.contains( "//" );
+
+		Boolean decision = excluded.matchesFast( path, fastPathSupported );
+		if ( Boolean.TRUE.equals( decision ) ) {
+			return false;
+		}
+
+		boolean requiresAntMatching = decision == null;
+
+		if ( requiresAntMatching && excluded.matchesAnt( antPathMatcher, path, fastPathSupported ) ) {
+			cacheDecision( path, false );
+			return false;
+		}
+
+		boolean result;
+
+		if ( included.isEmpty() ) {
+			result = true;
+		}
+		else {
+			Boolean includedDecision = included.matchesFast( path, fastPathSupported );
+			if ( includedDecision == null ) {
+				requiresAntMatching = true;
+				result = included.matchesAnt( antPathMatcher, path, fastPathSupported );
+			}
+			else {
+				result = includedDecision;
+			}
+		}
+
+		if ( requiresAntMatching ) {
+			cacheDecision( path, result );
+		}
+
+		return result;
+	}
+
+	private void cacheDecision( String path, boolean decision ) {
+		if ( decisionCache.size() >= MAX_CACHED_DECISIONS ) {
+			decisionCache.clear();
+		}
+		decisionCache.put( path, decision );
+	}
+
+	/**
+	 * @return a matcher that matches all paths
+	 */
+	public static RequestPathMatcher all() {
+		return ALL;
+	}
+
+	/**
+	 * Holds a single set of patterns divided into the different compiled types.
+	 */
+	private static final class CompiledPatterns
+	{
+		private static final String ANY_PATH_SUFFIX = "/**";
+		private static final String ANY_FILE_PREFIX = "/**/*";
+
+		private final Set<String> literals = new HashSet<>();
+		private final String[] prefixes;
+		private final String[] extensions;
+		private final String[] antPatterns;
+		private final String[] allPatterns;
+
+		private boolean matchesAll;
+
+		CompiledPatterns( Collection<String> patterns ) {
+			Set<String> uniquePatterns = new LinkedHashSet<>( patterns );
+			allPatterns = uniquePatterns.toArray( new String[0] );
+
+			List<String> prefixList = new ArrayList<>();
+			List<String> extensionList = new ArrayList<>();
+			List<String> antPatternList = new ArrayList<>();
+
+			for ( String pattern : uniquePatterns ) {
+				if ( "/**".equals( pattern ) ) {
+					matchesAll = true;
+				}
+				else if ( !hasWildcards( pattern ) ) {
+					literals.add( pattern );
+				}
+				else if ( pattern.endsWith( ANY_PATH_SUFFIX ) && pattern.startsWith( "/" )
+						&& !hasWildcards( pattern.substring( 0, pattern.length() - ANY_PATH_SUFFIX.length() ) ) ) {
+					prefixList.add( pattern.substring( 0, pattern.length() - ANY_PATH_SUFFIX.length() ) );
+				}
+				else if ( pattern.startsWith( ANY_FILE_PREFIX ) && isExtension( pattern.substring( ANY_FILE_PREFIX.length() ) ) ) {
+					extensionList.add( pattern.substring( ANY_FILE_PREFIX.length() ) );
+				}
+				else {
+					antPatternList.add( pattern );
+				}
+			}
+
+			prefixes = prefixList.toArray( new String[0] );
+			extensions = extensionList.toArray( new String[0] );
+			antPatterns = antPatternList.toArray( new String[0] );
+		}
+
+		boolean isEmpty() {
+			return allPatterns.length == 0;
+		}
+
+		/**
+		 * @return true if a compiled pattern matches, false if none match and no ant patterns need to be checked,
+		 * null if the ant patterns should be checked
+		 */
+		Boolean matchesFast( String path, boolean fastPathSupported ) {
+			if ( allPatterns.length == 0 ) {
+				return false;
+			}
+
+			if ( !fastPathSupported ) {
+				return null;
+			}
+
+			if ( matchesAll ) {
+				// the AntPathMatcher only matches /** on paths starting with a slash
+				if ( path.startsWith( "/" ) ) {
+					return true;
+				}
+				return null;
+			}
+
+			if ( literals.contains( path ) ) {
+				return true;
+			}
+
+			for ( String prefix : prefixes ) {
+				if ( path.startsWith( prefix ) && ( path.length() == prefix.length() || path.charAt( prefix.length() ) == '/' ) ) {
+					return true;
+				}
+			}
+
+			if ( extensions.length > 0 && path.startsWith( "/" ) ) {
+				// a trailing slash is ignored for the last path segment
+				int end = path.endsWith( "/" ) ? path.length() - 1 : path.length();
+				for ( String extension : extensions ) {
+					if ( path.regionMatches( end - extension.length(), extension, 0, extension.length() ) ) {
+						return true;
+					}
+				}
+			}
+
+			return antPatterns.length == 0 ? Boolean.FALSE : null;
+		}
+
+		boolean matchesAnt( AntPathMatcher antPathMatcher, String path, boolean fastPathSupported ) {
+			// if the fast path was not used, all patterns must be checked
+			for ( String pattern : fastPathSupported && !matchesAll ? antPatterns : allPatterns ) {
+				if ( antPathMatcher.match( pattern, path ) ) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static boolean hasWildcards( String pattern ) {
+			return pattern.indexOf( '*' ) >= 0 || pattern.indexOf( '?' ) >= 0 || pattern.indexOf( '{' ) >= 0;
+		}
+
+		private static boolean isExtension( String suffix ) {
+			return suffix.startsWith( "." ) && suffix.length() > 1 && !hasWildcards( suffix ) && suffix.indexOf( '/' ) < 0;
+		}
+	}
+}
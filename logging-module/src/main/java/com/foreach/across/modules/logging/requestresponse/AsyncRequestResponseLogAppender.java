@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes building {@link RequestResponseLogEntry} instances off the request thread.  The
+ * {@link RequestResponseLoggingFilter} only hands over a {@link RequestResponseCapture} to a bounded queue,
+ * a single background worker converts the captures into entries and publishes them in batches
+ * to the {@link RequestResponseLogRegistry}.
+ * <p/>
+ * Adding a capture never blocks: if the queue is full, the {@link DropPolicy} determines which capture is lost.
+ *
+ * @since 4.3.0
+ */
+public class AsyncRequestResponseLogAppender implements InitializingBean, DisposableBean
+{
+	private static final Logger LOG = LoggerFactory.getLogger( AsyncRequestResponseLogAppender.class );
+
+	private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos( 50 );
+
+	public enum DropPolicy
+	{
+		/**
+		 * Drop the capture that is being added.
+		 */
+		DISCARD_NEWEST,
+
+		/**
+		 * Drop the oldest capture still in the queue to make room for the new one.
+		 */
+		DISCARD_OLDEST
+	}
+
+	private final RequestResponseLogRegistry logRegistry;
+
+	private final Queue<RequestResponseCapture> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicLong dropped = new AtomicLong();
+
+	private int queueSize = 1000;
+	private int batchSize = 50;
+	private DropPolicy dropPolicy = DropPolicy.DISCARD_NEWEST;
+
+	private volatile boolean running;
+	private Thread worker;
+
+	public AsyncRequestResponseLogAppender( @NonNull RequestResponseLogRegistry logRegistry ) {
+		this.logRegistry = logRegistry;
+	}
+
+	public void setQueueSize( int queueSize ) {
+		this.queueSize = queueSize;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public void setBatchSize( int batchSize ) {
+		this.batchSize = Math.max( 1, batchSize );
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setDropPolicy( @NonNull DropPolicy dropPolicy ) {
+		this.dropPolicy = dropPolicy;
+	}
+
+	public DropPolicy getDropPolicy() {
+		return dropPolicy;
+	}
+
+	/**
+	 * @return number of captures currently waiting to be published
+	 */
+	public int getQueued() {
+		return Math.max( 0, queued.get() );
+	}
+
+	/**
+	 * @return total number of captures that have been dropped because the queue was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Add a capture to the queue, this method never blocks.
+	 *
+	 * @param capture to add
+	 * @return false if the capture has been dropped
+	 */
+	public boolean append( @NonNull RequestResponseCapture capture ) {
+		if ( queued.incrementAndGet() > queueSize ) {
+			if ( dropPolicy == DropPolicy.DISCARD_OLDEST && queue.poll() != null ) {
+				// the slot of the oldest capture is taken over
+				queued.decrementAndGet();
+				dropped.incrementAndGet();
+				queue.offer( capture );
+				return true;
+			}
+
+			queued.decrementAndGet();
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		queue.offer( capture );
+		return true;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if ( !running ) {
+			running = true;
+			worker = new Thread( this::publishCaptures, "request-response-log-appender" );
+			worker.setDaemon( true );
+			worker.start();
+		}
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		running = false;
+
+		if ( worker != null ) {
+			LockSupport.unpark( worker );
+			worker.join( TimeUnit.SECONDS.toMillis( 5 ) );
+			worker = null;
+		}
+	}
+
+	private void publishCaptures() {
+		List<RequestResponseLogEntry> batch = new ArrayList<>( batchSize );
+
+		while ( running || !queue.isEmpty() ) {
+			RequestResponseCapture capture;
+
+			while ( batch.size() < batchSize && ( capture = queue.poll() ) != null ) {
+				queued.decrementAndGet();
+
+				try {
+					batch.add( new RequestResponseLogEntry( capture ) );
+				}
+				catch ( RuntimeException e ) {
+					LOG.warn( "Unable to build request-response log entry for {}", capture.getRequestUri(), e );
+				}
+			}
+
+			if ( batch.isEmpty() ) {
+				LockSupport.parkNanos( this, IDLE_WAIT_NANOS );
+			}
+			else {
+				try {
+					logRegistry.addAll( batch );
+				}
+				catch ( RuntimeException e ) {
+					LOG.warn( "Unable to publish {} request-response log entries", batch.size(), e );
+				}
+				finally {
+					batch.clear();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Captured request or response body.  Either holds on to the {@link FixedByteArrayOutputStream} that captured
+ * the payload, or to a deflate-compressed copy of the captured bytes that is inflated when the bytes are requested.
+ *
+ * @since 4.3.0
+ */
+public final class CapturedPayload
+{
+	private final long realSize;
+	private final boolean maximumReached;
+	private final int capturedSize;
+
+	private final FixedByteArrayOutputStream stream;
+	private final byte[] compressed;
+
+	private CapturedPayload( long realSize,
+	                         boolean maximumReached,
+	                         int capturedSize,
+	                         FixedByteArrayOutputStream stream,
+	                         byte[] compressed ) {
+		this.realSize = realSize;
+		this.maximumReached = maximumReached;
+		this.capturedSize = capturedSize;
+		this.stream = stream;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * @return total number of bytes of the payload, can be more than the number of bytes captured
+	 */
+	public long getRealSize() {
+		return realSize;
+	}
+
+	public boolean isMaximumReached() {
+		return maximumReached;
+	}
+
+	/**
+	 * @return number of bytes captured
+	 */
+	public int getCapturedSize() {
+		return capturedSize;
+	}
+
+	public boolean isCompressed() {
+		return compressed != null;
+	}
+
+	/**
+	 * @return approximate number of bytes of heap retained for the payload data
+	 */
+	public long getRetainedSize() {
+		return compressed != null ? compressed.length : stream.getBufferSize();
+	}
+
+	/**
+	 * @return captured bytes, inflated if the payload is compressed
+	 */
+	public byte[] toByteArray() {
+		if ( compressed == null ) {
+			return stream.toByteArray();
+		}
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput( compressed );
+			byte[] data = new byte[capturedSize];
+			int offset = 0;
+			while ( offset < capturedSize && !inflater.finished() ) {
+				int inflated = inflater.inflate( data, offset, capturedSize - offset );
+				if ( inflated == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+					break;
+				}
+				offset += inflated;
+			}
+			return offset == capturedSize ? data : Arrays.copyOf( data, offset );
+		}
+		catch ( DataFormatException dfe ) {
+			throw new IllegalStateException( "Unable to inflate captured payload", dfe );
+		}
+		finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Create a compressed copy of this payload.  If compression does not reduce the size,
+	 * the uncompressed copy of the captured bytes is kept instead.
+	 *
+	 * @return compressed payload
+	 */
+	public CapturedPayload compress() {
+		if ( compressed != null || capturedSize == 0 ) {
+			return this;
+		}
+
+		byte[] data = stream.toByteArray();
+
+		Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+		try {
+			deflater.setInput( data );
+			deflater.finish();
+
+			ByteArrayOutputStream output = new ByteArrayOutputStream( Math.max( 64, data.length / 4 ) );
+			byte[] buffer = new byte[8192];
+			while ( !deflater.finished() ) {
+				int length = deflater.deflate( buffer );
+				output.write( buffer, 0, length );
+			}
+
+			if ( output.size() >= data.length ) {
+				FixedByteArrayOutputStream copy = new FixedByteArrayOutputStream( data.length, data.length );
+				copy.write( data, 0, data.length );
+				return new CapturedPayload( realSize, maximumReached, capturedSize, copy, null );
+			}
+
+			return new CapturedPayload( realSize, maximumReached, capturedSize, null, output.toByteArray() );
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Create a copy of this payload where all sensitive values have been masked.
+	 *
+	 * @param masker      to use
+	 * @param contentType of the payload
+	 * @return masked payload, this instance if nothing had to be masked
+	 */
+	public CapturedPayload mask( RequestResponseMasker masker, String contentType ) {
+		if ( capturedSize == 0 || !masker.supportsPayload( contentType ) ) {
+			return this;
+		}
+
+		byte[] data = compressed != null ? toByteArray() : stream.getBuffer();
+		byte[] masked = masker.maskPayload( contentType, data, compressed != null ? data.length : capturedSize );
+
+		if ( masked == null ) {
+			return this;
+		}
+
+		FixedByteArrayOutputStream copy = new FixedByteArrayOutputStream( masked.length, masked.length );
+		copy.write( masked, 0, masked.length );
+		CapturedPayload payload = new CapturedPayload( realSize, maximumReached, masked.length, copy, null );
+
+		return compressed != null ? payload.compress() : payload;
+	}
+
+	void writeTo( DataOutput output ) throws IOException {
+		byte[] data = compressed != null ? compressed : stream.toByteArray();
+
+		output.writeLong( realSize );
+		output.writeBoolean( maximumReached );
+		output.writeInt( capturedSize );
+		output.writeBoolean( compressed != null );
+		output.writeInt( data.length );
+		output.write( data );
+	}
+
+	static CapturedPayload readFrom( DataInput input ) throws IOException {
+		long realSize = input.readLong();
+		boolean maximumReached = input.readBoolean();
+		int capturedSize = input.readInt();
+		boolean isCompressed = input.readBoolean();
+		byte[] data = new byte[input.readInt()];
+		input.readFully( data );
+
+		if ( isCompressed ) {
+			return new CapturedPayload( realSize, maximumReached, capturedSize, null, data );
+		}
+
+		FixedByteArrayOutputStream stream = new FixedByteArrayOutputStream( data.length, data.length );
+		stream.write( data, 0, data.length );
+		return new CapturedPayload( realSize, maximumReached, capturedSize, stream, null );
+	}
+
+	static CapturedPayload of( FixedByteArrayOutputStream stream ) {
+		return new CapturedPayload( stream.getRealSize(), stream.isMaximumReached(), stream.size(), stream, null );
+	}
+}
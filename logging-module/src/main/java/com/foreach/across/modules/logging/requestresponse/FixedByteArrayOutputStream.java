@@ -16,10 +16,18 @@
 package com.foreach.across.modules.logging.requestresponse;
 
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
+/**
+ * {@link ByteArrayOutputStream} that only keeps the first {@code maxSize} bytes written,
+ * but keeps track of the total number of bytes written.  Once the maximum has been reached,
+ * bytes are no longer copied.
+ * <p/>
+ * Writing is not synchronized: an instance is meant to be confined to the thread handling a single request.
+ */
 public class FixedByteArrayOutputStream extends ByteArrayOutputStream
 {
-	private int maxSize;
+	private final int maxSize;
 	private boolean maximumReached;
 	private long byteCount;
 
@@ -34,29 +42,43 @@ public class FixedByteArrayOutputStream extends ByteArrayOutputStream
 	}
 
 	@Override
-	public synchronized void write( byte[] b, int off, int len ) {
-		if ( maximumNotReached() ) {
-			super.write( b, off, len );
-		}
-		else {
-			maximumReached = true;
+	public void write( byte[] b, int off, int len ) {
+		if ( !maximumReached && len > 0 ) {
+			int remaining = maxSize - count;
+
+			if ( len > remaining ) {
+				maximumReached = true;
+			}
+
+			int toCopy = Math.min( len, remaining );
+			if ( toCopy > 0 ) {
+				ensureCapacity( count + toCopy );
+				System.arraycopy( b, off, buf, count, toCopy );
+				count += toCopy;
+			}
 		}
 		byteCount = byteCount + len;
 	}
 
 	@Override
-	public synchronized void write( int b ) {
-		if ( maximumNotReached() ) {
-			super.write( b );
-		}
-		else {
-			maximumReached = true;
+	public void write( int b ) {
+		if ( !maximumReached ) {
+			if ( count < maxSize ) {
+				ensureCapacity( count + 1 );
+				buf[count++] = (byte) b;
+			}
+			else {
+				maximumReached = true;
+			}
 		}
 		byteCount++;
 	}
 
-	private boolean maximumNotReached() {
-		return !maximumReached && byteCount < maxSize;
+	private void ensureCapacity( int minCapacity ) {
+		if ( minCapacity > buf.length ) {
+			int newCapacity = Math.min( Math.max( buf.length << 1, minCapacity ), maxSize );
+			buf = Arrays.copyOf( buf, newCapacity );
+		}
 	}
 
 	public long getRealSize() {
@@ -66,4 +88,18 @@ public class FixedByteArrayOutputStream extends ByteArrayOutputStream
 	public boolean isMaximumReached() {
 		return maximumReached;
 	}
+
+	/**
+	 * @return current length of the internal buffer
+	 */
+	public int getBufferSize() {
+		return buf.length;
+	}
+
+	/**
+	 * @return internal buffer holding the first {@link #size()} bytes, without copying
+	 */
+	byte[] getBuffer() {
+		return buf;
+	}
 }
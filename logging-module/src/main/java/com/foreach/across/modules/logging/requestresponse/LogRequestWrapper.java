@@ -15,48 +15,31 @@
  */
 package com.foreach.across.modules.logging.requestresponse;
 
-import org.apache.commons.io.input.TeeInputStream;
-
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import java.io.IOException;
 
+/**
+ * Wraps a request and keeps a copy of the first 100 KB read from the request body.
+ */
 public class LogRequestWrapper extends HttpServletRequestWrapper
 {
 	private final FixedByteArrayOutputStream bos = new FixedByteArrayOutputStream( 100 * 1024 );
 
+	private ServletInputStream inputStream;
+
 	public LogRequestWrapper( HttpServletRequest req ) {
 		super( req );
 	}
 
 	@Override
 	public ServletInputStream getInputStream() throws IOException {
-		return new ServletInputStream()
-		{
-			@Override
-			public boolean isFinished() {
-				return false;
-			}
-
-			@Override
-			public boolean isReady() {
-				return false;
-			}
-
-			@Override
-			public void setReadListener( ReadListener readListener ) {
-
-			}
-
-			private TeeInputStream tee = new TeeInputStream( LogRequestWrapper.super.getInputStream(), bos );
-
-			@Override
-			public int read() throws IOException {
-				return tee.read();
-			}
-		};
+		if ( inputStream == null ) {
+			inputStream = new CapturingInputStream( super.getInputStream(), bos );
+		}
+		return inputStream;
 	}
 
 	public long payloadSize() {
@@ -70,4 +53,62 @@ public class LogRequestWrapper extends HttpServletRequestWrapper
 	public byte[] toByteArray() {
 		return bos.toByteArray();
 	}
+
+	FixedByteArrayOutputStream getPayload() {
+		return bos;
+	}
+
+	private static final class CapturingInputStream extends ServletInputStream
+	{
+		private final ServletInputStream original;
+		private final FixedByteArrayOutputStream branch;
+
+		CapturingInputStream( ServletInputStream original, FixedByteArrayOutputStream branch ) {
+			this.original = original;
+			this.branch = branch;
+		}
+
+		@Override
+		public boolean isFinished() {
+			return original.isFinished();
+		}
+
+		@Override
+		public boolean isReady() {
+			return original.isReady();
+		}
+
+		@Override
+		public void setReadListener( ReadListener readListener ) {
+			original.setReadListener( readListener );
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = original.read();
+			if ( b != -1 ) {
+				branch.write( b );
+			}
+			return b;
+		}
+
+		@Override
+		public int read( byte[] b, int off, int len ) throws IOException {
+			int read = original.read( b, off, len );
+			if ( read > 0 ) {
+				branch.write( b, off, read );
+			}
+			return read;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return original.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			original.close();
+		}
+	}
 }
@@ -15,95 +15,169 @@
  */
 package com.foreach.across.modules.logging.requestresponse;
 
-import org.apache.commons.io.output.TeeOutputStream;
-
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
 
+/**
+ * Wraps a response and keeps a copy of the first 100 KB written to the response body.
+ * Characters written using {@link #getWriter()} are encoded with the response character encoding.
+ */
 public class LogResponseWrapper extends HttpServletResponseWrapper
 {
-	private FixedByteArrayOutputStream bos = new FixedByteArrayOutputStream( 100 * 1024 );
-	private PrintWriter writer = new PrintWriter( bos );
+	private final FixedByteArrayOutputStream bos = new FixedByteArrayOutputStream( 100 * 1024 );
+
+	private PrintWriter writer;
+	private PrintWriter branchWriter;
+	private ServletOutputStream outputStream;
 
 	public LogResponseWrapper( HttpServletResponse response ) {
 		super( response );
 	}
 
 	public String getContent() {
+		flushBranch();
 		return bos.toString();
 	}
 
 	@Override
 	public PrintWriter getWriter() throws IOException {
-		return new TeePrintWriter( super.getWriter(), writer );
+		if ( writer == null ) {
+			branchWriter = new PrintWriter( createBranchWriter() );
+			writer = new TeePrintWriter( super.getWriter(), branchWriter );
+		}
+		return writer;
 	}
 
 	@Override
 	public ServletOutputStream getOutputStream() throws IOException {
-		return new ServletOutputStream()
-		{
-			@Override
-			public boolean isReady() {
-				return false;
-			}
-
-			@Override
-			public void setWriteListener( WriteListener writeListener ) {
-
-			}
-
-			private TeeOutputStream tee = new TeeOutputStream( LogResponseWrapper.super.getOutputStream(), bos );
-
-			@Override
-			public void write( int b ) throws IOException {
-				tee.write( b );
-			}
-		};
+		if ( outputStream == null ) {
+			outputStream = new CapturingOutputStream( super.getOutputStream(), bos );
+		}
+		return outputStream;
 	}
 
 	public long payloadSize() {
+		flushBranch();
 		return bos.getRealSize();
 	}
 
 	public boolean isMaximumReached() {
+		flushBranch();
 		return bos.isMaximumReached();
 	}
 
 	public byte[] toByteArray() {
+		flushBranch();
 		return bos.toByteArray();
 	}
 
+	FixedByteArrayOutputStream getPayload() {
+		flushBranch();
+		return bos;
+	}
+
+	private OutputStreamWriter createBranchWriter() {
+		String characterEncoding = getCharacterEncoding();
+
+		if ( characterEncoding != null ) {
+			try {
+				return new OutputStreamWriter( bos, characterEncoding );
+			}
+			catch ( UnsupportedEncodingException ignore ) {
+				// fall back to the default encoding
+			}
+		}
+
+		return new OutputStreamWriter( bos );
+	}
+
+	private void flushBranch() {
+		if ( branchWriter != null ) {
+			branchWriter.flush();
+		}
+	}
+
+	private static final class CapturingOutputStream extends ServletOutputStream
+	{
+		private final ServletOutputStream original;
+		private final FixedByteArrayOutputStream branch;
+
+		CapturingOutputStream( ServletOutputStream original, FixedByteArrayOutputStream branch ) {
+			this.original = original;
+			this.branch = branch;
+		}
+
+		@Override
+		public boolean isReady() {
+			return original.isReady();
+		}
+
+		@Override
+		public void setWriteListener( WriteListener writeListener ) {
+			original.setWriteListener( writeListener );
+		}
+
+		@Override
+		public void write( int b ) throws IOException {
+			original.write( b );
+			branch.write( b );
+		}
+
+		@Override
+		public void write( byte[] b, int off, int len ) throws IOException {
+			original.write( b, off, len );
+			branch.write( b, off, len );
+		}
+
+		@Override
+		public void flush() throws IOException {
+			original.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			original.close();
+		}
+	}
+
+	/**
+	 * Writes to both the original writer and the branch.  The branch is only flushed when the
+	 * original writer is flushed, or when the captured data is requested.
+	 */
 	private static class TeePrintWriter extends PrintWriter
 	{
-		private PrintWriter branch;
+		private final PrintWriter branch;
 
 		public TeePrintWriter( PrintWriter main, PrintWriter branch ) {
 			super( main, true );
 			this.branch = branch;
 		}
 
+		@Override
 		public void write( char buf[], int off, int len ) {
 			super.write( buf, off, len );
 			branch.write( buf, off, len );
-			branch.flush();
 		}
 
+		@Override
 		public void write( String s, int off, int len ) {
 			super.write( s, off, len );
 			branch.write( s, off, len );
-			branch.flush();
 		}
 
+		@Override
 		public void write( int c ) {
 			super.write( c );
 			branch.write( c );
-			branch.flush();
 		}
 
+		@Override
 		public void flush() {
 			super.flush();
 			branch.flush();
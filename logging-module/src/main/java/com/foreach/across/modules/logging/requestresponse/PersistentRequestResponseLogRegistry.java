@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * {@link RequestResponseLogRegistry} that also appends every entry to a {@link SegmentedRequestResponseLogStore}.
+ * The most recent entries are kept in memory as usual, paging and looking up entries goes to the store so
+ * entries remain available after they have been evicted from memory.
+ *
+ * @since 4.3.0
+ */
+public class PersistentRequestResponseLogRegistry extends RequestResponseLogRegistry implements DisposableBean
+{
+	private static final Logger LOG = LoggerFactory.getLogger( PersistentRequestResponseLogRegistry.class );
+
+	private final SegmentedRequestResponseLogStore store;
+
+	public PersistentRequestResponseLogRegistry( SegmentedRequestResponseLogStore store ) {
+		this.store = store;
+	}
+
+	public SegmentedRequestResponseLogStore getStore() {
+		return store;
+	}
+
+	@Override
+	public void add( RequestResponseLogEntry entry ) {
+		super.add( entry );
+
+		try {
+			store.append( entry );
+		}
+		catch ( IOException ioe ) {
+			LOG.warn( "Unable to store request-response log entry in {}", store.getDirectory(), ioe );
+		}
+	}
+
+	/**
+	 * @return total number of entries in the store
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min( store.size(), Integer.MAX_VALUE );
+	}
+
+	/**
+	 * @return the most recent entries in the store, at most {@link #getMaxEntries()}, most recent entry first
+	 */
+	@Override
+	public Collection<RequestResponseLogEntry> getEntries() {
+		return getEntries( 0, getMaxEntries() );
+	}
+
+	@Override
+	public List<RequestResponseLogEntry> getEntries( long offset, int limit ) {
+		List<RequestResponseLogEntry> entries = store.read( offset, limit );
+
+		entries.replaceAll( this::preferInMemory );
+
+		return entries;
+	}
+
+	/**
+	 * Searches the store, using the indexed values of every record.
+	 */
+	@Override
+	public void visitEntries( RequestResponseLogQuery query, Predicate<RequestResponseLogEntry> visitor ) {
+		store.visit( query, entry -> visitor.test( preferInMemory( entry ) ) );
+	}
+
+	/**
+	 * Prefer the in-memory instance as it holds the already rendered data.
+	 */
+	private RequestResponseLogEntry preferInMemory( RequestResponseLogEntry entry ) {
+		RequestResponseLogEntry inMemory = super.getEntry( entry.getId() );
+		return inMemory != null ? inMemory : entry;
+	}
+
+	@Override
+	public RequestResponseLogEntry getEntry( UUID id ) {
+		RequestResponseLogEntry entry = super.getEntry( id );
+		return entry != null ? entry : store.read( id );
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		store.close();
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import lombok.Getter;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpSession;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raw snapshot of a single request - response pair.  Only copies the values that are no longer available
+ * once the container recycles the request and response, all processing (sorting, decoding, masking) is
+ * done when building a {@link RequestResponseLogEntry} from the capture.
+ * <p/>
+ * Headers are kept as flat arrays of alternating name and value.  Sensitive values are replaced in place
+ * using {@link #mask(RequestResponseMasker)}, the payloads can be replaced by compressed copies
+ * using {@link #compressPayloads()}.
+ *
+ * @since 4.3.0
+ */
+@Getter
+public class RequestResponseCapture
+{
+	private final long started, finished;
+
+	private final String requestUrl, requestUri, queryString, requestMethod, contentType, characterEncoding;
+	private final String remoteUser, remoteAddr, sessionId;
+	private final int remotePort;
+	private final String[] requestHeaders;
+	private volatile Cookie[] requestCookies;
+	private final Map<String, String[]> requestParameters;
+	private volatile CapturedPayload requestPayload;
+
+	private final int responseStatus;
+	private final String responseContentType, responseCharacterEncoding;
+	private final String[] responseHeaders;
+	private volatile CapturedPayload responsePayload;
+
+	private volatile boolean masked;
+
+	public RequestResponseCapture( long started,
+	                               long finished,
+	                               LogRequestWrapper request,
+	                               LogResponseWrapper response ) {
+		this.started = started;
+		this.finished = finished;
+
+		requestUrl = request.getRequestURL().toString();
+		requestUri = request.getRequestURI();
+		queryString = request.getQueryString();
+		requestMethod = request.getMethod();
+		contentType = request.getContentType();
+		characterEncoding = request.getCharacterEncoding();
+		remoteUser = request.getRemoteUser();
+		remoteAddr = request.getRemoteAddr();
+		remotePort = request.getRemotePort();
+
+		List<String> headers = new ArrayList<>();
+		Enumeration<String> headerNames = request.getHeaderNames();
+		while ( headerNames.hasMoreElements() ) {
+			String headerName = headerNames.nextElement();
+			headers.add( headerName );
+			headers.add( request.getHeader( headerName ) );
+		}
+		requestHeaders = headers.toArray( new String[0] );
+
+		requestCookies = request.getCookies();
+
+		HttpSession session = request.getSession( false );
+		sessionId = session != null ? session.getId() : null;
+
+		requestParameters = new LinkedHashMap<>( request.getParameterMap() );
+		requestPayload = CapturedPayload.of( request.getPayload() );
+
+		responseStatus = response.getStatus();
+		responseContentType = response.getContentType();
+		responseCharacterEncoding = response.getCharacterEncoding();
+
+		Collection<String> responseHeaderNames = response.getHeaderNames();
+		String[] headerValues = new String[responseHeaderNames.size() * 2];
+		int index = 0;
+		for ( String headerName : responseHeaderNames ) {
+			headerValues[index++] = headerName;
+			headerValues[index++] = response.getHeader( headerName );
+		}
+		responseHeaders = headerValues;
+		responsePayload = CapturedPayload.of( response.getPayload() );
+	}
+
+	private RequestResponseCapture( DataInput input ) throws IOException {
+		started = input.readLong();
+		finished = input.readLong();
+
+		requestUrl = readString( input );
+		requestUri = readString( input );
+		queryString = readString( input );
+		requestMethod = readString( input );
+		contentType = readString( input );
+		characterEncoding = readString( input );
+		remoteUser = readString( input );
+		remoteAddr = readString( input );
+		sessionId = readString( input );
+		remotePort = input.readInt();
+		requestHeaders = readStrings( input );
+
+		int cookieCount = input.readInt();
+		if ( cookieCount >= 0 ) {
+			requestCookies = new Cookie[cookieCount];
+			for ( int i = 0; i < cookieCount; i++ ) {
+				requestCookies[i] = new Cookie( readString( input ), readString( input ) );
+			}
+		}
+		else {
+			requestCookies = null;
+		}
+
+		int parameterCount = input.readInt();
+		requestParameters = new LinkedHashMap<>();
+		for ( int i = 0; i < parameterCount; i++ ) {
+			requestParameters.put( readString( input ), readStrings( input ) );
+		}
+		requestPayload = CapturedPayload.readFrom( input );
+
+		responseStatus = input.readInt();
+		responseContentType = readString( input );
+		responseCharacterEncoding = readString( input );
+		responseHeaders = readStrings( input );
+		responsePayload = CapturedPayload.readFrom( input );
+
+		// only masked captures are written
+		masked = true;
+	}
+
+	/**
+	 * Write the binary representation of this capture, can be read again using {@link #readFrom(DataInput)}.
+	 * A capture that has not been masked yet is masked using {@link RequestResponseMasker#DEFAULT} first.
+	 */
+	void writeTo( DataOutput output ) throws IOException {
+		mask( RequestResponseMasker.DEFAULT );
+
+		output.writeLong( started );
+		output.writeLong( finished );
+
+		writeString( output, requestUrl );
+		writeString( output, requestUri );
+		writeString( output, queryString );
+		writeString( output, requestMethod );
+		writeString( output, contentType );
+		writeString( output, characterEncoding );
+		writeString( output, remoteUser );
+		writeString( output, remoteAddr );
+		writeString( output, sessionId );
+		output.writeInt( remotePort );
+		writeStrings( output, requestHeaders );
+
+		if ( requestCookies != null ) {
+			output.writeInt( requestCookies.length );
+			for ( Cookie cookie : requestCookies ) {
+				writeString( output, cookie.getName() );
+				writeString( output, cookie.getValue() );
+			}
+		}
+		else {
+			output.writeInt( -1 );
+		}
+
+		output.writeInt( requestParameters.size() );
+		for ( Map.Entry<String, String[]> parameter : requestParameters.entrySet() ) {
+			writeString( output, parameter.getKey() );
+			writeStrings( output, parameter.getValue() );
+		}
+		requestPayload.writeTo( output );
+
+		output.writeInt( responseStatus );
+		writeString( output, responseContentType );
+		writeString( output, responseCharacterEncoding );
+		writeStrings( output, responseHeaders );
+		responsePayload.writeTo( output );
+	}
+
+	static RequestResponseCapture readFrom( DataInput input ) throws IOException {
+		return new RequestResponseCapture( input );
+	}
+
+	private static void writeStrings( DataOutput output, String[] values ) throws IOException {
+		output.writeInt( values.length );
+		for ( String value : values ) {
+			writeString( output, value );
+		}
+	}
+
+	private static String[] readStrings( DataInput input ) throws IOException {
+		String[] values = new String[input.readInt()];
+		for ( int i = 0; i < values.length; i++ ) {
+			values[i] = readString( input );
+		}
+		return values;
+	}
+
+	private static void writeString( DataOutput output, String value ) throws IOException {
+		if ( value == null ) {
+			output.writeInt( -1 );
+		}
+		else {
+			byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+			output.writeInt( bytes.length );
+			output.write( bytes );
+		}
+	}
+
+	private static String readString( DataInput input ) throws IOException {
+		int length = input.readInt();
+		if ( length < 0 ) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		input.readFully( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Mask all sensitive headers, cookies, parameters and payload fields.  Only the first call has any effect,
+	 * the request cookies are replaced by copies so the original request is never modified.
+	 *
+	 * @param masker to use
+	 */
+	public synchronized void mask( RequestResponseMasker masker ) {
+		if ( masked ) {
+			return;
+		}
+
+		maskHeaders( masker, requestHeaders );
+		maskHeaders( masker, responseHeaders );
+
+		Cookie[] cookies = requestCookies;
+		if ( cookies != null ) {
+			Cookie[] copies = new Cookie[cookies.length];
+			for ( int i = 0; i < cookies.length; i++ ) {
+				String name = cookies[i].getName();
+				copies[i] = new Cookie( name, masker.isMaskedCookie( name ) ? RequestResponseMasker.MASK : cookies[i].getValue() );
+			}
+			requestCookies = copies;
+		}
+
+		requestParameters.replaceAll(
+				( name, values ) -> masker.isMaskedKey( name ) ? new String[] { RequestResponseMasker.MASK } : values
+		);
+
+		requestPayload = requestPayload.mask( masker, contentType );
+		responsePayload = responsePayload.mask( masker, responseContentType );
+
+		masked = true;
+	}
+
+	private static void maskHeaders( RequestResponseMasker masker, String[] headers ) {
+		for ( int i = 0; i < headers.length; i += 2 ) {
+			if ( headers[i + 1] != null && masker.isMaskedHeader( headers[i] ) ) {
+				headers[i + 1] = RequestResponseMasker.MASK;
+			}
+		}
+	}
+
+	/**
+	 * Replace the request and response payload by deflate-compressed copies.
+	 */
+	public void compressPayloads() {
+		requestPayload = requestPayload.compress();
+		responsePayload = responsePayload.compress();
+	}
+
+	/**
+	 * @return approximate number of bytes of heap retained by the payloads of this capture
+	 */
+	public long getRetainedSize() {
+		return requestPayload.getRetainedSize() + responsePayload.getRetainedSize();
+	}
+}
@@ -19,7 +19,12 @@ package com.foreach.across.modules.logging.requestresponse;
 import com.foreach.across.modules.logging.request.RequestLoggerConfiguration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration instance for request/response debug logging.
@@ -34,6 +39,37 @@ public class RequestResponseLogConfiguration extends RequestLoggerConfiguration
 	 */
 	private int maxEntries = 100;
 
+	/**
+	 * Approximate maximum number of bytes of heap the kept log entries can use, 0 for no limit.
+	 * The oldest entries are removed when going over the limit.
+	 */
+	private long maxRetainedBytes = 32L * 1024 * 1024;
+
+	/**
+	 * Should captured request and response payloads be stored compressed.
+	 */
+	private boolean compressPayloads = false;
+
+	/**
+	 * Directory where all log entries should be stored in segment files.  If not set, entries are only kept in memory.
+	 */
+	private String storageDirectory;
+
+	/**
+	 * Size in bytes of a single segment file.
+	 */
+	private int storageSegmentSize = 64 * 1024 * 1024;
+
+	/**
+	 * Maximum time entries are appended to the same segment file.
+	 */
+	private Duration storageSegmentMaxAge = Duration.ofHours( 1 );
+
+	/**
+	 * Maximum number of segment files to keep, older segment files are deleted.
+	 */
+	private int storageMaxSegments = 32;
+
 	/**
 	 * Should default request/response filtering be enabled.
 	 */
@@ -44,6 +80,58 @@ public class RequestResponseLogConfiguration extends RequestLoggerConfiguration
 	 */
 	private boolean enabled = false;
 
+	/**
+	 * Fraction of the matching requests that should be captured, between 0 and 1 (e.g. 0.01 for 1 in 100 requests).
+	 */
+	private double samplingRate = 1.0;
+
+	/**
+	 * Sampling rate for requests matching a path pattern, the first matching pattern applies.
+	 */
+	private Map<String, Double> pathSamplingRates = new LinkedHashMap<>();
+
+	/**
+	 * Maximum number of requests captured per second, 0 for no limit.
+	 */
+	private double maxCapturesPerSecond = 0;
+
+	/**
+	 * Should log entries be built and registered on a background thread instead of the request thread.
+	 */
+	private boolean asynchronous = false;
+
+	/**
+	 * Maximum number of captured requests waiting to be registered in asynchronous mode.
+	 */
+	private int asyncQueueSize = 1000;
+
+	/**
+	 * Maximum number of log entries that are registered at once in asynchronous mode.
+	 */
+	private int asyncBatchSize = 50;
+
+	/**
+	 * Which captured request should be dropped if the asynchronous queue is full.
+	 */
+	private AsyncRequestResponseLogAppender.DropPolicy asyncDropPolicy =
+			AsyncRequestResponseLogAppender.DropPolicy.DISCARD_NEWEST;
+
+	/**
+	 * Case-insensitive regular expressions for names of request parameters and JSON or form payload fields
+	 * that should be masked.  A name matches if the expression is found anywhere in it.
+	 */
+	private List<String> maskedKeyPatterns = new ArrayList<>( RequestResponseMasker.DEFAULT_KEY_PATTERNS );
+
+	/**
+	 * Case-insensitive regular expressions for names of request and response headers that should be masked.
+	 */
+	private List<String> maskedHeaderPatterns = new ArrayList<>( RequestResponseMasker.DEFAULT_HEADER_PATTERNS );
+
+	/**
+	 * Case-insensitive regular expressions for names of request cookies that should be masked.
+	 */
+	private List<String> maskedCookiePatterns = new ArrayList<>( RequestResponseMasker.DEFAULT_COOKIE_PATTERNS );
+
 	public RequestResponseLogConfiguration() {
 		setExcludedPathPatterns( Arrays.asList( "/debug/**", "/across/**", "/**/login" ) );
 	}
@@ -56,6 +144,54 @@ public class RequestResponseLogConfiguration extends RequestLoggerConfiguration
 		this.maxEntries = maxEntries;
 	}
 
+	public long getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	public void setMaxRetainedBytes( long maxRetainedBytes ) {
+		this.maxRetainedBytes = maxRetainedBytes;
+	}
+
+	public boolean isCompressPayloads() {
+		return compressPayloads;
+	}
+
+	public void setCompressPayloads( boolean compressPayloads ) {
+		this.compressPayloads = compressPayloads;
+	}
+
+	public String getStorageDirectory() {
+		return storageDirectory;
+	}
+
+	public void setStorageDirectory( String storageDirectory ) {
+		this.storageDirectory = storageDirectory;
+	}
+
+	public int getStorageSegmentSize() {
+		return storageSegmentSize;
+	}
+
+	public void setStorageSegmentSize( int storageSegmentSize ) {
+		this.storageSegmentSize = storageSegmentSize;
+	}
+
+	public Duration getStorageSegmentMaxAge() {
+		return storageSegmentMaxAge;
+	}
+
+	public void setStorageSegmentMaxAge( Duration storageSegmentMaxAge ) {
+		this.storageSegmentMaxAge = storageSegmentMaxAge;
+	}
+
+	public int getStorageMaxSegments() {
+		return storageMaxSegments;
+	}
+
+	public void setStorageMaxSegments( int storageMaxSegments ) {
+		this.storageMaxSegments = storageMaxSegments;
+	}
+
 	public boolean isPaused() {
 		return paused;
 	}
@@ -72,6 +208,86 @@ public class RequestResponseLogConfiguration extends RequestLoggerConfiguration
 		this.enabled = enabled;
 	}
 
+	public double getSamplingRate() {
+		return samplingRate;
+	}
+
+	public void setSamplingRate( double samplingRate ) {
+		this.samplingRate = samplingRate;
+	}
+
+	public Map<String, Double> getPathSamplingRates() {
+		return pathSamplingRates;
+	}
+
+	public void setPathSamplingRates( Map<String, Double> pathSamplingRates ) {
+		this.pathSamplingRates = pathSamplingRates;
+	}
+
+	public double getMaxCapturesPerSecond() {
+		return maxCapturesPerSecond;
+	}
+
+	public void setMaxCapturesPerSecond( double maxCapturesPerSecond ) {
+		this.maxCapturesPerSecond = maxCapturesPerSecond;
+	}
+
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+
+	public void setAsynchronous( boolean asynchronous ) {
+		this.asynchronous = asynchronous;
+	}
+
+	public int getAsyncQueueSize() {
+		return asyncQueueSize;
+	}
+
+	public void setAsyncQueueSize( int asyncQueueSize ) {
+		this.asyncQueueSize = asyncQueueSize;
+	}
+
+	public int getAsyncBatchSize() {
+		return asyncBatchSize;
+	}
+
+	public void setAsyncBatchSize( int asyncBatchSize ) {
+		this.asyncBatchSize = asyncBatchSize;
+	}
+
+	public AsyncRequestResponseLogAppender.DropPolicy getAsyncDropPolicy() {
+		return asyncDropPolicy;
+	}
+
+	public void setAsyncDropPolicy( AsyncRequestResponseLogAppender.DropPolicy asyncDropPolicy ) {
+		this.asyncDropPolicy = asyncDropPolicy;
+	}
+
+	public List<String> getMaskedKeyPatterns() {
+		return maskedKeyPatterns;
+	}
+
+	public void setMaskedKeyPatterns( List<String> maskedKeyPatterns ) {
+		this.maskedKeyPatterns = maskedKeyPatterns;
+	}
+
+	public List<String> getMaskedHeaderPatterns() {
+		return maskedHeaderPatterns;
+	}
+
+	public void setMaskedHeaderPatterns( List<String> maskedHeaderPatterns ) {
+		this.maskedHeaderPatterns = maskedHeaderPatterns;
+	}
+
+	public List<String> getMaskedCookiePatterns() {
+		return maskedCookiePatterns;
+	}
+
+	public void setMaskedCookiePatterns( List<String> maskedCookiePatterns ) {
+		this.maskedCookiePatterns = maskedCookiePatterns;
+	}
+
 	public static RequestResponseLogConfiguration allRequests() {
 		return new RequestResponseLogConfiguration();
 	}
@@ -20,207 +20,217 @@ import org.apache.commons.lang3.StringUtils;
 import org.yaml.snakeyaml.Yaml;
 
 import javax.servlet.http.Cookie;
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
-import java.util.regex.Pattern;
 
+/**
+ * Single logged request - response pair.  Only the raw {@link RequestResponseCapture} is kept,
+ * payloads are decoded and headers, cookies and parameters are sorted the first time they are requested.
+ * Small rendered values are memoized, the decoded payloads and request info are built on every call so the
+ * heap retained by an entry held in a registry does not grow when it is viewed or exported.  Sensitive values are masked by the {@link RequestResponseLogRegistry}
+ * when the entry is added, entries rendered before that are masked using {@link RequestResponseMasker#DEFAULT}.
+ */
 public class RequestResponseLogEntry
 {
-	private static final String ILLEGAL_PARAMETER_PATTERN = ".*password.*";
+	// rough estimate of the heap used by an entry besides its payloads
+	private static final int ENTRY_OVERHEAD = 2048;
 
 	private final UUID id;
-	private final long started, finished;
-
-	private String requestData, responseData, requestPayloadSize, responsePayloadSize;
-	private boolean requestDataTruncated, responseDataTruncated;
+	private final RequestResponseCapture capture;
 
-	private int responseStatus;
-	private String sessionId, responseContentType, contentType, url, uri, callerInfo, requestMethod, remoteIp,
-			responseCharacterEncoding;
-
-	private Map<String, String> requestCookies = new TreeMap<>();
-	private Map<String, String> requestHeaders = new TreeMap<>();
-	private Map<String, String> responseHeaders = new TreeMap<>();
-	private Map<String, String[]> requestParameters = new TreeMap<>();
+	private volatile String url, callerInfo;
+	private volatile Map<String, String> requestCookies, requestHeaders, responseHeaders;
+	private volatile Map<String, String[]> requestParameters;
 
 	public RequestResponseLogEntry( long started,
 	                                long finished,
 	                                LogRequestWrapper request,
 	                                LogResponseWrapper response ) {
-		id = UUID.randomUUID();
-
-		this.started = started;
-		this.finished = finished;
+		this( new RequestResponseCapture( started, finished, request, response ) );
+	}
 
-		buildRequestInfo( request );
-		buildResponseInfo( response );
+	public RequestResponseLogEntry( RequestResponseCapture capture ) {
+		this( UUID.randomUUID(), capture );
 	}
 
-	private void buildRequestInfo( LogRequestWrapper request ) {
-		url = request.getRequestURL().toString();
-		uri = request.getRequestURI();
+	RequestResponseLogEntry( UUID id, RequestResponseCapture capture ) {
+		this.id = id;
+		this.capture = capture;
+	}
 
-		if ( !StringUtils.isBlank( request.getQueryString() ) ) {
-			url += "?" + request.getQueryString();
+	private String buildUrl() {
+		if ( !StringUtils.isBlank( capture.getQueryString() ) ) {
+			return capture.getRequestUrl() + "?" + capture.getQueryString();
 		}
+		return capture.getRequestUrl();
+	}
 
-		requestMethod = request.getMethod();
-		contentType = request.getContentType();
-
-		Enumeration<String> headerNames = request.getHeaderNames();
+	private RequestResponseCapture maskedCapture() {
+		if ( !capture.isMasked() ) {
+			capture.mask( RequestResponseMasker.DEFAULT );
+		}
+		return capture;
+	}
 
-		while ( headerNames.hasMoreElements() ) {
-			String headerName = headerNames.nextElement();
-			requestHeaders.put( headerName, request.getHeader( headerName ) );
+	private Map<String, String> buildRequestHeaders() {
+		Map<String, String> headers = toSortedMap( maskedCapture().getRequestHeaders() );
 
+		if ( capture.getRequestCookies() != null ) {
+			headers.remove( "cookie" );
 		}
 
-		callerInfo = String.format( "%s @ %s:%s", StringUtils.defaultString( request.getRemoteUser(), "unknown" ),
-		                            request.getRemoteAddr(),
-		                            request.getRemotePort() );
-		remoteIp = request.getRemoteAddr();
+		return Collections.unmodifiableMap( headers );
+	}
 
-		Cookie[] cookies = request.getCookies();
+	private Map<String, String> buildRequestCookies() {
+		Map<String, String> cookies = new TreeMap<>();
+		Cookie[] captured = maskedCapture().getRequestCookies();
 
-		if ( cookies != null ) {
-			for ( Cookie cookie : request.getCookies() ) {
-				requestCookies.put( cookie.getName(), cookie.getValue() );
+		if ( captured != null ) {
+			for ( Cookie cookie : captured ) {
+				cookies.put( cookie.getName(), cookie.getValue() );
 			}
-			requestHeaders.remove( "cookie" );
 		}
 
-		HttpSession session = request.getSession( false );
+		return Collections.unmodifiableMap( cookies );
+	}
 
-		if ( session != null ) {
-			sessionId = session.getId();
-		}
+	private Map<String, String[]> buildRequestParameters() {
+		return Collections.unmodifiableMap( new TreeMap<>( maskedCapture().getRequestParameters() ) );
+	}
+
+	private String buildRequestData() {
+		CapturedPayload payload = maskedCapture().getRequestPayload();
+		String data;
 
-		if ( !isMultipart( request ) ) {
-			if ( request.payloadSize() > 1024 * 512 ) {
-				requestData = "Request data is too big: " + request.payloadSize() + " bytes";
+		if ( !isMultipart( capture.getContentType() ) ) {
+			if ( payload.getRealSize() > 1024 * 512 ) {
+				data = "Request data is too big: " + payload.getRealSize() + " bytes";
 			}
 			else {
 				try {
 					String charEncoding =
-							request.getCharacterEncoding() != null ? request.getCharacterEncoding() :
+							capture.getCharacterEncoding() != null ? capture.getCharacterEncoding() :
 									"UTF-8";
-					requestData = new String( request.toByteArray(), charEncoding );
+					data = new String( payload.toByteArray(), charEncoding );
 				}
 				catch ( UnsupportedEncodingException usee ) {
-					requestData = "Unable to parse request payload.";
+					data = "Unable to parse request payload.";
 				}
 			}
 		}
 		else {
-			requestData = "Request payload is multipart data.";
+			data = "Request payload is multipart data.";
 		}
 
-		request.getParameterMap()
-		       .forEach( ( key, value ) -> {
-			       if ( Pattern.matches( ILLEGAL_PARAMETER_PATTERN, StringUtils.lowerCase( key ) ) ) {
-				       requestParameters.put( key, new String[] { "*" } );
-			       }
-			       else {
-				       requestParameters.put( key, value );
-			       }
-		       } );
-
-		requestDataTruncated = request.isMaximumReached();
-		requestPayloadSize = FileUtils.byteCountToDisplaySize( request.payloadSize() );
-		if ( StringUtils.isEmpty( requestData ) ) {
-			requestData = "no request payload";
-		}
+		return StringUtils.isEmpty( data ) ? "no request payload" : data;
 	}
 
-	private boolean isMultipart( HttpServletRequest request ) {
-		return request.getContentType() != null && request.getContentType().startsWith( "multipart/form-data" );
+	private boolean isMultipart( String contentType ) {
+		return contentType != null && contentType.startsWith( "multipart/form-data" );
 	}
 
-	private void buildResponseInfo( LogResponseWrapper response ) {
-		responseStatus = response.getStatus();
-		responseContentType = response.getContentType();
-		responseCharacterEncoding = response.getCharacterEncoding();
-
-		for ( String headerName : response.getHeaderNames() ) {
-			responseHeaders.put( headerName, response.getHeader( headerName ) );
-		}
+	private String buildResponseData() {
+		CapturedPayload payload = maskedCapture().getResponsePayload();
+		String data;
 
-		if ( response.payloadSize() > 1024 * 512 ) {
-			responseData = "Response data is too big: " + response.payloadSize() + " bytes";
+		if ( payload.getRealSize() > 1024 * 512 ) {
+			data = "Response data is too big: " + payload.getRealSize() + " bytes";
 		}
 		else {
 			try {
 				String charEncoding =
-						response.getCharacterEncoding() != null ? response.getCharacterEncoding() : "UTF-8";
-				responseData = new String( response.toByteArray(), charEncoding );
+						capture.getResponseCharacterEncoding() != null ? capture.getResponseCharacterEncoding() : "UTF-8";
+				data = new String( payload.toByteArray(), charEncoding );
 			}
 			catch ( UnsupportedEncodingException usee ) {
-				responseData = "Unable to parse response payload.";
+				data = "Unable to parse response payload.";
 			}
 		}
 
-		responseDataTruncated = response.isMaximumReached();
-		responsePayloadSize = FileUtils.byteCountToDisplaySize( response.payloadSize() );
-		if ( StringUtils.isEmpty( responseData ) ) {
-			responseData = "no response payload";
+		return StringUtils.isEmpty( data ) ? "no response payload" : data;
+	}
+
+	private Map<String, String> toSortedMap( String[] headers ) {
+		Map<String, String> map = new TreeMap<>();
+		for ( int i = 0; i < headers.length; i += 2 ) {
+			map.put( headers[i], headers[i + 1] );
 		}
+		return map;
 	}
 
 	public String getRequestMethod() {
-		return requestMethod;
+		return capture.getRequestMethod();
 	}
 
 	public String getSessionId() {
-		return sessionId;
+		return capture.getSessionId();
 	}
 
 	public String getContentType() {
-		return contentType;
+		return capture.getContentType();
 	}
 
 	public String getUrl() {
+		if ( url == null ) {
+			url = buildUrl();
+		}
 		return url;
 	}
 
 	public String getCallerInfo() {
+		if ( callerInfo == null ) {
+			callerInfo = StringUtils.defaultString( capture.getRemoteUser(), "unknown" )
+					+ " @ " + capture.getRemoteAddr() + ":" + capture.getRemotePort();
+		}
 		return callerInfo;
 	}
 
 	public Map<String, String> getRequestHeaders() {
+		if ( requestHeaders == null ) {
+			requestHeaders = buildRequestHeaders();
+		}
 		return requestHeaders;
 	}
 
 	public Map<String, String> getRequestCookies() {
+		if ( requestCookies == null ) {
+			requestCookies = buildRequestCookies();
+		}
 		return requestCookies;
 	}
 
 	public int getResponseStatus() {
-		return responseStatus;
+		return capture.getResponseStatus();
 	}
 
 	public String getResponseContentType() {
-		return responseContentType;
+		return capture.getResponseContentType();
 	}
 
 	public String getUri() {
-		return uri;
+		return capture.getRequestUri();
 	}
 
 	public String getRemoteIp() {
-		return remoteIp;
+		return capture.getRemoteAddr();
 	}
 
 	public String getResponseCharacterEncoding() {
-		return responseCharacterEncoding;
+		return capture.getResponseCharacterEncoding();
 	}
 
 	public Map<String, String> getResponseHeaders() {
+		if ( responseHeaders == null ) {
+			responseHeaders = Collections.unmodifiableMap( toSortedMap( maskedCapture().getResponseHeaders() ) );
+		}
 		return responseHeaders;
 	}
 
 	public Map<String, String[]> getRequestParameters() {
+		if ( requestParameters == null ) {
+			requestParameters = buildRequestParameters();
+		}
 		return requestParameters;
 	}
 
@@ -247,38 +257,49 @@ public class RequestResponseLogEntry
 	}
 
 	public String getRequestData() {
-		return requestData;
+		return buildRequestData();
 	}
 
 	public String getResponseData() {
-		return responseData;
+		return buildResponseData();
 	}
 
 	public Date getStarted() {
-		return new Date( started );
+		return new Date( capture.getStarted() );
 	}
 
 	public Date getFinished() {
-		return new Date( finished );
+		return new Date( capture.getFinished() );
 	}
 
 	public long getDuration() {
-		return finished - started;
+		return capture.getFinished() - capture.getStarted();
 	}
 
 	public boolean isRequestDataTruncated() {
-		return requestDataTruncated;
+		return capture.getRequestPayload().isMaximumReached();
 	}
 
 	public boolean isResponseDataTruncated() {
-		return responseDataTruncated;
+		return capture.getResponsePayload().isMaximumReached();
 	}
 
 	public String getRequestPayloadSize() {
-		return requestPayloadSize;
+		return FileUtils.byteCountToDisplaySize( capture.getRequestPayload().getRealSize() );
 	}
 
 	public String getResponsePayloadSize() {
-		return responsePayloadSize;
+		return FileUtils.byteCountToDisplaySize( capture.getResponsePayload().getRealSize() );
+	}
+
+	RequestResponseCapture getCapture() {
+		return capture;
+	}
+
+	/**
+	 * @return approximate number of bytes of heap retained by this entry, does not change when the entry is rendered
+	 */
+	public long getRetainedSize() {
+		return ENTRY_OVERHEAD + capture.getRetainedSize();
 	}
 }
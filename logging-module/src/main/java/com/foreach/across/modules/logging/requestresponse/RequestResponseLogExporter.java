@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Writes {@link RequestResponseLogEntry} instances as newline delimited JSON: one JSON object per line.
+ * Entries are written one at a time while visiting the {@link RequestResponseLogRegistry}, so the memory used
+ * does not depend on the number of entries exported.
+ *
+ * @since 4.3.0
+ */
+public class RequestResponseLogExporter
+{
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final boolean includePayloads;
+
+	/**
+	 * @param includePayloads true if the request and response data should be written
+	 */
+	public RequestResponseLogExporter( boolean includePayloads ) {
+		this.includePayloads = includePayloads;
+	}
+
+	/**
+	 * Write all entries of the registry matching the query, most recent first.
+	 * The output stream is flushed but not closed.
+	 *
+	 * @param registry     to export the entries from
+	 * @param query        the entries should match
+	 * @param limit        maximum number of entries to write
+	 * @param outputStream to write to
+	 * @return number of entries written
+	 */
+	public int export( RequestResponseLogRegistry registry,
+	                   RequestResponseLogQuery query,
+	                   int limit,
+	                   OutputStream outputStream ) throws IOException {
+		if ( limit <= 0 ) {
+			return 0;
+		}
+
+		int[] written = { 0 };
+
+		try (JsonGenerator json = JSON_FACTORY.createGenerator( outputStream, JsonEncoding.UTF8 )) {
+			json.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+			json.setRootValueSeparator( null );
+
+			registry.visitEntries( query, entry -> {
+				try {
+					write( json, entry );
+					json.writeRaw( '\n' );
+				}
+				catch ( IOException ioe ) {
+					throw new UncheckedIOException( ioe );
+				}
+				return ++written[0] < limit;
+			} );
+		}
+		catch ( UncheckedIOException uioe ) {
+			throw uioe.getCause();
+		}
+
+		outputStream.flush();
+		return written[0];
+	}
+
+	private void write( JsonGenerator json, RequestResponseLogEntry entry ) throws IOException {
+		json.writeStartObject();
+		json.writeStringField( "id", entry.getId().toString() );
+		json.writeStringField( "started", Instant.ofEpochMilli( entry.getStarted().getTime() ).toString() );
+		json.writeNumberField( "duration", entry.getDuration() );
+		json.writeStringField( "method", entry.getRequestMethod() );
+		json.writeStringField( "url", entry.getUrl() );
+		json.writeNumberField( "status", entry.getResponseStatus() );
+		json.writeStringField( "remoteIp", entry.getRemoteIp() );
+		json.writeStringField( "sessionId", entry.getSessionId() );
+
+		json.writeObjectFieldStart( "request" );
+		json.writeStringField( "contentType", entry.getContentType() );
+		writeMap( json, "headers", entry.getRequestHeaders() );
+		writeMap( json, "cookies", entry.getRequestCookies() );
+		json.writeObjectFieldStart( "parameters" );
+		for ( Map.Entry<String, String[]> parameter : entry.getRequestParameters().entrySet() ) {
+			json.writeArrayFieldStart( parameter.getKey() );
+			for ( String value : parameter.getValue() ) {
+				json.writeString( value );
+			}
+			json.writeEndArray();
+		}
+		json.writeEndObject();
+		if ( includePayloads ) {
+			json.writeStringField( "data", entry.getRequestData() );
+			json.writeBooleanField( "dataTruncated", entry.isRequestDataTruncated() );
+		}
+		json.writeEndObject();
+
+		json.writeObjectFieldStart( "response" );
+		json.writeStringField( "contentType", entry.getResponseContentType() );
+		writeMap( json, "headers", entry.getResponseHeaders() );
+		if ( includePayloads ) {
+			json.writeStringField( "data", entry.getResponseData() );
+			json.writeBooleanField( "dataTruncated", entry.isResponseDataTruncated() );
+		}
+		json.writeEndObject();
+
+		json.writeEndObject();
+	}
+
+	private void writeMap( JsonGenerator json, String fieldName, Map<String, String> values ) throws IOException {
+		json.writeObjectFieldStart( fieldName );
+		for ( Map.Entry<String, String> value : values.entrySet() ) {
+			json.writeStringField( value.getKey(), value.getValue() );
+		}
+		json.writeEndObject();
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Criteria for searching the {@link RequestResponseLogEntry} instances of a {@link RequestResponseLogRegistry}.
+ * The status, duration and time window are checked against values that are indexed for every entry,
+ * only entries passing those are checked on their URL.
+ * <p/>
+ * Instances are immutable.
+ *
+ * @since 4.3.0
+ */
+public final class RequestResponseLogQuery
+{
+	/**
+	 * Query matching every entry.
+	 */
+	public static final RequestResponseLogQuery ALL = new RequestResponseLogQuery( 0, Integer.MAX_VALUE, 0, Long.MAX_VALUE,
+	                                                                               null, Long.MIN_VALUE, Long.MAX_VALUE );
+
+	private final int minStatus, maxStatus;
+	private final long minDuration, maxDuration;
+	private final String urlContains;
+	private final long startedFrom, startedUntil;
+
+	/**
+	 * @param minStatus    lowest response status, inclusive
+	 * @param maxStatus    highest response status, inclusive
+	 * @param minDuration  minimum duration in milliseconds, inclusive
+	 * @param maxDuration  maximum duration in milliseconds, inclusive
+	 * @param urlContains  text the url should contain (ignoring case), {@code null} for any url
+	 * @param startedFrom  earliest start time in milliseconds since the epoch, inclusive
+	 * @param startedUntil latest start time in milliseconds since the epoch, exclusive
+	 */
+	public RequestResponseLogQuery( int minStatus,
+	                                int maxStatus,
+	                                long minDuration,
+	                                long maxDuration,
+	                                String urlContains,
+	                                long startedFrom,
+	                                long startedUntil ) {
+		this.minStatus = minStatus;
+		this.maxStatus = maxStatus;
+		this.minDuration = minDuration;
+		this.maxDuration = maxDuration;
+		this.urlContains = StringUtils.isEmpty( urlContains ) ? null : urlContains.toLowerCase();
+		this.startedFrom = startedFrom;
+		this.startedUntil = startedUntil;
+	}
+
+	/**
+	 * Parse a status filter: a single status ({@code 404}), a status class ({@code 4xx}) or a range ({@code 400-499}).
+	 *
+	 * @param status filter, {@code null} or empty for all statuses
+	 * @return lowest and highest status
+	 * @throws IllegalArgumentException if the value can not be parsed
+	 */
+	public static int[] parseStatusRange( String status ) {
+		String value = StringUtils.trimToEmpty( status ).toLowerCase();
+
+		try {
+			if ( value.isEmpty() ) {
+				return new int[] { 0, Integer.MAX_VALUE };
+			}
+			if ( value.length() == 3 && value.endsWith( "xx" ) ) {
+				int statusClass = Integer.parseInt( value.substring( 0, 1 ) ) * 100;
+				return new int[] { statusClass, statusClass + 99 };
+			}
+			if ( value.indexOf( '-' ) >= 0 ) {
+				String[] range = value.split( "-", -1 );
+				if ( range.length != 2 ) {
+					throw new NumberFormatException( value );
+				}
+				return new int[] { Integer.parseInt( range[0].trim() ), Integer.parseInt( range[1].trim() ) };
+			}
+
+			int single = Integer.parseInt( value );
+			return new int[] { single, single };
+		}
+		catch ( NumberFormatException nfe ) {
+			throw new IllegalArgumentException( "Status should be a status code, class (4xx) or range (400-499): " + status );
+		}
+	}
+
+	public int getMinStatus() {
+		return minStatus;
+	}
+
+	public int getMaxStatus() {
+		return maxStatus;
+	}
+
+	public long getMinDuration() {
+		return minDuration;
+	}
+
+	public long getMaxDuration() {
+		return maxDuration;
+	}
+
+	public String getUrlContains() {
+		return urlContains;
+	}
+
+	public long getStartedFrom() {
+		return startedFrom;
+	}
+
+	public long getStartedUntil() {
+		return startedUntil;
+	}
+
+	/**
+	 * @return true if entries started between both times (inclusive) can match
+	 */
+	boolean overlaps( long firstStarted, long lastStarted ) {
+		return lastStarted >= startedFrom && firstStarted < startedUntil;
+	}
+
+	/**
+	 * Check the indexed values of an entry.
+	 */
+	boolean matches( long started, long duration, int status ) {
+		return started >= startedFrom && started < startedUntil
+				&& duration >= minDuration && duration <= maxDuration
+				&& status >= minStatus && status <= maxStatus;
+	}
+
+	boolean matchesUrl( RequestResponseLogEntry entry ) {
+		return urlContains == null || entry.getUrl().toLowerCase().contains( urlContains );
+	}
+
+	public boolean matches( RequestResponseLogEntry entry ) {
+		RequestResponseCapture capture = entry.getCapture();
+		return matches( capture.getStarted(), entry.getDuration(), capture.getResponseStatus() ) && matchesUrl( entry );
+	}
+}
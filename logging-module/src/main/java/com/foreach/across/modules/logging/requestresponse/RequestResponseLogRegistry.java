@@ -15,47 +15,362 @@
  */
 package com.foreach.across.modules.logging.requestresponse;
 
+import lombok.NonNull;
+
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
 
+/**
+ * Keeps the most recent {@link RequestResponseLogEntry} instances in a fixed-capacity ring buffer.
+ * Adding an entry claims a slot using an atomic sequence, no lock is held.  Entries are also indexed
+ * on their id for direct lookup.
+ * <p/>
+ * Changing the maximum number of entries replaces the ring buffer with a new one holding the most recent
+ * entries.  Entries that are added concurrently with a resize might be dropped.
+ * <p/>
+ * Next to the maximum number of entries, the approximate number of bytes retained by the entries
+ * can be limited.  When the total goes over {@link #getMaxRetainedBytes()}, the oldest entries are evicted
+ * (the most recent entry is always kept).  Sensitive values are masked when an entry is added,
+ * payloads can optionally be stored compressed.
+ */
 public class RequestResponseLogRegistry
 {
-	private int maxEntries = 100;
-	private final LinkedList<RequestResponseLogEntry> entries = new LinkedList<>();
+	private final AtomicReference<Ring> ring = new AtomicReference<>( new Ring( 100 ) );
+	private final Map<UUID, RequestResponseLogEntry> index = new ConcurrentHashMap<>();
+	private final AtomicLong retainedBytes = new AtomicLong();
+
+	private volatile long maxRetainedBytes;
+	private volatile boolean compressPayloads;
+	private volatile RequestResponseMasker masker = RequestResponseMasker.DEFAULT;
+
+	/**
+	 * @param maxRetainedBytes approximate maximum number of bytes the entries can retain, 0 or less for no limit
+	 */
+	public void setMaxRetainedBytes( long maxRetainedBytes ) {
+		this.maxRetainedBytes = maxRetainedBytes;
+		enforceMaxRetainedBytes();
+	}
+
+	public long getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	/**
+	 * @param compressPayloads true if payloads of new entries should be stored deflate-compressed
+	 */
+	public void setCompressPayloads( boolean compressPayloads ) {
+		this.compressPayloads = compressPayloads;
+	}
+
+	public boolean isCompressPayloads() {
+		return compressPayloads;
+	}
+
+	/**
+	 * @param masker used to mask sensitive values of new entries before they are stored
+	 */
+	public void setMasker( @NonNull RequestResponseMasker masker ) {
+		this.masker = masker;
+	}
+
+	public RequestResponseMasker getMasker() {
+		return masker;
+	}
+
+	/**
+	 * @return approximate number of bytes currently retained by the entries
+	 */
+	public long getRetainedBytes() {
+		return retainedBytes.get();
+	}
 
 	public void setMaxEntries( int maxEntries ) {
-		this.maxEntries = maxEntries;
+		int capacity = Math.max( 1, maxEntries );
+		Ring current = ring.get();
+
+		if ( current.capacity() != capacity ) {
+			Ring resized = new Ring( capacity );
+			List<RequestResponseLogEntry> entries = current.entries();
+
+			for ( int i = Math.min( entries.size(), capacity ) - 1; i >= 0; i-- ) {
+				resized.add( entries.get( i ) );
+			}
+
+			if ( ring.compareAndSet( current, resized ) ) {
+				for ( int i = capacity; i < entries.size(); i++ ) {
+					RequestResponseLogEntry evicted = entries.get( i );
+					index.remove( evicted.getId(), evicted );
+				}
+
+				// recalculate to correct any drift caused by entries added during the resize
+				long total = 0;
+				for ( RequestResponseLogEntry entry : resized.entries() ) {
+					total += entry.getRetainedSize();
+				}
+				retainedBytes.set( total );
+				enforceMaxRetainedBytes();
+			}
+			else {
+				setMaxEntries( capacity );
+			}
+		}
 	}
 
 	public int getMaxEntries() {
-		return maxEntries;
+		return ring.get().capacity();
 	}
 
-	public synchronized void add( RequestResponseLogEntry entry ) {
-		entries.addFirst( entry );
+	public void add( RequestResponseLogEntry entry ) {
+		entry.getCapture().mask( masker );
+
+		if ( compressPayloads ) {
+			entry.getCapture().compressPayloads();
+		}
+
+		index.put( entry.getId(), entry );
+		retainedBytes.addAndGet( entry.getRetainedSize() );
+
+		Ring current = ring.get();
+		RequestResponseLogEntry evicted = current.add( entry );
+
+		if ( evicted != null ) {
+			remove( evicted );
+		}
+
+		if ( ring.get() != current && !ring.get().contains( entry ) ) {
+			// the registry has been resized while adding, the entry is lost
+			remove( entry );
+		}
+		else {
+			enforceMaxRetainedBytes();
+		}
+	}
 
-		while ( entries.size() > maxEntries ) {
-			entries.removeLast();
+	private void remove( RequestResponseLogEntry entry ) {
+		if ( index.remove( entry.getId(), entry ) ) {
+			retainedBytes.addAndGet( -entry.getRetainedSize() );
+		}
+	}
+
+	private void enforceMaxRetainedBytes() {
+		long max = maxRetainedBytes;
+
+		if ( max > 0 ) {
+			Ring current = ring.get();
+
+			while ( retainedBytes.get() > max ) {
+				RequestResponseLogEntry evicted = current.evictOldest();
+				if ( evicted == null ) {
+					break;
+				}
+				remove( evicted );
+			}
+		}
+	}
+
+	/**
+	 * Adds all entries in order, the last entry of the collection will be the most recent entry.
+	 *
+	 * @param entries to add
+	 */
+	public void addAll( Collection<RequestResponseLogEntry> entries ) {
+		for ( RequestResponseLogEntry entry : entries ) {
+			add( entry );
 		}
 	}
 
 	public int size() {
-		return entries.size();
+		return Math.min( index.size(), getMaxEntries() );
 	}
 
+	/**
+	 * @return snapshot of the entries, most recent entry first
+	 */
 	public Collection<RequestResponseLogEntry> getEntries() {
-		return new ArrayList<>( entries );
+		return ring.get().entries();
+	}
+
+	/**
+	 * @param offset number of entries to skip
+	 * @param limit  maximum number of entries to return
+	 * @return page of the entries, most recent entry first
+	 */
+	public List<RequestResponseLogEntry> getEntries( long offset, int limit ) {
+		List<RequestResponseLogEntry> entries = ring.get().entries();
+		int from = (int) Math.min( offset, entries.size() );
+
+		return new ArrayList<>( entries.subList( from, Math.min( entries.size(), from + limit ) ) );
 	}
 
 	public RequestResponseLogEntry getEntry( UUID id ) {
-		for ( RequestResponseLogEntry entry : getEntries() ) {
-			if ( entry.getId().equals( id ) ) {
-				return entry;
+		return index.get( id );
+	}
+
+	/**
+	 * Pass every entry matching the query to the visitor, most recent entry first, without building
+	 * an intermediate collection.  Visiting stops as soon as the visitor returns {@code false}.
+	 *
+	 * @param query   the entries should match
+	 * @param visitor to pass the entries to
+	 */
+	public void visitEntries( RequestResponseLogQuery query, Predicate<RequestResponseLogEntry> visitor ) {
+		ring.get().visit( entry -> !query.matches( entry ) || visitor.test( entry ) );
+	}
+
+	/**
+	 * @param query   the entries should match
+	 * @param offset  number of matching entries to skip
+	 * @param limit   maximum number of entries to return
+	 * @return page of the matching entries, most recent entry first
+	 */
+	public List<RequestResponseLogEntry> findEntries( RequestResponseLogQuery query, long offset, int limit ) {
+		List<RequestResponseLogEntry> entries = new ArrayList<>( Math.max( 0, Math.min( limit, 1000 ) ) );
+		if ( limit <= 0 ) {
+			return entries;
+		}
+
+		long[] skip = { offset };
+
+		visitEntries( query, entry -> {
+			if ( skip[0] > 0 ) {
+				skip[0]--;
+			}
+			else {
+				entries.add( entry );
 			}
+			return entries.size() < limit;
+		} );
+
+		return entries;
+	}
+
+	/**
+	 * Fixed size ring buffer, where each slot holds the sequence number of the entry.
+	 */
+	private static final class Ring
+	{
+		private final AtomicLong sequence = new AtomicLong();
+		private final AtomicLong oldest = new AtomicLong();
+		private final AtomicReferenceArray<Slot> slots;
+
+		Ring( int capacity ) {
+			slots = new AtomicReferenceArray<>( capacity );
+		}
+
+		int capacity() {
+			return slots.length();
 		}
 
-		return null;
+		/**
+		 * @return the entry that has been evicted from the ring, or the entry itself if it was immediately evicted
+		 */
+		RequestResponseLogEntry add( RequestResponseLogEntry entry ) {
+			long position = sequence.getAndIncrement();
+			int index = (int) ( position % slots.length() );
+			Slot slot = new Slot( position, entry );
+
+			while ( true ) {
+				Slot current = slots.get( index );
+
+				if ( current != null && current.position > position ) {
+					// a more recent entry has already claimed the slot
+					return entry;
+				}
+
+				if ( slots.compareAndSet( index, current, slot ) ) {
+					return current != null ? current.entry : null;
+				}
+			}
+		}
+
+		/**
+		 * Removes the oldest entry from the ring, unless it is the most recent entry.
+		 *
+		 * @return the entry removed or {@code null} if none
+		 */
+		RequestResponseLogEntry evictOldest() {
+			while ( true ) {
+				long last = sequence.get() - 1;
+				long current = oldest.get();
+				long position = Math.max( current, last - slots.length() + 1 );
+
+				if ( position >= last ) {
+					return null;
+				}
+
+				if ( oldest.compareAndSet( current, position + 1 ) ) {
+					int index = (int) ( position % slots.length() );
+					Slot slot = slots.get( index );
+
+					// skip slots that are claimed but not yet written, or already overwritten
+					if ( slot != null && slot.position == position && slots.compareAndSet( index, slot, null ) ) {
+						return slot.entry;
+					}
+				}
+			}
+		}
+
+		boolean contains( RequestResponseLogEntry entry ) {
+			for ( int i = 0; i < slots.length(); i++ ) {
+				Slot slot = slots.get( i );
+				if ( slot != null && slot.entry == entry ) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Visit the entries, most recent first, as long as the visitor returns true.
+		 */
+		void visit( Predicate<RequestResponseLogEntry> visitor ) {
+			long last = sequence.get() - 1;
+			long first = Math.max( 0, last - slots.length() + 1 );
+
+			for ( long position = last; position >= first; position-- ) {
+				Slot slot = slots.get( (int) ( position % slots.length() ) );
+
+				if ( slot != null && slot.position == position && !visitor.test( slot.entry ) ) {
+					return;
+				}
+			}
+		}
+
+		List<RequestResponseLogEntry> entries() {
+			long last = sequence.get() - 1;
+			long first = Math.max( 0, last - slots.length() + 1 );
+
+			List<RequestResponseLogEntry> entries = new ArrayList<>( (int) ( last - first + 1 ) );
+
+			for ( long position = last; position >= first; position-- ) {
+				Slot slot = slots.get( (int) ( position % slots.length() ) );
+
+				// skip slots that are claimed but not yet written, or already overwritten
+				if ( slot != null && slot.position == position ) {
+					entries.add( slot.entry );
+				}
+			}
+
+			return entries;
+		}
+	}
+
+	private static final class Slot
+	{
+		private final long position;
+		private final RequestResponseLogEntry entry;
+
+		Slot( long position, RequestResponseLogEntry entry ) {
+			this.position = position;
+			this.entry = entry;
+		}
 	}
 }
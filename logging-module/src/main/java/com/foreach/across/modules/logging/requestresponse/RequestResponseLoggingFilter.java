@@ -15,8 +15,8 @@
  */
 package com.foreach.across.modules.logging.requestresponse;
 
+import com.foreach.across.modules.logging.request.RequestPathMatcher;
 import lombok.NonNull;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.UrlPathHelper;
 
@@ -34,12 +34,14 @@ public class RequestResponseLoggingFilter extends OncePerRequestFilter
 	private final RequestResponseLogRegistry logRegistry;
 
 	private UrlPathHelper urlPathHelper;
-	private AntPathMatcher antPathMatcher = new AntPathMatcher();
 
 	private Collection<String> includedPathPatterns = Collections.emptyList();
 	private Collection<String> excludedPathPatterns = Collections.emptyList();
+	private volatile RequestPathMatcher requestPathMatcher = RequestPathMatcher.all();
+	private volatile RequestSampler requestSampler = RequestSampler.all();
 
 	private boolean paused;
+	private AsyncRequestResponseLogAppender asyncAppender;
 
 	public RequestResponseLoggingFilter( RequestResponseLogRegistry logRegistry, boolean paused ) {
 		this.logRegistry = logRegistry;
@@ -47,6 +49,34 @@ public class RequestResponseLoggingFilter extends OncePerRequestFilter
 		this.paused = paused;
 	}
 
+	/**
+	 * Set the appender that should build and publish the log entries asynchronously.
+	 * If {@code null}, the log entries are built on the request thread.
+	 *
+	 * @param asyncAppender to use
+	 */
+	public void setAsyncAppender( AsyncRequestResponseLogAppender asyncAppender ) {
+		this.asyncAppender = asyncAppender;
+	}
+
+	public AsyncRequestResponseLogAppender getAsyncAppender() {
+		return asyncAppender;
+	}
+
+	/**
+	 * Set the sampler that decides which of the requests matching the path patterns are actually captured.
+	 * Can be changed at runtime.
+	 *
+	 * @param requestSampler to use
+	 */
+	public void setRequestSampler( @NonNull RequestSampler requestSampler ) {
+		this.requestSampler = requestSampler;
+	}
+
+	public RequestSampler getRequestSampler() {
+		return requestSampler;
+	}
+
 	public void setUrlPathHelper( UrlPathHelper urlPathHelper ) {
 		this.urlPathHelper = urlPathHelper;
 	}
@@ -57,6 +87,7 @@ public class RequestResponseLoggingFilter extends OncePerRequestFilter
 
 	public void setIncludedPathPatterns( @NonNull Collection<String> includedPathPatterns ) {
 		this.includedPathPatterns = new HashSet<>( includedPathPatterns );
+		requestPathMatcher = new RequestPathMatcher( this.includedPathPatterns, excludedPathPatterns );
 	}
 
 	public Collection<String> getExcludedPathPatterns() {
@@ -65,6 +96,7 @@ public class RequestResponseLoggingFilter extends OncePerRequestFilter
 
 	public void setExcludedPathPatterns( @NonNull Collection<String> excludedPathPatterns ) {
 		this.excludedPathPatterns = new HashSet<>( excludedPathPatterns );
+		requestPathMatcher = new RequestPathMatcher( includedPathPatterns, this.excludedPathPatterns );
 	}
 
 	@Override
@@ -81,8 +113,14 @@ public class RequestResponseLoggingFilter extends OncePerRequestFilter
 				filterChain.doFilter( requestWrapper, responseWrapper );
 			}
 			finally {
-				logRegistry.add( new RequestResponseLogEntry( start, System.currentTimeMillis(), requestWrapper,
-				                                              responseWrapper ) );
+				long finished = System.currentTimeMillis();
+
+				if ( asyncAppender != null ) {
+					asyncAppender.append( new RequestResponseCapture( start, finished, requestWrapper, responseWrapper ) );
+				}
+				else {
+					logRegistry.add( new RequestResponseLogEntry( start, finished, requestWrapper, responseWrapper ) );
+				}
 			}
 		}
 		else {
@@ -95,24 +133,7 @@ public class RequestResponseLoggingFilter extends OncePerRequestFilter
 			return false;
 		}
 		String path = urlPathHelper.getLookupPathForRequest( request );
-
-		if ( !excludedPathPatterns.isEmpty() ) {
-			for ( String pattern : excludedPathPatterns ) {
-				if ( antPathMatcher.match( pattern, path ) ) {
-					return false;
-				}
-			}
-		}
-
-		if ( !includedPathPatterns.isEmpty() ) {
-			for ( String pattern : includedPathPatterns ) {
-				if ( antPathMatcher.match( pattern, path ) ) {
-					return true;
-				}
-			}
-		}
-
-		return includedPathPatterns.isEmpty();
+		return requestPathMatcher.matches( path ) && requestSampler.sample( path );
 	}
 
 	public boolean isPaused() {
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Masks sensitive values of a captured request - response pair.  Parameter and body field names, header names
+ * and cookie names are matched case-insensitively against regular expressions that are compiled once into a
+ * single pattern per type.  A key matches if the pattern is found anywhere in it, so {@code password} also
+ * matches {@code userPassword}.  Headers and cookies are masked if either their own patterns or the key
+ * patterns match.  Match results are cached per key.
+ * <p/>
+ * JSON and form-urlencoded payloads are redacted by scanning the captured bytes: the value of every matching
+ * field is replaced by {@link #MASK}, nothing else is parsed or rewritten.  Truncated payloads are redacted
+ * up until the point they were cut off.
+ *
+ * @since 4.3.0
+ */
+public class RequestResponseMasker
+{
+	/**
+	 * Replacement for masked values.
+	 */
+	public static final String MASK = "*";
+
+	public static final List<String> DEFAULT_KEY_PATTERNS = Collections.unmodifiableList(
+			Arrays.asList( "password", "passwd", "secret", "token", "api[-_]?key", "credential" )
+	);
+
+	public static final List<String> DEFAULT_HEADER_PATTERNS = Collections.unmodifiableList(
+			Arrays.asList( "^authorization$", "^proxy-authorization$", "^cookie$", "^set-cookie$" )
+	);
+
+	public static final List<String> DEFAULT_COOKIE_PATTERNS = Collections.unmodifiableList(
+			Arrays.asList( "session", "remember-?me", "xsrf", "csrf" )
+	);
+
+	/**
+	 * Masker using the default patterns.
+	 */
+	public static final RequestResponseMasker DEFAULT = new RequestResponseMasker();
+
+	private static final byte[] MASKED_JSON_VALUE = ( '"' + MASK + '"' ).getBytes( StandardCharsets.UTF_8 );
+	private static final byte[] MASKED_FORM_VALUE = MASK.getBytes( StandardCharsets.UTF_8 );
+
+	private final KeyMatcher keys, headers, cookies;
+
+	public RequestResponseMasker() {
+		this( DEFAULT_KEY_PATTERNS, DEFAULT_HEADER_PATTERNS, DEFAULT_COOKIE_PATTERNS );
+	}
+
+	/**
+	 * @param keyPatterns    patterns for parameter and payload field names, also applied to headers and cookies
+	 * @param headerPatterns patterns for request and response header names
+	 * @param cookiePatterns patterns for request cookie names
+	 */
+	public RequestResponseMasker( Collection<String> keyPatterns,
+	                              Collection<String> headerPatterns,
+	                              Collection<String> cookiePatterns ) {
+		keys = new KeyMatcher( keyPatterns );
+		headers = new KeyMatcher( headerPatterns );
+		cookies = new KeyMatcher( cookiePatterns );
+	}
+
+	/**
+	 * @return true if the value of a request parameter or payload field with this name should be masked
+	 */
+	public boolean isMaskedKey( String name ) {
+		return keys.matches( name );
+	}
+
+	public boolean isMaskedHeader( String name ) {
+		return headers.matches( name ) || keys.matches( name );
+	}
+
+	public boolean isMaskedCookie( String name ) {
+		return cookies.matches( name ) || keys.matches( name );
+	}
+
+	/**
+	 * @param contentType of the payload
+	 * @return true if payloads of this content type are redacted by {@link #maskPayload(String, byte[], int)}
+	 */
+	public boolean supportsPayload( String contentType ) {
+		return keys.pattern != null && contentType != null && ( isJson( contentType ) || isForm( contentType ) );
+	}
+
+	/**
+	 * Redact the values of all matching fields in a JSON or form-urlencoded payload.
+	 *
+	 * @param contentType of the payload
+	 * @param data        buffer holding the payload, is never modified
+	 * @param length      number of bytes of the payload
+	 * @return redacted copy of the payload or {@code null} if nothing had to be masked
+	 */
+	public byte[] maskPayload( String contentType, byte[] data, int length ) {
+		if ( !supportsPayload( contentType ) ) {
+			return null;
+		}
+		return isJson( contentType ) ? maskJson( data, length ) : maskForm( data, length );
+	}
+
+	private byte[] maskJson( byte[] data, int length ) {
+		ByteArrayOutputStream output = null;
+		int copied = 0;
+		int position = 0;
+
+		while ( position < length ) {
+			if ( data[position] != '"' ) {
+				position++;
+				continue;
+			}
+
+			int end = endOfString( data, position, length );
+			int next = skipWhitespace( data, end + 1, length );
+
+			if ( next < length && data[next] == ':' ) {
+				int valueStart = skipWhitespace( data, next + 1, length );
+
+				if ( valueStart < length && isMaskedKey( new String( data, position + 1, end - position - 1, StandardCharsets.UTF_8 ) ) ) {
+					if ( output == null ) {
+						output = new ByteArrayOutputStream( length );
+					}
+					output.write( data, copied, valueStart - copied );
+					output.write( MASKED_JSON_VALUE, 0, MASKED_JSON_VALUE.length );
+					copied = endOfValue( data, valueStart, length );
+					position = copied;
+					continue;
+				}
+
+				position = next + 1;
+			}
+			else {
+				position = end + 1;
+			}
+		}
+
+		return finish( output, data, copied, length );
+	}
+
+	private byte[] maskForm( byte[] data, int length ) {
+		ByteArrayOutputStream output = null;
+		int copied = 0;
+		int position = 0;
+
+		while ( position < length ) {
+			int end = position;
+			int separator = -1;
+			while ( end < length && data[end] != '&' ) {
+				if ( separator < 0 && data[end] == '=' ) {
+					separator = end;
+				}
+				end++;
+			}
+
+			if ( separator > position && isMaskedKey( decodeFormKey( data, position, separator ) ) ) {
+				if ( output == null ) {
+					output = new ByteArrayOutputStream( length );
+				}
+				output.write( data, copied, separator + 1 - copied );
+				output.write( MASKED_FORM_VALUE, 0, MASKED_FORM_VALUE.length );
+				copied = end;
+			}
+
+			position = end + 1;
+		}
+
+		return finish( output, data, copied, length );
+	}
+
+	private static byte[] finish( ByteArrayOutputStream output, byte[] data, int copied, int length ) {
+		if ( output == null ) {
+			return null;
+		}
+		output.write( data, copied, length - copied );
+		return output.toByteArray();
+	}
+
+	private static String decodeFormKey( byte[] data, int start, int end ) {
+		String key = new String( data, start, end - start, StandardCharsets.UTF_8 );
+		if ( key.indexOf( '%' ) >= 0 || key.indexOf( '+' ) >= 0 ) {
+			try {
+				return URLDecoder.decode( key, "UTF-8" );
+			}
+			catch ( UnsupportedEncodingException | IllegalArgumentException e ) {
+				return key;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * @return position of the closing quote of the string starting at the given position, length if unterminated
+	 */
+	private static int endOfString( byte[] data, int start, int length ) {
+		int position = start + 1;
+		while ( position < length ) {
+			byte b = data[position];
+			if ( b == '\\' ) {
+				position += 2;
+			}
+			else if ( b == '"' ) {
+				return position;
+			}
+			else {
+				position++;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @return position right after the JSON value starting at the given position
+	 */
+	private static int endOfValue( byte[] data, int start, int length ) {
+		byte first = data[start];
+
+		if ( first == '"' ) {
+			return Math.min( endOfString( data, start, length ) + 1, length );
+		}
+
+		if ( first == '{' || first == '[' ) {
+			int depth = 0;
+			int position = start;
+			while ( position < length ) {
+				byte b = data[position];
+				if ( b == '"' ) {
+					position = endOfString( data, position, length );
+				}
+				else if ( b == '{' || b == '[' ) {
+					depth++;
+				}
+				else if ( ( b == '}' || b == ']' ) && --depth == 0 ) {
+					return position + 1;
+				}
+				position++;
+			}
+			return length;
+		}
+
+		int position = start;
+		while ( position < length ) {
+			byte b = data[position];
+			if ( b == ',' || b == '}' || b == ']' || isWhitespace( b ) ) {
+				break;
+			}
+			position++;
+		}
+		return position;
+	}
+
+	private static int skipWhitespace( byte[] data, int position, int length ) {
+		while ( position < length && isWhitespace( data[position] ) ) {
+			position++;
+		}
+		return position;
+	}
+
+	private static boolean isWhitespace( byte b ) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+
+	private static boolean isJson( String contentType ) {
+		int separator = contentType.indexOf( ';' );
+		String mimeType = separator >= 0 ? contentType.substring( 0, separator ) : contentType;
+		return mimeType.trim().toLowerCase().endsWith( "json" );
+	}
+
+	private static boolean isForm( String contentType ) {
+		return contentType.toLowerCase().startsWith( "application/x-www-form-urlencoded" );
+	}
+
+	/**
+	 * All patterns of a single type combined in one case-insensitive pattern.
+	 */
+	private static final class KeyMatcher
+	{
+		private static final int MAX_CACHED_KEYS = 1024;
+
+		private final Pattern pattern;
+		private final ConcurrentMap<String, Boolean> cache = new ConcurrentHashMap<>();
+
+		KeyMatcher( Collection<String> patterns ) {
+			pattern = patterns == null || patterns.isEmpty()
+					? null
+					: Pattern.compile(
+					patterns.stream().map( p -> "(?:" + p + ")" ).collect( Collectors.joining( "|" ) ),
+					Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
+			);
+		}
+
+		boolean matches( String key ) {
+			if ( pattern == null || key == null ) {
+				return false;
+			}
+
+			Boolean cached = cache.get( key );
+			if ( cached == null ) {
+				cached = pattern.matcher( key ).find();
+				if ( cache.size() < MAX_CACHED_KEYS ) {
+					cache.put( key, cached );
+				}
+			}
+			return cached;
+		}
+	}
+}
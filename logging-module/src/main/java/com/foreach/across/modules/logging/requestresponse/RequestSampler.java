@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import com.foreach.across.modules.logging.request.RequestPathMatcher;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which requests should be captured by the {@link RequestResponseLoggingFilter}.
+ * A request is randomly sampled using the rate of the first path rule matching the request path,
+ * or the default sampling rate if no rule matches.  Sampled requests are then subject to an optional
+ * rate limit on the number of captures per second.
+ * <p/>
+ * Instances are immutable, create a new instance to change the settings at runtime.
+ *
+ * @since 4.3.0
+ */
+public final class RequestSampler
+{
+	private static final RequestSampler ALL = new RequestSampler( 1.0, Collections.emptyMap(), 0 );
+
+	private final double samplingRate;
+	private final Map<String, Double> pathSamplingRates;
+	private final double maxCapturesPerSecond;
+
+	private final List<PathRule> pathRules = new ArrayList<>();
+	private final boolean sampleAll;
+
+	// token bucket implemented as the theoretical arrival time of the next capture
+	private final long captureIntervalNanos;
+	private final long burstNanos;
+	private final AtomicLong nextCaptureTime = new AtomicLong( System.nanoTime() );
+	private final LongAdder rateLimited = new LongAdder();
+
+	/**
+	 * @param samplingRate         fraction of requests to capture if no path rule matches, between 0 and 1
+	 * @param pathSamplingRates    sampling rate for requests matching a path pattern, the first match applies
+	 * @param maxCapturesPerSecond maximum number of sampled requests captured per second, 0 for no limit
+	 */
+	public RequestSampler( double samplingRate, Map<String, Double> pathSamplingRates, double maxCapturesPerSecond ) {
+		this.samplingRate = validateRate( samplingRate );
+		this.pathSamplingRates = Collections.unmodifiableMap( new LinkedHashMap<>( pathSamplingRates ) );
+		this.maxCapturesPerSecond = Math.max( 0, maxCapturesPerSecond );
+
+		this.pathSamplingRates.forEach(
+				( pattern, rate ) -> pathRules.add( new PathRule( pattern, validateRate( rate ) ) )
+		);
+
+		if ( this.maxCapturesPerSecond > 0 ) {
+			captureIntervalNanos = (long) ( TimeUnit.SECONDS.toNanos( 1 ) / this.maxCapturesPerSecond );
+			burstNanos = captureIntervalNanos * Math.max( 1, (long) this.maxCapturesPerSecond );
+		}
+		else {
+			captureIntervalNanos = 0;
+			burstNanos = 0;
+		}
+
+		sampleAll = this.samplingRate >= 1.0 && pathRules.isEmpty() && captureIntervalNanos == 0;
+	}
+
+	public double getSamplingRate() {
+		return samplingRate;
+	}
+
+	public Map<String, Double> getPathSamplingRates() {
+		return pathSamplingRates;
+	}
+
+	public double getMaxCapturesPerSecond() {
+		return maxCapturesPerSecond;
+	}
+
+	/**
+	 * @return number of sampled requests that were not captured because of the rate limit
+	 */
+	public long getRateLimitedCount() {
+		return rateLimited.sum();
+	}
+
+	/**
+	 * @param path lookup path of the request
+	 * @return true if the request should be captured
+	 */
+	public boolean sample( String path ) {
+		if ( sampleAll ) {
+			return true;
+		}
+
+		double rate = samplingRate;
+		for ( PathRule rule : pathRules ) {
+			if ( rule.matcher.matches( path ) ) {
+				rate = rule.rate;
+				break;
+			}
+		}
+
+		if ( rate < 1.0 && ( rate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= rate ) ) {
+			return false;
+		}
+
+		if ( captureIntervalNanos > 0 && !acquireCapture() ) {
+			rateLimited.increment();
+			return false;
+		}
+
+		return true;
+	}
+
+	private boolean acquireCapture() {
+		while ( true ) {
+			long now = System.nanoTime();
+			long next = nextCaptureTime.get();
+			long updated = Math.max( next, now ) + captureIntervalNanos;
+
+			if ( updated - now > burstNanos ) {
+				return false;
+			}
+			if ( nextCaptureTime.compareAndSet( next, updated ) ) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return sampler that captures every request
+	 */
+	public static RequestSampler all() {
+		return ALL;
+	}
+
+	/**
+	 * Parse a sampling rate, either as a percentage ({@code 5%}), as 1-in-N ({@code 1/20})
+	 * or as a fraction ({@code 0.05}).
+	 *
+	 * @param value to parse
+	 * @return rate between 0 and 1
+	 */
+	public static double parseRate( String value ) {
+		String rate = StringUtils.deleteWhitespace( value );
+
+		try {
+			if ( rate.endsWith( "%" ) ) {
+				return validateRate( Double.parseDouble( rate.substring( 0, rate.length() - 1 ) ) / 100 );
+			}
+			if ( rate.startsWith( "1/" ) ) {
+				return validateRate( 1.0 / Double.parseDouble( rate.substring( 2 ) ) );
+			}
+			return validateRate( Double.parseDouble( rate ) );
+		}
+		catch ( NumberFormatException nfe ) {
+			throw new IllegalArgumentException( "Invalid sampling rate: " + value, nfe );
+		}
+	}
+
+	private static double validateRate( double rate ) {
+		if ( Double.isNaN( rate ) || rate < 0 || rate > 1 ) {
+			throw new IllegalArgumentException( "Sampling rate must be between 0 and 1: " + rate );
+		}
+		return rate;
+	}
+
+	private static final class PathRule
+	{
+		private final RequestPathMatcher matcher;
+		private final double rate;
+
+		PathRule( String pattern, double rate ) {
+			this.matcher = new RequestPathMatcher( Collections.singleton( pattern ), Collections.emptyList() );
+			this.rate = rate;
+		}
+	}
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Stores {@link RequestResponseLogEntry} records in a sequence of memory-mapped segment files.
+ * Every record is prefixed by its length and starts with a fixed-size header holding the entry id, start time,
+ * duration and response status, followed by the binary representation of the {@link RequestResponseCapture}.
+ * <p/>
+ * A new segment is started when the current segment is full or older than the maximum segment age.
+ * Only the most recent segments are kept, the files of older segments are deleted.  A file that cannot be deleted
+ * yet, for example because it is still mapped on Windows, is retried when the next segment is started and when
+ * the store is closed.  The only data kept
+ * on-heap is the offset and id of every record, together with the start time, duration and response status
+ * used to search the records without reading them.  Segments already present in the directory are indexed
+ * when the store is created, only the record headers are read to do so.
+ * <p/>
+ * Every segment file is mapped with the full segment size when it is created.  On most file systems this results
+ * in a sparse file that only occupies the space actually written, but the reported file size is always the segment
+ * size and up to {@code maxSegments * segmentSize} bytes of disk space should be available.
+ * <p/>
+ * Appending is synchronized, reading does not block appending.
+ *
+ * @since 4.3.0
+ */
+public class SegmentedRequestResponseLogStore implements Closeable
+{
+	private static final Logger LOG = LoggerFactory.getLogger( SegmentedRequestResponseLogStore.class );
+
+	private static final String SEGMENT_PREFIX = "request-response-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	/**
+	 * Size of the record header: id, start time, duration and response status.
+	 */
+	private static final int RECORD_HEADER_SIZE = 16 + 8 + 8 + 4;
+
+	private final Path directory;
+	private final int segmentSize;
+	private final long maxSegmentAge;
+	private final int maxSegments;
+
+	private final List<Segment> segments = new CopyOnWriteArrayList<>();
+	private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream( 8192 );
+	private final List<Path> pendingDeletes = new ArrayList<>();
+
+	private Segment current;
+	private long nextSegmentNumber;
+
+	public SegmentedRequestResponseLogStore( Path directory,
+	                                         int segmentSize,
+	                                         Duration maxSegmentAge,
+	                                         int maxSegments ) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegmentAge = maxSegmentAge.toMillis();
+		this.maxSegments = Math.max( 1, maxSegments );
+
+		Files.createDirectories( directory );
+		openExistingSegments();
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param entry to append to the current segment
+	 */
+	public synchronized void append( RequestResponseLogEntry entry ) throws IOException {
+		recordBuffer.reset();
+		DataOutputStream output = new DataOutputStream( recordBuffer );
+		output.writeLong( entry.getId().getMostSignificantBits() );
+		output.writeLong( entry.getId().getLeastSignificantBits() );
+		output.writeLong( entry.getCapture().getStarted() );
+		output.writeLong( entry.getDuration() );
+		output.writeInt( entry.getCapture().getResponseStatus() );
+		entry.getCapture().writeTo( output );
+		output.flush();
+
+		int length = recordBuffer.size();
+
+		if ( current == null
+				|| System.currentTimeMillis() - current.created > maxSegmentAge
+				|| !current.hasRoomFor( length ) ) {
+			rollSegment( length );
+		}
+
+		current.append( entry, recordBuffer.toByteArray(), length );
+	}
+
+	/**
+	 * @return total number of records in the store
+	 */
+	public long size() {
+		long size = 0;
+		for ( Segment segment : segments ) {
+			size += segment.count;
+		}
+		return size;
+	}
+
+	/**
+	 * Read a page of records, most recent first.
+	 *
+	 * @param offset number of records to skip
+	 * @param limit  maximum number of records to read
+	 * @return records
+	 */
+	public List<RequestResponseLogEntry> read( long offset, int limit ) {
+		List<RequestResponseLogEntry> entries = new ArrayList<>( Math.min( limit, 1000 ) );
+		long skip = offset;
+
+		Segment[] snapshot = segments.toArray( new Segment[0] );
+		for ( int s = snapshot.length - 1; s >= 0 && entries.size() < limit; s-- ) {
+			Segment segment = snapshot[s];
+			int count = segment.count;
+
+			if ( skip >= count ) {
+				skip -= count;
+			}
+			else {
+				for ( int i = count - 1 - (int) skip; i >= 0 && entries.size() < limit; i-- ) {
+					entries.add( segment.read( i ) );
+				}
+				skip = 0;
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Pass every record matching the query to the visitor, most recent first, as long as the visitor returns true.
+	 * Only records of which the indexed values match are read, segments outside the time window are skipped.
+	 *
+	 * @param query   the records should match
+	 * @param visitor to pass the matching records to
+	 */
+	public void visit( RequestResponseLogQuery query, Predicate<RequestResponseLogEntry> visitor ) {
+		Segment[] snapshot = segments.toArray( new Segment[0] );
+
+		for ( int s = snapshot.length - 1; s >= 0; s-- ) {
+			Segment segment = snapshot[s];
+			int count = segment.count;
+
+			if ( count > 0 && query.overlaps( segment.firstStarted, segment.lastStarted ) ) {
+				for ( int i = count - 1; i >= 0; i-- ) {
+					if ( query.matches( segment.started[i], segment.durations[i], segment.statuses[i] ) ) {
+						RequestResponseLogEntry entry = segment.read( i );
+
+						if ( query.matchesUrl( entry ) && !visitor.test( entry ) ) {
+							return;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param id of the entry
+	 * @return entry or {@code null} if not present
+	 */
+	public RequestResponseLogEntry read( UUID id ) {
+		Segment[] snapshot = segments.toArray( new Segment[0] );
+		for ( int s = snapshot.length - 1; s >= 0; s-- ) {
+			int index = snapshot[s].indexOf( id );
+			if ( index >= 0 ) {
+				return snapshot[s].read( index );
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		for ( Segment segment : segments ) {
+			segment.close();
+		}
+		segments.clear();
+		current = null;
+
+		deletePendingFiles();
+	}
+
+	private void rollSegment( int recordLength ) throws IOException {
+		long capacity = Math.max( segmentSize, recordLength + 4L );
+		Path file = directory.resolve( SEGMENT_PREFIX + nextSegmentNumber++ + SEGMENT_SUFFIX );
+
+		try (FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+		                                             StandardOpenOption.WRITE )) {
+			current = new Segment( file, channel.map( FileChannel.MapMode.READ_WRITE, 0, capacity ) );
+		}
+		segments.add( current );
+
+		deletePendingFiles();
+
+		while ( segments.size() > maxSegments ) {
+			Segment oldest = segments.remove( 0 );
+			oldest.close();
+			deleteSegmentFile( oldest.file );
+		}
+	}
+
+	private void openExistingSegments() throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream( directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX )) {
+			stream.forEach( files::add );
+		}
+
+		files.sort( ( one, two ) -> Long.compare( segmentNumber( one ), segmentNumber( two ) ) );
+
+		for ( Path file : files ) {
+			long number = segmentNumber( file );
+			if ( number >= 0 ) {
+				try (FileChannel channel = FileChannel.open( file, StandardOpenOption.READ )) {
+					Segment segment = new Segment( file, channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+					segment.index();
+					segments.add( segment );
+				}
+				nextSegmentNumber = number + 1;
+			}
+		}
+
+		while ( segments.size() > maxSegments ) {
+			deleteSegmentFile( segments.remove( 0 ).file );
+		}
+	}
+
+	/**
+	 * Delete a segment file, if that fails it is retried when the next segment is started or the store is closed.
+	 */
+	private void deleteSegmentFile( Path file ) {
+		try {
+			Files.deleteIfExists( file );
+		}
+		catch ( IOException | RuntimeException e ) {
+			LOG.debug( "Unable to delete request-response log segment {}, retrying later", file, e );
+			pendingDeletes.add( file );
+		}
+	}
+
+	private void deletePendingFiles() {
+		pendingDeletes.removeIf( file -> {
+			try {
+				Files.deleteIfExists( file );
+				return true;
+			}
+			catch ( IOException | RuntimeException e ) {
+				LOG.debug( "Unable to delete request-response log segment {}", file, e );
+				return false;
+			}
+		} );
+
+		if ( !pendingDeletes.isEmpty() ) {
+			LOG.warn( "{} request-response log segments in {} could not be deleted yet", pendingDeletes.size(), directory );
+		}
+	}
+
+	private static long segmentNumber( Path file ) {
+		String name = file.getFileName().toString();
+		try {
+			return Long.parseLong( name.substring( SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length() ) );
+		}
+		catch ( NumberFormatException nfe ) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Single segment file.  Records are written by a single thread at a time, the count is only
+	 * incremented once the record and its index values have been written.
+	 */
+	private static final class Segment
+	{
+		private final Path file;
+		private final MappedByteBuffer buffer;
+		private final long created = System.currentTimeMillis();
+
+		private int[] offsets = new int[256];
+		private long[] ids = new long[512];
+		private long[] started = new long[256];
+		private long[] durations = new long[256];
+		private int[] statuses = new int[256];
+		private long firstStarted = Long.MAX_VALUE, lastStarted = Long.MIN_VALUE;
+		private int position;
+		private volatile int count;
+
+		Segment( Path file, MappedByteBuffer buffer ) {
+			this.file = file;
+			this.buffer = buffer;
+		}
+
+		boolean hasRoomFor( int recordLength ) {
+			return position + 4L + recordLength <= buffer.capacity();
+		}
+
+		void append( RequestResponseLogEntry entry, byte[] record, int length ) {
+			ByteBuffer target = buffer.duplicate();
+			target.position( position );
+			target.putInt( length );
+			target.put( record, 0, length );
+
+			addToIndex( entry.getId().getMostSignificantBits(), entry.getId().getLeastSignificantBits(),
+			            entry.getCapture().getStarted(), entry.getDuration(), entry.getCapture().getResponseStatus(),
+			            position );
+			position += 4 + length;
+		}
+
+		void index() {
+			ByteBuffer source = buffer.duplicate();
+
+			while ( source.remaining() >= 4 ) {
+				int offset = source.position();
+				int length = source.getInt();
+				if ( length < RECORD_HEADER_SIZE || length > source.remaining() ) {
+					break;
+				}
+				int next = source.position() + length;
+				addToIndex( source.getLong(), source.getLong(), source.getLong(), source.getLong(), source.getInt(), offset );
+				source.position( next );
+				position = next;
+			}
+		}
+
+		private void addToIndex( long mostSigBits, long leastSigBits, long recordStarted, long duration, int status, int offset ) {
+			int index = count;
+			if ( index == offsets.length ) {
+				offsets = Arrays.copyOf( offsets, index * 2 );
+				ids = Arrays.copyOf( ids, index * 4 );
+				started = Arrays.copyOf( started, index * 2 );
+				durations = Arrays.copyOf( durations, index * 2 );
+				statuses = Arrays.copyOf( statuses, index * 2 );
+			}
+
+			offsets[index] = offset;
+			ids[index * 2] = mostSigBits;
+			ids[index * 2 + 1] = leastSigBits;
+			started[index] = recordStarted;
+			durations[index] = duration;
+			statuses[index] = status;
+			firstStarted = Math.min( firstStarted, recordStarted );
+			lastStarted = Math.max( lastStarted, recordStarted );
+			count = index + 1;
+		}
+
+		int indexOf( UUID id ) {
+			int last = count;
+			long[] values = ids;
+			long mostSigBits = id.getMostSignificantBits();
+			long leastSigBits = id.getLeastSignificantBits();
+
+			for ( int i = last - 1; i >= 0; i-- ) {
+				if ( values[i * 2] == mostSigBits && values[i * 2 + 1] == leastSigBits ) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		RequestResponseLogEntry read( int index ) {
+			ByteBuffer source = buffer.duplicate();
+			source.position( offsets[index] );
+			byte[] record = new byte[source.getInt()];
+			source.get( record );
+
+			return decode( record );
+		}
+
+		private RequestResponseLogEntry decode( byte[] record ) {
+			try (DataInputStream input = new DataInputStream( new ByteArrayInputStream( record ) )) {
+				UUID id = new UUID( input.readLong(), input.readLong() );
+				input.skipBytes( RECORD_HEADER_SIZE - 16 );
+				return new RequestResponseLogEntry( id, RequestResponseCapture.readFrom( input ) );
+			}
+			catch ( IOException ioe ) {
+				throw new IllegalStateException( "Corrupt request-response log record in " + file, ioe );
+			}
+		}
+
+		void close() {
+			// the mapping itself is released when the buffer is garbage collected
+			buffer.force();
+		}
+	}
+}
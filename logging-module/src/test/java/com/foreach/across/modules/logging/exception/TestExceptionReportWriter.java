@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.exception;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestExceptionReportWriter
+{
+	private static final Class<?>[] TYPES = new Class<?>[] { CharSequence.class, Number.class };
+
+	@Test
+	public void onlyAllowedTypesAreRendered() {
+		ExceptionReportWriter writer = new ExceptionReportWriter( 1000, 1000, 5, TYPES );
+
+		assertEquals( "12", writer.render( 12 ) );
+		assertEquals( "abcde... [truncated]", writer.render( "abcdefgh" ) );
+		assertEquals( "[java.util.Arrays$ArrayList, size 2]", writer.render( Arrays.asList( 1, 2 ) ) );
+		assertEquals( "[int[3]]", writer.render( new int[3] ) );
+		assertEquals( "[" + Object.class.getName() + "]", writer.render( new Object() ) );
+	}
+
+	@Test
+	public void entriesBeyondSectionLimitAreOmitted() {
+		ExceptionReportWriter writer = new ExceptionReportWriter( 10_000, 100, 100, TYPES );
+
+		writer.startSection( "Attributes" );
+		for ( int i = 0; i < 10; i++ ) {
+			writer.param( "name" + i, new Object()
+			{
+				@Override
+				public String toString() {
+					fail( "value of a type that is not allowed should not be rendered" );
+					return null;
+				}
+			} );
+		}
+		writer.endSection();
+
+		String html = writer.toString();
+		assertTrue( html.startsWith( "<h5>Attributes</h5><tr><td><strong>name0</strong></td><td>[" ) );
+		assertTrue( html.endsWith( " more entries omitted</em></td></tr>" ) );
+		assertTrue( html.length() < 400 );
+	}
+
+	@Test
+	public void stackFramesAreLimited() {
+		Exception exception = new IllegalStateException( "outer", new IllegalArgumentException( "inner" ) );
+		ExceptionReportWriter writer = new ExceptionReportWriter( 100_000, 100_000, 100, TYPES );
+		writer.startSection( null ).stackTrace( exception, 2 );
+
+		String[] lines = writer.toString().split( "\n" );
+		assertEquals( "java.lang.IllegalStateException: outer", lines[0] );
+		assertTrue( lines[1].startsWith( "\tat " ) );
+		assertTrue( lines[3].startsWith( "\t... " ) && lines[3].endsWith( " more" ) );
+		assertEquals( "Caused by: java.lang.IllegalArgumentException: inner", lines[4] );
+		assertEquals( 8, lines.length );
+	}
+}
@@ -18,8 +18,11 @@ package com.foreach.across.modules.logging.exception;
 import com.foreach.common.spring.context.ApplicationContextInfo;
 import com.foreach.common.spring.context.ApplicationEnvironment;
 import com.foreach.common.spring.mail.MailService;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -28,9 +31,14 @@ import org.springframework.mock.web.MockHttpSession;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpSession;
 import java.io.File;
+import java.time.Duration;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -63,6 +71,12 @@ public class TestExceptionToMailResolver
 		resolver.setApplicationContext( applicationContextInfo );
 		resolver.setToAddress( toAddress );
 		resolver.setFromAddress( fromAddress );
+		resolver.setMailExecutor( Runnable::run );
+	}
+
+	@AfterEach
+	public void destroyResolver() {
+		resolver.destroy();
 	}
 
 	@Test
@@ -119,4 +133,86 @@ public class TestExceptionToMailResolver
 		verify( mailService ).sendMimeMail( eq( fromAddress ), eq( toAddress ), isNull(), anyString(), anyString(), isNull() );
 	}
 
+	@Test
+	public void repeatedExceptionsAreReportedInDigest() {
+		for ( int i = 0; i < 5; i++ ) {
+			resolver.doResolveException( new MockHttpServletRequest(), new MockHttpServletResponse(), null,
+			                             new IllegalStateException( "repeated" ) );
+		}
+		resolver.doResolveException( new MockHttpServletRequest(), new MockHttpServletResponse(), null,
+		                             new IllegalArgumentException( "other" ) );
+
+		verify( mailService, times( 2 ) ).sendMimeMail( anyString(), anyString(), isNull(), anyString(), anyString(), isNull() );
+
+		resolver.sendDigest();
+
+		ArgumentCaptor<String> subject = ArgumentCaptor.forClass( String.class );
+		ArgumentCaptor<String> body = ArgumentCaptor.forClass( String.class );
+		verify( mailService, times( 3 ) ).sendMimeMail( anyString(), anyString(), isNull(), subject.capture(), body.capture(), isNull() );
+		assertTrue( subject.getValue().endsWith( "Exception digest: 4 occurrences of 1 exceptions" ) );
+		assertTrue( body.getValue().contains( "java.lang.IllegalStateException: repeated" ) );
+		assertFalse( body.getValue().contains( "IllegalArgumentException" ) );
+
+		resolver.sendDigest();
+		verifyNoMoreInteractions( mailService );
+	}
+
+	@Test
+	public void mailIsSentInBackground() throws Exception {
+		ExceptionToMailResolver asyncResolver = new ExceptionToMailResolver();
+		asyncResolver.setMailService( mailService );
+		asyncResolver.setApplicationContext( applicationContextInfo );
+
+		CountDownLatch sending = new CountDownLatch( 1 );
+		CountDownLatch release = new CountDownLatch( 1 );
+		when( mailService.sendMimeMail( any(), any(), any(), anyString(), anyString(), any() ) ).then( invocation -> {
+			sending.countDown();
+			release.await();
+			return null;
+		} );
+
+		asyncResolver.doResolveException( new MockHttpServletRequest(), new MockHttpServletResponse(), null, new Exception() );
+		assertTrue( sending.await( 5, TimeUnit.SECONDS ) );
+
+		release.countDown();
+		asyncResolver.destroy();
+	}
+
+	@Test
+	public void fingerprintUsesRootCauseFrames() {
+		Exception cause = new IllegalStateException( "cause" );
+		Exception first = new RuntimeException( "first", cause );
+		Exception second = new RuntimeException( "second", cause );
+
+		String fingerprint = ExceptionMailThrottle.fingerprint( first, 2 );
+		assertEquals( fingerprint, ExceptionMailThrottle.fingerprint( second, 2 ) );
+		assertTrue( fingerprint.startsWith( "java.lang.RuntimeException|java.lang.IllegalStateException|" ) );
+		assertEquals( 4, fingerprint.split( "\\|" ).length );
+	}
+
+	@Test
+	public void fingerprintsNotSeenForAnHourArePruned() {
+		ExceptionMailThrottle throttle = new ExceptionMailThrottle( Duration.ofMinutes( 1 ), 10, 100 );
+		long start = 1000;
+		long hour = Duration.ofHours( 1 ).toMillis();
+
+		assertEquals( 1, throttle.register( "one", "one", start ).getTotal() );
+		assertEquals( 1, throttle.register( "two", "two", start + hour - Duration.ofMinutes( 2 ).toMillis() ).getTotal() );
+
+		assertTrue( throttle.drainDigest( start + 1 ).isEmpty() );
+		assertTrue( throttle.drainDigest( start + hour + 1 ).isEmpty() );
+		assertEquals( 1, throttle.register( "one", "one", start + hour + 2 ).getTotal() );
+		assertEquals( 2, throttle.register( "two", "two", start + hour + 2 ).getTotal() );
+	}
+
+	@Test
+	public void summaryHoldsTypeAndAbbreviatedMessage() {
+		assertEquals( "java.lang.IllegalStateException", ExceptionMailThrottle.summary( new IllegalStateException() ) );
+		assertEquals( "java.lang.IllegalStateException: failed",
+		              ExceptionMailThrottle.summary( new IllegalStateException( "failed" ) ) );
+
+		String summary = ExceptionMailThrottle.summary( new IllegalStateException( StringUtils.repeat( 'x', 500 ) ) );
+		assertEquals( "java.lang.IllegalStateException: ".length() + 200, summary.length() );
+		assertTrue( summary.endsWith( "..." ) );
+	}
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.loggers;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLogLevelOverrides
+{
+	private LoggerContext loggerContext;
+	private LogLevelOverrides overrides;
+	private Logger logger;
+
+	@BeforeEach
+	public void createOverrides() {
+		loggerContext = new LoggerContext();
+		logger = loggerContext.getLogger( "com.foreach" );
+		logger.setLevel( Level.WARN );
+		overrides = new LogLevelOverrides( loggerContext );
+	}
+
+	@AfterEach
+	public void closeOverrides() {
+		overrides.close();
+	}
+
+	@Test
+	public void originalLevelIsRestoredWhenExpired() {
+		overrides.override( logger, Level.DEBUG, Duration.ofHours( 1 ) );
+		overrides.override( logger, Level.TRACE, Duration.ofMillis( 50 ) );
+		assertEquals( Level.TRACE, logger.getLevel() );
+		assertEquals( Level.WARN, overrides.getOverrides().get( 0 ).getOriginalLevel() );
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 5 );
+		while ( !overrides.getOverrides().isEmpty() && System.nanoTime() < deadline ) {
+			LockSupport.parkNanos( TimeUnit.MILLISECONDS.toNanos( 10 ) );
+		}
+
+		assertTrue( overrides.getOverrides().isEmpty() );
+		assertEquals( Level.WARN, logger.getLevel() );
+	}
+
+	@Test
+	public void levelChangedInTheMeantimeIsKept() {
+		assertEquals( 1, overrides.override( Collections.singletonMap( "com.foreach", "debug" ), Duration.ofHours( 1 ) ) );
+		assertEquals( 0, overrides.override( Collections.singletonMap( "com.unknown", "debug" ), Duration.ofHours( 1 ) ) );
+		assertEquals( Level.DEBUG, logger.getLevel() );
+
+		logger.setLevel( Level.ERROR );
+		assertTrue( overrides.revert( "com.foreach" ) );
+		assertEquals( Level.ERROR, logger.getLevel() );
+		assertFalse( overrides.revert( "com.foreach" ) );
+
+		overrides.override( logger, Level.DEBUG, Duration.ofHours( 1 ) );
+		loggerContext.reset();
+		assertTrue( overrides.getOverrides().isEmpty() );
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.loggers;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLoggerIndex
+{
+	private LoggerContext loggerContext;
+	private LoggerIndex index;
+
+	@BeforeEach
+	public void createLoggers() {
+		loggerContext = new LoggerContext();
+		loggerContext.getLogger( "com.foreach.a" );
+		loggerContext.getLogger( "com.foreach.b" );
+		loggerContext.getLogger( "com.foreachx" );
+		loggerContext.getLogger( "org.hibernate" );
+		index = new LoggerIndex( loggerContext );
+	}
+
+	@Test
+	public void prefixSearchIsPaginated() {
+		LoggerIndex.Page page = index.find( "com.foreach.", 1, 5 );
+		assertEquals( 2, page.getTotal() );
+		assertEquals( "com.foreach.b", names( page ) );
+		assertTrue( page.hasPrevious() );
+		assertFalse( page.hasNext() );
+
+		page = index.find( "com.foreach", 0, 2 );
+		assertEquals( 4, page.getTotal() );
+		assertEquals( "com.foreach,com.foreach.a", names( page ) );
+		assertTrue( page.hasNext() );
+
+		assertEquals( 0, index.find( "net", 0, 10 ).getTotal() );
+		assertEquals( loggerContext.getLoggerList().size(), index.find( null, 0, 100 ).getTotal() );
+	}
+
+	@Test
+	public void indexIsRebuiltAfterReset() {
+		assertEquals( 2, index.find( "com.foreach.", 0, 10 ).getTotal() );
+
+		loggerContext.getLogger( "com.foreach.c" );
+		assertEquals( 2, index.find( "com.foreach.", 0, 10 ).getTotal() );
+
+		loggerContext.reset();
+		assertEquals( 3, index.find( "com.foreach.", 0, 10 ).getTotal() );
+	}
+
+	@Test
+	public void onlySubmittedLoggersAreUpdated() {
+		Map<String, String> levels = new HashMap<>();
+		levels.put( "com.foreach.a", "WARN" );
+		levels.put( "com.foreach.b", "invalid" );
+		levels.put( "does.not.exist", "ERROR" );
+		levels.put( "org.hibernate", "DEBUG" );
+
+		assertEquals( 1, index.updateLevels( levels ) );
+		assertEquals( Level.WARN, loggerContext.getLogger( "com.foreach.a" ).getLevel() );
+		assertNull( loggerContext.getLogger( "com.foreach.b" ).getLevel() );
+		assertNull( loggerContext.exists( "does.not.exist" ) );
+	}
+
+	private String names( LoggerIndex.Page page ) {
+		return page.getLoggers().stream().map( LoggerIndex.LoggerLevel::getName ).collect( Collectors.joining( "," ) );
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.loggers;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.foreach.across.modules.logging.request.RequestLoggerFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestDebugTurboFilter
+{
+	private LoggerContext loggerContext;
+	private RequestDebugTurboFilter filter;
+	private Logger logger;
+
+	@BeforeEach
+	public void registerFilter() {
+		loggerContext = new LoggerContext();
+		logger = loggerContext.getLogger( "com.foreach" );
+		logger.setLevel( Level.INFO );
+		filter = new RequestDebugTurboFilter();
+		filter.register( loggerContext );
+	}
+
+	@Test
+	public void onlyRequestsWithEnabledKeyAreVerbose() {
+		assertFalse( filter.begin( "secret", "request-1" ) );
+
+		filter.enable( "secret", Duration.ofMinutes( 1 ) );
+		assertFalse( filter.begin( "other", "request-1" ) );
+		assertFalse( logger.isDebugEnabled() );
+
+		assertTrue( filter.begin( "secret", "request-1" ) );
+		assertTrue( logger.isDebugEnabled() );
+		assertFalse( logger.isTraceEnabled() );
+		filter.end();
+
+		assertFalse( logger.isDebugEnabled() );
+		assertNull( MDC.get( RequestDebugTurboFilter.MDC_KEY ) );
+
+		filter.enable( "expired", Duration.ZERO );
+		assertFalse( filter.begin( null, "expired" ) );
+		assertEquals( 1, filter.getKeys().size() );
+	}
+
+	@Test
+	public void requestLoggerFilterEnablesDebugForRequestId() throws Exception {
+		RequestLoggerFilter requestLoggerFilter = new RequestLoggerFilter();
+		requestLoggerFilter.setAcceptRequestIdHeader( true );
+		requestLoggerFilter.setRequestDebugFilter( filter );
+		filter.enable( "debug-me", Duration.ofMinutes( 1 ) );
+
+		MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/test" );
+		request.addHeader( RequestLoggerFilter.HEADER_REQUEST_ID, "debug-me" );
+
+		AtomicBoolean debugEnabled = new AtomicBoolean();
+		requestLoggerFilter.doFilter( request, new MockHttpServletResponse(),
+		                              ( req, res ) -> debugEnabled.set( logger.isDebugEnabled() ) );
+
+		assertTrue( debugEnabled.get() );
+		assertFalse( logger.isDebugEnabled() );
+
+		loggerContext.reset();
+		assertTrue( loggerContext.getTurboFilterList().contains( filter ) );
+
+		filter.close();
+		assertTrue( loggerContext.getTurboFilterList().isEmpty() );
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.method;
+
+import com.foreach.across.modules.logging.request.RequestLoggerFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCallTreeRecorder
+{
+	@Test
+	public void repeatedCallsAreMergedPerParent() {
+		CallTree callTree = new CallTree( "id", "GET /", 0, 100 );
+
+		int service = callTree.enter( "service" );
+		callTree.setName( service, "service" );
+		for ( int i = 0; i < 3; i++ ) {
+			int repository = callTree.enter( "repository" );
+			if ( callTree.getName( repository ) == null ) {
+				callTree.setName( repository, "repository" );
+			}
+			callTree.exit( repository, 10 );
+		}
+		callTree.exit( service, 50 );
+
+		int repository = callTree.enter( "repository" );
+		callTree.setName( repository, "repository" );
+		callTree.exit( repository, 20 );
+
+		callTree.finish( 100 );
+
+		List<CallTree.Node> nodes = callTree.getNodes();
+		assertEquals( "GET /,service,repository,repository",
+		              nodes.stream().map( CallTree.Node::getName ).collect( Collectors.joining( "," ) ) );
+		assertEquals( 1, nodes.get( 1 ).getDepth() );
+		assertEquals( 2, nodes.get( 2 ).getDepth() );
+		assertEquals( 3, nodes.get( 2 ).getCalls() );
+		assertEquals( 30, nodes.get( 2 ).getTotalNanos() );
+		assertEquals( 20, nodes.get( 1 ).getSelfNanos() );
+		assertEquals( 30, nodes.get( 0 ).getSelfNanos() );
+		assertEquals( 50.0, nodes.get( 1 ).getPercentage() );
+	}
+
+	@Test
+	public void callsBeyondMaxNodesAreDropped() {
+		CallTree callTree = new CallTree( "id", "GET /", 0, 2 );
+
+		int first = callTree.enter( "first" );
+		int nested = callTree.enter( "nested" );
+		assertEquals( -1, nested );
+		callTree.exit( nested, 5 );
+		callTree.exit( first, 10 );
+		int second = callTree.enter( "second" );
+		callTree.exit( second, 10 );
+
+		callTree.finish( 20 );
+		assertEquals( 2, callTree.getNodeCount() );
+		assertEquals( 2, callTree.getDroppedCalls() );
+	}
+
+	@Test
+	public void onlySlowRequestsAreKept() throws Exception {
+		CallTreeRecorder recorder = new CallTreeRecorder( 2 );
+		recorder.setSamplingRate( 1 );
+		recorder.setSlowRequestThreshold( 5 );
+
+		RequestLoggerFilter filter = new RequestLoggerFilter();
+		filter.setCallTreeRecorder( recorder );
+
+		filter.doFilter( new MockHttpServletRequest( "GET", "/fast" ), new MockHttpServletResponse(), ( req, res ) -> {
+			assertNotNull( CallTree.CURRENT.get() );
+		} );
+		for ( String uri : new String[] { "/slow/1", "/slow/2", "/slow/3" } ) {
+			filter.doFilter( new MockHttpServletRequest( "GET", uri ), new MockHttpServletResponse(),
+			                 ( req, res ) -> waitMillis( 10 ) );
+		}
+
+		assertNull( CallTree.CURRENT.get() );
+
+		List<CallTree> slowRequests = recorder.getSlowRequests();
+		assertEquals( 2, slowRequests.size() );
+		assertEquals( "GET /slow/3", slowRequests.get( 0 ).getDescription() );
+		assertEquals( "GET /slow/2", slowRequests.get( 1 ).getDescription() );
+
+		String requestId = slowRequests.get( 0 ).getRequestId();
+		assertSame( slowRequests.get( 0 ), recorder.getSlowRequest( requestId ) );
+
+		recorder.setSamplingRate( 0 );
+		assertNull( recorder.start( "id", "GET", "/" ) );
+	}
+
+	private static void waitMillis( long millis ) {
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( millis );
+		while ( System.nanoTime() < end ) {
+			LockSupport.parkNanos( end - System.nanoTime() );
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.method;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class TestMethodLoggerAdapter
+{
+	private final MethodLoggerAdapter adapter = new MethodLoggerAdapter( "test" )
+	{
+	};
+
+	private Logger logger;
+	private ListAppender<ILoggingEvent> appender;
+
+	@BeforeEach
+	public void attachAppender() {
+		adapter.setEnabled( true );
+		logger = (Logger) LoggerFactory.getLogger( MethodLogger.class.getName() + ".test" );
+		appender = new ListAppender<>();
+		appender.start();
+		logger.addAppender( appender );
+	}
+
+	@AfterEach
+	public void detachAppender() {
+		logger.detachAppender( appender );
+	}
+
+	@Test
+	public void sequenceIsLoggedChildCountPlusPosition() {
+		MethodLoggerAdapter.MethodFrameStack frames = new MethodLoggerAdapter.MethodFrameStack();
+
+		frames.push();
+		frames.push();
+		assertEquals( 1, frames.pop() + frames.nextPosition() );
+		frames.push();
+		frames.push();
+		assertEquals( 1, frames.pop() + frames.nextPosition() );
+		frames.push();
+		assertEquals( 0, frames.pop() );
+		assertEquals( 3, frames.pop() + frames.nextPosition() );
+		assertEquals( 3, frames.pop() + frames.nextPosition() );
+
+		frames.push();
+		assertEquals( 1, frames.pop() + frames.nextPosition() );
+	}
+
+	@Test
+	public void nestedInvocationsAreLogged() throws Throwable {
+		ProceedingJoinPoint inner = joinPoint( "logged" );
+		ProceedingJoinPoint outer = joinPoint( "logged" );
+		when( outer.proceed() ).thenAnswer( invocation -> adapter.proceedAndLogExecutionTime( inner ) );
+
+		adapter.proceedAndLogExecutionTime( outer );
+
+		assertEquals(
+				"1\t" + Service.class.getName() + ".logged,2\t" + Service.class.getName() + ".logged",
+				appender.list.stream()
+				             .map( e -> e.getFormattedMessage().substring( 0, e.getFormattedMessage().lastIndexOf( '\t' ) ) )
+				             .collect( Collectors.joining( "," ) )
+		);
+	}
+
+	@Test
+	public void skippedOrDisabledInvocationsOnlyProceed() throws Throwable {
+		ProceedingJoinPoint skipped = joinPoint( "skipped" );
+		adapter.proceedAndLogExecutionTime( skipped );
+		verify( skipped ).proceed();
+
+		adapter.setEnabled( false );
+		ProceedingJoinPoint logged = joinPoint( "logged" );
+		adapter.proceedAndLogExecutionTime( logged );
+		verify( logged ).proceed();
+		verify( logged, never() ).getSignature();
+
+		assertTrue( appender.list.isEmpty() );
+	}
+
+	@Test
+	public void allCallsAreAggregated() throws Throwable {
+		MethodTimingRegistry registry = new MethodTimingRegistry( 1 );
+		adapter.setMinimumDuration( 10_000 );
+		adapter.setMethodTimingRegistry( registry );
+
+		for ( int i = 0; i < 3; i++ ) {
+			adapter.proceedAndLogExecutionTime( joinPoint( "logged" ) );
+		}
+		ProceedingJoinPoint other = joinPoint( "other" );
+		adapter.proceedAndLogExecutionTime( other );
+		adapter.proceedAndLogExecutionTime( other );
+
+		// the name of a method recorded as other is only built once
+		verify( other.getSignature(), times( 1 ) ).getDeclaringType();
+		assertEquals( MethodTimingRegistry.OTHER, registry.getTimings( Service.class.getMethod( "other" ) ).getMethodName() );
+
+		assertTrue( appender.list.isEmpty() );
+
+		List<MethodTimings.Snapshot> snapshots = registry.getSnapshots( Comparator.comparingLong( MethodTimings.Snapshot::getCount ), 10 );
+		assertEquals( 2, snapshots.size() );
+		assertEquals( Service.class.getName() + ".logged", snapshots.get( 0 ).getMethodName() );
+		assertEquals( "test", snapshots.get( 0 ).getLoggerName() );
+		assertEquals( 3, snapshots.get( 0 ).getCount() );
+		assertEquals( MethodTimingRegistry.OTHER, snapshots.get( 1 ).getMethodName() );
+		assertEquals( 2, snapshots.get( 1 ).getCount() );
+
+		registry.reset();
+		assertTrue( registry.getSnapshots( Comparator.comparingLong( MethodTimings.Snapshot::getCount ), 10 ).isEmpty() );
+		assertNull( registry.getTimings( Service.class.getMethod( "other" ) ) );
+	}
+
+	private ProceedingJoinPoint joinPoint( String methodName ) throws Exception {
+		MethodSignature signature = mock( MethodSignature.class );
+		when( signature.getMethod() ).thenReturn( Service.class.getMethod( methodName ) );
+		when( signature.getName() ).thenReturn( methodName );
+		when( signature.getDeclaringType() ).thenReturn( Service.class );
+
+		ProceedingJoinPoint point = mock( ProceedingJoinPoint.class );
+		when( point.getSignature() ).thenReturn( signature );
+		return point;
+	}
+
+	public static class Service
+	{
+		public void logged() {
+		}
+
+		public void other() {
+		}
+
+		@SkipMethodLogging
+		public void skipped() {
+		}
+	}
+}
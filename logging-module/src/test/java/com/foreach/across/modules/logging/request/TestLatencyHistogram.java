@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.request;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLatencyHistogram
+{
+	@Test
+	public void bucketsAreContiguous() {
+		assertEquals( 0, LatencyHistogram.bucketIndex( 0 ) );
+		assertEquals( 15, LatencyHistogram.bucketIndex( 15 ) );
+
+		for ( long value = 1; value < 1_000_000; value++ ) {
+			int index = LatencyHistogram.bucketIndex( value );
+			assertTrue( LatencyHistogram.bucketUpperBound( index ) >= value );
+			assertTrue( index == 0 || LatencyHistogram.bucketUpperBound( index - 1 ) < value );
+		}
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram( "GET", "/test", "handler" );
+		for ( int i = 1; i <= 1000; i++ ) {
+			histogram.record( i * 1000 );
+		}
+
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals( 1000, snapshot.getCount() );
+		assertEquals( 1_000_000, snapshot.getMax() );
+		assertEquals( 500_500, snapshot.getMean() );
+		assertWithinBucket( 500_000, snapshot.getP50() );
+		assertWithinBucket( 950_000, snapshot.getP95() );
+		assertWithinBucket( 990_000, snapshot.getP99() );
+
+		histogram.reset();
+		assertEquals( 0, histogram.snapshot().getCount() );
+		assertEquals( 0, histogram.snapshot().getP99() );
+	}
+
+	@Test
+	public void filterRecordsPerMapping() throws Exception {
+		EndpointLatencyRegistry registry = new EndpointLatencyRegistry( 2 );
+		RequestLoggerFilter filter = new RequestLoggerFilter();
+		filter.setEndpointLatencyRegistry( registry );
+
+		request( filter, "GET", "/users/{id}" );
+		request( filter, "GET", "/users/{id}" );
+		request( filter, "POST", "/users/{id}" );
+		request( filter, "GET", null );
+
+		List<LatencyHistogram.Snapshot> snapshots = registry.getSnapshots();
+		assertEquals( 3, snapshots.size() );
+		assertEquals( 2, registry.getHistogram( "GET", "/users/{id}" ).snapshot().getCount() );
+		assertEquals( 1, registry.getHistogram( "POST", "/users/{id}" ).snapshot().getCount() );
+		assertNull( registry.getHistogram( "GET", EndpointLatencyRegistry.UNMAPPED ) );
+		assertEquals( EndpointLatencyRegistry.OTHER, snapshots.get( 2 ).getMapping() );
+		assertEquals( 1, snapshots.get( 2 ).getCount() );
+	}
+
+	private void request( RequestLoggerFilter filter, String method, String mapping ) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest( method, "/users/1" );
+		filter.doFilter( request, new MockHttpServletResponse(), ( req, res ) -> {
+			if ( mapping != null ) {
+				req.setAttribute( HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, mapping );
+			}
+		} );
+	}
+
+	private void assertWithinBucket( long expected, long actual ) {
+		assertTrue( actual >= expected && actual <= expected * 1.125, "expected about " + expected + " but was " + actual );
+	}
+}
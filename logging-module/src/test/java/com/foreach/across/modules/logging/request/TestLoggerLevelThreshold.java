@@ -63,4 +63,15 @@ public class TestLoggerLevelThreshold
 		assertEquals( LoggerLevelThreshold.LoggerLevel.DEBUG,
 		              new LoggerLevelThreshold.Builder().build().getLogLevelForDuration( Integer.MAX_VALUE ) );
 	}
+
+	@Test
+	public void testGetLogLevelForDurationAroundThresholds() throws Exception {
+		LoggerLevelThreshold loggerLevelThreshold = new LoggerLevelThreshold.Builder().setInfoLevelThreshold( 10 ).setWarnLevelThreshold( 100 ).setErrorLevelThreshold( 1000 ).build();
+		assertEquals( LoggerLevelThreshold.LoggerLevel.DEBUG, loggerLevelThreshold.getLogLevelForDuration( -1 ) );
+		assertEquals( LoggerLevelThreshold.LoggerLevel.DEBUG, loggerLevelThreshold.getLogLevelForDuration( 9 ) );
+		assertEquals( LoggerLevelThreshold.LoggerLevel.INFO, loggerLevelThreshold.getLogLevelForDuration( 99 ) );
+		assertEquals( LoggerLevelThreshold.LoggerLevel.WARN, loggerLevelThreshold.getLogLevelForDuration( 100 ) );
+		assertEquals( LoggerLevelThreshold.LoggerLevel.WARN, loggerLevelThreshold.getLogLevelForDuration( 999 ) );
+		assertEquals( LoggerLevelThreshold.LoggerLevel.ERROR, loggerLevelThreshold.getLogLevelForDuration( Long.MAX_VALUE ) );
+	}
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.request;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.MessageFormatter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRequestLogLineWriter
+{
+	@Test
+	public void tabSeparatedIsIdenticalToPattern() {
+		MockHttpServletRequest request = request();
+
+		String expected = MessageFormatter.arrayFormat(
+				"{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}",
+				new Object[] { "10.0.0.1", "GET", request.getRequestURL() + "?q=a%20b", "/app", "/users/{id}", "-", "-", 200, 15L }
+		).getMessage();
+
+		assertEquals( expected, RequestLogLineWriter.write( RequestLogFormat.TAB_SEPARATED, request, 200, 15 ) );
+	}
+
+	@Test
+	public void urlIsIdenticalToRequestUrl() {
+		for ( int port : new int[] { 80, 443, 8080, -1 } ) {
+			for ( String scheme : new String[] { "http", "https" } ) {
+				MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/path" );
+				request.setScheme( scheme );
+				request.setServerPort( port );
+
+				StringBuilder url = new StringBuilder();
+				RequestLogLineWriter.appendUrl( url, request );
+				assertEquals( request.getRequestURL().toString(), url.toString() );
+			}
+		}
+	}
+
+	@Test
+	public void json() {
+		MockHttpServletRequest request = request();
+		request.setAttribute( LogHandlerAndViewNameInterceptor.ATTRIBUTE_HANDLER, "Controller.\"quoted\"\\" );
+		request.setAttribute( LogHandlerAndViewNameInterceptor.ATTRIBUTE_VIEW_NAME, "line\nbreak\t" );
+
+		assertEquals(
+				"{\"remoteAddress\":\"10.0.0.1\",\"method\":\"GET\",\"url\":\"http://localhost/app/users/1?q=a%20b\"," +
+						"\"servletPath\":\"/app\",\"requestMapping\":\"/users/{id}\",\"handler\":\"Controller.\\\"quoted\\\"\\\\\"," +
+						"\"view\":\"line\\u000abreak\\u0009\",\"status\":-1,\"duration\":15}",
+				RequestLogLineWriter.write( RequestLogFormat.JSON, request, -1, 15 )
+		);
+	}
+
+	@Test
+	public void jsonEscapesTheUrl() {
+		MockHttpServletRequest request = request();
+		request.setQueryString( "q=\"a\\b\"&next=\u0001" );
+
+		assertTrue( RequestLogLineWriter.write( RequestLogFormat.JSON, request, 200, 15 )
+		                                .contains( ",\"url\":\"http://localhost/app/users/1?q=\\\"a\\\\b\\\"&next=\\u0001\"," ) );
+	}
+
+	@Test
+	public void logFieldsAreAppended() {
+		MockHttpServletRequest request = request();
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put( "sqlStatements", 12 );
+		fields.put( "note", "a\"b" );
+		request.setAttribute( RequestLoggerFilter.ATTRIBUTE_LOG_FIELDS, fields );
+
+		String expected = MessageFormatter.arrayFormat(
+				"{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}={}\t{}={}",
+				new Object[] { "10.0.0.1", "GET", request.getRequestURL() + "?q=a%20b", "/app", "/users/{id}", "-", "-", 200, 15L,
+				               "sqlStatements", 12, "note", "a\"b" }
+		).getMessage();
+
+		assertEquals( expected, RequestLogLineWriter.write( RequestLogFormat.TAB_SEPARATED, request, 200, 15 ) );
+		assertTrue( RequestLogLineWriter.write( RequestLogFormat.JSON, request, 200, 15 )
+		                                .endsWith( ",\"duration\":15,\"sqlStatements\":12,\"note\":\"a\\\"b\"}" ) );
+	}
+
+	private MockHttpServletRequest request() {
+		MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/app/users/1" );
+		request.setRemoteAddr( "10.0.0.1" );
+		request.setServletPath( "/app" );
+		request.setQueryString( "q=a%20b" );
+		request.setAttribute( HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/users/{id}" );
+		return request;
+	}
+}
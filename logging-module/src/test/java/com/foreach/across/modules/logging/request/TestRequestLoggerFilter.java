@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.foreach.across.modules.logging.request;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.foreach.across.modules.logging.loggers.RequestDebugTurboFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestLoggerFilter
+{
+	private final RequestLoggerFilter filter = new RequestLoggerFilter();
+
+	@AfterEach
+	public void clearMdc() {
+		MDC.clear();
+	}
+
+	@Test
+	public void defaultRequestIdIsUuid() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter( new MockHttpServletRequest( "GET", "/test" ), response, new MockFilterChain() );
+
+		String requestId = response.getHeader( RequestLoggerFilter.HEADER_REQUEST_ID );
+		assertEquals( 4, UUID.fromString( requestId ).version() );
+	}
+
+	@Test
+	public void previousMdcValuesAreRestored() throws Exception {
+		MDC.put( RequestLoggerFilter.LOG_REQUESTID, "outer-request" );
+		MDC.put( "other", "value" );
+
+		filter.setInstanceId( "my-instance" );
+		filter.doFilter( new MockHttpServletRequest( "GET", "/test" ), new MockHttpServletResponse(), ( req, res ) -> {
+			assertEquals( "my-instance", MDC.get( RequestLoggerFilter.LOG_INSTANCEID ) );
+			assertEquals( req.getAttribute( RequestLoggerFilter.ATTRIBUTE_UNIQUE_ID ), MDC.get( RequestLoggerFilter.LOG_REQUESTID ) );
+		} );
+
+		assertEquals( "outer-request", MDC.get( RequestLoggerFilter.LOG_REQUESTID ) );
+		assertNull( MDC.get( RequestLoggerFilter.LOG_INSTANCEID ) );
+		assertEquals( "value", MDC.get( "other" ) );
+	}
+
+	@Test
+	public void debugModeAndMdcAreReleasedIfLoggingFails() {
+		RequestDebugTurboFilter debugFilter = new RequestDebugTurboFilter();
+		debugFilter.enable( "debug-key", Duration.ofMinutes( 1 ) );
+		filter.setRequestDebugFilter( debugFilter );
+		filter.setEndpointLatencyRegistry( new EndpointLatencyRegistry()
+		{
+			@Override
+			public void record( String method, String mapping, String handlerName, long durationMicros ) {
+				throw new IllegalStateException( "recording failed" );
+			}
+		} );
+
+		MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/test" );
+		request.addHeader( debugFilter.getHeaderName(), "debug-key" );
+
+		assertThrows( IllegalStateException.class, () -> filter.doFilter( request, new MockHttpServletResponse(), ( req, res ) -> {
+			assertEquals( "debug-key", MDC.get( RequestDebugTurboFilter.MDC_KEY ) );
+		} ) );
+
+		assertNull( MDC.get( RequestDebugTurboFilter.MDC_KEY ) );
+		assertNull( MDC.get( RequestLoggerFilter.LOG_REQUESTID ) );
+	}
+
+	@Test
+	public void incomingRequestIdIsOnlyUsedIfAcceptedAndValid() throws Exception {
+		assertNotEquals( "incoming-id", requestIdFor( "incoming-id" ) );
+
+		filter.setAcceptRequestIdHeader( true );
+		assertEquals( "incoming-id", requestIdFor( "incoming-id" ) );
+		assertNotEquals( "invalid id\r\n", requestIdFor( "invalid id\r\n" ) );
+		assertNotEquals( 65, requestIdFor( new String( new char[65] ).replace( '\0', 'a' ) ).length() );
+	}
+
+	@Test
+	public void customRequestIdGenerator() throws Exception {
+		filter.setRequestIdGenerator( () -> "fixed" );
+		assertEquals( "fixed", requestIdFor( null ) );
+	}
+
+	@Test
+	public void sequentialRequestIdsAreUnique() {
+		RequestIdGenerator generator = RequestIdGenerator.sequential();
+		Set<String> ids = new HashSet<>();
+
+		for ( int i = 0; i < 1000; i++ ) {
+			assertTrue( ids.add( generator.generateRequestId() ) );
+		}
+
+		String prefix = ids.iterator().next().split( "-" )[0];
+		ids.forEach( id -> assertTrue( id.startsWith( prefix + "-" ) ) );
+	}
+
+	@Test
+	public void pathAndHandlerThresholdsOverrideDefault() throws Exception {
+		Logger logger = (Logger) RequestLogger.LOG;
+		ListAppender<ILoggingEvent> appender = new ListAppender<>();
+		appender.start();
+		logger.addAppender( appender );
+
+		try {
+			filter.setLoggerLevelThreshold( new LoggerLevelThreshold.Builder().setErrorLevelThreshold( 0 ).build() );
+			filter.setPathLoggerLevelThresholds( Collections.singletonMap(
+					"/export/**", new LoggerLevelThreshold.Builder().setWarnLevelThreshold( 0 ).build() ) );
+			filter.setHandlerLoggerLevelThresholds( Collections.singletonMap(
+					"ExportController.pdf()", new LoggerLevelThreshold.Builder().setInfoLevelThreshold( 0 ).build() ) );
+
+			filter.doFilter( new MockHttpServletRequest( "GET", "/test" ), new MockHttpServletResponse(), new MockFilterChain() );
+			filter.doFilter( new MockHttpServletRequest( "GET", "/export/csv" ), new MockHttpServletResponse(), new MockFilterChain() );
+			filter.doFilter( new MockHttpServletRequest( "GET", "/export/pdf" ), new MockHttpServletResponse(),
+			                 ( req, res ) -> req.setAttribute( LogHandlerAndViewNameInterceptor.ATTRIBUTE_HANDLER, "ExportController.pdf()" ) );
+
+			assertEquals( 3, appender.list.size() );
+			assertEquals( Level.ERROR, appender.list.get( 0 ).getLevel() );
+			assertEquals( Level.WARN, appender.list.get( 1 ).getLevel() );
+			assertEquals( Level.INFO, appender.list.get( 2 ).getLevel() );
+		}
+		finally {
+			logger.detachAppender( appender );
+		}
+	}
+
+	private String requestIdFor( String incomingRequestId ) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/test" );
+		if ( incomingRequestId != null ) {
+			request.addHeader( RequestLoggerFilter.HEADER_REQUEST_ID, incomingRequestId );
+		}
+
+		filter.doFilter( request, new MockHttpServletResponse(), new MockFilterChain() );
+
+		return (String) request.getAttribute( RequestLoggerFilter.ATTRIBUTE_UNIQUE_ID );
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.foreach.across.modules.logging.request;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRequestPathMatcher
+{
+	private static final List<String> PATHS = Arrays.asList(
+			"", "/", "/health", "/health/", "/healthy", "/debug", "/debug/", "/debug/loggers", "debug/loggers",
+			"//debug/loggers", "/debug//loggers", "/static/css/main.css", "/main.css", "/static/main.css/",
+			"/static/js/app.js", "/api/users/1", "/api/users/1/login", "/login", "/other/login", "/a.CSS"
+	);
+
+	@Test
+	public void emptyPatternsMatchEverything() {
+		RequestPathMatcher matcher = RequestPathMatcher.all();
+		PATHS.forEach( path -> assertTrue( matcher.matches( path ) ) );
+		assertFalse( matcher.matches( null ) );
+	}
+
+	@Test
+	public void excludedPatternsOnly() {
+		assertSameAsAntPathMatcher(
+				Collections.emptyList(),
+				Arrays.asList( "/health", "/debug/**", "/**/*.css", "/**/*.js", "/**/login", "/api/*/1" )
+		);
+	}
+
+	@Test
+	public void includedPatternsOnly() {
+		assertSameAsAntPathMatcher( Arrays.asList( "/api/**", "/login" ), Collections.emptyList() );
+	}
+
+	@Test
+	public void includedAndExcludedPatterns() {
+		assertSameAsAntPathMatcher( Arrays.asList( "/**" ), Arrays.asList( "/debug/**", "/**/login" ) );
+		assertSameAsAntPathMatcher( Arrays.asList( "/api/**", "/static/**" ), Arrays.asList( "/**/*.css", "/api/users/{id}" ) );
+	}
+
+	@Test
+	public void cachedDecisionsAreConsistent() {
+		RequestPathMatcher matcher = new RequestPathMatcher( Collections.emptyList(), Collections.singleton( "/**/login" ) );
+
+		for ( int i = 0; i < RequestPathMatcher.MAX_CACHED_DECISIONS * 2; i++ ) {
+			assertTrue( matcher.matches( "/api/users/" + i ) );
+			assertFalse( matcher.matches( "/api/users/" + i + "/login" ) );
+		}
+	}
+
+	private void assertSameAsAntPathMatcher( Collection<String> included, Collection<String> excluded ) {
+		RequestPathMatcher matcher = new RequestPathMatcher( included, excluded );
+
+		for ( String path : PATHS ) {
+			// repeat to also verify the cached decisions
+			for ( int i = 0; i < 2; i++ ) {
+				assertEquals( antPathMatcherDecision( included, excluded, path ), matcher.matches( path ), path );
+			}
+		}
+	}
+
+	private boolean antPathMatcherDecision( Collection<String> included, Collection<String> excluded, String path ) {
+		AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+		for ( String pattern : excluded ) {
+			if ( antPathMatcher.match( pattern, path ) ) {
+				return false;
+			}
+		}
+
+		for ( String pattern : included ) {
+			if ( antPathMatcher.match( pattern, path ) ) {
+				return true;
+			}
+		}
+
+		return included.isEmpty();
+	}
+}
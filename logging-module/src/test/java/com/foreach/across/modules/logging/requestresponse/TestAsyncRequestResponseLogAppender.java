@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAsyncRequestResponseLogAppender
+{
+	@Test
+	public void entriesArePublishedInOrder() throws Exception {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		AsyncRequestResponseLogAppender appender = new AsyncRequestResponseLogAppender( registry );
+		appender.setBatchSize( 3 );
+
+		for ( int i = 0; i < 10; i++ ) {
+			assertTrue( appender.append( capture( "/page/" + i ) ) );
+		}
+
+		appender.afterPropertiesSet();
+		appender.destroy();
+
+		assertEquals( 10, registry.size() );
+		assertEquals( 0, appender.getQueued() );
+		assertEquals( "/page/9", registry.getEntries().iterator().next().getUri() );
+	}
+
+	@Test
+	public void discardNewestWhenQueueIsFull() throws Exception {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		AsyncRequestResponseLogAppender appender = new AsyncRequestResponseLogAppender( registry );
+		appender.setQueueSize( 2 );
+
+		assertTrue( appender.append( capture( "/one" ) ) );
+		assertTrue( appender.append( capture( "/two" ) ) );
+		assertFalse( appender.append( capture( "/three" ) ) );
+		assertEquals( 1, appender.getDropped() );
+
+		appender.afterPropertiesSet();
+		appender.destroy();
+
+		assertEquals( "[/two, /one]", uris( registry ).toString() );
+	}
+
+	@Test
+	public void discardOldestWhenQueueIsFull() throws Exception {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		AsyncRequestResponseLogAppender appender = new AsyncRequestResponseLogAppender( registry );
+		appender.setQueueSize( 2 );
+		appender.setDropPolicy( AsyncRequestResponseLogAppender.DropPolicy.DISCARD_OLDEST );
+
+		assertTrue( appender.append( capture( "/one" ) ) );
+		assertTrue( appender.append( capture( "/two" ) ) );
+		assertTrue( appender.append( capture( "/three" ) ) );
+		assertEquals( 1, appender.getDropped() );
+		assertEquals( 2, appender.getQueued() );
+
+		appender.afterPropertiesSet();
+		appender.destroy();
+
+		assertEquals( "[/three, /two]", uris( registry ).toString() );
+	}
+
+	@Test
+	public void publishingContinuesAfterFailure() throws Exception {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry()
+		{
+			private boolean failed;
+
+			@Override
+			public void addAll( Collection<RequestResponseLogEntry> entries ) {
+				if ( !failed ) {
+					failed = true;
+					throw new IllegalStateException( "store unavailable" );
+				}
+				super.addAll( entries );
+			}
+		};
+		AsyncRequestResponseLogAppender appender = new AsyncRequestResponseLogAppender( registry );
+		appender.setBatchSize( 1 );
+
+		for ( int i = 0; i < 3; i++ ) {
+			assertTrue( appender.append( capture( "/page/" + i ) ) );
+		}
+
+		appender.afterPropertiesSet();
+		appender.destroy();
+
+		assertEquals( "[/page/2, /page/1]", uris( registry ).toString() );
+	}
+
+	private List<String> uris( RequestResponseLogRegistry registry ) {
+		List<String> uris = new ArrayList<>();
+		registry.getEntries().forEach( entry -> uris.add( entry.getUri() ) );
+		return uris;
+	}
+
+	private RequestResponseCapture capture( String uri ) {
+		MockHttpServletRequest request = new MockHttpServletRequest( "GET", uri );
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		return new RequestResponseCapture( 0, 10, new LogRequestWrapper( request ), new LogResponseWrapper( response ) );
+	}
+}
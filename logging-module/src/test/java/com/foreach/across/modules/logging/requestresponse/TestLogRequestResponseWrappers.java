@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLogRequestResponseWrappers
+{
+	@Test
+	public void fixedByteArrayOutputStreamOnlyKeepsMaximumBytes() {
+		FixedByteArrayOutputStream bos = new FixedByteArrayOutputStream( 10 );
+		bos.write( new byte[] { 1, 2, 3, 4, 5, 6 }, 0, 6 );
+		assertFalse( bos.isMaximumReached() );
+
+		bos.write( new byte[] { 7, 8, 9, 10 }, 0, 4 );
+		assertFalse( bos.isMaximumReached() );
+		assertEquals( 10, bos.size() );
+
+		bos.write( 11 );
+		bos.write( new byte[] { 12, 13 }, 0, 2 );
+		assertTrue( bos.isMaximumReached() );
+		assertEquals( 10, bos.size() );
+		assertEquals( 13, bos.getRealSize() );
+
+		FixedByteArrayOutputStream partial = new FixedByteArrayOutputStream( 4 );
+		partial.write( new byte[] { 1, 2, 3, 4, 5, 6 }, 1, 5 );
+		assertTrue( partial.isMaximumReached() );
+		assertArrayEquals( new byte[] { 2, 3, 4, 5 }, partial.toByteArray() );
+	}
+
+	@Test
+	public void requestBodyIsCapturedUsingBulkReads() throws Exception {
+		byte[] body = new byte[200 * 1024];
+		Arrays.fill( body, (byte) 'a' );
+
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", "/upload" );
+		request.setContent( body );
+
+		LogRequestWrapper wrapper = new LogRequestWrapper( request );
+		assertSame( wrapper.getInputStream(), wrapper.getInputStream() );
+		assertArrayEquals( body, StreamUtils.copyToByteArray( wrapper.getInputStream() ) );
+
+		assertEquals( body.length, wrapper.payloadSize() );
+		assertTrue( wrapper.isMaximumReached() );
+		assertEquals( 100 * 1024, wrapper.toByteArray().length );
+	}
+
+	@Test
+	public void responseBodyIsCapturedFromOutputStream() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		LogResponseWrapper wrapper = new LogResponseWrapper( response );
+
+		wrapper.getOutputStream().write( "hello ".getBytes( StandardCharsets.UTF_8 ) );
+		wrapper.getOutputStream().write( 'w' );
+
+		assertEquals( "hello w", response.getContentAsString() );
+		assertEquals( "hello w", new String( wrapper.toByteArray(), StandardCharsets.UTF_8 ) );
+		assertEquals( 7, wrapper.payloadSize() );
+	}
+
+	@Test
+	public void responseBodyIsCapturedFromWriterUsingResponseEncoding() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setCharacterEncoding( "UTF-8" );
+		LogResponseWrapper wrapper = new LogResponseWrapper( response );
+
+		PrintWriter writer = wrapper.getWriter();
+		assertSame( writer, wrapper.getWriter() );
+		writer.write( "caf\u00e9" );
+		writer.print( '!' );
+
+		assertEquals( "caf\u00e9!", new String( wrapper.toByteArray(), StandardCharsets.UTF_8 ) );
+		assertEquals( 6, wrapper.payloadSize() );
+
+		writer.flush();
+		assertEquals( "caf\u00e9!", response.getContentAsString() );
+	}
+}
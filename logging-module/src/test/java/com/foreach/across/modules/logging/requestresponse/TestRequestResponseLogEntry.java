@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestResponseLogEntry
+{
+	@Test
+	public void entryIsRenderedFromCapture() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", "/login" );
+		request.setQueryString( "next=home" );
+		request.setRemoteUser( "john" );
+		request.setContentType( "application/json" );
+		request.setContent( "{\"name\":\"john\"}".getBytes( StandardCharsets.UTF_8 ) );
+		request.addHeader( "Accept", "text/html" );
+		request.setCookies( new Cookie( "theme", "dark" ) );
+		request.addParameter( "userPassword", "secret" );
+		request.addParameter( "user", "john" );
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		LogRequestWrapper requestWrapper = new LogRequestWrapper( request );
+		LogResponseWrapper responseWrapper = new LogResponseWrapper( response );
+		StreamUtils.copyToByteArray( requestWrapper.getInputStream() );
+		responseWrapper.setStatus( 201 );
+		responseWrapper.setHeader( "X-Test", "yes" );
+		responseWrapper.getOutputStream().write( "created".getBytes( StandardCharsets.UTF_8 ) );
+
+		RequestResponseLogEntry entry = new RequestResponseLogEntry( 1000, 1250, requestWrapper, responseWrapper );
+		entry.getCapture().mask( RequestResponseMasker.DEFAULT );
+		long retainedSize = entry.getRetainedSize();
+
+		assertEquals( "http://localhost/login?next=home", entry.getUrl() );
+		assertSame( entry.getUrl(), entry.getUrl() );
+		assertEquals( "/login", entry.getUri() );
+		assertEquals( "POST", entry.getRequestMethod() );
+		assertEquals( 250, entry.getDuration() );
+		assertEquals( "john @ 127.0.0.1:80", entry.getCallerInfo() );
+		assertEquals( "text/html", entry.getRequestHeaders().get( "Accept" ) );
+		assertEquals( "dark", entry.getRequestCookies().get( "theme" ) );
+		assertArrayEquals( new String[] { "*" }, entry.getRequestParameters().get( "userPassword" ) );
+		assertArrayEquals( new String[] { "john" }, entry.getRequestParameters().get( "user" ) );
+		assertEquals( "{\"name\":\"john\"}", entry.getRequestData() );
+		assertNotSame( entry.getRequestData(), entry.getRequestData() );
+		assertEquals( "15 bytes", entry.getRequestPayloadSize() );
+		assertFalse( entry.isRequestDataTruncated() );
+
+		assertEquals( 201, entry.getResponseStatus() );
+		assertEquals( "yes", entry.getResponseHeaders().get( "X-Test" ) );
+		assertEquals( "created", entry.getResponseData() );
+
+		assertTrue( entry.getRequestInfo().contains( "url: http://localhost/login?next=home" ) );
+		assertTrue( entry.getRequestInfo().contains( "theme: dark" ) );
+		assertEquals( retainedSize, entry.getRetainedSize() );
+	}
+
+	@Test
+	public void emptyPayloads() {
+		RequestResponseLogEntry entry = new RequestResponseLogEntry(
+				0, 0, new LogRequestWrapper( new MockHttpServletRequest() ), new LogResponseWrapper( new MockHttpServletResponse() )
+		);
+
+		assertEquals( "no request payload", entry.getRequestData() );
+		assertEquals( "no response payload", entry.getResponseData() );
+		assertTrue( entry.getRequestCookies().isEmpty() );
+		assertTrue( entry.getRequestParameters().isEmpty() );
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestResponseLogExporter
+{
+	@Test
+	public void entriesAreWrittenAsOneJsonObjectPerLine() throws IOException {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		registry.add( entry( "/first", "line\nbreak \"quoted\"" ) );
+		registry.add( entry( "/second", "{}" ) );
+		registry.add( entry( "/third", "" ) );
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertEquals( 2, new RequestResponseLogExporter( true ).export( registry, RequestResponseLogQuery.ALL, 2, output ) );
+
+		String[] lines = output.toString( "UTF-8" ).split( "\n" );
+		assertEquals( 2, lines.length );
+
+		ObjectMapper objectMapper = new ObjectMapper();
+		assertEquals( "/third", objectMapper.readTree( lines[0] ).get( "url" ).asText().substring( "http://localhost".length() ) );
+
+		JsonNode second = objectMapper.readTree( lines[1] );
+		assertEquals( "POST", second.get( "method" ).asText() );
+		assertEquals( 404, second.get( "status" ).asInt() );
+		assertEquals( 25, second.get( "duration" ).asLong() );
+		assertEquals( "value", second.get( "request" ).get( "parameters" ).get( "name" ).get( 0 ).asText() );
+		assertEquals( "{}", second.get( "request" ).get( "data" ).asText() );
+		assertEquals( "text/plain", second.get( "response" ).get( "headers" ).get( "Content-Type" ).asText() );
+
+		output.reset();
+		new RequestResponseLogExporter( false ).export( registry, RequestResponseLogQuery.ALL, 10, output );
+		JsonNode first = objectMapper.readTree( output.toString( "UTF-8" ).split( "\n" )[2] );
+		assertNull( first.get( "request" ).get( "data" ) );
+	}
+
+	private RequestResponseLogEntry entry( String uri, String body ) throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", uri );
+		request.addParameter( "name", "value" );
+		request.setContent( body.getBytes( StandardCharsets.UTF_8 ) );
+
+		LogRequestWrapper requestWrapper = new LogRequestWrapper( request );
+		StreamUtils.copyToByteArray( requestWrapper.getInputStream() );
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setStatus( 404 );
+		response.setContentType( "text/plain" );
+
+		return new RequestResponseLogEntry( 1000, 1025, requestWrapper, new LogResponseWrapper( response ) );
+	}
+}
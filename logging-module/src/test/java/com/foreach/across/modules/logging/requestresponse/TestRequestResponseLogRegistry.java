@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestResponseLogRegistry
+{
+	@Test
+	public void mostRecentEntriesAreKept() {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		registry.setMaxEntries( 3 );
+
+		List<RequestResponseLogEntry> added = new ArrayList<>();
+		for ( int i = 0; i < 5; i++ ) {
+			RequestResponseLogEntry entry = entry( "/page/" + i );
+			added.add( entry );
+			registry.add( entry );
+		}
+
+		assertEquals( 3, registry.size() );
+		assertEquals( "[/page/4, /page/3, /page/2]", uris( registry.getEntries() ).toString() );
+
+		assertNull( registry.getEntry( added.get( 1 ).getId() ) );
+		assertSame( added.get( 2 ), registry.getEntry( added.get( 2 ).getId() ) );
+	}
+
+	@Test
+	public void resizeKeepsMostRecentEntries() {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		registry.setMaxEntries( 5 );
+
+		List<RequestResponseLogEntry> added = new ArrayList<>();
+		for ( int i = 0; i < 5; i++ ) {
+			RequestResponseLogEntry entry = entry( "/page/" + i );
+			added.add( entry );
+			registry.add( entry );
+		}
+
+		registry.setMaxEntries( 2 );
+		assertEquals( 2, registry.getMaxEntries() );
+		assertEquals( "[/page/4, /page/3]", uris( registry.getEntries() ).toString() );
+		assertNull( registry.getEntry( added.get( 2 ).getId() ) );
+
+		registry.setMaxEntries( 10 );
+		registry.add( entry( "/page/5" ) );
+		assertEquals( "[/page/5, /page/4, /page/3]", uris( registry.getEntries() ).toString() );
+		assertEquals( 3, registry.size() );
+	}
+
+	@Test
+	public void concurrentAdds() throws Exception {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		registry.setMaxEntries( 50 );
+
+		ExecutorService executorService = Executors.newFixedThreadPool( 8 );
+		CountDownLatch latch = new CountDownLatch( 8 );
+
+		for ( int t = 0; t < 8; t++ ) {
+			executorService.submit( () -> {
+				for ( int i = 0; i < 500; i++ ) {
+					registry.add( entry( "/concurrent" ) );
+				}
+				latch.countDown();
+			} );
+		}
+
+		assertTrue( latch.await( 30, TimeUnit.SECONDS ) );
+		executorService.shutdown();
+
+		Collection<RequestResponseLogEntry> entries = registry.getEntries();
+		assertEquals( 50, entries.size() );
+		assertEquals( 50, registry.size() );
+		entries.forEach( entry -> assertSame( entry, registry.getEntry( entry.getId() ) ) );
+	}
+
+	@Test
+	public void oldestEntriesAreEvictedWhenOverRetainedBytes() throws Exception {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		registry.setMaxEntries( 10 );
+
+		RequestResponseLogEntry first = entry( "/page/0", 10000 );
+		long entrySize = first.getRetainedSize();
+		registry.setMaxRetainedBytes( entrySize * 3 );
+
+		registry.add( first );
+		for ( int i = 1; i < 5; i++ ) {
+			registry.add( entry( "/page/" + i, 10000 ) );
+		}
+
+		assertEquals( "[/page/4, /page/3, /page/2]", uris( registry.getEntries() ).toString() );
+		assertEquals( 3, registry.size() );
+		assertEquals( entrySize * 3, registry.getRetainedBytes() );
+		assertNull( registry.getEntry( first.getId() ) );
+
+		registry.setMaxRetainedBytes( 1 );
+		assertEquals( "[/page/4]", uris( registry.getEntries() ).toString() );
+		assertEquals( entrySize, registry.getRetainedBytes() );
+
+		registry.setMaxEntries( 5 );
+		assertEquals( entrySize, registry.getRetainedBytes() );
+	}
+
+	@Test
+	public void compressedPayloads() throws Exception {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		RequestResponseLogEntry uncompressed = entry( "/page", 10000 );
+		registry.add( uncompressed );
+
+		registry.setCompressPayloads( true );
+		RequestResponseLogEntry compressed = entry( "/page", 10000 );
+		registry.add( compressed );
+
+		assertTrue( compressed.getCapture().getRequestPayload().isCompressed() );
+		assertTrue( compressed.getRetainedSize() < uncompressed.getRetainedSize() );
+		assertEquals( uncompressed.getRequestData(), compressed.getRequestData() );
+		assertEquals( 10000, compressed.getRequestData().length() );
+		assertEquals( uncompressed.getRetainedSize() + compressed.getRetainedSize(), registry.getRetainedBytes() );
+	}
+
+	@Test
+	public void findEntriesMatchingQuery() {
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		for ( int i = 0; i < 10; i++ ) {
+			registry.add( entry( i % 2 == 0 ? "/users/" + i : "/orders/" + i ) );
+		}
+
+		RequestResponseLogQuery users = new RequestResponseLogQuery( 200, 299, 10, 10, "/USERS", Long.MIN_VALUE, Long.MAX_VALUE );
+		assertEquals( Arrays.asList( "/users/8", "/users/6", "/users/4", "/users/2", "/users/0" ),
+		              uris( registry.findEntries( users, 0, 100 ) ) );
+		assertEquals( Arrays.asList( "/users/4", "/users/2" ), uris( registry.findEntries( users, 2, 2 ) ) );
+		assertTrue( registry.findEntries( users, 0, 0 ).isEmpty() );
+
+		RequestResponseLogQuery slow = new RequestResponseLogQuery( 0, 999, 100, Long.MAX_VALUE, null, Long.MIN_VALUE, Long.MAX_VALUE );
+		assertTrue( registry.findEntries( slow, 0, 100 ).isEmpty() );
+		assertEquals( 10, registry.findEntries( RequestResponseLogQuery.ALL, 0, 100 ).size() );
+	}
+
+	@Test
+	public void parseStatusRange() {
+		assertArrayEquals( new int[] { 0, Integer.MAX_VALUE }, RequestResponseLogQuery.parseStatusRange( " " ) );
+		assertArrayEquals( new int[] { 404, 404 }, RequestResponseLogQuery.parseStatusRange( "404" ) );
+		assertArrayEquals( new int[] { 400, 499 }, RequestResponseLogQuery.parseStatusRange( "4XX" ) );
+		assertArrayEquals( new int[] { 400, 499 }, RequestResponseLogQuery.parseStatusRange( "400 - 499" ) );
+
+		for ( String invalid : Arrays.asList( "400-", "-499", "-", "400-450-499", "4yy", "abc" ) ) {
+			assertThrows( IllegalArgumentException.class, () -> RequestResponseLogQuery.parseStatusRange( invalid ) );
+		}
+	}
+
+	private List<String> uris( Collection<RequestResponseLogEntry> entries ) {
+		List<String> uris = new ArrayList<>();
+		entries.forEach( entry -> uris.add( entry.getUri() ) );
+		return uris;
+	}
+
+	private RequestResponseLogEntry entry( String uri ) {
+		return new RequestResponseLogEntry( 0, 10,
+		                                    new LogRequestWrapper( new MockHttpServletRequest( "GET", uri ) ),
+		                                    new LogResponseWrapper( new MockHttpServletResponse() ) );
+	}
+
+	private RequestResponseLogEntry entry( String uri, int payloadSize ) throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", uri );
+		request.setContent( new String( new char[payloadSize] ).replace( '\0', 'a' ).getBytes( StandardCharsets.UTF_8 ) );
+
+		LogRequestWrapper requestWrapper = new LogRequestWrapper( request );
+		StreamUtils.copyToByteArray( requestWrapper.getInputStream() );
+
+		return new RequestResponseLogEntry( 0, 10, requestWrapper, new LogResponseWrapper( new MockHttpServletResponse() ) );
+	}
+}
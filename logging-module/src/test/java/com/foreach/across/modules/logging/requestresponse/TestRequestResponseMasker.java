@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestResponseMasker
+{
+	private final RequestResponseMasker masker = RequestResponseMasker.DEFAULT;
+
+	@Test
+	public void keysAreMatchedCaseInsensitive() {
+		assertTrue( masker.isMaskedKey( "userPassword" ) );
+		assertTrue( masker.isMaskedKey( "X-API_KEY" ) );
+		assertFalse( masker.isMaskedKey( "user" ) );
+
+		assertTrue( masker.isMaskedHeader( "Authorization" ) );
+		assertTrue( masker.isMaskedHeader( "X-Auth-Token" ) );
+		assertFalse( masker.isMaskedHeader( "Authorization-Info" ) );
+
+		assertTrue( masker.isMaskedCookie( "JSESSIONID" ) );
+		assertFalse( masker.isMaskedCookie( "theme" ) );
+
+		RequestResponseMasker none = new RequestResponseMasker( Collections.emptyList(), null, Collections.emptyList() );
+		assertFalse( none.isMaskedKey( "password" ) );
+		assertFalse( none.supportsPayload( "application/json" ) );
+	}
+
+	@Test
+	public void jsonValuesAreRedacted() {
+		assertEquals(
+				"{\"user\":\"john\",\"password\":\"*\",\"nested\":{\"apiKey\" : \"*\",\"n\":1},"
+						+ "\"tokens\":\"*\",\"secret\":\"*\",\"escaped\\\"password\":\"*\",\"list\":[\"password\"]}",
+				maskJson( "{\"user\":\"john\",\"password\":\"p\\\"a,}ss\",\"nested\":{\"apiKey\" : 123,\"n\":1},"
+						          + "\"tokens\":[{\"a\":\"]\"},2],\"secret\":null,\"escaped\\\"password\":{},\"list\":[\"password\"]}" )
+		);
+		assertEquals( "[{\"token\":\"*\"}, {\"token\":\"*\"}]", maskJson( "[{\"token\":true}, {\"token\":\"x\"}]" ) );
+		assertEquals( "{\"password\":\"*\"", maskJson( "{\"password\":\"trunc" ) );
+		assertNull( maskJson( "{\"password\":" ) );
+		assertNull( masker.maskPayload( "application/json", bytes( "{\"user\":\"john\"}" ), 15 ) );
+		assertNull( masker.maskPayload( "text/plain", bytes( "{\"password\":\"x\"}" ), 16 ) );
+	}
+
+	@Test
+	public void formValuesAreRedacted() {
+		byte[] form = bytes( "user=john&pass%77ord=a%26b&api%5Fkey=k&a+token&token&secret=" );
+		assertEquals( "user=john&pass%77ord=*&api%5Fkey=*&a+token&token&secret=*",
+		              new String( masker.maskPayload( "application/x-www-form-urlencoded; charset=UTF-8", form, form.length ),
+		                          StandardCharsets.UTF_8 ) );
+	}
+
+	@Test
+	public void captureIsMaskedOnce() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", "/login" );
+		request.setContentType( "application/json" );
+		request.setContent( bytes( "{\"name\":\"john\",\"password\":\"secret\"}" ) );
+		request.addHeader( "Authorization", "Basic abc" );
+		Cookie session = new Cookie( "SESSION", "123" );
+		request.setCookies( session, new Cookie( "theme", "dark" ) );
+		request.addParameter( "token", "abc" );
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		LogRequestWrapper requestWrapper = new LogRequestWrapper( request );
+		LogResponseWrapper responseWrapper = new LogResponseWrapper( response );
+		StreamUtils.copyToByteArray( requestWrapper.getInputStream() );
+		responseWrapper.setContentType( "application/json" );
+		responseWrapper.getOutputStream().write( bytes( "{\"accessToken\":\"xyz\"}" ) );
+
+		RequestResponseLogRegistry registry = new RequestResponseLogRegistry();
+		registry.setCompressPayloads( true );
+		RequestResponseLogEntry entry = new RequestResponseLogEntry( 0, 10, requestWrapper, responseWrapper );
+		registry.add( entry );
+
+		assertEquals( "*", entry.getRequestHeaders().get( "Authorization" ) );
+		assertEquals( "*", entry.getRequestCookies().get( "SESSION" ) );
+		assertEquals( "dark", entry.getRequestCookies().get( "theme" ) );
+		assertArrayEquals( new String[] { "*" }, entry.getRequestParameters().get( "token" ) );
+		assertEquals( "{\"name\":\"john\",\"password\":\"*\"}", entry.getRequestData() );
+		assertEquals( "{\"accessToken\":\"*\"}", entry.getResponseData() );
+		assertEquals( "123", session.getValue() );
+
+		entry.getCapture().mask( new RequestResponseMasker( Collections.singleton( "name" ), null, null ) );
+		assertEquals( "{\"name\":\"john\",\"password\":\"*\"}", new String( entry.getCapture().getRequestPayload().toByteArray(), StandardCharsets.UTF_8 ) );
+	}
+
+	private String maskJson( String json ) {
+		byte[] data = bytes( json + "padding" );
+		byte[] masked = masker.maskPayload( "application/vnd.api+json;charset=UTF-8", data, data.length - 7 );
+		return masked != null ? new String( masked, StandardCharsets.UTF_8 ) : null;
+	}
+
+	private static byte[] bytes( String value ) {
+		return value.getBytes( StandardCharsets.UTF_8 );
+	}
+}
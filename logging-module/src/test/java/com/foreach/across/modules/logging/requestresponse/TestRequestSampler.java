@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRequestSampler
+{
+	@Test
+	public void parseRate() {
+		assertEquals( 0.05, RequestSampler.parseRate( "5%" ), 0.0001 );
+		assertEquals( 0.02, RequestSampler.parseRate( "1/50" ), 0.0001 );
+		assertEquals( 0.3, RequestSampler.parseRate( " 0.3 " ), 0.0001 );
+		assertEquals( 1.0, RequestSampler.parseRate( "100%" ), 0.0001 );
+
+		assertThrows( IllegalArgumentException.class, () -> RequestSampler.parseRate( "150%" ) );
+		assertThrows( IllegalArgumentException.class, () -> RequestSampler.parseRate( "abc" ) );
+	}
+
+	@Test
+	public void pathRulesOverrideDefaultRate() {
+		Map<String, Double> rules = new LinkedHashMap<>();
+		rules.put( "/api/**", 0.0 );
+		rules.put( "/**/*.html", 1.0 );
+
+		RequestSampler sampler = new RequestSampler( 0.0, rules, 0 );
+
+		for ( int i = 0; i < 100; i++ ) {
+			assertFalse( sampler.sample( "/api/page.html" ) );
+			assertTrue( sampler.sample( "/page.html" ) );
+			assertFalse( sampler.sample( "/other" ) );
+		}
+	}
+
+	@Test
+	public void samplingRateIsApproximated() {
+		RequestSampler sampler = new RequestSampler( 0.25, Collections.emptyMap(), 0 );
+
+		int sampled = 0;
+		for ( int i = 0; i < 20000; i++ ) {
+			if ( sampler.sample( "/" ) ) {
+				sampled++;
+			}
+		}
+
+		assertTrue( sampled > 4000 && sampled < 6000, "sampled " + sampled );
+	}
+
+	@Test
+	public void rateLimitAllowsBurstOfOneSecond() {
+		RequestSampler sampler = new RequestSampler( 1.0, Collections.emptyMap(), 10 );
+
+		int sampled = 0;
+		for ( int i = 0; i < 100; i++ ) {
+			if ( sampler.sample( "/" ) ) {
+				sampled++;
+			}
+		}
+
+		assertTrue( sampled >= 10 && sampled <= 12, "sampled " + sampled );
+		assertEquals( 100 - sampled, sampler.getRateLimitedCount() );
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.logging.requestresponse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.Cookie;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSegmentedRequestResponseLogStore
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	public void entriesAreWrittenAndReadBack() throws Exception {
+		RequestResponseLogEntry original = entry( "/page/1" );
+
+		try (SegmentedRequestResponseLogStore store = store( 1024 * 1024, 2 )) {
+			store.append( original );
+
+			RequestResponseLogEntry read = store.read( original.getId() );
+			assertNotSame( original, read );
+			assertEquals( original.getId(), read.getId() );
+			assertEquals( original.getUrl(), read.getUrl() );
+			assertEquals( original.getRequestHeaders(), read.getRequestHeaders() );
+			assertEquals( original.getRequestCookies(), read.getRequestCookies() );
+			assertArrayEquals( original.getRequestParameters().get( "name" ), read.getRequestParameters().get( "name" ) );
+			assertEquals( "request body", read.getRequestData() );
+			assertEquals( "response body", read.getResponseData() );
+			assertEquals( 201, read.getResponseStatus() );
+			assertEquals( original.getResponseHeaders(), read.getResponseHeaders() );
+			assertEquals( original.getDuration(), read.getDuration() );
+		}
+	}
+
+	@Test
+	public void pagingAndSegmentRolling() throws Exception {
+		try (SegmentedRequestResponseLogStore store = store( 4096, 100 )) {
+			for ( int i = 0; i < 50; i++ ) {
+				store.append( entry( "/page/" + i ) );
+			}
+
+			assertTrue( segmentFiles() > 1 );
+			assertEquals( 50, store.size() );
+			assertEquals( "[/page/49, /page/48, /page/47]", uris( store.read( 0, 3 ) ).toString() );
+			assertEquals( "[/page/9, /page/8, /page/7]", uris( store.read( 40, 3 ) ).toString() );
+			assertEquals( "[/page/1, /page/0]", uris( store.read( 48, 10 ) ).toString() );
+		}
+
+		try (SegmentedRequestResponseLogStore reopened = store( 4096, 100 )) {
+			assertEquals( 50, reopened.size() );
+			reopened.append( entry( "/page/50" ) );
+			assertEquals( "[/page/50, /page/49]", uris( reopened.read( 0, 2 ) ).toString() );
+		}
+	}
+
+	@Test
+	public void oldestSegmentsAreDeleted() throws Exception {
+		List<RequestResponseLogEntry> entries = new ArrayList<>();
+
+		try (SegmentedRequestResponseLogStore store = store( 4096, 2 )) {
+			for ( int i = 0; i < 50; i++ ) {
+				RequestResponseLogEntry entry = entry( "/page/" + i );
+				entries.add( entry );
+				store.append( entry );
+			}
+
+			assertEquals( 2, segmentFiles() );
+			assertTrue( store.size() < 50 );
+			assertNull( store.read( entries.get( 0 ).getId() ) );
+			assertNotNull( store.read( entries.get( 49 ).getId() ) );
+		}
+	}
+
+	@Test
+	public void segmentsThatCannotBeDeletedAreRetriedLater() throws Exception {
+		Path first = directory.resolve( "request-response-0.log" );
+		Path second = directory.resolve( "request-response-1.log" );
+
+		SegmentedRequestResponseLogStore store = store( 4096, 1 );
+		store.append( entry( "/page/0" ) );
+
+		// a non-empty directory cannot be deleted, simulating a segment file that is still mapped
+		Files.delete( first );
+		Files.createDirectory( first );
+		Path blocking = Files.createFile( first.resolve( "blocking" ) );
+
+		for ( int i = 1; !Files.exists( second ); i++ ) {
+			store.append( entry( "/page/" + i ) );
+		}
+		assertTrue( Files.exists( first ) );
+
+		Files.delete( blocking );
+		store.close();
+		assertFalse( Files.exists( first ) );
+	}
+
+	@Test
+	public void searchUsesIndexedValuesAndSurvivesReopening() throws Exception {
+		RequestResponseLogQuery query = new RequestResponseLogQuery( 500, 599, 0, Long.MAX_VALUE, "PAGE/1", 5000, 15000 );
+
+		try (SegmentedRequestResponseLogStore store = store( 4096, 10 )) {
+			for ( int i = 0; i < 20; i++ ) {
+				store.append( entry( "/page/" + i, i * 1000, i % 2 == 0 ? 200 : 500 ) );
+			}
+
+			assertEquals( Arrays.asList( "/page/13", "/page/11" ), visit( store, query, 10 ) );
+			assertEquals( Collections.singletonList( "/page/13" ), visit( store, query, 1 ) );
+			assertTrue( visit( store, new RequestResponseLogQuery( 0, 999, 0, Long.MAX_VALUE, null, 50000, 60000 ), 10 ).isEmpty() );
+		}
+
+		try (SegmentedRequestResponseLogStore store = store( 4096, 10 )) {
+			assertEquals( Arrays.asList( "/page/13", "/page/11" ), visit( store, query, 10 ) );
+		}
+	}
+
+	@Test
+	public void persistentRegistryReadsEntriesFromTheStore() throws Exception {
+		PersistentRequestResponseLogRegistry registry = new PersistentRequestResponseLogRegistry( store( 4096, 10 ) );
+		for ( int i = 0; i < 3; i++ ) {
+			registry.add( entry( "/page/" + i ) );
+		}
+		registry.destroy();
+
+		PersistentRequestResponseLogRegistry reopened = new PersistentRequestResponseLogRegistry( store( 4096, 10 ) );
+		reopened.setMaxEntries( 2 );
+		try {
+			assertEquals( 3, reopened.size() );
+			assertEquals( Arrays.asList( "/page/2", "/page/1" ), uris( new ArrayList<>( reopened.getEntries() ) ) );
+		}
+		finally {
+			reopened.destroy();
+		}
+	}
+
+	private List<String> visit( SegmentedRequestResponseLogStore store, RequestResponseLogQuery query, int limit ) {
+		List<String> uris = new ArrayList<>();
+		store.visit( query, entry -> {
+			uris.add( entry.getUri() );
+			return uris.size() < limit;
+		} );
+		return uris;
+	}
+
+	private SegmentedRequestResponseLogStore store( int segmentSize, int maxSegments ) throws IOException {
+		return new SegmentedRequestResponseLogStore( directory, segmentSize, Duration.ofHours( 1 ), maxSegments );
+	}
+
+	private long segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list( directory )) {
+			return files.count();
+		}
+	}
+
+	private List<String> uris( List<RequestResponseLogEntry> entries ) {
+		return entries.stream().map( RequestResponseLogEntry::getUri ).collect( Collectors.toList() );
+	}
+
+	private RequestResponseLogEntry entry( String uri ) throws IOException {
+		return entry( uri, 100, 201 );
+	}
+
+	private RequestResponseLogEntry entry( String uri, long started, int status ) throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest( "POST", uri );
+		request.setQueryString( "name=value" );
+		request.addParameter( "name", "one", "two" );
+		request.addHeader( "Accept", "text/html" );
+		request.setCookies( new Cookie( "session", "abc" ) );
+		request.setContent( "request body".getBytes( StandardCharsets.UTF_8 ) );
+
+		LogRequestWrapper requestWrapper = new LogRequestWrapper( request );
+		StreamUtils.copyToByteArray( requestWrapper.getInputStream() );
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setStatus( status );
+		response.addHeader( "X-Test", "yes" );
+		LogResponseWrapper responseWrapper = new LogResponseWrapper( response );
+		responseWrapper.getOutputStream().write( "response body".getBytes( StandardCharsets.UTF_8 ) );
+
+		return new RequestResponseLogEntry( started, started + 50, requestWrapper, responseWrapper );
+	}
+}
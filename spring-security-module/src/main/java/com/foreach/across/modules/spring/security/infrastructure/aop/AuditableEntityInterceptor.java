@@ -15,6 +15,7 @@
  */
 package com.foreach.across.modules.spring.security.infrastructure.aop;
 
+import com.foreach.across.modules.hibernate.aop.BatchEntityInterceptor;
 import com.foreach.across.modules.hibernate.aop.EntityInterceptorAdapter;
 import com.foreach.across.modules.hibernate.business.Auditable;
 import com.foreach.across.modules.spring.security.infrastructure.business.SecurityPrincipal;
@@ -23,14 +24,19 @@ import com.foreach.across.modules.spring.security.infrastructure.services.Curren
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.TypeDescriptor;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Set Auditable-related properties whenever an Auditable-entity is created or updated.
+ * When saving multiple entities at once, the timestamp and principal are only resolved once per batch.
  *
  * @author Wim Tibackx
  */
-public class AuditableEntityInterceptor extends EntityInterceptorAdapter<Auditable>
+public class AuditableEntityInterceptor extends EntityInterceptorAdapter<Auditable> implements BatchEntityInterceptor<Auditable>
 {
 	@Autowired
 	private CurrentSecurityPrincipalProxy currentPrincipal;
@@ -41,26 +47,65 @@ public class AuditableEntityInterceptor extends EntityInterceptorAdapter<Auditab
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public void beforeCreate( Auditable entity ) {
-		Date createdDate = entity.getCreatedDate() == null ? new Date() : entity.getCreatedDate();
+		setCreated( entity, System.currentTimeMillis(), () -> getAuditablePrincipal( entity ) );
+	}
+
+	@Override
+	public void beforeCreateAll( Collection<Auditable> entities ) {
+		long timestamp = System.currentTimeMillis();
+		Map<Class<?>, Object> principals = new HashMap<>();
+
+		for ( Auditable entity : entities ) {
+			setCreated( entity, timestamp, () -> getAuditablePrincipal( entity, principals ) );
+		}
+	}
+
+	@Override
+	public void beforeUpdate( Auditable entity ) {
+		setLastModified( entity, System.currentTimeMillis(), getAuditablePrincipal( entity ) );
+	}
+
+	@Override
+	public void beforeUpdateAll( Collection<Auditable> entities ) {
+		long timestamp = System.currentTimeMillis();
+		Map<Class<?>, Object> principals = new HashMap<>();
+
+		for ( Auditable entity : entities ) {
+			setLastModified( entity, timestamp, getAuditablePrincipal( entity, principals ) );
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void setCreated( Auditable entity, long timestamp, Supplier<Object> principal ) {
+		Date createdDate = entity.getCreatedDate() == null ? new Date( timestamp ) : entity.getCreatedDate();
 		entity.setCreatedDate( createdDate );
 		entity.setLastModifiedDate( createdDate );
 
-		Object createdBy = entity.getCreatedBy() == null ? getAuditablePrincipal( entity ) : entity.getCreatedBy();
+		Object createdBy = entity.getCreatedBy() == null ? principal.get() : entity.getCreatedBy();
 		entity.setCreatedBy( createdBy );
 		entity.setLastModifiedBy( createdBy );
 	}
 
-	@Override
 	@SuppressWarnings("unchecked")
-	public void beforeUpdate( Auditable entity ) {
-		entity.setLastModifiedDate( new Date() );
-
-		Object lastModifiedBy = getAuditablePrincipal( entity );
+	private void setLastModified( Auditable entity, long timestamp, Object lastModifiedBy ) {
+		entity.setLastModifiedDate( new Date( timestamp ) );
 		entity.setLastModifiedBy( lastModifiedBy );
 	}
 
+	/**
+	 * The principal only depends on the auditor type of the entity, resolve it once per entity class.
+	 */
+	private Object getAuditablePrincipal( Auditable entity, Map<Class<?>, Object> principals ) {
+		Class<?> entityClass = entity.getClass();
+		if ( principals.containsKey( entityClass ) ) {
+			return principals.get( entityClass );
+		}
+		Object principal = getAuditablePrincipal( entity );
+		principals.put( entityClass, principal );
+		return principal;
+	}
+
 	@SuppressWarnings("unchecked")
 	private Object getAuditablePrincipal( Auditable entity ) {
 		Class auditorType = TypeDescriptor.forObject( entity )
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.across.modules.spring.security.infrastructure.aop;
+
+import com.foreach.across.modules.hibernate.business.Auditable;
+import com.foreach.across.modules.hibernate.business.AuditableEntity;
+import com.foreach.across.modules.spring.security.infrastructure.services.CurrentSecurityPrincipalProxy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TestAuditableEntityInterceptor
+{
+	@Mock
+	private CurrentSecurityPrincipalProxy currentPrincipal;
+
+	@InjectMocks
+	private AuditableEntityInterceptor interceptor;
+
+	@BeforeEach
+	public void before() {
+		when( currentPrincipal.getPrincipalName() ).thenReturn( "admin" );
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void createdBatchSharesTimestampAndPrincipal() {
+		Date existingDate = new Date( 1000 );
+
+		Entity first = new Entity();
+		Entity second = new Entity();
+		Entity existing = new Entity();
+		existing.setCreatedBy( "import" );
+		existing.setCreatedDate( existingDate );
+
+		interceptor.beforeCreateAll( Arrays.<Auditable>asList( first, second, existing ) );
+
+		assertNotNull( first.getCreatedDate() );
+		assertEquals( first.getCreatedDate(), second.getCreatedDate() );
+		assertEquals( first.getCreatedDate(), first.getLastModifiedDate() );
+		assertEquals( "admin", first.getCreatedBy() );
+		assertEquals( "admin", second.getLastModifiedBy() );
+
+		assertEquals( existingDate, existing.getCreatedDate() );
+		assertEquals( existingDate, existing.getLastModifiedDate() );
+		assertEquals( "import", existing.getCreatedBy() );
+		assertEquals( "import", existing.getLastModifiedBy() );
+
+		verify( currentPrincipal, times( 1 ) ).getPrincipalName();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void updatedBatchSharesTimestampAndPrincipal() {
+		Entity first = new Entity();
+		first.setCreatedBy( "import" );
+		Entity second = new Entity();
+
+		interceptor.beforeUpdateAll( Arrays.<Auditable>asList( first, second ) );
+
+		assertNotNull( first.getLastModifiedDate() );
+		assertEquals( first.getLastModifiedDate(), second.getLastModifiedDate() );
+		assertEquals( "admin", first.getLastModifiedBy() );
+		assertEquals( "admin", second.getLastModifiedBy() );
+		assertEquals( "import", first.getCreatedBy() );
+		assertNull( second.getCreatedDate() );
+
+		verify( currentPrincipal, times( 1 ) ).getPrincipalName();
+	}
+
+	static class Entity extends AuditableEntity
+	{
+	}
+}